@@ -24,6 +24,7 @@
 package javaChessEngineToolkit;
 
 import chesspresso.Chess;
+import javaChessEngineToolkit.jfr.ClockEvent;
 
 public class ChessClock {
     private long whiteTimeMs;
@@ -31,6 +32,7 @@ public class ChessClock {
 
     private int color;
     private long clockStarted;
+    private ClockEvent clockEvent;
 
     /**
      * Creates a new ChessClock instance.
@@ -45,16 +47,34 @@ public class ChessClock {
     public void startClock(int color) {
         this.color = color;
         this.clockStarted = System.currentTimeMillis();
+        this.clockEvent = new ClockEvent();
+        this.clockEvent.begin();
     }
 
     public void stopClock() {
+        stopClock(0);
+    }
+
+    /**
+     * Stops the clock, not charging the side to move for time its move spent in transit.
+     * @param latencyCompensationMs Time to not charge, e.g. the engine's Engine.getLatencyCompensationMs(). At most the time used is not charged.
+     */
+    public void stopClock(long latencyCompensationMs) {
         long clockStopped = System.currentTimeMillis();
+        long used = Math.max(0,clockStopped - this.clockStarted - latencyCompensationMs);
 
         if (color == Chess.WHITE) {
-            this.whiteTimeMs -= clockStopped - this.clockStarted;
+            this.whiteTimeMs -= used;
         } else {
-            this.blackTimeMs -= clockStopped - this.clockStarted;
+            this.blackTimeMs -= used;
+        }
+        if (clockEvent != null && clockEvent.shouldCommit()) {
+            clockEvent.color = color == Chess.WHITE ? "white" : "black";
+            clockEvent.used = used;
+            clockEvent.remaining = getClockForColor(color);
+            clockEvent.commit();
         }
+        this.clockEvent = null;
         this.clockStarted = 0;
     }
 
@@ -25,12 +25,16 @@ package javaChessEngineToolkit;
 
 import chesspresso.Chess;
 import chesspresso.game.Game;
+import chesspresso.move.IllegalMoveException;
 import chesspresso.move.Move;
+import chesspresso.pgn.PGN;
 import chesspresso.pgn.PGNWriter;
 import chesspresso.position.Position;
 
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ChesspressoUtils {
 	public static int getWhiteBoardStrength(Position position) {
@@ -126,6 +130,57 @@ public class ChesspressoUtils {
 		return stringBuilder.toString();
 	}
 	
+	/**
+	 * Gets the UCI notation of a move, for example "e2e4" or "e7e8q".
+	 */
+	public static String getUciNotation(short move) {
+		StringBuilder stringBuilder = new StringBuilder(5);
+		stringBuilder.append(Chess.sqiToStr(Move.getFromSqi(move)));
+		stringBuilder.append(Chess.sqiToStr(Move.getToSqi(move)));
+		if (Move.isPromotion(move)) {
+			stringBuilder.append(Character.toLowerCase(Chess.pieceToChar(Move.getPromotionPiece(move))));
+		}
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Gets the move of the position matching a move in UCI notation.
+	 * @return The move as returned by Position.getMove, or Move.NO_MOVE if the notation is malformed.
+	 */
+	public static short getMoveFromUciNotation(Position position, String uciMove) {
+		if (uciMove == null || uciMove.length() < 4 || uciMove.length() > 5) {
+			return Move.NO_MOVE;
+		}
+		int fromSqi = Chess.strToSqi(uciMove.substring(0, 2));
+		int toSqi = Chess.strToSqi(uciMove.substring(2, 4));
+		int promoPiece = uciMove.length() == 5 ? Chess.charToPiece(Character.toUpperCase(uciMove.charAt(4))) : Chess.NO_PIECE;
+		return position.getMove(fromSqi, toSqi, promoPiece);
+	}
+
+	/**
+	 * Converts a line of moves in UCI notation to SAN, stopping at the first move that is not legal.
+	 * @param position Position the line starts from. It is not modified.
+	 * @param uciMoves Moves in UCI notation.
+	 * @return The SAN of the legal prefix of the line.
+	 */
+	public static String[] getSanLine(Position position, String[] uciMoves) {
+		List<String> sanMoves = new ArrayList<String>(uciMoves.length);
+		Position _position = new Position(position);
+		for (String uciMove : uciMoves) {
+			short move = getMoveFromUciNotation(_position, uciMove);
+			if (!Move.isValid(move)) {
+				break;
+			}
+			try {
+				_position.doMove(move);
+			} catch (IllegalMoveException e) {
+				break;
+			}
+			sanMoves.add(_position.getLastMove().getSAN());
+		}
+		return sanMoves.toArray(new String[0]);
+	}
+
 	public static boolean isDraw(Position position) {
 		return hasInsufficientMatingMaterial(position) || position.getHalfMoveClock() >= 50;
 	}
@@ -136,6 +191,21 @@ public class ChesspressoUtils {
 		return whiteStrength == 0 && blackStrength == 0;
 	}
 	
+	/**
+	 * Creates a game that starts from the given position, with the PGN FEN and SetUp tags set.
+	 * @param fen Start position, or null for the initial position.
+	 */
+	public static Game createGame(String fen) {
+		Game game = new Game();
+		if (fen != null) {
+			game.setTag(PGN.TAG_SET_UP, "1");
+			game.setTag(PGN.TAG_FEN, fen);
+			// The Game constructor sets up the start position from the FEN tag.
+			game = new Game(game.getModel());
+		}
+		return game;
+	}
+
 	public static void writePgn(Game game, OutputStream outputStream) {
 		PrintWriter printWriter = new PrintWriter(outputStream);
 		PGNWriter pgnWriter = new PGNWriter(printWriter);
@@ -144,10 +214,9 @@ public class ChesspressoUtils {
 	}
 
 	public static String getEPD(Game game,String bestMove,String id) {
-		String fen = game.getPosition().getFEN();
-		for(int i=0;i<2;i++) {
-			fen = fen.substring(0,fen.lastIndexOf(" "));
-		}
-		return fen + " bm " + bestMove + "; id \"" + id + "\";";
+		StringBuilder stringBuilder = new StringBuilder(128);
+		FenCodec.appendEPD(game.getPosition(),stringBuilder);
+		stringBuilder.append(" bm ").append(bestMove).append("; id \"").append(id).append("\";");
+		return stringBuilder.toString();
 	}
 }
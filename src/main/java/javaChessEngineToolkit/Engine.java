@@ -23,6 +23,10 @@
  */
 package javaChessEngineToolkit;
 
+import chesspresso.position.Position;
+import javaChessEngineToolkit.jfr.GamePhase;
+import javaChessEngineToolkit.jfr.MoveRequestEvent;
+
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -39,8 +43,21 @@ public abstract class Engine {
 	 * @throws InterruptedException
 	 */
 	public Future<Move> getBestMove(GameContext gameContext) throws ExecutionException, InterruptedException {
-		Future<Move[]> movesFuture = this.requestMove(gameContext);
-		Move[] moves = movesFuture.get();
+		MoveRequestEvent event = new MoveRequestEvent();
+		event.begin();
+		Move[] moves = null;
+		String outcome = null;
+		try {
+			Future<Move[]> movesFuture = this.requestMove(gameContext);
+			moves = movesFuture.get();
+		} catch (ExecutionException | InterruptedException | RuntimeException e) {
+			outcome = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			if (event.shouldCommit()) {
+				commitMoveRequestEvent(event,gameContext,moves,outcome);
+			}
+		}
 		if (moves != null && moves.length > 0) {
 			CompletableFuture<Move> futureMove = new CompletableFuture<Move>();
 			futureMove.complete(moves[0]);
@@ -49,7 +66,63 @@ public abstract class Engine {
 		return null;
 	}
 
+	private void commitMoveRequestEvent(MoveRequestEvent event,GameContext gameContext,Move[] moves,String outcome) {
+		Position position = gameContext.getGame().getPosition();
+		event.engine = getName();
+		event.ply = position.getPlyNumber();
+		event.gamePhase = GamePhase.of(position);
+		if (moves != null && moves.length > 0) {
+			event.move = moves[0].getNotation();
+			event.outcome = "move";
+		} else {
+			event.outcome = outcome != null ? outcome : "no move";
+		}
+		event.commit();
+	}
+
 	public abstract Future<Move[]> requestMove(GameContext gameContext);
 
+	/**
+	 * Fills moveList with the moves requested from the engine, best first.
+	 * The default implementation adapts requestMove(gameContext); engines that can fill the list without allocating should override it.
+	 * @param gameContext GameContext
+	 * @param moveList List to fill. It is cleared first.
+	 * @throws ExecutionException
+	 * @throws InterruptedException
+	 */
+	public void requestMove(GameContext gameContext,MoveList moveList) throws ExecutionException, InterruptedException {
+		moveList.clear();
+		Move[] moves = this.requestMove(gameContext).get();
+		if (moves != null) {
+			moveList.addAll(moves);
+		}
+	}
+
 	public abstract void startNewGame(GameContext gameContext);
+
+	/**
+	 * Called by EngineMatch before the engine's clock is started for a move, for checks that should not be charged to it.
+	 * Does nothing by default.
+	 * @param gameContext GameContext
+	 * @throws ExecutionException If the engine cannot move, e.g. with an EngineFailureException as its cause.
+	 */
+	public void prepareMove(GameContext gameContext) throws ExecutionException {
+	}
+
+	/**
+	 * Gets the time of every move that is spent getting the request to the engine and its answer back, rather than thinking,
+	 * e.g. for an engine on another host. It is credited back to the engine's clock.
+	 * @return Latency compensation in milliseconds, 0 by default.
+	 */
+	public long getLatencyCompensationMs() {
+		return 0;
+	}
+
+	/**
+	 * Gets the last search info reported for the principal variation of the most recent request, if the engine reports any.
+	 * @return SearchInfo, or null.
+	 */
+	public SearchInfo getLastSearchInfo() {
+		return null;
+	}
 }
@@ -27,13 +27,25 @@ import chesspresso.Chess;
 import chesspresso.game.Game;
 import chesspresso.move.IllegalMoveException;
 import chesspresso.pgn.PGN;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.endgame.Bitbases;
+import javaChessEngineToolkit.events.GameEndedEvent;
+import javaChessEngineToolkit.events.GameEvent;
+import javaChessEngineToolkit.events.GameListener;
+import javaChessEngineToolkit.events.GameStartedEvent;
+import javaChessEngineToolkit.events.MovePlayedEvent;
+import javaChessEngineToolkit.jfr.MatchEvent;
+import javaChessEngineToolkit.metrics.Histogram;
+import javaChessEngineToolkit.metrics.MetricsRegistry;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class EngineMatch {
+	private static final AtomicLong nextGameId = new AtomicLong();
+
 	private Engine whiteEngine;
 	private Engine blackEngine;
 	private EngineMatchOptions engineMatchOptions;
@@ -45,6 +57,14 @@ public class EngineMatch {
 	}
 	
 	public EngineMatchResult play() throws IllegalMoveException, ExecutionException, InterruptedException {
+		// Loading or generating the tables takes seconds, which must not be charged to an engine's clock.
+		Bitbases bitbases = engineMatchOptions.getBitbases();
+		if (bitbases != null) {
+			bitbases.loadAll();
+		}
+
+		MatchEvent matchEvent = new MatchEvent();
+		matchEvent.begin();
 		ChessClock chessClock = null;
 		if (engineMatchOptions.isTimed()) {
 			chessClock = new ChessClock(engineMatchOptions.getTime()*60*1000,engineMatchOptions.getTime()*60*1000);
@@ -54,29 +74,40 @@ public class EngineMatch {
 		GameResult gameResult = null;
 		EngineMatchResult engineMatchResult;
 		
-		final Game game = new Game();
+		final OpeningSuite openingSuite = engineMatchOptions.getOpeningSuite();
+		final int openingIndex = engineMatchOptions.getOpeningIndex();
+		final Game game = ChesspressoUtils.createGame(openingSuite != null ? openingSuite.getFEN(openingIndex) : null);
 		game.setTag(PGN.TAG_WHITE,whiteEngine.getName());
 		game.setTag(PGN.TAG_WHITE_ELO,String.valueOf(whiteEngine.getEstimatedElo()));
 		game.setTag(PGN.TAG_BLACK,blackEngine.getName());
 		game.setTag(PGN.TAG_BLACK_ELO,String.valueOf(blackEngine.getEstimatedElo()));
 
+		if (openingSuite != null) {
+			for (String openingMove : openingSuite.getMoves(openingIndex)) {
+				short move = ChesspressoUtils.getMoveFromUciNotation(game.getPosition(),openingMove);
+				if (!chesspresso.move.Move.isValid(move)) {
+					throw new IllegalMoveException("Illegal move " + openingMove + " in opening " + openingIndex);
+				}
+				game.getPosition().doMove(move);
+			}
+		}
+
+		MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+		String match = whiteEngine.getName() + " vs " + blackEngine.getName();
+		Histogram drawCheckHistogram = metricsRegistry.histogram("jcet_match_draw_check_us","match",match);
+		Histogram whiteMoveHistogram = metricsRegistry.histogram("jcet_match_move_ms","match",match,"engine",whiteEngine.getName());
+		Histogram blackMoveHistogram = metricsRegistry.histogram("jcet_match_move_ms","match",match,"engine",blackEngine.getName());
+		long gameStarted = System.nanoTime();
+
 		GameContext gameContext = new GameContext(game,chessClock,whiteEngine,blackEngine);
 		whiteEngine.startNewGame(gameContext);
 		blackEngine.startNewGame(gameContext);
 
-//		final ChessClock finalChessClock = chessClock;
-
-		List<Runnable> onEveryMoveHalfMoveRunnables = new ArrayList<Runnable>();
-		onEveryMoveHalfMoveRunnables.add(new Runnable() {
-			@Override
-			public void run() {
-				System.out.println(game.getPosition().getFEN());
-
-//				if (finalChessClock != null) {
-//					System.out.println(String.format("(%s) (%s)",ChessClockUtils.formatTime(finalChessClock.getClockForColor(Chess.WHITE)),ChessClockUtils.formatTime(finalChessClock.getClockForColor(Chess.BLACK))));
-//				}
-			}
-		});
+		final List<GameListener> gameListeners = engineMatchOptions.getGameListeners();
+		final long gameId = nextGameId.incrementAndGet();
+		if (!gameListeners.isEmpty()) {
+			fireGameEvent(gameListeners,new GameStartedEvent(gameId,whiteEngine.getName(),blackEngine.getName(),game.getPosition().getFEN()));
+		}
 		
 		while(game.getPosition().canMove()) {
 			boolean shouldAddInc = game.getCurrentMoveNumber() > 0;
@@ -94,34 +125,55 @@ public class EngineMatch {
 				}
 			}
 
-			if (ChesspressoUtils.isDraw(game.getPosition())) {
-				gameResult = GameResult.DRAW;
-				gameReason = "Game drawn.";
+			long drawCheckStarted = System.nanoTime();
+			boolean draw = ChesspressoUtils.isDraw(game.getPosition());
+			gameResult = draw ? GameResult.DRAW : adjudicate(game.getPosition());
+			drawCheckHistogram.record((System.nanoTime() - drawCheckStarted) / 1000);
+			if (gameResult != null) {
+				gameReason = draw ? "Game drawn." : "Adjudicated by endgame bitbase.";
 				break;
 			}
 
-			if (chessClock != null) {
-				chessClock.startClock(Chess.WHITE);
-			}
-			Future<Move> whiteMoveFuture = whiteEngine.getBestMove(gameContext);
-			Move whiteMove = whiteMoveFuture.get();
-			if (chessClock != null) {
-				chessClock.stopClock();
-				if (shouldAddInc) {
-					chessClock.addTimeToClock(Chess.WHITE,engineMatchOptions.getInc()*1000);
+			// An opening may leave black to move first.
+			if (game.getPosition().getToPlay() == Chess.WHITE) {
+				Move whiteMove;
+				long thinkTimeMs;
+				try {
+					whiteEngine.prepareMove(gameContext);
+					if (chessClock != null) {
+						chessClock.startClock(Chess.WHITE);
+					}
+					long moveStarted = System.nanoTime();
+					Future<Move> whiteMoveFuture = whiteEngine.getBestMove(gameContext);
+					whiteMove = whiteMoveFuture.get();
+					thinkTimeMs = (System.nanoTime() - moveStarted) / 1000000;
+					whiteMoveHistogram.record(thinkTimeMs);
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof EngineFailureException)) {
+						throw e;
+					}
+					gameResult = engineMatchOptions.isAbortOnEngineFailure() ? null : GameResult.BLACK_WIN;
+					gameReason = "White engine failed. " + e.getCause().getMessage();
+					break;
 				}
-			}
-			if (whiteMove != null) {
-				game.getPosition().doMove(whiteMove.getShortValue());
-
-				for(Runnable runnable : onEveryMoveHalfMoveRunnables) {
-					runnable.run();
+				if (chessClock != null) {
+					chessClock.stopClock(whiteEngine.getLatencyCompensationMs());
+					if (shouldAddInc) {
+						chessClock.addTimeToClock(Chess.WHITE,engineMatchOptions.getInc()*1000);
+					}
 				}
+				if (whiteMove != null) {
+					game.getPosition().doMove(whiteMove.getShortValue());
 
-				if (game.getPosition().isMate()) {
-					gameResult = GameResult.WHITE_WIN;
-					gameReason = "Black checkmated.";
-					break;
+					if (!gameListeners.isEmpty()) {
+						fireGameEvent(gameListeners,createMovePlayedEvent(gameId,game.getPosition(),Chess.WHITE,whiteMove,thinkTimeMs,whiteEngine,chessClock));
+					}
+
+					if (game.getPosition().isMate()) {
+						gameResult = GameResult.WHITE_WIN;
+						gameReason = "Black checkmated.";
+						break;
+					}
 				}
 			}
 			
@@ -130,19 +182,37 @@ public class EngineMatch {
 				gameReason = "Game drawn due to stalemate.";
 				break;
 			}
-			if (ChesspressoUtils.isDraw(game.getPosition())) {
-				gameResult = GameResult.DRAW;
-				gameReason = "Game drawn.";
+			drawCheckStarted = System.nanoTime();
+			draw = ChesspressoUtils.isDraw(game.getPosition());
+			gameResult = draw ? GameResult.DRAW : adjudicate(game.getPosition());
+			drawCheckHistogram.record((System.nanoTime() - drawCheckStarted) / 1000);
+			if (gameResult != null) {
+				gameReason = draw ? "Game drawn." : "Adjudicated by endgame bitbase.";
 				break;
 			}
 
-			if (chessClock != null) {
-				chessClock.startClock(Chess.BLACK);
+			Move blackMove;
+			long thinkTimeMs;
+			try {
+				blackEngine.prepareMove(gameContext);
+				if (chessClock != null) {
+					chessClock.startClock(Chess.BLACK);
+				}
+				long moveStarted = System.nanoTime();
+				Future<Move> blackMoveFuture = blackEngine.getBestMove(gameContext);
+				blackMove = blackMoveFuture.get();
+				thinkTimeMs = (System.nanoTime() - moveStarted) / 1000000;
+				blackMoveHistogram.record(thinkTimeMs);
+			} catch (ExecutionException e) {
+				if (!(e.getCause() instanceof EngineFailureException)) {
+					throw e;
+				}
+				gameResult = engineMatchOptions.isAbortOnEngineFailure() ? null : GameResult.WHITE_WIN;
+				gameReason = "Black engine failed. " + e.getCause().getMessage();
+				break;
 			}
-			Future<Move> blackMoveFuture = blackEngine.getBestMove(gameContext);
-			Move blackMove = blackMoveFuture.get();
 			if (chessClock != null) {
-				chessClock.stopClock();
+				chessClock.stopClock(blackEngine.getLatencyCompensationMs());
 				if (shouldAddInc) {
 					chessClock.addTimeToClock(Chess.BLACK,engineMatchOptions.getInc()*1000);
 				}
@@ -150,8 +220,8 @@ public class EngineMatch {
 			if (blackMove != null) {
 				game.getPosition().doMove(blackMove.getShortValue());
 
-				for(Runnable runnable : onEveryMoveHalfMoveRunnables) {
-					runnable.run();
+				if (!gameListeners.isEmpty()) {
+					fireGameEvent(gameListeners,createMovePlayedEvent(gameId,game.getPosition(),Chess.BLACK,blackMove,thinkTimeMs,blackEngine,chessClock));
 				}
 
 				if (game.getPosition().isMate()) {
@@ -163,10 +233,50 @@ public class EngineMatch {
 		}
 		
 		game.setTag(PGN.TAG_RESULT,getResult(gameResult));
+		metricsRegistry.histogram("jcet_match_game_ms","match",match).record((System.nanoTime() - gameStarted) / 1000000);
+		metricsRegistry.counter("jcet_match_games","match",match).increment();
+		metricsRegistry.counter("jcet_engine_games","engine",whiteEngine.getName()).increment();
+		metricsRegistry.counter("jcet_engine_games","engine",blackEngine.getName()).increment();
+		if (matchEvent.shouldCommit()) {
+			matchEvent.white = whiteEngine.getName();
+			matchEvent.black = blackEngine.getName();
+			matchEvent.result = getResult(gameResult);
+			matchEvent.reason = gameReason;
+			matchEvent.plies = game.getPosition().getPlyNumber();
+			matchEvent.commit();
+		}
+		if (!gameListeners.isEmpty()) {
+			fireGameEvent(gameListeners,new GameEndedEvent(gameId,getResult(gameResult),gameReason,game.getPosition().getPlyNumber()));
+		}
 		engineMatchResult = new EngineMatchResult(game,gameResult,gameReason);
 		return engineMatchResult;
 	}
 	
+	private MovePlayedEvent createMovePlayedEvent(long gameId,Position position,int color,Move move,long thinkTimeMs,Engine engine,ChessClock chessClock) {
+		long whiteClockMs = chessClock != null ? chessClock.getClockForColor(Chess.WHITE) : -1;
+		long blackClockMs = chessClock != null ? chessClock.getClockForColor(Chess.BLACK) : -1;
+		// The position is already past the move.
+		return new MovePlayedEvent(gameId,position.getPlyNumber() - 1,color,move.getNotation(),move.getShortValue(),thinkTimeMs,engine.getLastSearchInfo(),whiteClockMs,blackClockMs);
+	}
+
+	private void fireGameEvent(List<GameListener> gameListeners,GameEvent gameEvent) {
+		for (GameListener gameListener : gameListeners) {
+			try {
+				gameEvent.dispatch(gameListener);
+			} catch (RuntimeException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+
+	/**
+	 * @return The bitbase result of the position, or null if there are no bitbases or they do not cover it.
+	 */
+	private GameResult adjudicate(Position position) {
+		Bitbases bitbases = engineMatchOptions.getBitbases();
+		return bitbases != null ? bitbases.probe(position) : null;
+	}
+
 	private String getResult(GameResult gameResult) {
 		if (gameResult == GameResult.WHITE_WIN) {
 			return "1-0";
@@ -175,6 +285,7 @@ public class EngineMatch {
 		} else if (gameResult == GameResult.BLACK_WIN) {
 			return "0-1";
 		}
-		return null;
+		// Unfinished or aborted.
+		return "*";
 	}
 }
@@ -23,10 +23,42 @@
  */
 package javaChessEngineToolkit;
 
+import javaChessEngineToolkit.endgame.Bitbases;
+import javaChessEngineToolkit.events.GameListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class EngineMatchOptions {
     private boolean timed = false;
     private int time;
     private int inc;
+    private OpeningSuite openingSuite;
+    private int openingIndex;
+    private Bitbases bitbases;
+    private boolean abortOnEngineFailure = false;
+    private List<GameListener> gameListeners = new ArrayList<GameListener>();
+
+    public EngineMatchOptions() {
+
+    }
+
+    /**
+     * Creates a copy of the options, e.g. to set the opening index of one game among several that run at once.
+     * @param engineMatchOptions
+     */
+    public EngineMatchOptions(EngineMatchOptions engineMatchOptions) {
+        this.timed = engineMatchOptions.timed;
+        this.time = engineMatchOptions.time;
+        this.inc = engineMatchOptions.inc;
+        this.openingSuite = engineMatchOptions.openingSuite;
+        this.openingIndex = engineMatchOptions.openingIndex;
+        this.bitbases = engineMatchOptions.bitbases;
+        this.abortOnEngineFailure = engineMatchOptions.abortOnEngineFailure;
+        this.gameListeners = new ArrayList<GameListener>(engineMatchOptions.gameListeners);
+    }
 
     /**
      * Sets whether an engine match should be timed.
@@ -63,4 +95,79 @@ public class EngineMatchOptions {
     public void setInc(int inc) {
         this.inc = inc;
     }
+
+    public OpeningSuite getOpeningSuite() {
+        return openingSuite;
+    }
+
+    /**
+     * Sets the openings to start games from. If null, games start from the initial position.
+     * @param openingSuite
+     */
+    public void setOpeningSuite(OpeningSuite openingSuite) {
+        this.openingSuite = openingSuite;
+    }
+
+    /**
+     * Loads the openings to start games from (see OpeningSuite.load).
+     * @param openingSuiteFile EPD/FEN file, or PGN file of move sequences.
+     * @throws IOException
+     */
+    public void setOpeningSuiteFile(File openingSuiteFile) throws IOException {
+        this.openingSuite = OpeningSuite.load(openingSuiteFile);
+    }
+
+    public int getOpeningIndex() {
+        return openingIndex;
+    }
+
+    /**
+     * Index of the opening of the suite the next match should start from.
+     * @param openingIndex
+     */
+    public void setOpeningIndex(int openingIndex) {
+        this.openingIndex = openingIndex;
+    }
+
+    public Bitbases getBitbases() {
+        return bitbases;
+    }
+
+    /**
+     * Sets the bitbases games are adjudicated with as soon as they reach a covered endgame. If null, they are played out.
+     * @param bitbases
+     */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    public boolean isAbortOnEngineFailure() {
+        return abortOnEngineFailure;
+    }
+
+    /**
+     * Sets what happens to a game when an engine crashes or hangs: if true, it is aborted without a result,
+     * otherwise the failing engine loses it.
+     * @param abortOnEngineFailure
+     */
+    public void setAbortOnEngineFailure(boolean abortOnEngineFailure) {
+        this.abortOnEngineFailure = abortOnEngineFailure;
+    }
+
+    public List<GameListener> getGameListeners() {
+        return gameListeners;
+    }
+
+    /**
+     * Adds a listener for the events of the games played with these options. It is called on the match thread;
+     * wrap it in an AsyncGameListener unless it is cheap.
+     * @param gameListener
+     */
+    public void addGameListener(GameListener gameListener) {
+        gameListeners.add(gameListener);
+    }
+
+    public void removeGameListener(GameListener gameListener) {
+        gameListeners.remove(gameListener);
+    }
 }
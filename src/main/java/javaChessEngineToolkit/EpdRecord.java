@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A position and its operations, as read from or written to an EPD line.
+ * Operands are kept as written, so string operands keep their quotes; use getStringOperation for the unquoted text.
+ */
+public class EpdRecord {
+	private final String position;
+	private final Map<String,String> operations = new LinkedHashMap<String,String>();
+
+	/**
+	 * @param position The first four FEN fields: placement, side to move, castling and en passant.
+	 */
+	public EpdRecord(String position) {
+		this.position = position;
+	}
+
+	/**
+	 * Parses an EPD line. A FEN line is accepted too; its half-move clock and move number become the 'hmvc' and 'fmvn' operations.
+	 * @param line EPD or FEN line.
+	 * @return EpdRecord
+	 * @throws IllegalArgumentException If the line has fewer than four fields.
+	 */
+	public static EpdRecord parse(String line) {
+		line = line.trim();
+		int end = 0;
+		for (int i = 0; i < 4; i++) {
+			int space = line.indexOf(' ',end);
+			if (space < 0) {
+				if (i == 3) {
+					return new EpdRecord(line);
+				}
+				throw new IllegalArgumentException("Not an EPD line: " + line);
+			}
+			end = i == 3 ? space : space + 1;
+		}
+		EpdRecord epdRecord = new EpdRecord(line.substring(0,end));
+		String rest = line.substring(end).trim();
+
+		String[] fields = rest.split(" ");
+		if (fields.length == 2 && isNumber(fields[0]) && isNumber(fields[1])) {
+			epdRecord.setOperation("hmvc",fields[0]);
+			epdRecord.setOperation("fmvn",fields[1]);
+			return epdRecord;
+		}
+
+		int start = 0;
+		boolean quoted = false;
+		for (int i = 0; i < rest.length(); i++) {
+			char c = rest.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ';' && !quoted) {
+				epdRecord.addParsedOperation(rest.substring(start,i));
+				start = i + 1;
+			}
+		}
+		epdRecord.addParsedOperation(rest.substring(start));
+		return epdRecord;
+	}
+
+	private void addParsedOperation(String operation) {
+		operation = operation.trim();
+		if (operation.isEmpty()) {
+			return;
+		}
+		int space = operation.indexOf(' ');
+		if (space < 0) {
+			operations.put(operation,"");
+		} else {
+			operations.put(operation.substring(0,space),operation.substring(space + 1).trim());
+		}
+	}
+
+	private static boolean isNumber(String s) {
+		if (s.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isDigit(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return A FEN of the position, using the 'hmvc' and 'fmvn' operations when present.
+	 */
+	public String getFEN() {
+		String halfMoveClock = operations.containsKey("hmvc") ? operations.get("hmvc") : "0";
+		String fullMoveNumber = operations.containsKey("fmvn") ? operations.get("fmvn") : "1";
+		return position + " " + halfMoveClock + " " + fullMoveNumber;
+	}
+
+	public boolean hasOperation(String opcode) {
+		return operations.containsKey(opcode);
+	}
+
+	/**
+	 * @return The operand as written, or null if the operation is not present.
+	 */
+	public String getOperation(String opcode) {
+		return operations.get(opcode);
+	}
+
+	/**
+	 * @return The operand with surrounding quotes removed, or null if the operation is not present.
+	 */
+	public String getStringOperation(String opcode) {
+		String operand = operations.get(opcode);
+		if (operand != null && operand.length() >= 2 && operand.startsWith("\"") && operand.endsWith("\"")) {
+			return operand.substring(1,operand.length() - 1);
+		}
+		return operand;
+	}
+
+	/**
+	 * @return The operand split on spaces, for operations with several operands such as 'bm', 'am' or 'pv'. Empty if not present.
+	 */
+	public String[] getOperands(String opcode) {
+		String operand = operations.get(opcode);
+		if (operand == null || operand.isEmpty()) {
+			return new String[0];
+		}
+		return operand.split(" +");
+	}
+
+	public void setOperation(String opcode,String operand) {
+		operations.put(opcode,operand);
+	}
+
+	public void setStringOperation(String opcode,String value) {
+		operations.put(opcode,"\"" + value.replace("\"","'") + "\"");
+	}
+
+	public void removeOperation(String opcode) {
+		operations.remove(opcode);
+	}
+
+	public Map<String,String> getOperations() {
+		return Collections.unmodifiableMap(operations);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder stringBuilder = new StringBuilder(position);
+		for (Map.Entry<String,String> operation : operations.entrySet()) {
+			stringBuilder.append(' ').append(operation.getKey());
+			if (!operation.getValue().isEmpty()) {
+				stringBuilder.append(' ').append(operation.getValue());
+			}
+			stringBuilder.append(';');
+		}
+		return stringBuilder.toString();
+	}
+}
@@ -0,0 +1,622 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses and writes FEN and EPD without allocating per position.
+ * <p>
+ * A FenCodec parses a line, from a CharSequence or from ASCII bytes in a ByteBuffer, into fields of its own, which can
+ * then be copied into a reused chesspresso Position, or written as a PackedPosition record, without going through a
+ * String. The line is copied into a buffer of the codec's, and the EPD operations are kept as offsets into it.
+ * A FenCodec is reused from line to line, and is not thread-safe.
+ * <p>
+ * The static methods write the FEN or EPD of a Position into a reused StringBuilder or ByteBuffer.
+ */
+public class FenCodec {
+	private static final char[] STONE_CHARS = new char[Chess.MAX_STONE - Chess.MIN_STONE + 1];
+	private static final int[] CHAR_STONES = new int[128];
+
+	static {
+		setStoneChar(Chess.WHITE_KING,'K');
+		setStoneChar(Chess.WHITE_QUEEN,'Q');
+		setStoneChar(Chess.WHITE_ROOK,'R');
+		setStoneChar(Chess.WHITE_BISHOP,'B');
+		setStoneChar(Chess.WHITE_KNIGHT,'N');
+		setStoneChar(Chess.WHITE_PAWN,'P');
+		setStoneChar(Chess.BLACK_KING,'k');
+		setStoneChar(Chess.BLACK_QUEEN,'q');
+		setStoneChar(Chess.BLACK_ROOK,'r');
+		setStoneChar(Chess.BLACK_BISHOP,'b');
+		setStoneChar(Chess.BLACK_KNIGHT,'n');
+		setStoneChar(Chess.BLACK_PAWN,'p');
+	}
+
+	private static void setStoneChar(int stone,char c) {
+		STONE_CHARS[stone - Chess.MIN_STONE] = c;
+		CHAR_STONES[c] = stone;
+	}
+
+	// The line last parsed, copied so that it is read from an array. Offsets below are into it.
+	private char[] line = new char[128];
+	private int length;
+
+	private final int[] stones = new int[Chess.NUM_OF_SQUARES];
+	private int toPlay;
+	private int castles;
+	private int sqiEP;
+	private int halfMoveClock;
+	private int plyNumber;
+
+	private int operationCount;
+	private int[] opcodeStarts = new int[8];
+	private int[] opcodeEnds = new int[8];
+	private int[] firstOperands = new int[8];
+	private int[] operandCounts = new int[8];
+	private int operandCount;
+	private int[] operandStarts = new int[16];
+	private int[] operandEnds = new int[16];
+
+	/**
+	 * Parses a FEN or EPD line. A FEN's half-move clock and move number are optional; an EPD's 'hmvc' and 'fmvn'
+	 * operations are used for them when present. Without them, they are 0 and 1.
+	 * @param line Line. Leading and trailing whitespace is ignored.
+	 * @throws IllegalArgumentException If the line is not a valid FEN or EPD, or its position does not have exactly one
+	 * king per side.
+	 */
+	public void parse(CharSequence line) {
+		length = line.length();
+		ensureCapacity(length);
+		if (line instanceof String) {
+			((String) line).getChars(0,length,this.line,0);
+		} else {
+			for (int i = 0; i < length; i++) {
+				this.line[i] = line.charAt(i);
+			}
+		}
+		parse();
+	}
+
+	/**
+	 * Parses a FEN or EPD line of ASCII bytes, as parse(CharSequence). The buffer's position is not changed.
+	 * @param src Buffer.
+	 * @param offset Offset of the line.
+	 * @param length Length of the line, without its line terminator.
+	 */
+	public void parse(ByteBuffer src,int offset,int length) {
+		this.length = length;
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			line[i] = (char) (src.get(offset + i) & 0xFF);
+		}
+		parse();
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (line.length < capacity) {
+			line = new char[Math.max(capacity,line.length * 2)];
+		}
+	}
+
+	private char at(int index) {
+		return line[index];
+	}
+
+	private void parse() {
+		operationCount = 0;
+		operandCount = 0;
+		int index = skipSpaces(0);
+
+		// Placement, from rank 8 down.
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			stones[sqi] = Chess.NO_STONE;
+		}
+		int row = Chess.NUM_OF_ROWS - 1;
+		int col = 0;
+		while (true) {
+			char c = index < length ? at(index) : ' ';
+			if (c == ' ' || c == '\t') {
+				break;
+			}
+			index++;
+			if (c == '/') {
+				if (col != Chess.NUM_OF_COLS || row == 0) {
+					throw invalid("Bad rank");
+				}
+				row--;
+				col = 0;
+			} else if (c >= '1' && c <= '8') {
+				col += c - '0';
+				if (col > Chess.NUM_OF_COLS) {
+					throw invalid("Rank too long");
+				}
+			} else {
+				int stone = c < CHAR_STONES.length ? CHAR_STONES[c] : Chess.NO_STONE;
+				if (stone == Chess.NO_STONE || col == Chess.NUM_OF_COLS) {
+					throw invalid("Bad placement");
+				}
+				stones[row * Chess.NUM_OF_COLS + col] = stone;
+				col++;
+			}
+		}
+		if (row != 0 || col != Chess.NUM_OF_COLS) {
+			throw invalid("Placement incomplete");
+		}
+		int whiteKings = 0;
+		int blackKings = 0;
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			if (stones[sqi] == Chess.WHITE_KING) {
+				whiteKings++;
+			} else if (stones[sqi] == Chess.BLACK_KING) {
+				blackKings++;
+			}
+		}
+		if (whiteKings != 1 || blackKings != 1) {
+			throw invalid("Not one king per side");
+		}
+
+		index = skipSpaces(index);
+		char side = index < length ? at(index++) : ' ';
+		if (side == 'w') {
+			toPlay = Chess.WHITE;
+		} else if (side == 'b') {
+			toPlay = Chess.BLACK;
+		} else {
+			throw invalid("Bad side to move");
+		}
+		index = expectSpace(index);
+
+		castles = Position.NO_CASTLES;
+		if (index < length && at(index) == '-') {
+			index++;
+		} else {
+			while (index < length && at(index) != ' ' && at(index) != '\t') {
+				switch (at(index++)) {
+					case 'K': castles |= Position.WHITE_SHORT_CASTLE; break;
+					case 'Q': castles |= Position.WHITE_LONG_CASTLE; break;
+					case 'k': castles |= Position.BLACK_SHORT_CASTLE; break;
+					case 'q': castles |= Position.BLACK_LONG_CASTLE; break;
+					default: throw invalid("Bad castling");
+				}
+			}
+		}
+		index = expectSpace(index);
+
+		if (index < length && at(index) == '-') {
+			sqiEP = Chess.NO_SQUARE;
+			index++;
+		} else {
+			char file = index < length ? at(index) : ' ';
+			char rank = index + 1 < length ? at(index + 1) : ' ';
+			if (file < 'a' || file > 'h' || (rank != '3' && rank != '6')) {
+				throw invalid("Bad en passant square");
+			}
+			sqiEP = (rank - '1') * Chess.NUM_OF_COLS + (file - 'a');
+			index += 2;
+		}
+		// The last field a FEN needs, so it may end the line.
+		if (index < length && at(index) != ' ' && at(index) != '\t') {
+			throw invalid("Bad en passant square");
+		}
+
+		halfMoveClock = 0;
+		int fullMoveNumber = 1;
+		index = skipSpaces(index);
+		int end = length;
+		while (end > index && (at(end - 1) == ' ' || at(end - 1) == '\t')) {
+			end--;
+		}
+		if (index < end && isDigit(at(index)) && isCounters(index,end)) {
+			// FEN counters.
+			int space = index;
+			while (space < end && isDigit(at(space))) {
+				space++;
+			}
+			halfMoveClock = (int) parseNumber(index,space);
+			int next = skipSpaces(space);
+			if (next < end) {
+				fullMoveNumber = (int) parseNumber(next,end);
+			}
+		} else if (index < end) {
+			parseOperations(index,end);
+			int operation = findOperation("hmvc");
+			if (operation >= 0 && operandCounts[operation] > 0) {
+				halfMoveClock = (int) getOperandAsLong(operation,0);
+			}
+			operation = findOperation("fmvn");
+			if (operation >= 0 && operandCounts[operation] > 0) {
+				fullMoveNumber = (int) getOperandAsLong(operation,0);
+			}
+		}
+		plyNumber = Math.max(0,fullMoveNumber - 1) * 2 + (toPlay == Chess.BLACK ? 1 : 0);
+	}
+
+	/**
+	 * Whether the rest of the line is one or two numbers, as at the end of a FEN.
+	 */
+	private boolean isCounters(int index,int end) {
+		int numbers = 0;
+		while (index < end) {
+			if (!isDigit(at(index))) {
+				return false;
+			}
+			while (index < end && isDigit(at(index))) {
+				index++;
+			}
+			numbers++;
+			index = skipSpaces(index);
+		}
+		return numbers <= 2;
+	}
+
+	private void parseOperations(int index,int end) {
+		while (true) {
+			while (index < end && (at(index) == ' ' || at(index) == '\t' || at(index) == ';')) {
+				index++;
+			}
+			if (index >= end) {
+				return;
+			}
+			int opcodeStart = index;
+			while (index < end && at(index) != ' ' && at(index) != '\t' && at(index) != ';') {
+				index++;
+			}
+			if (operationCount == opcodeStarts.length) {
+				opcodeStarts = grow(opcodeStarts);
+				opcodeEnds = grow(opcodeEnds);
+				firstOperands = grow(firstOperands);
+				operandCounts = grow(operandCounts);
+			}
+			int operation = operationCount++;
+			opcodeStarts[operation] = opcodeStart;
+			opcodeEnds[operation] = index;
+			firstOperands[operation] = operandCount;
+			operandCounts[operation] = 0;
+			while (true) {
+				index = skipSpaces(index);
+				if (index >= end || at(index) == ';') {
+					break;
+				}
+				int operandStart;
+				int operandEnd;
+				if (at(index) == '"') {
+					operandStart = ++index;
+					while (index < end && at(index) != '"') {
+						index++;
+					}
+					if (index >= end) {
+						throw invalid("Unterminated string");
+					}
+					operandEnd = index++;
+				} else {
+					operandStart = index;
+					while (index < end && at(index) != ' ' && at(index) != '\t' && at(index) != ';') {
+						index++;
+					}
+					operandEnd = index;
+				}
+				if (operandCount == operandStarts.length) {
+					operandStarts = grow(operandStarts);
+					operandEnds = grow(operandEnds);
+				}
+				operandStarts[operandCount] = operandStart;
+				operandEnds[operandCount] = operandEnd;
+				operandCount++;
+				operandCounts[operation]++;
+			}
+		}
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array,0,grown,0,array.length);
+		return grown;
+	}
+
+	private int skipSpaces(int index) {
+		while (index < length && (at(index) == ' ' || at(index) == '\t')) {
+			index++;
+		}
+		return index;
+	}
+
+	private int expectSpace(int index) {
+		if (index >= length || (at(index) != ' ' && at(index) != '\t')) {
+			throw invalid("Missing field");
+		}
+		return skipSpaces(index);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private long parseNumber(int start,int end) {
+		boolean negative = start < end && at(start) == '-';
+		if (negative || (start < end && at(start) == '+')) {
+			start++;
+		}
+		if (start >= end) {
+			throw invalid("Missing number");
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			char c = at(i);
+			if (!isDigit(c)) {
+				throw invalid("Bad number");
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	private IllegalArgumentException invalid(String reason) {
+		// Only an invalid line allocates.
+		return new IllegalArgumentException(reason + ": " + new String(line,0,length));
+	}
+
+	/**
+	 * Sets a Position to the parsed one. Nothing is allocated.
+	 * @param position Position to overwrite.
+	 */
+	public void toPosition(Position position) {
+		position.clear();
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			if (stones[sqi] != Chess.NO_STONE) {
+				position.setStone(sqi,stones[sqi]);
+			}
+		}
+		position.setToPlay(toPlay);
+		position.setCastles(castles);
+		position.setSqiEP(sqiEP);
+		position.setHalfMoveClock(halfMoveClock);
+		position.setPlyNumber(plyNumber);
+	}
+
+	public int getStone(int sqi) {
+		return stones[sqi];
+	}
+
+	public int getToPlay() {
+		return toPlay;
+	}
+
+	public int getCastles() {
+		return castles;
+	}
+
+	public int getSqiEP() {
+		return sqiEP;
+	}
+
+	public int getHalfMoveClock() {
+		return halfMoveClock;
+	}
+
+	public int getPlyNumber() {
+		return plyNumber;
+	}
+
+	/**
+	 * @return Number of EPD operations on the line. 0 for a FEN.
+	 */
+	public int getOperationCount() {
+		return operationCount;
+	}
+
+	/**
+	 * @param opcode Opcode, e.g. "bm".
+	 * @return Index of the first operation with that opcode, or -1.
+	 */
+	public int findOperation(CharSequence opcode) {
+		for (int operation = 0; operation < operationCount; operation++) {
+			if (equals(opcodeStarts[operation],opcodeEnds[operation],opcode)) {
+				return operation;
+			}
+		}
+		return -1;
+	}
+
+	public boolean opcodeEquals(int operation,CharSequence opcode) {
+		return equals(opcodeStarts[operation],opcodeEnds[operation],opcode);
+	}
+
+	public int getOperandCount(int operation) {
+		return operandCounts[operation];
+	}
+
+	/**
+	 * Appends an operand, without the quotes of a string operand.
+	 * @param operation Operation index.
+	 * @param operand Operand index within the operation.
+	 * @param stringBuilder StringBuilder to append to.
+	 */
+	public void appendOperand(int operation,int operand,StringBuilder stringBuilder) {
+		int index = getOperandIndex(operation,operand);
+		stringBuilder.append(line,operandStarts[index],operandEnds[index] - operandStarts[index]);
+	}
+
+	public boolean operandEquals(int operation,int operand,CharSequence value) {
+		int index = getOperandIndex(operation,operand);
+		return equals(operandStarts[index],operandEnds[index],value);
+	}
+
+	/**
+	 * @return An operand as a number, e.g. of 'ce' or 'acn'.
+	 * @throws IllegalArgumentException If it is not an integer.
+	 */
+	public long getOperandAsLong(int operation,int operand) {
+		int index = getOperandIndex(operation,operand);
+		return parseNumber(operandStarts[index],operandEnds[index]);
+	}
+
+	/**
+	 * @return An operand as a String, without the quotes of a string operand. Allocates; see appendOperand.
+	 */
+	public String getOperand(int operation,int operand) {
+		StringBuilder stringBuilder = new StringBuilder();
+		appendOperand(operation,operand,stringBuilder);
+		return stringBuilder.toString();
+	}
+
+	private int getOperandIndex(int operation,int operand) {
+		if (operation < 0 || operation >= operationCount || operand < 0 || operand >= operandCounts[operation]) {
+			throw new IndexOutOfBoundsException("Operation " + operation + ", operand " + operand);
+		}
+		return firstOperands[operation] + operand;
+	}
+
+	private boolean equals(int start,int end,CharSequence value) {
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (at(i) != value.charAt(i - start)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the FEN of a position.
+	 * @param position Position.
+	 * @param stringBuilder StringBuilder to append to.
+	 */
+	public static void appendFEN(Position position,StringBuilder stringBuilder) {
+		write(position,true,stringBuilder,null);
+	}
+
+	/**
+	 * Appends the EPD of a position: the first four FEN fields, without operations.
+	 * @param position Position.
+	 * @param stringBuilder StringBuilder to append to.
+	 */
+	public static void appendEPD(Position position,StringBuilder stringBuilder) {
+		write(position,false,stringBuilder,null);
+	}
+
+	/**
+	 * Writes the FEN of a position as ASCII at the buffer's position, advancing it.
+	 * @param position Position.
+	 * @param dst Buffer to write to.
+	 * @throws java.nio.BufferOverflowException If the FEN does not fit.
+	 */
+	public static void putFEN(Position position,ByteBuffer dst) {
+		write(position,true,null,dst);
+	}
+
+	/**
+	 * Writes the EPD of a position, without operations, as ASCII at the buffer's position, advancing it.
+	 * @param position Position.
+	 * @param dst Buffer to write to.
+	 */
+	public static void putEPD(Position position,ByteBuffer dst) {
+		write(position,false,null,dst);
+	}
+
+	private static void write(Position position,boolean counters,StringBuilder stringBuilder,ByteBuffer dst) {
+		for (int row = Chess.NUM_OF_ROWS - 1; row >= 0; row--) {
+			int empty = 0;
+			for (int col = 0; col < Chess.NUM_OF_COLS; col++) {
+				int stone = position.getStone(row * Chess.NUM_OF_COLS + col);
+				if (stone == Chess.NO_STONE) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					put(stringBuilder,dst,(char) ('0' + empty));
+					empty = 0;
+				}
+				put(stringBuilder,dst,STONE_CHARS[stone - Chess.MIN_STONE]);
+			}
+			if (empty > 0) {
+				put(stringBuilder,dst,(char) ('0' + empty));
+			}
+			if (row > 0) {
+				put(stringBuilder,dst,'/');
+			}
+		}
+		put(stringBuilder,dst,' ');
+		put(stringBuilder,dst,position.getToPlay() == Chess.WHITE ? 'w' : 'b');
+		put(stringBuilder,dst,' ');
+		int castles = position.getCastles();
+		if (castles == Position.NO_CASTLES) {
+			put(stringBuilder,dst,'-');
+		} else {
+			if ((castles & Position.WHITE_SHORT_CASTLE) != 0) {
+				put(stringBuilder,dst,'K');
+			}
+			if ((castles & Position.WHITE_LONG_CASTLE) != 0) {
+				put(stringBuilder,dst,'Q');
+			}
+			if ((castles & Position.BLACK_SHORT_CASTLE) != 0) {
+				put(stringBuilder,dst,'k');
+			}
+			if ((castles & Position.BLACK_LONG_CASTLE) != 0) {
+				put(stringBuilder,dst,'q');
+			}
+		}
+		put(stringBuilder,dst,' ');
+		int sqiEP = position.getSqiEP();
+		if (sqiEP == Chess.NO_SQUARE) {
+			put(stringBuilder,dst,'-');
+		} else {
+			put(stringBuilder,dst,(char) ('a' + sqiEP % Chess.NUM_OF_COLS));
+			put(stringBuilder,dst,(char) ('1' + sqiEP / Chess.NUM_OF_COLS));
+		}
+		if (counters) {
+			put(stringBuilder,dst,' ');
+			putNumber(stringBuilder,dst,position.getHalfMoveClock());
+			put(stringBuilder,dst,' ');
+			putNumber(stringBuilder,dst,position.getPlyNumber() / 2 + 1);
+		}
+	}
+
+	private static void put(StringBuilder stringBuilder,ByteBuffer dst,char c) {
+		if (stringBuilder != null) {
+			stringBuilder.append(c);
+		} else {
+			dst.put((byte) c);
+		}
+	}
+
+	private static void putNumber(StringBuilder stringBuilder,ByteBuffer dst,int value) {
+		if (stringBuilder != null) {
+			stringBuilder.append(value);
+			return;
+		}
+		int divisor = 1;
+		while (value / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			dst.put((byte) ('0' + value / divisor % 10));
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.training.PackedPosition;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Measures FenCodec against chesspresso's FEN handling: time and bytes allocated per position, for parsing into a Position,
+ * writing FEN and EPD, and encoding EPD lines with operations as PackedPosition records.
+ * The positions come from random games, and are cycled through until the count is reached.
+ * Usage: FenCodecBenchmark [positions] [distinct positions]
+ */
+public class FenCodecBenchmark {
+	// Castling subsets, en passant for both sides, promoted material and large move counters.
+	private static final String[] EDGE_CASE_FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2",
+		"rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b Kkq e3 0 3",
+		"r3k2r/8/8/8/8/8/8/R3K2R b Qk - 17 42",
+		"4k3/8/8/8/8/8/8/4K3 w - - 99 150",
+		"1Q2k3/8/8/8/8/8/8/4K2q b - - 0 61",
+	};
+
+	public static void main(String[] args) throws IllegalMoveException {
+		final int positions = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		final int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+		List<String> fens = generateFens(distinct,new SplittableRandom(42));
+		String[] fenArray = fens.toArray(new String[0]);
+		// EPD lines as a suite or a training set has them, as ASCII bytes, one after the other.
+		ByteBuffer epdBytes = ByteBuffer.allocate(fenArray.length * 192);
+		int[] epdOffsets = new int[fenArray.length + 1];
+		StringBuilder stringBuilder = new StringBuilder(256);
+		FenCodec fenCodec = new FenCodec();
+		for (int i = 0; i < fenArray.length; i++) {
+			fenCodec.parse(fenArray[i]);
+			stringBuilder.setLength(0);
+			stringBuilder.append(fenArray[i],0,nthSpace(fenArray[i],4));
+			stringBuilder.append(" ce ").append(i % 601 - 300).append("; c9 \"").append(i % 3 == 0 ? "1-0" : i % 3 == 1 ? "1/2-1/2" : "0-1");
+			stringBuilder.append("\"; hmvc ").append(fenCodec.getHalfMoveClock()).append("; fmvn ").append(fenCodec.getPlyNumber() / 2 + 1).append(";");
+			epdOffsets[i] = epdBytes.position();
+			epdBytes.put(stringBuilder.toString().getBytes(StandardCharsets.US_ASCII));
+		}
+		epdOffsets[fenArray.length] = epdBytes.position();
+		System.out.println(String.format("%d positions, cycling through %d distinct ones",positions,fenArray.length));
+
+		// Timings of a codec that gets positions wrong mean nothing, so the round trips are checked first.
+		int mismatches = checkRoundTrips(EDGE_CASE_FENS) + checkRoundTrips(fenArray);
+		if (mismatches > 0) {
+			System.err.println(String.format("%d FEN round trips failed, not timing",mismatches));
+			System.exit(1);
+		}
+		System.out.println("FEN round trips: OK");
+		Position position = new Position(fenArray[0]);
+
+		for (int round = 0; round < 2; round++) {
+			// The first round warms up.
+			boolean report = round == 1;
+			long checksum = 0;
+
+			long started = System.nanoTime();
+			long allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				String fen = fenArray[i % fenArray.length];
+				checksum += new Position(fen).getFEN().length();
+			}
+			report(report,"chesspresso new Position(fen) + getFEN()",positions,started,allocated);
+
+			started = System.nanoTime();
+			allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				fenCodec.parse(fenArray[i % fenArray.length]);
+				fenCodec.toPosition(position);
+				stringBuilder.setLength(0);
+				FenCodec.appendFEN(position,stringBuilder);
+				checksum += stringBuilder.length();
+			}
+			report(report,"FenCodec parse + toPosition + appendFEN",positions,started,allocated);
+
+			Position epdPosition = new Position(fenArray[0]);
+			started = System.nanoTime();
+			allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				// As ChesspressoUtils.getEPD used to.
+				String fen = epdPosition.getFEN();
+				for (int j = 0; j < 2; j++) {
+					fen = fen.substring(0,fen.lastIndexOf(" "));
+				}
+				checksum += fen.length();
+			}
+			report(report,"EPD by getFEN + substring",positions,started,allocated);
+
+			started = System.nanoTime();
+			allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				stringBuilder.setLength(0);
+				FenCodec.appendEPD(epdPosition,stringBuilder);
+				checksum += stringBuilder.length();
+			}
+			report(report,"EPD by FenCodec.appendEPD",positions,started,allocated);
+
+			ByteBuffer records = ByteBuffer.allocate(PackedPosition.RECORD_SIZE * 4096);
+			started = System.nanoTime();
+			allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				int line = i % fenArray.length;
+				fenCodec.parse(epdBytes,epdOffsets[line],epdOffsets[line + 1] - epdOffsets[line]);
+				int operation = fenCodec.findOperation("ce");
+				int score = operation >= 0 ? (int) fenCodec.getOperandAsLong(operation,0) : 0;
+				if (!records.hasRemaining()) {
+					records.clear();
+				}
+				PackedPosition.write(fenCodec,score,null,records);
+				checksum += score;
+			}
+			report(report,"EPD bytes with operations to PackedPosition",positions,started,allocated);
+
+			ByteBuffer fenBytes = ByteBuffer.allocate(128);
+			started = System.nanoTime();
+			allocated = allocatedBytes();
+			for (int i = 0; i < positions; i++) {
+				fenBytes.clear();
+				FenCodec.putFEN(position,fenBytes);
+				checksum += fenBytes.position();
+			}
+			report(report,"FenCodec.putFEN to a ByteBuffer",positions,started,allocated);
+			if (report) {
+				System.out.println("Checksum: " + checksum);
+			}
+		}
+	}
+
+	/**
+	 * Parses each FEN with a codec into a Position, writes it back with appendFEN and appendEPD, and compares the result
+	 * with the FEN it came from and with chesspresso's FEN of the same line. Differences are printed to System.err.
+	 * @return Number of FENs that did not round-trip.
+	 */
+	private static int checkRoundTrips(String[] fens) {
+		FenCodec fenCodec = new FenCodec();
+		Position position = new Position();
+		StringBuilder stringBuilder = new StringBuilder(128);
+		int mismatches = 0;
+		for (String fen : fens) {
+			fenCodec.parse(fen);
+			fenCodec.toPosition(position);
+			stringBuilder.setLength(0);
+			FenCodec.appendFEN(position,stringBuilder);
+			String roundTrip = stringBuilder.toString();
+			stringBuilder.setLength(0);
+			FenCodec.appendEPD(position,stringBuilder);
+			String epd = stringBuilder.toString();
+			if (!roundTrip.equals(fen) || !roundTrip.equals(new Position(fen).getFEN()) || !epd.equals(fen.substring(0,nthSpace(fen,4)))) {
+				System.err.println("Round trip of " + fen + " gave " + roundTrip + ", EPD " + epd);
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	private static List<String> generateFens(int count,SplittableRandom random) throws IllegalMoveException {
+		Set<String> fens = new LinkedHashSet<String>();
+		Position position = Position.createInitialPosition();
+		int attempts = 0;
+		while (fens.size() < count && attempts++ < count * 4) {
+			short[] moves = position.getAllMoves();
+			if (moves.length == 0 || position.getHalfMoveClock() >= 100 || position.getPlyNumber() >= 300) {
+				position = Position.createInitialPosition();
+				continue;
+			}
+			position.doMove(moves[random.nextInt(moves.length)]);
+			fens.add(position.getFEN());
+		}
+		return new ArrayList<String>(fens);
+	}
+
+	private static int nthSpace(String s,int n) {
+		int index = -1;
+		for (int i = 0; i < n; i++) {
+			index = s.indexOf(' ',index + 1);
+		}
+		return index;
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void report(boolean report,String name,int positions,long started,long allocatedBefore) {
+		long elapsedNs = System.nanoTime() - started;
+		long allocated = allocatedBytes() - allocatedBefore;
+		if (report) {
+			System.out.println(String.format("%-45s %8.1f ns/position %10.1f bytes/position",name,elapsedNs / (double) positions,allocated / (double) positions));
+		}
+	}
+}
@@ -26,7 +26,12 @@ package javaChessEngineToolkit;
 import chesspresso.game.Game;
 import chesspresso.move.IllegalMoveException;
 
+import javaChessEngineToolkit.engines.EngineAllocation;
+import javaChessEngineToolkit.engines.ResourceManager;
 import javaChessEngineToolkit.engines.UciEngine;
+import javaChessEngineToolkit.events.AsyncGameListener;
+import javaChessEngineToolkit.events.OverflowPolicy;
+import javaChessEngineToolkit.events.PrintStreamGameListener;
 
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
@@ -43,20 +48,39 @@ public class Main {
 		final Engine blackEngine = new UciEngine("Yace","yace.exe",2300);
 		// You can easily swap out an engine. Not all potential engines will be an instance of UciEngine.
 		// final Engine blackEngine = new SlightlyStrongerMoveGenerator();
-
-		final String engineHash = "64"; // In Megabytes (MB)
+		// For events between more than two engines, see tournament.Tournament with a RoundRobinScheduler,
+		// GauntletScheduler or SwissScheduler. To print its progress, add a PrintStreamTournamentListener:
+		// tournamentOptions.addTournamentListener(new PrintStreamTournamentListener(System.out));
+
+		// Give each engine its Threads and Hash options, and CPUs of its own, out of this host's cores and memory.
+		// For games played in parallel, pass the ResourceManager to tournament.TournamentOptions.setResourceManager instead.
+		final ResourceManager resourceManager = ResourceManager.forHost();
+		resourceManager.setThreadsPerEngine(1);
+		resourceManager.setHashMbPerEngine(64); // In Megabytes (MB)
+		EngineAllocation engineAllocation = null;
+		if (resourceManager.getMaxConcurrentGames(2) > 0) {
+			engineAllocation = resourceManager.acquire(2);
+			engineAllocation.apply(0,whiteEngine);
+			engineAllocation.apply(1,blackEngine);
+		} else {
+			// This host is smaller than the budget: set the configured values anyway, without pinning the engines to CPUs.
+			for (Engine engine : new Engine[] { whiteEngine, blackEngine }) {
+				if (engine instanceof UciEngine) {
+					((UciEngine) engine).setOption("Threads",String.valueOf(resourceManager.getThreadsPerEngine()));
+					((UciEngine) engine).setOption("Hash",String.valueOf(resourceManager.getHashMbPerEngine()));
+				}
+			}
+		}
 
 		UciEngine uciWhiteEngine = null;
 		if (whiteEngine instanceof UciEngine) {
 			uciWhiteEngine = (UciEngine) whiteEngine;
-			uciWhiteEngine.setOption("Hash", engineHash);
 			uciWhiteEngine.sendIsReady();
 		}
 
 		UciEngine uciBlackEngine = null;
 		if (blackEngine instanceof UciEngine) {
 			uciBlackEngine = (UciEngine) blackEngine;
-			uciBlackEngine.setOption("Hash", engineHash);
 			uciBlackEngine.sendIsReady();
 		}
 
@@ -71,16 +95,34 @@ public class Main {
 		engineMatchOptions.setTimed(true);
 		engineMatchOptions.setTime(1);
 		engineMatchOptions.setInc(0);
+		// Optionally start games from an opening suite (EPD/FEN, or PGN move sequences).
+		// Each opening is then played twice, with the engines swapping colors.
+		// engineMatchOptions.setOpeningSuiteFile(new java.io.File("openings.epd"));
+		// Print the FEN after every move, on a thread of its own so the console never holds up the engines' clocks.
+		final AsyncGameListener fenPrinter = new AsyncGameListener(new PrintStreamGameListener(System.out),1024,OverflowPolicy.BLOCK);
+		engineMatchOptions.addGameListener(fenPrinter);
 		do {
+			Engine gameWhiteEngine = whiteEngine;
+			Engine gameBlackEngine = blackEngine;
+			OpeningSuite openingSuite = engineMatchOptions.getOpeningSuite();
+			if (openingSuite != null) {
+				engineMatchOptions.setOpeningIndex(openingSuite.getOpeningIndexForGame(numGames));
+				if (OpeningSuite.isColorsReversed(numGames)) {
+					gameWhiteEngine = blackEngine;
+					gameBlackEngine = whiteEngine;
+				}
+			}
+
 			System.out.println("Match Info");
 			System.out.println(String.format("White: %s (%d) Black: %s (%d)",
-					whiteEngine.getName(),whiteEngine.getEstimatedElo(),blackEngine.getName(),blackEngine.getEstimatedElo()));
+					gameWhiteEngine.getName(),gameWhiteEngine.getEstimatedElo(),gameBlackEngine.getName(),gameBlackEngine.getEstimatedElo()));
 
-			EngineMatch engineMatch = new EngineMatch(whiteEngine, blackEngine,engineMatchOptions);
+			EngineMatch engineMatch = new EngineMatch(gameWhiteEngine, gameBlackEngine,engineMatchOptions);
 			// This is a blocking call, and will not return until the game is over.
 			EngineMatchResult engineMatchResult = engineMatch.play();
 
 			numGames++;
+			fenPrinter.flush();
 
 			Game game = engineMatchResult.getGame();
 			System.out.println(BoardRenderUtils.draw(game.getPosition()));
@@ -91,6 +133,16 @@ public class Main {
 			// System.out.println(ChesspressoUtils.getEPD(game,game.getNextMove().getSAN(),null));
 		} while (numGames < maxGames);
 
+		// To mine tactical puzzles from a PGN database instead, with one or more engines (see analysis.PuzzleMiner):
+		// PuzzleMiner puzzleMiner = new PuzzleMiner(java.util.Arrays.asList(uciWhiteEngine),new PuzzleMinerOptions());
+		// puzzleMiner.run(new java.io.File("games.pgn"),new java.io.File("puzzles.epd"));
+		// System.out.println(puzzleMiner.getReport());
+
+		fenPrinter.close();
+		if (engineAllocation != null) {
+			engineAllocation.close();
+		}
+
 		if (uciWhiteEngine != null) {
 			// Close the process.
 			uciWhiteEngine.stop();
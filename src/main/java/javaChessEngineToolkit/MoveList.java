@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of moves and scores held in primitive arrays.
+ * Unlike Move[], filling and sorting a MoveList does not allocate, so a single instance can be reused for every
+ * position of a game. Scores are integers in thousandths of a Move score (see {@link #toScore(double)}).
+ */
+public class MoveList {
+	public static final int DEFAULT_CAPACITY = 256;
+	public static final double SCORE_SCALE = 1000.0;
+
+	private short[] moves;
+	private int[] scores;
+	private int size;
+
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MoveList(int capacity) {
+		this.moves = new short[capacity];
+		this.scores = new int[capacity];
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	public void add(short move,int score) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves,size * 2);
+			scores = Arrays.copyOf(scores,size * 2);
+		}
+		moves[size] = move;
+		scores[size] = score;
+		size++;
+	}
+
+	/**
+	 * Appends the given moves. Null entries are skipped.
+	 * @param moves Moves to add.
+	 */
+	public void addAll(Move[] moves) {
+		for (Move move : moves) {
+			if (move != null) {
+				add(move.getShortValue(),toScore(move.getScore()));
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public short getMove(int index) {
+		return moves[index];
+	}
+
+	public int getScore(int index) {
+		return scores[index];
+	}
+
+	public void setScore(int index,int score) {
+		scores[index] = score;
+	}
+
+	/**
+	 * Sorts the list in place, highest score first. Moves with equal scores keep their relative order.
+	 */
+	public void sort() {
+		// Move lists are short enough that an insertion sort beats anything with more setup cost.
+		for (int i = 1; i < size; i++) {
+			short move = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+
+	/**
+	 * Computes the SAN notation of a move. This is only done on request, as it requires a copy of the position.
+	 * @param position The position the moves were generated for.
+	 * @param index Index of the move.
+	 * @return SAN notation, or null if the move is not legal in the position.
+	 */
+	public String getSAN(Position position,int index) {
+		try {
+			Position _position = new Position(position);
+			_position.doMove(moves[index]);
+			return _position.getLastMove().getSAN();
+		} catch (IllegalMoveException e) {
+			e.printStackTrace(System.err);
+		}
+		return null;
+	}
+
+	/**
+	 * Converts this list to Move objects, for callers of the Move[] based API.
+	 * @param position The position the moves were generated for, used for the move notation.
+	 * @return Moves, in list order.
+	 */
+	public Move[] toMoves(Position position) {
+		Move[] arr = new Move[size];
+		try {
+			Position _position = new Position(position);
+			for (int i = 0; i < size; i++) {
+				_position.doMove(moves[i]);
+
+				Move move = new Move();
+				move.setShortValue(moves[i]);
+				move.setNotation(_position.getLastMove().getSAN());
+				move.setScore(toDouble(scores[i]));
+				arr[i] = move;
+
+				_position.undoMove();
+			}
+		} catch (IllegalMoveException e) {
+			e.printStackTrace(System.err);
+		}
+		return arr;
+	}
+
+	public static int toScore(double score) {
+		return (int) Math.round(score * SCORE_SCALE);
+	}
+
+	public static double toDouble(int score) {
+		return score / SCORE_SCALE;
+	}
+}
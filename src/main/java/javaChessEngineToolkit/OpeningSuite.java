@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import chesspresso.game.Game;
+import chesspresso.pgn.PGN;
+import chesspresso.pgn.PGNReader;
+import chesspresso.pgn.PGNSyntaxError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of openings for engine matches, loaded once from an EPD/FEN file or a PGN file of move sequences.
+ * Each opening is a start FEN (null for the initial position) and a line of moves in UCI notation, held in two plain arrays.
+ * An instance is immutable and can be shared by any number of matches.
+ *
+ * Every opening is meant to be played twice with colors reversed: game n uses opening n / 2, with colors reversed for odd n.
+ */
+public class OpeningSuite {
+	private static final String[] NO_MOVES = new String[0];
+
+	private final String[] fens;
+	private final String[] moves;
+
+	private OpeningSuite(String[] fens,String[] moves) {
+		this.fens = fens;
+		this.moves = moves;
+	}
+
+	/**
+	 * Loads a suite. Files ending in ".pgn" are read as games whose main lines are the openings;
+	 * anything else is read as one EPD or FEN position per line.
+	 * @throws IOException If the file cannot be read, or holds no openings.
+	 */
+	public static OpeningSuite load(File file) throws IOException {
+		List<String> fens = new ArrayList<String>();
+		List<String> moves = new ArrayList<String>();
+		if (file.getName().toLowerCase().endsWith(".pgn")) {
+			loadPgn(file,fens,moves);
+		} else {
+			loadEpd(file,fens,moves);
+		}
+		if (fens.isEmpty()) {
+			throw new IOException("No openings in " + file);
+		}
+		return new OpeningSuite(fens.toArray(new String[0]),moves.toArray(new String[0]));
+	}
+
+	private static void loadEpd(File file,List<String> fens,List<String> moves) throws IOException {
+		BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = bufferedReader.readLine()) != null) {
+				if (line.trim().isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				fens.add(EpdRecord.parse(line).getFEN());
+				moves.add(null);
+			}
+		} finally {
+			bufferedReader.close();
+		}
+	}
+
+	private static void loadPgn(File file,List<String> fens,List<String> moves) throws IOException {
+		// Many openings share a start position; keep one copy of each FEN.
+		Map<String,String> canonicalFens = new HashMap<String,String>();
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+		try {
+			PGNReader pgnReader = new PGNReader(inputStream,file.getName());
+			while (true) {
+				Game game;
+				try {
+					game = pgnReader.parseGame();
+				} catch (PGNSyntaxError e) {
+					throw new IOException("Invalid opening in " + file + ": " + e.getMessage(),e);
+				}
+				if (game == null) {
+					break;
+				}
+				String fen = game.getTag(PGN.TAG_FEN);
+				if (fen != null) {
+					String canonicalFen = canonicalFens.get(fen);
+					if (canonicalFen == null) {
+						canonicalFens.put(fen,fen);
+					} else {
+						fen = canonicalFen;
+					}
+				}
+				game.gotoStart();
+				chesspresso.move.Move[] mainLine = game.getMainLine();
+				StringBuilder stringBuilder = new StringBuilder();
+				for (chesspresso.move.Move move : mainLine) {
+					if (stringBuilder.length() > 0) {
+						stringBuilder.append(' ');
+					}
+					stringBuilder.append(ChesspressoUtils.getUciNotation(move.getShortMoveDesc()));
+				}
+				fens.add(fen);
+				moves.add(stringBuilder.length() > 0 ? stringBuilder.toString() : null);
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	public int size() {
+		return fens.length;
+	}
+
+	/**
+	 * @return The opening's start FEN, or null if it starts from the initial position.
+	 */
+	public String getFEN(int index) {
+		return fens[index];
+	}
+
+	/**
+	 * @return The opening's moves from its start position, in UCI notation.
+	 */
+	public String[] getMoves(int index) {
+		return moves[index] == null ? NO_MOVES : moves[index].split(" ");
+	}
+
+	/**
+	 * @return The opening game number gameNumber (counting from 0) should use.
+	 */
+	public int getOpeningIndexForGame(int gameNumber) {
+		return (gameNumber / 2) % fens.length;
+	}
+
+	/**
+	 * @return Whether game number gameNumber (counting from 0) is the reversed-colors game of its opening.
+	 */
+	public static boolean isColorsReversed(int gameNumber) {
+		return gameNumber % 2 == 1;
+	}
+}
@@ -25,8 +25,25 @@ package javaChessEngineToolkit;
 
 import chesspresso.position.Position;
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 public interface ScoringAlgorithm {
 	Future<Move[]> Score(Position position);
+
+	/**
+	 * Scores all legal moves of the position into moveList, best first.
+	 * The default implementation adapts Score(position); implementations should override it to avoid the Move[] allocations.
+	 * @param position Position to score.
+	 * @param moveList List to fill. It is cleared first.
+	 * @throws ExecutionException
+	 * @throws InterruptedException
+	 */
+	default void score(Position position,MoveList moveList) throws ExecutionException, InterruptedException {
+		moveList.clear();
+		Move[] moves = Score(position).get();
+		if (moves != null) {
+			moveList.addAll(moves);
+		}
+	}
 }
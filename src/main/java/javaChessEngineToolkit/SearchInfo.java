@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import java.util.Arrays;
+
+/**
+ * The search state reported by a UCI 'info' line.
+ */
+public class SearchInfo {
+	private int depth;
+	private int selDepth;
+	private int multiPv = 1;
+	private int score;
+	private boolean mateScore;
+	private boolean hasScore;
+	private boolean lowerBound;
+	private boolean upperBound;
+	private long nodes;
+	private long nps;
+	private long timeMs;
+	private int hashFull;
+	private String[] pv = new String[0];
+
+	private SearchInfo() {
+	}
+
+	/**
+	 * Creates the info of a finished search, as if reported by an exact 'info' line.
+	 * @param score Score in centipawns, or moves to mate if mateScore, from the point of view of the side to move.
+	 * @param pv Principal variation in UCI move notation.
+	 */
+	public SearchInfo(int depth,int score,boolean mateScore,long nodes,String[] pv) {
+		this.depth = depth;
+		this.score = score;
+		this.mateScore = mateScore;
+		this.hasScore = true;
+		this.nodes = nodes;
+		this.pv = pv;
+	}
+
+	/**
+	 * Parses a UCI 'info' line. Unknown tokens are skipped.
+	 * @param line Line sent by the engine.
+	 * @return The parsed info, or null if the line is not an 'info' line or has neither a score nor a principal variation,
+	 * like the 'depth', 'currmove' and 'string' progress lines.
+	 */
+	public static SearchInfo parse(String line) {
+		if (!line.startsWith("info ")) {
+			return null;
+		}
+		String[] tokens = line.split(" +");
+		SearchInfo searchInfo = new SearchInfo();
+		boolean hasSearchData = false;
+		try {
+			for (int i = 1; i < tokens.length; i++) {
+				String token = tokens[i];
+				if (token.equals("string")) {
+					// The rest of the line is free text.
+					break;
+				} else if (token.equals("depth")) {
+					searchInfo.depth = Integer.parseInt(tokens[++i]);
+				} else if (token.equals("seldepth")) {
+					searchInfo.selDepth = Integer.parseInt(tokens[++i]);
+				} else if (token.equals("multipv")) {
+					searchInfo.multiPv = Integer.parseInt(tokens[++i]);
+				} else if (token.equals("score")) {
+					String type = tokens[++i];
+					searchInfo.score = Integer.parseInt(tokens[++i]);
+					searchInfo.mateScore = type.equals("mate");
+					searchInfo.hasScore = true;
+					hasSearchData = true;
+				} else if (token.equals("lowerbound")) {
+					searchInfo.lowerBound = true;
+				} else if (token.equals("upperbound")) {
+					searchInfo.upperBound = true;
+				} else if (token.equals("nodes")) {
+					searchInfo.nodes = Long.parseLong(tokens[++i]);
+				} else if (token.equals("nps")) {
+					searchInfo.nps = Long.parseLong(tokens[++i]);
+				} else if (token.equals("time")) {
+					searchInfo.timeMs = Long.parseLong(tokens[++i]);
+				} else if (token.equals("hashfull")) {
+					searchInfo.hashFull = Integer.parseInt(tokens[++i]);
+				} else if (token.equals("pv")) {
+					searchInfo.pv = Arrays.copyOfRange(tokens,i + 1,tokens.length);
+					hasSearchData = true;
+					break;
+				}
+			}
+		} catch (RuntimeException e) {
+			// Truncated or malformed line; keep whatever was parsed before it.
+		}
+		return hasSearchData ? searchInfo : null;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getSelDepth() {
+		return selDepth;
+	}
+
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	/**
+	 * @return Score in centipawns, or moves to mate if isMateScore(), from the point of view of the side to move.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isMateScore() {
+		return mateScore;
+	}
+
+	public boolean hasScore() {
+		return hasScore;
+	}
+
+	public boolean isLowerBound() {
+		return lowerBound;
+	}
+
+	public boolean isUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * @return Whether the info has an exact score and a principal variation, as opposed to a fail high or low
+	 * or a line that only reports one of them.
+	 */
+	public boolean isExact() {
+		return hasScore && !lowerBound && !upperBound && pv.length > 0;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getNps() {
+		return nps;
+	}
+
+	public long getTimeMs() {
+		return timeMs;
+	}
+
+	public int getHashFull() {
+		return hashFull;
+	}
+
+	/**
+	 * @return Principal variation in UCI move notation. Empty if none was sent.
+	 */
+	public String[] getPv() {
+		return pv;
+	}
+
+	@Override
+	public String toString() {
+		return "depth " + depth + " score " + (mateScore ? "mate " : "cp ") + score + " nodes " + nodes + " pv " + String.join(" ",pv);
+	}
+}
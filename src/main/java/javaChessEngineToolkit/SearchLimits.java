@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+/**
+ * Limits for an untimed search. A value of 0 means that limit is not set; with no limits set, the engine searches until stopped.
+ */
+public class SearchLimits {
+	private int depth;
+	private long nodes;
+	private long moveTimeMs;
+
+	public SearchLimits() {
+
+	}
+
+	public SearchLimits(int depth,long nodes,long moveTimeMs) {
+		this.depth = depth;
+		this.nodes = nodes;
+		this.moveTimeMs = moveTimeMs;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Search depth, in plies.
+	 * @param depth
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(long nodes) {
+		this.nodes = nodes;
+	}
+
+	public long getMoveTimeMs() {
+		return moveTimeMs;
+	}
+
+	/**
+	 * Time per move, in milliseconds.
+	 * @param moveTimeMs
+	 */
+	public void setMoveTimeMs(long moveTimeMs) {
+		this.moveTimeMs = moveTimeMs;
+	}
+
+	/**
+	 * Whether a search that reached the given depth and node count is at least as deep as these limits ask for.
+	 * Only the depth and node limits are compared. Limits with neither, such as a move time alone, are never satisfied,
+	 * as the depth such a search reaches is not known in advance.
+	 */
+	public boolean isSatisfiedBy(int depth,long nodes) {
+		if (this.depth <= 0 && this.nodes <= 0) {
+			return false;
+		}
+		return depth >= this.depth && nodes >= this.nodes;
+	}
+
+	/**
+	 * @return The arguments of the UCI 'go' command for these limits, for example "depth 12 nodes 100000".
+	 */
+	public String toGoArguments() {
+		StringBuilder stringBuilder = new StringBuilder();
+		if (depth > 0) {
+			stringBuilder.append("depth ").append(depth).append(" ");
+		}
+		if (nodes > 0) {
+			stringBuilder.append("nodes ").append(nodes).append(" ");
+		}
+		if (moveTimeMs > 0) {
+			stringBuilder.append("movetime ").append(moveTimeMs).append(" ");
+		}
+		return stringBuilder.toString().trim();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SearchLimits)) {
+			return false;
+		}
+		SearchLimits other = (SearchLimits) o;
+		return depth == other.depth && nodes == other.nodes && moveTimeMs == other.moveTimeMs;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = depth;
+		result = 31 * result + (int) (nodes ^ (nodes >>> 32));
+		result = 31 * result + (int) (moveTimeMs ^ (moveTimeMs >>> 32));
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return toGoArguments();
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import javaChessEngineToolkit.SearchLimits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A two-tier cache of engine analysis: a bounded in-memory LRU map in front of an optional MappedAnalysisStore.
+ * Entries are written to the store by a background thread, so a put never waits for the disk.
+ */
+public class AnalysisCache implements Closeable {
+	private static final long FORCE_INTERVAL_MS = 10000;
+
+	private final Map<Long,CachedAnalysis> lru;
+	private final MappedAnalysisStore store;
+	private final BlockingQueue<PendingWrite> pendingWrites;
+	private final Thread writerThread;
+	private volatile boolean closed = false;
+
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxMemoryEntries Maximum number of entries in the in-memory tier.
+	 * @param store On-disk tier, or null for a memory only cache.
+	 */
+	public AnalysisCache(final int maxMemoryEntries,MappedAnalysisStore store) {
+		this.lru = new LinkedHashMap<Long,CachedAnalysis>(16,0.75f,true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long,CachedAnalysis> eldest) {
+				return size() > maxMemoryEntries;
+			}
+		};
+		this.store = store;
+		if (store != null) {
+			this.pendingWrites = new ArrayBlockingQueue<PendingWrite>(10000);
+			this.writerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					runWriter();
+				}
+			},"AnalysisCache-writer");
+			this.writerThread.setDaemon(true);
+			this.writerThread.start();
+		} else {
+			this.pendingWrites = null;
+			this.writerThread = null;
+		}
+	}
+
+	/**
+	 * Builds a cache key from the position, the engine and the search limits.
+	 * @param positionHash Position hash, such as Position.getHashCode().
+	 * @param engineIdentity Identifies the engine and any options that change its results.
+	 * @param searchLimits Search limits, or null to look up an entry regardless of the limits it was searched with.
+	 */
+	public static long key(long positionHash,String engineIdentity,SearchLimits searchLimits) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < engineIdentity.length(); i++) {
+			hash = (hash ^ engineIdentity.charAt(i)) * 0x100000001b3L;
+		}
+		if (searchLimits != null) {
+			hash = (hash ^ searchLimits.getDepth()) * 0x100000001b3L;
+			hash = (hash ^ searchLimits.getNodes()) * 0x100000001b3L;
+			hash = (hash ^ searchLimits.getMoveTimeMs()) * 0x100000001b3L;
+		}
+		return positionHash ^ mix64(hash);
+	}
+
+	public CachedAnalysis get(long key) {
+		CachedAnalysis cachedAnalysis;
+		synchronized (lru) {
+			cachedAnalysis = lru.get(key);
+		}
+		if (cachedAnalysis != null) {
+			memoryHits.incrementAndGet();
+			return cachedAnalysis;
+		}
+		if (store != null) {
+			cachedAnalysis = store.get(key);
+			if (cachedAnalysis != null) {
+				diskHits.incrementAndGet();
+				synchronized (lru) {
+					lru.put(key,cachedAnalysis);
+				}
+				return cachedAnalysis;
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Stores an entry, unless the cache already holds a deeper one for the key. A shallower search, such as one that
+	 * shares a key because it was cached regardless of its limits, never replaces a deeper one.
+	 */
+	public void put(long key,CachedAnalysis cachedAnalysis) {
+		CachedAnalysis existing;
+		synchronized (lru) {
+			existing = lru.get(key);
+		}
+		if (existing == null && store != null) {
+			existing = store.get(key);
+		}
+		if (existing != null && isDeeper(existing,cachedAnalysis)) {
+			return;
+		}
+		synchronized (lru) {
+			lru.put(key,cachedAnalysis);
+		}
+		if (store != null && !pendingWrites.offer(new PendingWrite(key,cachedAnalysis))) {
+			// The writer is behind; write through rather than drop the entry.
+			store.put(key,cachedAnalysis);
+		}
+	}
+
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	public long getHits() {
+		return memoryHits.get() + diskHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (store != null) {
+			writerThread.interrupt();
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			PendingWrite pendingWrite;
+			while ((pendingWrite = pendingWrites.poll()) != null) {
+				store.put(pendingWrite.key,pendingWrite.cachedAnalysis);
+			}
+			store.close();
+		}
+	}
+
+	private void runWriter() {
+		long lastForce = System.currentTimeMillis();
+		while (!closed) {
+			try {
+				PendingWrite pendingWrite = pendingWrites.poll(1,TimeUnit.SECONDS);
+				if (pendingWrite != null) {
+					store.put(pendingWrite.key,pendingWrite.cachedAnalysis);
+				}
+				if (System.currentTimeMillis() - lastForce > FORCE_INTERVAL_MS) {
+					store.force();
+					lastForce = System.currentTimeMillis();
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private static boolean isDeeper(CachedAnalysis cachedAnalysis,CachedAnalysis other) {
+		if (cachedAnalysis.getDepth() != other.getDepth()) {
+			return cachedAnalysis.getDepth() > other.getDepth();
+		}
+		return cachedAnalysis.getNodes() > other.getNodes();
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static class PendingWrite {
+		private final long key;
+		private final CachedAnalysis cachedAnalysis;
+
+		private PendingWrite(long key,CachedAnalysis cachedAnalysis) {
+			this.key = key;
+			this.cachedAnalysis = cachedAnalysis;
+		}
+	}
+}
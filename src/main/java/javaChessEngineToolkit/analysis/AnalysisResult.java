@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+/**
+ * The answer to a request to an AnalysisService.
+ */
+public class AnalysisResult {
+	private final CachedAnalysis analysis;
+	private final boolean deduplicated;
+	private final int preemptions;
+	private final long queueMs;
+	private final long latencyMs;
+
+	/**
+	 * @param analysis The engine's answer.
+	 * @param deduplicated Whether the request was answered by a search another, identical request had already asked for.
+	 * @param preemptions How many times the search was stopped for interactive requests, and started over.
+	 * @param queueMs Time from the request to the start of the search that answered it.
+	 * @param latencyMs Time from the request to its answer.
+	 */
+	public AnalysisResult(CachedAnalysis analysis,boolean deduplicated,int preemptions,long queueMs,long latencyMs) {
+		this.analysis = analysis;
+		this.deduplicated = deduplicated;
+		this.preemptions = preemptions;
+		this.queueMs = queueMs;
+		this.latencyMs = latencyMs;
+	}
+
+	public CachedAnalysis getAnalysis() {
+		return analysis;
+	}
+
+	public boolean isDeduplicated() {
+		return deduplicated;
+	}
+
+	public int getPreemptions() {
+		return preemptions;
+	}
+
+	public long getQueueMs() {
+		return queueMs;
+	}
+
+	public long getLatencyMs() {
+		return latencyMs;
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.engines.UciEngine;
+import javaChessEngineToolkit.metrics.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serves an AnalysisService over HTTP on the loopback interface.
+ * <p>
+ * /analyze takes a JSON object, or query parameters, with 'fen' (or 'fens', a list of FENs), and at least one of
+ * 'depth', 'nodes' and 'movetimeMs', and optionally 'priority': "interactive" (the default) or "bulk". It answers, once
+ * the searches are done, with the analysis of the position, or a list of them in the order of 'fens':
+ * 'bestMove', 'scoreCp' or 'mate' from the point of view of the side to move, 'depth', 'nodes', 'pv', 'deduplicated',
+ * 'preemptions', 'queueMs' and 'latencyMs'.
+ * <p>
+ * /stats answers with the queue depths, the number of engines searching, the request, deduplication and preemption
+ * counts, and percentiles of the latency and the time in the queue per priority.
+ */
+public class AnalysisServer implements Closeable {
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	private final AnalysisService analysisService;
+	private HttpServer httpServer;
+	private ExecutorService httpExecutorService;
+
+	public AnalysisServer(AnalysisService analysisService) {
+		this.analysisService = analysisService;
+	}
+
+	/**
+	 * Usage: AnalysisServer port enginePath [engines]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: AnalysisServer port enginePath [engines]");
+			System.exit(1);
+		}
+		int port = Integer.parseInt(args[0]);
+		int engineCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		List<UciEngine> engines = new ArrayList<UciEngine>();
+		for (int i = 0; i < engineCount; i++) {
+			engines.add(new UciEngine("analysis-" + i,args[1],0));
+		}
+		AnalysisServer analysisServer = new AnalysisServer(new AnalysisService(engines));
+		port = analysisServer.start(port);
+		System.out.println(String.format("Analyzing with %d engines at http://localhost:%d/analyze",engineCount,port));
+	}
+
+	/**
+	 * Starts the HTTP server.
+	 * @param port Port, or 0 for any free one.
+	 * @return The port listened on.
+	 * @throws IOException
+	 */
+	public synchronized int start(int port) throws IOException {
+		if (httpServer != null) {
+			throw new IllegalStateException("Analysis server already started");
+		}
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),port),0);
+		// Every request holds a thread until its searches are done.
+		httpExecutorService = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,"AnalysisServer-http");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		httpServer.setExecutor(httpExecutorService);
+		httpServer.createContext("/analyze",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				handleAnalyze(httpExchange);
+			}
+		});
+		httpServer.createContext("/stats",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				respond(httpExchange,200,getStatsJson());
+			}
+		});
+		httpServer.start();
+		return httpServer.getAddress().getPort();
+	}
+
+	private void handleAnalyze(HttpExchange httpExchange) throws IOException {
+		List<CompletableFuture<AnalysisResult>> futures = new ArrayList<CompletableFuture<AnalysisResult>>();
+		List<String> fens = new ArrayList<String>();
+		boolean batch;
+		try {
+			Map<String,Object> request = parseRequest(httpExchange);
+			Object fen = request.get("fen");
+			Object fenList = request.get("fens");
+			batch = fenList != null;
+			if (fenList instanceof List) {
+				for (Object item : (List<?>) fenList) {
+					fens.add(String.valueOf(item));
+				}
+			} else if (fen instanceof String) {
+				fens.add((String) fen);
+			} else {
+				throw new IllegalArgumentException("Missing 'fen' or 'fens'");
+			}
+			SearchLimits searchLimits = new SearchLimits((int) getLong(request,"depth"),getLong(request,"nodes"),getLong(request,"movetimeMs"));
+			Object priorityName = request.get("priority");
+			AnalysisPriority priority = priorityName == null ? AnalysisPriority.INTERACTIVE : AnalysisPriority.valueOf(String.valueOf(priorityName).toUpperCase(Locale.ROOT));
+			for (String item : fens) {
+				futures.add(analysisService.submit(item,searchLimits,priority));
+			}
+		} catch (IllegalArgumentException e) {
+			cancel(futures);
+			respondError(httpExchange,400,e.getMessage());
+			return;
+		} catch (IllegalStateException e) {
+			cancel(futures);
+			respondError(httpExchange,503,e.getMessage());
+			return;
+		}
+
+		StringBuilder stringBuilder = new StringBuilder(256 * futures.size());
+		if (batch) {
+			stringBuilder.append('[');
+		}
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				if (i > 0) {
+					stringBuilder.append(',');
+				}
+				appendResult(stringBuilder,fens.get(i),futures.get(i).get());
+			}
+		} catch (ExecutionException e) {
+			cancel(futures);
+			respondError(httpExchange,500,String.valueOf(e.getCause()));
+			return;
+		} catch (CancellationException e) {
+			respondError(httpExchange,503,"Analysis service closed");
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (batch) {
+			stringBuilder.append(']');
+		}
+		respond(httpExchange,200,stringBuilder.toString());
+	}
+
+	private static void cancel(List<CompletableFuture<AnalysisResult>> futures) {
+		// Only stops the waiting; a search another request also waits for still answers it.
+		for (CompletableFuture<AnalysisResult> future : futures) {
+			future.cancel(false);
+		}
+	}
+
+	private static void appendResult(StringBuilder stringBuilder,String fen,AnalysisResult analysisResult) {
+		CachedAnalysis analysis = analysisResult.getAnalysis();
+		stringBuilder.append("{\"fen\":");
+		appendQuoted(stringBuilder,fen);
+		stringBuilder.append(",\"bestMove\":");
+		appendQuoted(stringBuilder,analysis.getBestMove());
+		stringBuilder.append(analysis.isMateScore() ? ",\"mate\":" : ",\"scoreCp\":").append(analysis.getScore());
+		stringBuilder.append(",\"depth\":").append(analysis.getDepth());
+		stringBuilder.append(",\"nodes\":").append(analysis.getNodes());
+		stringBuilder.append(",\"pv\":[");
+		String[] pv = analysis.getPv();
+		for (int i = 0; pv != null && i < pv.length; i++) {
+			if (i > 0) {
+				stringBuilder.append(',');
+			}
+			appendQuoted(stringBuilder,pv[i]);
+		}
+		stringBuilder.append("],\"deduplicated\":").append(analysisResult.isDeduplicated());
+		stringBuilder.append(",\"preemptions\":").append(analysisResult.getPreemptions());
+		stringBuilder.append(",\"queueMs\":").append(analysisResult.getQueueMs());
+		stringBuilder.append(",\"latencyMs\":").append(analysisResult.getLatencyMs());
+		stringBuilder.append('}');
+	}
+
+	/**
+	 * @return The service's statistics, as served at /stats.
+	 */
+	public String getStatsJson() {
+		StringBuilder stringBuilder = new StringBuilder(512);
+		stringBuilder.append("{\"engines\":").append(analysisService.getEngineCount());
+		stringBuilder.append(",\"running\":").append(analysisService.getRunningCount());
+		stringBuilder.append(",\"requests\":").append(analysisService.getRequestCount());
+		stringBuilder.append(",\"deduplicated\":").append(analysisService.getDeduplicatedCount());
+		stringBuilder.append(",\"preemptions\":").append(analysisService.getPreemptionCount());
+		for (AnalysisPriority priority : AnalysisPriority.values()) {
+			stringBuilder.append(",\"").append(priority.name().toLowerCase(Locale.ROOT)).append("\":{");
+			stringBuilder.append("\"queued\":").append(analysisService.getQueueDepth(priority));
+			stringBuilder.append(",\"latencyMs\":");
+			appendSnapshot(stringBuilder,analysisService.getLatencySnapshot(priority));
+			stringBuilder.append(",\"queueMs\":");
+			appendSnapshot(stringBuilder,analysisService.getQueueSnapshot(priority));
+			stringBuilder.append('}');
+		}
+		return stringBuilder.append('}').toString();
+	}
+
+	private static void appendSnapshot(StringBuilder stringBuilder,Histogram.Snapshot snapshot) {
+		stringBuilder.append("{\"count\":").append(snapshot.getCount());
+		for (double quantile : QUANTILES) {
+			stringBuilder.append(",\"p").append(Math.round(quantile * 100)).append("\":").append(snapshot.getValueAtQuantile(quantile));
+		}
+		stringBuilder.append(",\"max\":").append(snapshot.getMax()).append('}');
+	}
+
+	/**
+	 * Reads the request's query parameters and, if it has one, its JSON body, which takes precedence.
+	 */
+	private static Map<String,Object> parseRequest(HttpExchange httpExchange) throws IOException {
+		Map<String,Object> request = new HashMap<String,Object>();
+		String query = httpExchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				int equals = parameter.indexOf('=');
+				if (equals > 0) {
+					request.put(decode(parameter.substring(0,equals)),decode(parameter.substring(equals + 1)));
+				}
+			}
+		}
+		InputStream inputStream = httpExchange.getRequestBody();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = inputStream.read(buffer)) > 0) {
+			body.write(buffer,0,read);
+		}
+		String json = new String(body.toByteArray(),StandardCharsets.UTF_8).trim();
+		if (!json.isEmpty()) {
+			request.putAll(new JsonParser(json).parseObject());
+		}
+		return request;
+	}
+
+	private static String decode(String value) throws UnsupportedEncodingException {
+		return URLDecoder.decode(value,"UTF-8");
+	}
+
+	private static long getLong(Map<String,Object> request,String name) {
+		Object value = request.get(name);
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(String.valueOf(value));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid '" + name + "': " + value);
+		}
+	}
+
+	private static void respondError(HttpExchange httpExchange,int status,String message) throws IOException {
+		StringBuilder stringBuilder = new StringBuilder("{\"error\":");
+		appendQuoted(stringBuilder,message);
+		respond(httpExchange,status,stringBuilder.append('}').toString());
+	}
+
+	private static void respond(HttpExchange httpExchange,int status,String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		httpExchange.getResponseHeaders().set("Content-Type","application/json");
+		httpExchange.sendResponseHeaders(status,bytes.length);
+		OutputStream outputStream = httpExchange.getResponseBody();
+		try {
+			outputStream.write(bytes);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	private static void appendQuoted(StringBuilder stringBuilder,String value) {
+		if (value == null) {
+			stringBuilder.append("null");
+			return;
+		}
+		stringBuilder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				stringBuilder.append('\\').append(c);
+			} else if (c < 0x20) {
+				stringBuilder.append(' ');
+			} else {
+				stringBuilder.append(c);
+			}
+		}
+		stringBuilder.append('"');
+	}
+
+	/**
+	 * Stops the HTTP server. The AnalysisService is left running.
+	 */
+	@Override
+	public synchronized void close() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+		if (httpExecutorService != null) {
+			httpExecutorService.shutdownNow();
+			httpExecutorService = null;
+		}
+	}
+
+	/**
+	 * Parses the JSON of a request: an object whose values are strings, numbers, booleans, or lists of them.
+	 * Numbers and booleans are kept as their text.
+	 */
+	static class JsonParser {
+		private final String json;
+		private int index;
+
+		JsonParser(String json) {
+			this.json = json;
+		}
+
+		Map<String,Object> parseObject() {
+			Map<String,Object> object = new HashMap<String,Object>();
+			expect('{');
+			if (peek() == '}') {
+				index++;
+				return object;
+			}
+			while (true) {
+				String name = parseString();
+				expect(':');
+				object.put(name,parseValue());
+				char c = next();
+				if (c == '}') {
+					return object;
+				} else if (c != ',') {
+					throw error("Expected ',' or '}'");
+				}
+			}
+		}
+
+		private Object parseValue() {
+			char c = peek();
+			if (c == '"') {
+				return parseString();
+			} else if (c == '[') {
+				index++;
+				List<Object> list = new ArrayList<Object>();
+				if (peek() == ']') {
+					index++;
+					return list;
+				}
+				while (true) {
+					list.add(parseValue());
+					char separator = next();
+					if (separator == ']') {
+						return list;
+					} else if (separator != ',') {
+						throw error("Expected ',' or ']'");
+					}
+				}
+			}
+			int start = index;
+			while (index < json.length() && ",]} \t\r\n".indexOf(json.charAt(index)) < 0) {
+				index++;
+			}
+			if (start == index) {
+				throw error("Expected a value");
+			}
+			String literal = json.substring(start,index);
+			return literal.equals("null") ? null : literal;
+		}
+
+		private String parseString() {
+			expect('"');
+			StringBuilder stringBuilder = new StringBuilder();
+			while (true) {
+				if (index >= json.length()) {
+					throw error("Unterminated string");
+				}
+				char c = json.charAt(index++);
+				if (c == '"') {
+					return stringBuilder.toString();
+				} else if (c != '\\') {
+					stringBuilder.append(c);
+				} else if (index >= json.length()) {
+					throw error("Unterminated string");
+				} else {
+					char escaped = json.charAt(index++);
+					switch (escaped) {
+						case 'n': stringBuilder.append('\n'); break;
+						case 't': stringBuilder.append('\t'); break;
+						case 'r': stringBuilder.append('\r'); break;
+						case 'b': stringBuilder.append('\b'); break;
+						case 'f': stringBuilder.append('\f'); break;
+						case 'u':
+							if (index + 4 > json.length()) {
+								throw error("Invalid escape");
+							}
+							stringBuilder.append((char) Integer.parseInt(json.substring(index,index + 4),16));
+							index += 4;
+							break;
+						default: stringBuilder.append(escaped);
+					}
+				}
+			}
+		}
+
+		private char peek() {
+			while (index < json.length() && Character.isWhitespace(json.charAt(index))) {
+				index++;
+			}
+			if (index >= json.length()) {
+				throw error("Unexpected end");
+			}
+			return json.charAt(index);
+		}
+
+		private char next() {
+			char c = peek();
+			index++;
+			return c;
+		}
+
+		private void expect(char expected) {
+			if (next() != expected) {
+				throw error("Expected '" + expected + "'");
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Invalid JSON at " + index + ": " + message);
+		}
+	}
+}
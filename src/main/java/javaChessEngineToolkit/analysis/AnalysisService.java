@@ -0,0 +1,430 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.engines.UciEngine;
+import javaChessEngineToolkit.metrics.Counter;
+import javaChessEngineToolkit.metrics.Histogram;
+import javaChessEngineToolkit.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Answers requests to analyze a position to given limits with a pool of UCI engines, one search per engine at a time.
+ * <p>
+ * A request for a position and limits that is already queued or being searched does not start a search of its own,
+ * but waits for that one's answer. Interactive requests are searched before any queued bulk request. When none of
+ * the engines is free, an interactive request stops the bulk search that started last, which goes back to the front
+ * of the bulk queue, to be searched again from scratch. Interactive searches are never stopped.
+ * <p>
+ * The latency of every answered request, and its time in the queue, are recorded in MetricsRegistry.getDefault(),
+ * per priority.
+ */
+public class AnalysisService implements Closeable {
+	private final Object lock = new Object();
+	private final List<Worker> workers = new ArrayList<Worker>();
+	private final ArrayDeque<Job> interactiveQueue = new ArrayDeque<Job>();
+	private final ArrayDeque<Job> bulkQueue = new ArrayDeque<Job>();
+	// Queued or searched jobs, by position and limits.
+	private final Map<String,Job> jobs = new HashMap<String,Job>();
+	private final Histogram[] latencyHistograms = new Histogram[AnalysisPriority.values().length];
+	private final Histogram[] queueHistograms = new Histogram[AnalysisPriority.values().length];
+	private final Counter requestCounter;
+	private final Counter deduplicatedCounter;
+	private final Counter preemptionCounter;
+	private boolean closed;
+
+	/**
+	 * Starts a worker thread per engine. The engines are used by this service only until it is closed, and are not
+	 * stopped by it. Their search limits and search info listeners are overwritten.
+	 * @param engines Engines.
+	 */
+	public AnalysisService(List<UciEngine> engines) {
+		MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+		for (AnalysisPriority priority : AnalysisPriority.values()) {
+			String label = priority.name().toLowerCase(Locale.ROOT);
+			latencyHistograms[priority.ordinal()] = metricsRegistry.histogram("jcet_analysis_latency_ms","priority",label);
+			queueHistograms[priority.ordinal()] = metricsRegistry.histogram("jcet_analysis_queue_ms","priority",label);
+		}
+		requestCounter = metricsRegistry.counter("jcet_analysis_requests");
+		deduplicatedCounter = metricsRegistry.counter("jcet_analysis_deduplicated");
+		preemptionCounter = metricsRegistry.counter("jcet_analysis_preemptions");
+		for (UciEngine engine : engines) {
+			workers.add(new Worker(engine));
+		}
+		for (Worker worker : workers) {
+			worker.thread.start();
+		}
+	}
+
+	/**
+	 * Requests the analysis of a position.
+	 * @param fen Position.
+	 * @param searchLimits Limits of the search. At least one must be set, so that the search ends.
+	 * @param priority Priority.
+	 * @return The answer. Fails with the engine's exception if the search failed, and is cancelled if the service is closed first.
+	 * @throws IllegalArgumentException If the FEN is invalid, or no limit is set.
+	 */
+	public CompletableFuture<AnalysisResult> submit(String fen,SearchLimits searchLimits,AnalysisPriority priority) {
+		if (searchLimits == null || searchLimits.toGoArguments().isEmpty()) {
+			throw new IllegalArgumentException("No search limit set");
+		}
+		String normalizedFen = fen.trim().replaceAll("\\s+"," ");
+		Position position = new Position(normalizedFen);
+		String key = normalizedFen + "|" + searchLimits.toGoArguments();
+		Waiter waiter = new Waiter(priority);
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("Analysis service closed");
+			}
+			requestCounter.increment();
+			Job job = jobs.get(key);
+			if (job != null) {
+				deduplicatedCounter.increment();
+				waiter.deduplicated = true;
+				job.waiters.add(waiter);
+				if (priority == AnalysisPriority.INTERACTIVE && job.priority == AnalysisPriority.BULK) {
+					// Also keeps it from being stopped if it is being searched.
+					job.priority = AnalysisPriority.INTERACTIVE;
+					if (bulkQueue.remove(job)) {
+						interactiveQueue.add(job);
+						preemptIfNeeded();
+					}
+				}
+				return waiter.future;
+			}
+			job = new Job(key,normalizedFen,position,searchLimits,priority);
+			job.waiters.add(waiter);
+			jobs.put(key,job);
+			if (priority == AnalysisPriority.INTERACTIVE) {
+				interactiveQueue.add(job);
+				preemptIfNeeded();
+			} else {
+				bulkQueue.add(job);
+			}
+			lock.notifyAll();
+		}
+		return waiter.future;
+	}
+
+	/**
+	 * Stops bulk searches until there is an engine free, or about to be, for every queued interactive request.
+	 */
+	private void preemptIfNeeded() {
+		int available = 0;
+		for (Worker worker : workers) {
+			if (worker.job == null || worker.job.preempted) {
+				available++;
+			}
+		}
+		for (int i = available; i < interactiveQueue.size(); i++) {
+			// The search that started last has the least work to lose.
+			Worker victim = null;
+			for (Worker worker : workers) {
+				Job job = worker.job;
+				if (job != null && !job.preempted && job.priority == AnalysisPriority.BULK && (victim == null || worker.startedNanos > victim.startedNanos)) {
+					victim = worker;
+				}
+			}
+			if (victim == null) {
+				break;
+			}
+			victim.job.preempted = true;
+			preemptionCounter.increment();
+			// Sent under the lock, so it cannot reach the engine's next search: the worker takes the lock before starting one.
+			victim.engine.sendStop();
+		}
+	}
+
+	private void work(Worker worker) {
+		UciEngine engine = worker.engine;
+		while (true) {
+			Job job;
+			synchronized (lock) {
+				while (!closed && interactiveQueue.isEmpty() && bulkQueue.isEmpty()) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+				job = interactiveQueue.isEmpty() ? bulkQueue.poll() : interactiveQueue.poll();
+				worker.job = job;
+				worker.startedNanos = System.nanoTime();
+				job.startedNanos = worker.startedNanos;
+			}
+
+			Move[] moves = null;
+			Throwable failure = null;
+			try {
+				engine.setSearchLimits(job.searchLimits);
+				moves = engine.analyzePosition(job.fen,null,job.position).get();
+				if (moves.length == 0 || moves[0] == null) {
+					failure = new IllegalStateException(engine.getName() + " returned no move");
+				}
+			} catch (ExecutionException e) {
+				failure = e.getCause();
+			} catch (InterruptedException e) {
+				failure = e;
+				Thread.currentThread().interrupt();
+			}
+			SearchInfo searchInfo = engine.getLastSearchInfo();
+			// A search may have reached its limits just as it was preempted; its result is then as good as any.
+			boolean cutShort = job.preempted && failure == null
+					&& !reachedLimits(job.searchLimits,searchInfo,(System.nanoTime() - job.startedNanos) / 1000000);
+
+			synchronized (lock) {
+				worker.job = null;
+				if (cutShort && !closed) {
+					job.preempted = false;
+					job.preemptions++;
+					if (job.priority == AnalysisPriority.INTERACTIVE) {
+						interactiveQueue.addFirst(job);
+					} else {
+						bulkQueue.addFirst(job);
+					}
+					lock.notifyAll();
+					continue;
+				}
+				jobs.remove(job.key);
+				if (cutShort) {
+					failure = new CancellationException("Analysis service closed");
+				}
+			}
+			if (failure != null) {
+				for (Waiter waiter : job.waiters) {
+					waiter.future.completeExceptionally(failure);
+				}
+			} else {
+				complete(job,CachedAnalysis.of(moves[0].getNotation(),searchInfo));
+			}
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return Whether a search ran to its limits: its depth and node limits, or its move time.
+	 */
+	private static boolean reachedLimits(SearchLimits searchLimits,SearchInfo searchInfo,long elapsedMs) {
+		if (searchLimits == null) {
+			return false;
+		}
+		if (searchLimits.getMoveTimeMs() > 0 && elapsedMs >= searchLimits.getMoveTimeMs()) {
+			return true;
+		}
+		return searchInfo != null && searchLimits.isSatisfiedBy(searchInfo.getDepth(),searchInfo.getNodes());
+	}
+
+	private void complete(Job job,CachedAnalysis analysis) {
+		long now = System.nanoTime();
+		for (Waiter waiter : job.waiters) {
+			// A request that joined a running search did not queue.
+			long queueMs = Math.max(0,job.startedNanos - waiter.submittedNanos) / 1000000;
+			long latencyMs = (now - waiter.submittedNanos) / 1000000;
+			queueHistograms[waiter.priority.ordinal()].record(queueMs);
+			latencyHistograms[waiter.priority.ordinal()].record(latencyMs);
+			waiter.future.complete(new AnalysisResult(analysis,waiter.deduplicated,job.preemptions,queueMs,latencyMs));
+		}
+	}
+
+	/**
+	 * @param priority Priority.
+	 * @return Number of queued searches of that priority, not counting those being searched.
+	 */
+	public int getQueueDepth(AnalysisPriority priority) {
+		synchronized (lock) {
+			return priority == AnalysisPriority.INTERACTIVE ? interactiveQueue.size() : bulkQueue.size();
+		}
+	}
+
+	/**
+	 * @return Number of engines searching.
+	 */
+	public int getRunningCount() {
+		synchronized (lock) {
+			int running = 0;
+			for (Worker worker : workers) {
+				if (worker.job != null) {
+					running++;
+				}
+			}
+			return running;
+		}
+	}
+
+	public int getEngineCount() {
+		return workers.size();
+	}
+
+	/**
+	 * @param priority Priority.
+	 * @return Latencies of the requests of that priority answered so far, in milliseconds.
+	 */
+	public Histogram.Snapshot getLatencySnapshot(AnalysisPriority priority) {
+		return latencyHistograms[priority.ordinal()].snapshot();
+	}
+
+	/**
+	 * @param priority Priority.
+	 * @return Times in the queue of the requests of that priority answered so far, in milliseconds.
+	 */
+	public Histogram.Snapshot getQueueSnapshot(AnalysisPriority priority) {
+		return queueHistograms[priority.ordinal()].snapshot();
+	}
+
+	public long getRequestCount() {
+		return requestCounter.getCount();
+	}
+
+	public long getDeduplicatedCount() {
+		return deduplicatedCounter.getCount();
+	}
+
+	public long getPreemptionCount() {
+		return preemptionCounter.getCount();
+	}
+
+	/**
+	 * Cancels the queued requests, stops the running searches, failing their requests, and waits for the workers to end.
+	 */
+	@Override
+	public void close() {
+		List<Job> cancelled = new ArrayList<Job>();
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			cancelled.addAll(interactiveQueue);
+			cancelled.addAll(bulkQueue);
+			interactiveQueue.clear();
+			bulkQueue.clear();
+			for (Job job : cancelled) {
+				jobs.remove(job.key);
+			}
+			for (Worker worker : workers) {
+				if (worker.job != null) {
+					worker.job.preempted = true;
+					worker.engine.sendStop();
+				}
+			}
+			lock.notifyAll();
+		}
+		for (Job job : cancelled) {
+			for (Waiter waiter : job.waiters) {
+				waiter.future.cancel(false);
+			}
+		}
+		for (Worker worker : workers) {
+			try {
+				worker.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A search to be done, and the requests waiting for it. Guarded by the lock, except preempted, which is also read by the
+	 * search info listener.
+	 */
+	private static class Job {
+		private final String key;
+		private final String fen;
+		private final Position position;
+		private final SearchLimits searchLimits;
+		private final List<Waiter> waiters = new ArrayList<Waiter>();
+		private AnalysisPriority priority;
+		private volatile boolean preempted;
+		private int preemptions;
+		private long startedNanos;
+
+		Job(String key,String fen,Position position,SearchLimits searchLimits,AnalysisPriority priority) {
+			this.key = key;
+			this.fen = fen;
+			this.position = position;
+			this.searchLimits = searchLimits;
+			this.priority = priority;
+		}
+	}
+
+	private static class Waiter {
+		private final AnalysisPriority priority;
+		private final long submittedNanos = System.nanoTime();
+		private final CompletableFuture<AnalysisResult> future = new CompletableFuture<AnalysisResult>();
+		private boolean deduplicated;
+
+		Waiter(AnalysisPriority priority) {
+			this.priority = priority;
+		}
+	}
+
+	private class Worker {
+		private final UciEngine engine;
+		private final Thread thread;
+		private volatile Job job;
+		private long startedNanos;
+
+		Worker(final UciEngine engine) {
+			this.engine = engine;
+			this.thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work(Worker.this);
+				}
+			},"AnalysisService-" + engine.getName());
+			this.thread.setDaemon(true);
+			engine.setSearchInfoListener(new Consumer<SearchInfo>() {
+				@Override
+				public void accept(SearchInfo searchInfo) {
+					// A 'stop' sent just before 'go' is lost; repeated until the engine answers.
+					Job current = job;
+					if (current != null && current.preempted) {
+						engine.sendStop();
+					}
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import javaChessEngineToolkit.SearchLimits;
+
+import java.io.PrintStream;
+
+public class BulkAnalysisOptions {
+	private SearchLimits searchLimits = new SearchLimits(12,0,0);
+	private int checkpointInterval = 1000;
+	private long reportIntervalMs = 10000;
+	private int maxInFlight = 1024;
+	private PrintStream progressStream = System.out;
+
+	public SearchLimits getSearchLimits() {
+		return searchLimits;
+	}
+
+	/**
+	 * Limits every position is searched with. Defaults to depth 12.
+	 * @param searchLimits
+	 */
+	public void setSearchLimits(SearchLimits searchLimits) {
+		this.searchLimits = searchLimits;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Number of positions written between checkpoints.
+	 * @param checkpointInterval
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public long getReportIntervalMs() {
+		return reportIntervalMs;
+	}
+
+	/**
+	 * Interval between throughput reports, in milliseconds. 0 disables reporting.
+	 * @param reportIntervalMs
+	 */
+	public void setReportIntervalMs(long reportIntervalMs) {
+		this.reportIntervalMs = reportIntervalMs;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Maximum number of positions read but not yet written. Bounds memory when a slow position holds up the ordered output.
+	 * @param maxInFlight
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public PrintStream getProgressStream() {
+		return progressStream;
+	}
+
+	public void setProgressStream(PrintStream progressStream) {
+		this.progressStream = progressStream;
+	}
+}
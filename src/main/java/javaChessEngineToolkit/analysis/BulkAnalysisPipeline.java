@@ -0,0 +1,326 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.EpdRecord;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Analyzes every position of one or more EPD/FEN files with a pool of UCI engines, writing annotated EPD.
+ *
+ * Positions are searched in parallel, one per engine, but written in input order, each with an 'id' (the input's own,
+ * or the position's index). Every written line carries 'bm', 'acd', 'acn' and 'pv', and either 'ce' or, for mate scores, 'dm'.
+ * Progress is checkpointed, so a run restarted with the same inputs, output and checkpoint file resumes after the
+ * last checkpointed position.
+ */
+public class BulkAnalysisPipeline {
+	private static final Task END = new Task(-1,null);
+
+	private final List<UciEngine> engines;
+	private final BulkAnalysisOptions options;
+
+	private final Map<Long,String> results = new HashMap<Long,String>();
+	private volatile long totalPositions = -1;
+	private volatile IOException readerException;
+
+	public BulkAnalysisPipeline(List<UciEngine> engines,BulkAnalysisOptions options) {
+		this.engines = engines;
+		this.options = options;
+	}
+
+	/**
+	 * Runs the analysis. This is a blocking call.
+	 * @param inputFiles EPD or FEN files. Blank lines and lines starting with '#' are skipped.
+	 * @param outputFile Annotated EPD output.
+	 * @param checkpointFile Checkpoint file. If it exists, the run resumes from it.
+	 * @return Number of positions analyzed by this run.
+	 */
+	public long run(final List<File> inputFiles,File outputFile,final File checkpointFile) throws IOException, InterruptedException {
+		long positionsDone = 0;
+		long outputBytes = 0;
+		if (checkpointFile.exists()) {
+			Properties checkpoint = new Properties();
+			InputStream inputStream = new FileInputStream(checkpointFile);
+			try {
+				checkpoint.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+			positionsDone = Long.parseLong(checkpoint.getProperty("positions"));
+			outputBytes = Long.parseLong(checkpoint.getProperty("outputBytes"));
+			// Drop anything written after the checkpoint; those positions are analyzed again.
+			FileChannel channel = FileChannel.open(outputFile.toPath(),StandardOpenOption.CREATE,StandardOpenOption.WRITE);
+			try {
+				channel.truncate(outputBytes);
+			} finally {
+				channel.close();
+			}
+		} else if (outputFile.exists() && outputFile.length() > 0) {
+			throw new IOException("Output file " + outputFile + " exists but there is no checkpoint to resume from");
+		}
+
+		final BlockingQueue<Task> tasks = new ArrayBlockingQueue<Task>(options.getMaxInFlight() + engines.size());
+		final Semaphore inFlight = new Semaphore(options.getMaxInFlight());
+		final long skip = positionsDone;
+		results.clear();
+		totalPositions = -1;
+		readerException = null;
+
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readInputs(inputFiles,skip,tasks,inFlight);
+			}
+		},"BulkAnalysis-reader");
+		reader.start();
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (final UciEngine engine : engines) {
+			engine.setSearchLimits(options.getSearchLimits());
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					analyze(engine,tasks);
+				}
+			},"BulkAnalysis-" + engine.getName());
+			workers.add(worker);
+			worker.start();
+		}
+
+		final FileOutputStream fileOutputStream = new FileOutputStream(outputFile,true);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(fileOutputStream,StandardCharsets.UTF_8),1 << 16);
+		long nextPosition = positionsDone;
+		long started = System.currentTimeMillis();
+		long lastReport = started;
+		try {
+			while (true) {
+				String line;
+				synchronized (results) {
+					while (!results.containsKey(nextPosition) && (totalPositions < 0 || nextPosition < totalPositions)) {
+						results.wait(1000);
+					}
+					line = results.remove(nextPosition);
+				}
+				if (line == null) {
+					break;
+				}
+				writer.write(line);
+				writer.write('\n');
+				outputBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				nextPosition++;
+				inFlight.release();
+
+				if ((nextPosition - skip) % options.getCheckpointInterval() == 0) {
+					writeCheckpoint(checkpointFile,writer,fileOutputStream,nextPosition,outputBytes);
+				}
+				long now = System.currentTimeMillis();
+				if (options.getReportIntervalMs() > 0 && now - lastReport >= options.getReportIntervalMs()) {
+					reportProgress(nextPosition,nextPosition - skip,now - started);
+					lastReport = now;
+				}
+			}
+			writeCheckpoint(checkpointFile,writer,fileOutputStream,nextPosition,outputBytes);
+			if (options.getReportIntervalMs() > 0) {
+				reportProgress(nextPosition,nextPosition - skip,System.currentTimeMillis() - started);
+			}
+		} finally {
+			writer.close();
+			reader.interrupt();
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+		}
+
+		reader.join();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		if (readerException != null) {
+			throw readerException;
+		}
+		return nextPosition - skip;
+	}
+
+	/**
+	 * Adds the analysis operations to an EPD record.
+	 * @param epdRecord Record to annotate.
+	 * @param position The record's position.
+	 * @param bestMove The engine's best move.
+	 * @param searchInfo The engine's last search info, or null.
+	 */
+	public static void annotate(EpdRecord epdRecord,Position position,Move bestMove,SearchInfo searchInfo) {
+		String[] bestMoveSan = ChesspressoUtils.getSanLine(position,new String[] { ChesspressoUtils.getUciNotation(bestMove.getShortValue()) });
+		epdRecord.setOperation("bm",bestMoveSan.length > 0 ? bestMoveSan[0] : bestMove.getNotation());
+		if (searchInfo != null) {
+			if (searchInfo.hasScore()) {
+				epdRecord.setOperation(searchInfo.isMateScore() ? "dm" : "ce",String.valueOf(searchInfo.getScore()));
+			}
+			epdRecord.setOperation("acd",String.valueOf(searchInfo.getDepth()));
+			epdRecord.setOperation("acn",String.valueOf(searchInfo.getNodes()));
+			String[] pv = ChesspressoUtils.getSanLine(position,searchInfo.getPv());
+			if (pv.length > 0) {
+				epdRecord.setOperation("pv",String.join(" ",pv));
+			}
+		}
+	}
+
+	private void readInputs(List<File> inputFiles,long skip,BlockingQueue<Task> tasks,Semaphore inFlight) {
+		long index = 0;
+		try {
+			for (File inputFile : inputFiles) {
+				BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile),StandardCharsets.UTF_8),1 << 16);
+				try {
+					String line;
+					while ((line = bufferedReader.readLine()) != null) {
+						if (line.trim().isEmpty() || line.startsWith("#")) {
+							continue;
+						}
+						if (index >= skip) {
+							inFlight.acquire();
+							tasks.put(new Task(index,line));
+						}
+						index++;
+					}
+				} finally {
+					bufferedReader.close();
+				}
+			}
+		} catch (IOException e) {
+			readerException = e;
+		} catch (InterruptedException e) {
+			return;
+		} finally {
+			synchronized (results) {
+				totalPositions = index;
+				results.notifyAll();
+			}
+			for (int i = 0; i < engines.size(); i++) {
+				tasks.offer(END);
+			}
+		}
+	}
+
+	private void analyze(UciEngine engine,BlockingQueue<Task> tasks) {
+		try {
+			while (true) {
+				Task task = tasks.take();
+				if (task == END) {
+					return;
+				}
+				String result;
+				EpdRecord epdRecord = null;
+				try {
+					epdRecord = EpdRecord.parse(task.line);
+					if (!epdRecord.hasOperation("id")) {
+						epdRecord.setStringOperation("id",String.valueOf(task.index));
+					}
+					Position position = new Position(epdRecord.getFEN());
+					Move[] moves = engine.analyzePosition(position).get();
+					if (moves == null || moves.length == 0 || moves[0] == null) {
+						throw new IllegalStateException("No best move");
+					}
+					annotate(epdRecord,position,moves[0],engine.getLastSearchInfo());
+					result = epdRecord.toString();
+				} catch (InterruptedException e) {
+					return;
+				} catch (Exception e) {
+					// Keep the output complete and in order; the failure is recorded on the line itself.
+					if (epdRecord == null) {
+						result = "# " + task.line + " ; " + e;
+					} else {
+						epdRecord.setStringOperation("c0","analysis failed: " + e);
+						result = epdRecord.toString();
+					}
+				}
+				synchronized (results) {
+					results.put(task.index,result);
+					results.notifyAll();
+				}
+			}
+		} catch (InterruptedException e) {
+			// Stopped by run().
+		}
+	}
+
+	private void writeCheckpoint(File checkpointFile,Writer writer,FileOutputStream fileOutputStream,long positions,long outputBytes) throws IOException {
+		writer.flush();
+		fileOutputStream.getFD().sync();
+
+		Properties checkpoint = new Properties();
+		checkpoint.setProperty("positions",String.valueOf(positions));
+		checkpoint.setProperty("outputBytes",String.valueOf(outputBytes));
+		File tempFile = new File(checkpointFile.getPath() + ".tmp");
+		OutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			checkpoint.store(outputStream,"BulkAnalysisPipeline checkpoint");
+		} finally {
+			outputStream.close();
+		}
+		Files.move(tempFile.toPath(),checkpointFile.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void reportProgress(long positions,long positionsThisRun,long elapsedMs) {
+		options.getProgressStream().println(String.format("%d positions analyzed, %.1f positions/s",
+				positions,elapsedMs > 0 ? positionsThisRun * 1000.0 / elapsedMs : 0.0));
+	}
+
+	private static class Task {
+		private final long index;
+		private final String line;
+
+		private Task(long index,String line) {
+			this.index = index;
+			this.line = line;
+		}
+	}
+}
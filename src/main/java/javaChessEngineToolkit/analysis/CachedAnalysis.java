@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import javaChessEngineToolkit.SearchInfo;
+
+/**
+ * The result of an engine search, as stored by an AnalysisCache.
+ */
+public class CachedAnalysis {
+	private final String bestMove;
+	private final int score;
+	private final boolean mateScore;
+	private final int depth;
+	private final long nodes;
+	private final String[] pv;
+
+	/**
+	 * @param bestMove Best move, in UCI notation.
+	 * @param score Score in centipawns, or moves to mate if mateScore, from the point of view of the side to move.
+	 * @param mateScore Whether the score is a mate score.
+	 * @param depth Depth reached.
+	 * @param nodes Nodes searched.
+	 * @param pv Principal variation, in UCI notation.
+	 */
+	public CachedAnalysis(String bestMove,int score,boolean mateScore,int depth,long nodes,String[] pv) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.mateScore = mateScore;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.pv = pv;
+	}
+
+	/**
+	 * Creates an entry from the engine's best move and last search info. The search info may be null.
+	 */
+	public static CachedAnalysis of(String bestMove,SearchInfo searchInfo) {
+		if (searchInfo == null) {
+			return new CachedAnalysis(bestMove,0,false,0,0,new String[] { bestMove });
+		}
+		return new CachedAnalysis(bestMove,searchInfo.getScore(),searchInfo.isMateScore(),searchInfo.getDepth(),searchInfo.getNodes(),searchInfo.getPv());
+	}
+
+	public String getBestMove() {
+		return bestMove;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isMateScore() {
+		return mateScore;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public String[] getPv() {
+		return pv;
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.EpdRecord;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs an EPD test suite (such as WAC or STS) on a pool of UCI engines and measures how quickly each position is solved.
+ *
+ * A position is solved if the engine's final move is one of its 'bm' moves, or none of its 'am' moves. While the engine
+ * searches, every 'info' line is checked, and the time and depth from which the principal variation starts with a
+ * correct move and keeps doing so are recorded as the time to solution. Times are wall-clock times from the 'go',
+ * whatever the engine reports, so that results of different engines and runs compare.
+ */
+public class EpdSuiteRunner {
+	private final List<UciEngine> engines;
+	private final SearchLimits searchLimits;
+
+	public EpdSuiteRunner(List<UciEngine> engines,SearchLimits searchLimits) {
+		this.engines = engines;
+		this.searchLimits = searchLimits;
+	}
+
+	public static List<EpdRecord> readSuite(File epdFile) throws IOException {
+		List<EpdRecord> epdRecords = new ArrayList<EpdRecord>();
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(epdFile),StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = bufferedReader.readLine()) != null) {
+				if (!line.trim().isEmpty() && !line.startsWith("#")) {
+					epdRecords.add(EpdRecord.parse(line));
+				}
+			}
+		} finally {
+			bufferedReader.close();
+		}
+		return epdRecords;
+	}
+
+	/**
+	 * Runs every position of the suite. This is a blocking call.
+	 * @param epdRecords Suite positions. Positions without an 'id' are identified by their index.
+	 * @return Results, in suite order.
+	 */
+	public List<SuiteResult> run(final List<EpdRecord> epdRecords) throws InterruptedException {
+		final SuiteResult[] results = new SuiteResult[epdRecords.size()];
+		final AtomicInteger next = new AtomicInteger();
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (final UciEngine engine : engines) {
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					engine.setSearchLimits(searchLimits);
+					int index;
+					while ((index = next.getAndIncrement()) < epdRecords.size()) {
+						EpdRecord epdRecord = epdRecords.get(index);
+						String id = epdRecord.hasOperation("id") ? epdRecord.getStringOperation("id") : String.valueOf(index);
+						try {
+							results[index] = runPosition(engine,epdRecord,id);
+						} catch (Exception e) {
+							e.printStackTrace(System.err);
+							results[index] = new SuiteResult(id,false,-1,-1,"");
+						}
+					}
+				}
+			},"EpdSuiteRunner-" + engine.getName());
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		List<SuiteResult> resultList = new ArrayList<SuiteResult>();
+		for (SuiteResult result : results) {
+			resultList.add(result);
+		}
+		return resultList;
+	}
+
+	private SuiteResult runPosition(UciEngine engine,EpdRecord epdRecord,String id) throws Exception {
+		final Position position = new Position(epdRecord.getFEN());
+		final Set<String> correctMoves = getCorrectMoves(position,epdRecord);
+		// Time and depth from which the PV has started with a correct move; -1 while it does not.
+		final long[] settledTimeMs = { -1 };
+		final int[] settledDepth = { -1 };
+
+		engine.sendUciNewGame();
+		final long started = System.currentTimeMillis();
+		engine.setSearchInfoListener(new Consumer<SearchInfo>() {
+			@Override
+			public void accept(SearchInfo searchInfo) {
+				if (searchInfo.getMultiPv() != 1 || searchInfo.getPv().length == 0) {
+					return;
+				}
+				if (correctMoves.contains(searchInfo.getPv()[0])) {
+					if (settledTimeMs[0] < 0) {
+						settledTimeMs[0] = System.currentTimeMillis() - started;
+						settledDepth[0] = searchInfo.getDepth();
+					}
+				} else {
+					settledTimeMs[0] = -1;
+					settledDepth[0] = -1;
+				}
+			}
+		});
+		Move[] moves;
+		try {
+			moves = engine.analyzePosition(position).get();
+		} finally {
+			engine.setSearchInfoListener(null);
+		}
+
+		String bestMove = moves != null && moves.length > 0 && moves[0] != null ? ChesspressoUtils.getUciNotation(moves[0].getShortValue()) : "";
+		boolean solved = correctMoves.contains(bestMove);
+		if (!solved) {
+			return new SuiteResult(id,false,-1,-1,bestMove);
+		}
+		if (settledTimeMs[0] < 0) {
+			// Solved without a matching PV being reported, for example on the last line only.
+			settledTimeMs[0] = System.currentTimeMillis() - started;
+			SearchInfo searchInfo = engine.getLastSearchInfo();
+			settledDepth[0] = searchInfo != null ? searchInfo.getDepth() : 0;
+		}
+		return new SuiteResult(id,true,settledTimeMs[0],settledDepth[0],bestMove);
+	}
+
+	/**
+	 * Gets the legal moves, in UCI notation, that count as correct: the 'bm' moves if any, otherwise all moves except the 'am' moves.
+	 */
+	public static Set<String> getCorrectMoves(Position position,EpdRecord epdRecord) throws IllegalMoveException {
+		Set<String> bestMoves = new HashSet<String>();
+		for (String san : epdRecord.getOperands("bm")) {
+			bestMoves.add(normalizeSan(san));
+		}
+		Set<String> avoidMoves = new HashSet<String>();
+		for (String san : epdRecord.getOperands("am")) {
+			avoidMoves.add(normalizeSan(san));
+		}
+
+		Set<String> correctMoves = new HashSet<String>();
+		Position _position = new Position(position);
+		for (short move : _position.getAllMoves()) {
+			_position.doMove(move);
+			String san = normalizeSan(_position.getLastMove().getSAN());
+			_position.undoMove();
+			boolean correct = bestMoves.isEmpty() ? !avoidMoves.contains(san) : bestMoves.contains(san);
+			if (correct) {
+				correctMoves.add(ChesspressoUtils.getUciNotation(move));
+			}
+		}
+		return correctMoves;
+	}
+
+	private static String normalizeSan(String san) {
+		StringBuilder stringBuilder = new StringBuilder(san.length());
+		for (int i = 0; i < san.length(); i++) {
+			char c = san.charAt(i);
+			if (c != '+' && c != '#' && c != '!' && c != '?' && c != 'x' && c != '=') {
+				// Castling is written with both letter O and digit 0.
+				stringBuilder.append(c == '0' ? 'O' : c);
+			}
+		}
+		return stringBuilder.toString();
+	}
+
+	public static void writeResults(List<SuiteResult> results,File resultsFile) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultsFile),StandardCharsets.UTF_8));
+		try {
+			for (SuiteResult result : results) {
+				writer.write(result.toString());
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	public static Map<String,SuiteResult> readResults(File resultsFile) throws IOException {
+		Map<String,SuiteResult> results = new LinkedHashMap<String,SuiteResult>();
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(resultsFile),StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = bufferedReader.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					SuiteResult result = SuiteResult.parse(line);
+					results.put(result.getId(),result);
+				}
+			}
+		} finally {
+			bufferedReader.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Prints the solved count and mean time to solution, and, if previous results are given, every position whose
+	 * outcome or time to solution changed.
+	 * @param results Results of this run.
+	 * @param previous Results of a previous run, keyed by id, or null.
+	 */
+	public static void report(List<SuiteResult> results,Map<String,SuiteResult> previous,PrintStream printStream) {
+		int solved = 0;
+		long totalTimeMs = 0;
+		for (SuiteResult result : results) {
+			if (result.isSolved()) {
+				solved++;
+				totalTimeMs += result.getTimeMs();
+			}
+		}
+		printStream.println(String.format("Solved: %d / %d",solved,results.size()));
+		printStream.println(String.format("Mean time to solution: %.0f ms",solved > 0 ? totalTimeMs / (double) solved : 0.0));
+		if (previous == null) {
+			return;
+		}
+
+		int previousSolved = 0;
+		for (SuiteResult result : previous.values()) {
+			if (result.isSolved()) {
+				previousSolved++;
+			}
+		}
+		printStream.println(String.format("Previous run: %d / %d (%+d)",previousSolved,previous.size(),solved - previousSolved));
+		for (SuiteResult result : results) {
+			SuiteResult before = previous.get(result.getId());
+			if (before == null) {
+				continue;
+			}
+			if (result.isSolved() && !before.isSolved()) {
+				printStream.println(String.format("%s: now solved (%d ms, depth %d)",result.getId(),result.getTimeMs(),result.getDepth()));
+			} else if (!result.isSolved() && before.isSolved()) {
+				printStream.println(String.format("%s: no longer solved (was %d ms, plays %s)",result.getId(),before.getTimeMs(),result.getBestMove()));
+			} else if (result.isSolved() && result.getTimeMs() != before.getTimeMs()) {
+				printStream.println(String.format("%s: %+d ms (%d -> %d), depth %d -> %d",result.getId(),result.getTimeMs() - before.getTimeMs(),
+						before.getTimeMs(),result.getTimeMs(),before.getDepth(),result.getDepth()));
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.Chess;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed-size, memory-mapped hash table of CachedAnalysis entries, used as the on-disk tier of an AnalysisCache.
+ * Like an engine's transposition table, a full bucket replaces its shallowest entry, so the file never grows.
+ *
+ * <pre>
+ *  0-7   key (0 marks an empty slot)
+ *  8-15  nodes
+ *  16-19 score
+ *  20-21 depth
+ *  22-23 best move, packed (see packMove)
+ *  24    flags, bit 0 mate score
+ *  25    PV length
+ *  26-57 PV, up to 16 packed moves
+ * </pre>
+ */
+public class MappedAnalysisStore implements Closeable {
+	public static final int ENTRY_SIZE = 64;
+	public static final int MAX_PV_LENGTH = 16;
+	private static final int BUCKET_SIZE = 4;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int mask;
+
+	/**
+	 * Opens or creates a store.
+	 * @param file Store file.
+	 * @param numEntries Number of entries. Rounded up to a power of two; ignored if the file already exists.
+	 */
+	public MappedAnalysisStore(File file,int numEntries) throws IOException {
+		this.channel = FileChannel.open(file.toPath(),StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE);
+		long size = channel.size();
+		if (size == 0) {
+			int entries = Integer.highestOneBit(Math.max(BUCKET_SIZE,numEntries) - 1) << 1;
+			size = (long) entries * ENTRY_SIZE;
+		}
+		long entries = size / ENTRY_SIZE;
+		if (Long.bitCount(entries) != 1 || size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException("Not an analysis store: " + file);
+		}
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE,0,size);
+		this.mask = (int) entries - 1;
+	}
+
+	public synchronized CachedAnalysis get(long key) {
+		key = nonZero(key);
+		int slot = (int) key & mask;
+		for (int i = 0; i < BUCKET_SIZE; i++) {
+			int offset = ((slot + i) & mask) * ENTRY_SIZE;
+			if (buffer.getLong(offset) == key) {
+				return read(offset);
+			}
+		}
+		return null;
+	}
+
+	public synchronized void put(long key,CachedAnalysis cachedAnalysis) {
+		key = nonZero(key);
+		int slot = (int) key & mask;
+		int replace = -1;
+		int replaceDepth = Integer.MAX_VALUE;
+		for (int i = 0; i < BUCKET_SIZE; i++) {
+			int offset = ((slot + i) & mask) * ENTRY_SIZE;
+			long stored = buffer.getLong(offset);
+			if (stored == key || stored == 0L) {
+				replace = offset;
+				break;
+			}
+			int depth = buffer.getShort(offset + 20);
+			if (depth < replaceDepth) {
+				replaceDepth = depth;
+				replace = offset;
+			}
+		}
+		write(replace,key,cachedAnalysis);
+	}
+
+	/**
+	 * Forces the mapped pages to disk.
+	 */
+	public synchronized void force() {
+		buffer.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private CachedAnalysis read(int offset) {
+		long nodes = buffer.getLong(offset + 8);
+		int score = buffer.getInt(offset + 16);
+		int depth = buffer.getShort(offset + 20);
+		String bestMove = unpackMove(buffer.getShort(offset + 22));
+		boolean mateScore = (buffer.get(offset + 24) & 1) != 0;
+		int pvLength = buffer.get(offset + 25);
+		String[] pv = new String[pvLength];
+		for (int i = 0; i < pvLength; i++) {
+			pv[i] = unpackMove(buffer.getShort(offset + 26 + i * 2));
+		}
+		return new CachedAnalysis(bestMove,score,mateScore,depth,nodes,pv);
+	}
+
+	private void write(int offset,long key,CachedAnalysis cachedAnalysis) {
+		// Write the key last, so a torn write is never found under the new key.
+		buffer.putLong(offset,0L);
+		buffer.putLong(offset + 8,cachedAnalysis.getNodes());
+		buffer.putInt(offset + 16,cachedAnalysis.getScore());
+		buffer.putShort(offset + 20,(short) Math.min(Short.MAX_VALUE,cachedAnalysis.getDepth()));
+		buffer.putShort(offset + 22,packMove(cachedAnalysis.getBestMove()));
+		buffer.put(offset + 24,(byte) (cachedAnalysis.isMateScore() ? 1 : 0));
+		String[] pv = cachedAnalysis.getPv();
+		int pvLength = Math.min(MAX_PV_LENGTH,pv.length);
+		buffer.put(offset + 25,(byte) pvLength);
+		for (int i = 0; i < pvLength; i++) {
+			buffer.putShort(offset + 26 + i * 2,packMove(pv[i]));
+		}
+		buffer.putLong(offset,key);
+	}
+
+	private static long nonZero(long key) {
+		return key == 0L ? 1L : key;
+	}
+
+	/**
+	 * Packs a UCI move into 15 bits: from square, to square and promotion piece.
+	 */
+	static short packMove(String uciMove) {
+		if (uciMove == null || uciMove.length() < 4) {
+			return 0;
+		}
+		int fromSqi = Chess.strToSqi(uciMove.substring(0,2));
+		int toSqi = Chess.strToSqi(uciMove.substring(2,4));
+		int promoPiece = uciMove.length() > 4 ? Chess.charToPiece(Character.toUpperCase(uciMove.charAt(4))) : Chess.NO_PIECE;
+		return (short) (fromSqi | (toSqi << 6) | (promoPiece << 12));
+	}
+
+	static String unpackMove(short packed) {
+		if (packed == 0) {
+			return null;
+		}
+		int promoPiece = (packed >>> 12) & 7;
+		String move = Chess.sqiToStr(packed & 63) + Chess.sqiToStr((packed >>> 6) & 63);
+		return promoPiece == Chess.NO_PIECE ? move : move + Character.toLowerCase(Chess.pieceToChar(promoPiece));
+	}
+}
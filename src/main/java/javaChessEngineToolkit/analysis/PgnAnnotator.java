@@ -0,0 +1,256 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.Chess;
+import chesspresso.game.Game;
+import chesspresso.move.Move;
+import chesspresso.pgn.PGN;
+import chesspresso.pgn.PGNReader;
+import chesspresso.pgn.PGNSyntaxError;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adds an engine evaluation to every move of a PGN database, as a {[%eval ...]} comment.
+ *
+ * Games are distributed over a pool of UCI engines, one game per engine at a time. Within a game the engine is sent
+ * 'position startpos moves ...' (or 'position fen ... moves ...') for each ply, so its hash carries over from one ply
+ * to the next. Annotated games are written in the order they finish.
+ */
+public class PgnAnnotator {
+	private static final Game END = new Game();
+
+	private final List<UciEngine> engines;
+	private final SearchLimits searchLimits;
+	private PrintStream progressStream = System.out;
+	private long reportIntervalMs = 10000;
+
+	private final AtomicLong games = new AtomicLong();
+	private final AtomicLong plies = new AtomicLong();
+
+	public PgnAnnotator(List<UciEngine> engines,SearchLimits searchLimits) {
+		this.engines = engines;
+		this.searchLimits = searchLimits;
+	}
+
+	/**
+	 * Annotates every game of a PGN file. This is a blocking call.
+	 * @return Number of games annotated.
+	 * @throws ExecutionException If a worker failed. Reading stops, and the other workers finish the game they are on.
+	 */
+	public long run(File pgnFile,File outputFile) throws IOException, InterruptedException, ExecutionException {
+		final BlockingQueue<Game> queue = new ArrayBlockingQueue<Game>(engines.size() * 4);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile),1 << 16);
+		games.set(0);
+		plies.set(0);
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (final UciEngine engine : engines) {
+			engine.setSearchLimits(searchLimits);
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Game game;
+						while ((game = queue.take()) != END) {
+							annotate(engine,game);
+							synchronized (outputStream) {
+								ChesspressoUtils.writePgn(game,outputStream);
+							}
+							games.incrementAndGet();
+						}
+					} catch (InterruptedException e) {
+						// Stopped by run().
+					} catch (RuntimeException | Error e) {
+						// Thrown by run(), which stops handing out games.
+						failure.compareAndSet(null,e);
+					}
+				}
+			},"PgnAnnotator-" + engine.getName());
+			workers.add(worker);
+			worker.start();
+		}
+
+		long started = System.currentTimeMillis();
+		long lastReport = started;
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(pgnFile),1 << 16);
+		try {
+			PGNReader pgnReader = new PGNReader(inputStream,pgnFile.getName());
+			while (true) {
+				Game game;
+				try {
+					game = pgnReader.parseGame();
+				} catch (PGNSyntaxError e) {
+					System.err.println("Skipping game: " + e.getMessage());
+					continue;
+				}
+				if (game == null) {
+					break;
+				}
+				if (!handOff(queue,game,failure)) {
+					break;
+				}
+
+				long now = System.currentTimeMillis();
+				if (reportIntervalMs > 0 && now - lastReport >= reportIntervalMs) {
+					reportProgress(now - started);
+					lastReport = now;
+				}
+			}
+		} finally {
+			inputStream.close();
+			int ends = 0;
+			while (ends < workers.size() && handOff(queue,END,failure)) {
+				ends++;
+			}
+			if (failure.get() != null) {
+				// Only this thread adds to the queue, and it holds more than one game per worker, so these do not block.
+				queue.clear();
+				for (int i = 0; i < workers.size(); i++) {
+					queue.put(END);
+				}
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+			outputStream.close();
+		}
+		if (failure.get() != null) {
+			throw new ExecutionException("Annotation worker failed",failure.get());
+		}
+		if (reportIntervalMs > 0) {
+			reportProgress(System.currentTimeMillis() - started);
+		}
+		return games.get();
+	}
+
+	// Waits for room in the queue, giving up once a worker has failed, as the workers may then never make room.
+	private static boolean handOff(BlockingQueue<Game> queue,Game game,AtomicReference<Throwable> failure) throws InterruptedException {
+		while (failure.get() == null) {
+			if (queue.offer(game,100,TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Annotates a single game in place.
+	 */
+	public void annotate(UciEngine engine,Game game) {
+		String fen = game.getTag(PGN.TAG_FEN);
+		String startPosition = fen == null ? "startpos" : fen;
+
+		game.gotoStart();
+		Move[] mainLine = game.getMainLine();
+		String[] moves = new String[mainLine.length];
+		for (int i = 0; i < mainLine.length; i++) {
+			moves[i] = ChesspressoUtils.getUciNotation(mainLine[i].getShortMoveDesc());
+		}
+
+		engine.sendUciNewGame();
+		for (int i = 0; i < mainLine.length; i++) {
+			game.goForward();
+			Position position = game.getPosition();
+			String eval;
+			if (position.isMate()) {
+				// The move itself is annotated by the PGN as mate.
+				eval = null;
+			} else if (position.isStaleMate()) {
+				eval = "0.00";
+			} else {
+				try {
+					engine.analyzePosition(startPosition,Arrays.copyOf(moves,i + 1),position).get();
+				} catch (Exception e) {
+					e.printStackTrace(System.err);
+					break;
+				}
+				eval = formatEval(engine.getLastSearchInfo(),position.getToPlay());
+			}
+			if (eval != null) {
+				game.addComment("[%eval " + eval + "]");
+			}
+			plies.incrementAndGet();
+		}
+		game.gotoStart();
+	}
+
+	/**
+	 * Formats a score as a %eval value from White's point of view: pawns with two decimals, or #n / #-n for mates.
+	 * @param searchInfo Search info of the position, or null.
+	 * @param toPlay Side to move in the position.
+	 * @return The value, or null if there is no score.
+	 */
+	public static String formatEval(SearchInfo searchInfo,int toPlay) {
+		if (searchInfo == null || !searchInfo.hasScore()) {
+			return null;
+		}
+		int score = toPlay == Chess.WHITE ? searchInfo.getScore() : -searchInfo.getScore();
+		if (searchInfo.isMateScore()) {
+			return "#" + score;
+		}
+		return String.format(Locale.ROOT,"%.2f",score / 100.0);
+	}
+
+	public void setProgressStream(PrintStream progressStream) {
+		this.progressStream = progressStream;
+	}
+
+	/**
+	 * Interval between throughput reports, in milliseconds. 0 disables reporting.
+	 */
+	public void setReportIntervalMs(long reportIntervalMs) {
+		this.reportIntervalMs = reportIntervalMs;
+	}
+
+	private void reportProgress(long elapsedMs) {
+		double seconds = Math.max(1,elapsedMs) / 1000.0;
+		progressStream.println(String.format("%d games, %d plies annotated, %.1f plies/s",games.get(),plies.get(),plies.get() / seconds));
+	}
+}
@@ -0,0 +1,383 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import chesspresso.Chess;
+import chesspresso.game.Game;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import chesspresso.pgn.PGNReader;
+import chesspresso.pgn.PGNSyntaxError;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.EpdRecord;
+import javaChessEngineToolkit.FenCodec;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mines tactical puzzles, positions where exactly one move wins, from the positions of a PGN database.
+ *
+ * Every position gets a shallow MultiPV search, and only positions where the best move stands out become candidates.
+ * Candidates get a deep MultiPV search, which must confirm that the best move wins and the alternatives do not.
+ * Finally, each move of the solver's side along the solution line is checked for uniqueness the same way.
+ * Accepted puzzles are written as EPD with 'bm', 'pv', 'ce' or 'dm', an 'id' and the themes in 'c0'.
+ */
+public class PuzzleMiner {
+	private static final int MATE_SCORE = 100000;
+	private static final Game END = new Game();
+
+	private final List<UciEngine> engines;
+	private final PuzzleMinerOptions options;
+
+	private final AtomicLong positions = new AtomicLong();
+	private final AtomicLong candidates = new AtomicLong();
+	private final AtomicLong verified = new AtomicLong();
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong prefilterNanos = new AtomicLong();
+	private final AtomicLong verifyNanos = new AtomicLong();
+	private final AtomicLong gameCounter = new AtomicLong();
+
+	public PuzzleMiner(List<UciEngine> engines,PuzzleMinerOptions options) {
+		this.engines = engines;
+		this.options = options;
+	}
+
+	/**
+	 * Mines every game of a PGN file. This is a blocking call. getReport() then summarizes the run.
+	 * @param outputFile File the puzzles are written to, as UTF-8 EPD.
+	 * @return Number of puzzles written.
+	 * @throws ExecutionException If a worker failed, e.g. to write a puzzle. Reading stops, and the other workers finish
+	 * the game they are on.
+	 */
+	public long run(File pgnFile,File outputFile) throws IOException, InterruptedException, ExecutionException {
+		final BlockingQueue<Game> queue = new ArrayBlockingQueue<Game>(engines.size() * 4);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile),StandardCharsets.UTF_8));
+		positions.set(0);
+		candidates.set(0);
+		verified.set(0);
+		accepted.set(0);
+		prefilterNanos.set(0);
+		verifyNanos.set(0);
+		gameCounter.set(0);
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (final UciEngine engine : engines) {
+			engine.setOption("MultiPV",String.valueOf(options.getMultiPv()));
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Game game;
+						while ((game = queue.take()) != END) {
+							mineGame(engine,game,gameCounter.incrementAndGet(),writer);
+						}
+					} catch (InterruptedException e) {
+						// Stopped by run().
+					} catch (IOException | RuntimeException | Error e) {
+						// Thrown by run(), which stops handing out games.
+						failure.compareAndSet(null,e);
+					}
+				}
+			},"PuzzleMiner-" + engine.getName());
+			workers.add(worker);
+			worker.start();
+		}
+
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(pgnFile),1 << 16);
+		try {
+			PGNReader pgnReader = new PGNReader(inputStream,pgnFile.getName());
+			while (true) {
+				Game game;
+				try {
+					game = pgnReader.parseGame();
+				} catch (PGNSyntaxError e) {
+					System.err.println("Skipping game: " + e.getMessage());
+					continue;
+				}
+				if (game == null) {
+					break;
+				}
+				if (!handOff(queue,game,failure)) {
+					break;
+				}
+			}
+		} finally {
+			inputStream.close();
+			int ends = 0;
+			while (ends < workers.size() && handOff(queue,END,failure)) {
+				ends++;
+			}
+			if (failure.get() != null) {
+				// Only this thread adds to the queue, and it holds more than one game per worker, so these do not block.
+				queue.clear();
+				for (int i = 0; i < workers.size(); i++) {
+					queue.put(END);
+				}
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+			writer.close();
+		}
+		if (failure.get() != null) {
+			throw new ExecutionException("Puzzle mining worker failed",failure.get());
+		}
+		return accepted.get();
+	}
+
+	// Waits for room in the queue, giving up once a worker has failed, as the workers may then never make room.
+	private static boolean handOff(BlockingQueue<Game> queue,Game game,AtomicReference<Throwable> failure) throws InterruptedException {
+		while (failure.get() == null) {
+			if (queue.offer(game,100,TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void mineGame(UciEngine engine,Game game,long gameNumber,Writer writer) throws IOException, InterruptedException {
+		game.gotoStart();
+		int ply = 0;
+		do {
+			Position position = new Position(game.getPosition());
+			if (ply >= options.getSkipOpeningPlies() && position.canMove()) {
+				EpdRecord puzzle;
+				try {
+					puzzle = minePosition(engine,position);
+				} catch (ExecutionException | IllegalMoveException e) {
+					// The engine failed on this game, or the game is broken; go on with the next.
+					e.printStackTrace(System.err);
+					return;
+				}
+				if (puzzle != null) {
+					puzzle.setStringOperation("id",gameNumber + "." + ply);
+					synchronized (writer) {
+						writer.write(puzzle.toString());
+						writer.write('\n');
+						writer.flush();
+					}
+				}
+			}
+			ply++;
+		} while (game.goForward());
+	}
+
+	/**
+	 * Runs all stages on a single position.
+	 * @return The puzzle, or null if the position was rejected.
+	 */
+	public EpdRecord minePosition(UciEngine engine,Position position) throws ExecutionException, InterruptedException, IllegalMoveException {
+		positions.incrementAndGet();
+
+		// Stage 1: shallow search, looking for a best move that stands out.
+		SearchInfo[] shallow = search(engine,position,options.getPrefilterLimits(),prefilterNanos);
+		if (shallow.length < 2 || toComparableScore(shallow[0]) - toComparableScore(shallow[1]) < options.getPrefilterGapCp()) {
+			return null;
+		}
+		candidates.incrementAndGet();
+
+		// Stage 2: deep search, confirming the best move wins and no alternative does.
+		SearchInfo[] deep = search(engine,position,options.getVerifyLimits(),verifyNanos);
+		if (deep.length < 2 || !isUnique(deep) || deep[0].getPv().length == 0) {
+			return null;
+		}
+		verified.incrementAndGet();
+
+		// Stage 3: every move of the solver along the line must be unique too.
+		List<String> solution = new ArrayList<String>();
+		Position _position = new Position(position);
+		SearchInfo[] current = deep;
+		int solverMoves = 0;
+		boolean endsInMate = false;
+		while (solverMoves < options.getMaxSolutionMoves()) {
+			if (solverMoves > 0) {
+				current = search(engine,_position,options.getVerifyLimits(),verifyNanos);
+				// A single legal move is forced rather than unique, but does not end the line.
+				if (current.length == 0 || current[0].getPv().length == 0 || (current.length > 1 && !isUnique(current))) {
+					break;
+				}
+			}
+			if (!play(_position,current[0].getPv()[0])) {
+				break;
+			}
+			solution.add(current[0].getPv()[0]);
+			solverMoves++;
+			if (_position.isMate()) {
+				endsInMate = true;
+				break;
+			}
+			if (!_position.canMove() || current[0].getPv().length < 2 || !play(_position,current[0].getPv()[1])) {
+				break;
+			}
+			solution.add(current[0].getPv()[1]);
+		}
+		// A puzzle ends on a move of the solver.
+		if (solution.size() % 2 == 0 && !solution.isEmpty()) {
+			solution.remove(solution.size() - 1);
+		}
+		if (solverMoves < options.getMinSolutionMoves() && !endsInMate) {
+			return null;
+		}
+		accepted.incrementAndGet();
+
+		StringBuilder epd = new StringBuilder(96);
+		FenCodec.appendEPD(position,epd);
+		EpdRecord puzzle = new EpdRecord(epd.toString());
+		String[] sanLine = ChesspressoUtils.getSanLine(position,solution.toArray(new String[0]));
+		puzzle.setOperation("bm",sanLine[0]);
+		puzzle.setOperation(deep[0].isMateScore() ? "dm" : "ce",String.valueOf(deep[0].getScore()));
+		puzzle.setOperation("acd",String.valueOf(deep[0].getDepth()));
+		puzzle.setOperation("pv",String.join(" ",sanLine));
+		puzzle.setStringOperation("c0",String.join(" ",getThemes(position,deep[0],solution,solverMoves,endsInMate)));
+		return puzzle;
+	}
+
+	/**
+	 * @return A summary of the candidates rejected at each stage and the engine time spent per accepted puzzle.
+	 */
+	public String getReport() {
+		long positions = this.positions.get();
+		long candidates = this.candidates.get();
+		long verified = this.verified.get();
+		long accepted = this.accepted.get();
+		double engineSeconds = (prefilterNanos.get() + verifyNanos.get()) / 1e9;
+		StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append(String.format("Positions: %d%n",positions));
+		stringBuilder.append(String.format("Prefilter: %d passed, %.1f%% rejected (%.1f s)%n",candidates,rejected(positions,candidates),prefilterNanos.get() / 1e9));
+		stringBuilder.append(String.format("Deep check: %d passed, %.1f%% rejected%n",verified,rejected(candidates,verified)));
+		stringBuilder.append(String.format("Solution line: %d passed, %.1f%% rejected (%.1f s deep searches)%n",accepted,rejected(verified,accepted),verifyNanos.get() / 1e9));
+		stringBuilder.append(String.format("Engine time per accepted puzzle: %.2f s",accepted > 0 ? engineSeconds / accepted : 0.0));
+		return stringBuilder.toString();
+	}
+
+	private SearchInfo[] search(UciEngine engine,Position position,SearchLimits searchLimits,AtomicLong nanos) throws ExecutionException, InterruptedException {
+		long started = System.nanoTime();
+		engine.setSearchLimits(searchLimits);
+		engine.analyzePosition(position).get();
+		nanos.addAndGet(System.nanoTime() - started);
+		return engine.getLastSearchInfos();
+	}
+
+	private boolean isUnique(SearchInfo[] searchInfos) {
+		int best = toComparableScore(searchInfos[0]);
+		int alternative = toComparableScore(searchInfos[1]);
+		// With two mates there is more than one way to win.
+		boolean alternativeMates = searchInfos[1].isMateScore() && searchInfos[1].getScore() > 0;
+		return best >= options.getMinWinningScoreCp() && alternative <= options.getMaxAlternativeScoreCp() && !alternativeMates;
+	}
+
+	private static int toComparableScore(SearchInfo searchInfo) {
+		if (!searchInfo.isMateScore()) {
+			return searchInfo.getScore();
+		}
+		return searchInfo.getScore() > 0 ? MATE_SCORE - searchInfo.getScore() : -MATE_SCORE - searchInfo.getScore();
+	}
+
+	private static boolean play(Position position,String uciMove) {
+		short move = ChesspressoUtils.getMoveFromUciNotation(position,uciMove);
+		if (!Move.isValid(move)) {
+			return false;
+		}
+		try {
+			position.doMove(move);
+			return true;
+		} catch (IllegalMoveException e) {
+			return false;
+		}
+	}
+
+	private static List<String> getThemes(Position position,SearchInfo searchInfo,List<String> solution,int solverMoves,boolean endsInMate)
+			throws IllegalMoveException {
+		List<String> themes = new ArrayList<String>();
+		if (searchInfo.isMateScore() && endsInMate) {
+			themes.add("mate");
+			themes.add("mateIn" + searchInfo.getScore());
+		} else {
+			themes.add(searchInfo.getScore() >= 500 ? "crushing" : "advantage");
+		}
+		themes.add(solverMoves == 1 ? "oneMove" : solverMoves == 2 ? "short" : "long");
+
+		short firstMove = ChesspressoUtils.getMoveFromUciNotation(position,solution.get(0));
+		if (Move.isCapturing(firstMove)) {
+			themes.add("capture");
+		}
+		Position _position = new Position(position);
+		_position.doMove(firstMove);
+		if (_position.isCheck()) {
+			themes.add("check");
+		}
+		for (String move : solution) {
+			if (move.length() == 5) {
+				themes.add("promotion");
+				break;
+			}
+		}
+		if (getPieceMaterial(position) <= 26) {
+			themes.add("endgame");
+		}
+		return themes;
+	}
+
+	// Material of both sides, excluding pawns and kings.
+	private static int getPieceMaterial(Position position) {
+		int material = 0;
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			int piece = position.getPiece(sqi);
+			if (piece == Chess.KNIGHT || piece == Chess.BISHOP) {
+				material += 3;
+			} else if (piece == Chess.ROOK) {
+				material += 5;
+			} else if (piece == Chess.QUEEN) {
+				material += 9;
+			}
+		}
+		return material;
+	}
+
+	private static double rejected(long in,long out) {
+		return in > 0 ? (in - out) * 100.0 / in : 0.0;
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+import javaChessEngineToolkit.SearchLimits;
+
+public class PuzzleMinerOptions {
+	private SearchLimits prefilterLimits = new SearchLimits(6,0,0);
+	private SearchLimits verifyLimits = new SearchLimits(16,0,0);
+	private int multiPv = 2;
+	private int prefilterGapCp = 150;
+	private int minWinningScoreCp = 200;
+	private int maxAlternativeScoreCp = 50;
+	private int minSolutionMoves = 2;
+	private int maxSolutionMoves = 4;
+	private int skipOpeningPlies = 10;
+
+	public SearchLimits getPrefilterLimits() {
+		return prefilterLimits;
+	}
+
+	/**
+	 * Limits of the shallow search every position gets. Defaults to depth 6.
+	 * @param prefilterLimits
+	 */
+	public void setPrefilterLimits(SearchLimits prefilterLimits) {
+		this.prefilterLimits = prefilterLimits;
+	}
+
+	public SearchLimits getVerifyLimits() {
+		return verifyLimits;
+	}
+
+	/**
+	 * Limits of the deep searches of candidates and their solution lines. Defaults to depth 16.
+	 * @param verifyLimits
+	 */
+	public void setVerifyLimits(SearchLimits verifyLimits) {
+		this.verifyLimits = verifyLimits;
+	}
+
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	/**
+	 * Value of the engines' MultiPV option. At least 2, so the best move can be compared with the alternatives.
+	 * @param multiPv
+	 */
+	public void setMultiPv(int multiPv) {
+		this.multiPv = Math.max(2,multiPv);
+	}
+
+	public int getPrefilterGapCp() {
+		return prefilterGapCp;
+	}
+
+	/**
+	 * Minimum gap between the best and second best move in the shallow search for a position to become a candidate.
+	 * @param prefilterGapCp
+	 */
+	public void setPrefilterGapCp(int prefilterGapCp) {
+		this.prefilterGapCp = prefilterGapCp;
+	}
+
+	public int getMinWinningScoreCp() {
+		return minWinningScoreCp;
+	}
+
+	/**
+	 * Minimum score of the best move in the deep search. Mates always qualify.
+	 * @param minWinningScoreCp
+	 */
+	public void setMinWinningScoreCp(int minWinningScoreCp) {
+		this.minWinningScoreCp = minWinningScoreCp;
+	}
+
+	public int getMaxAlternativeScoreCp() {
+		return maxAlternativeScoreCp;
+	}
+
+	/**
+	 * Maximum score of the second best move in the deep search, for the best move to count as the only winning one.
+	 * @param maxAlternativeScoreCp
+	 */
+	public void setMaxAlternativeScoreCp(int maxAlternativeScoreCp) {
+		this.maxAlternativeScoreCp = maxAlternativeScoreCp;
+	}
+
+	public int getMinSolutionMoves() {
+		return minSolutionMoves;
+	}
+
+	/**
+	 * Minimum number of unique moves of the solver's side, unless the solution ends in mate.
+	 * @param minSolutionMoves
+	 */
+	public void setMinSolutionMoves(int minSolutionMoves) {
+		this.minSolutionMoves = minSolutionMoves;
+	}
+
+	public int getMaxSolutionMoves() {
+		return maxSolutionMoves;
+	}
+
+	/**
+	 * Maximum number of moves of the solver's side to verify along the solution line.
+	 * @param maxSolutionMoves
+	 */
+	public void setMaxSolutionMoves(int maxSolutionMoves) {
+		this.maxSolutionMoves = maxSolutionMoves;
+	}
+
+	public int getSkipOpeningPlies() {
+		return skipOpeningPlies;
+	}
+
+	/**
+	 * Number of plies at the start of each game that are not considered.
+	 * @param skipOpeningPlies
+	 */
+	public void setSkipOpeningPlies(int skipOpeningPlies) {
+		this.skipOpeningPlies = skipOpeningPlies;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.analysis;
+
+/**
+ * The outcome of one test suite position.
+ */
+public class SuiteResult {
+	private final String id;
+	private final boolean solved;
+	private final long timeMs;
+	private final int depth;
+	private final String bestMove;
+
+	/**
+	 * @param id Position id.
+	 * @param solved Whether the engine's final best move was correct.
+	 * @param timeMs Time at which the engine settled on the correct move for good, or -1 if not solved.
+	 * @param depth Depth at which the engine settled on the correct move, or -1 if not solved.
+	 * @param bestMove The engine's final best move, in UCI notation.
+	 */
+	public SuiteResult(String id,boolean solved,long timeMs,int depth,String bestMove) {
+		this.id = id;
+		this.solved = solved;
+		this.timeMs = timeMs;
+		this.depth = depth;
+		this.bestMove = bestMove;
+	}
+
+	/**
+	 * Parses a line written by toString().
+	 */
+	public static SuiteResult parse(String line) {
+		String[] fields = line.split("\t");
+		return new SuiteResult(fields[0],Boolean.parseBoolean(fields[1]),Long.parseLong(fields[2]),Integer.parseInt(fields[3]),fields.length > 4 ? fields[4] : "");
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public boolean isSolved() {
+		return solved;
+	}
+
+	public long getTimeMs() {
+		return timeMs;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public String getBestMove() {
+		return bestMove;
+	}
+
+	@Override
+	public String toString() {
+		return id + "\t" + solved + "\t" + timeMs + "\t" + depth + "\t" + bestMove;
+	}
+}
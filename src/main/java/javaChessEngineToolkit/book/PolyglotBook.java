@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.book;
+
+import chesspresso.Chess;
+import chesspresso.move.Move;
+import chesspresso.position.Position;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Reads a Polyglot opening book (.bin). The file is memory-mapped and its sorted 16 byte entries are binary-searched,
+ * so probing allocates nothing.
+ */
+public class PolyglotBook implements Closeable {
+	public static final int ENTRY_SIZE = 16;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int numEntries;
+
+	/**
+	 * @throws IOException If the file cannot be mapped, or if no Polyglot Random64 table is available to compute keys.
+	 */
+	public PolyglotBook(File file) throws IOException {
+		if (!PolyglotKey.isAvailable()) {
+			throw new IOException("No Polyglot Random64 table available, see " + PolyglotKey.class.getName());
+		}
+		this.channel = FileChannel.open(file.toPath(),StandardOpenOption.READ);
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException("Book too large to map: " + file);
+		}
+		this.buffer = channel.map(FileChannel.MapMode.READ_ONLY,0,size);
+		this.numEntries = (int) (size / ENTRY_SIZE);
+	}
+
+	public int size() {
+		return numEntries;
+	}
+
+	/**
+	 * Gets the book moves of a position.
+	 * @param position Position to probe.
+	 * @param moves Receives the moves. Entries beyond its length are ignored.
+	 * @param weights Receives the weights, or null.
+	 * @return Number of moves stored.
+	 */
+	public int probe(Position position,short[] moves,int[] weights) {
+		long key = PolyglotKey.getKey(position);
+		int count = 0;
+		for (int i = findFirst(key); i < numEntries && count < moves.length && getKey(i) == key; i++) {
+			short move = toMove(position,buffer.getShort(i * ENTRY_SIZE + 8));
+			if (Move.isValid(move)) {
+				moves[count] = move;
+				if (weights != null) {
+					weights[count] = buffer.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Picks a book move at random, in proportion to the entries' weights.
+	 * @return The move, or Move.NO_MOVE if the position is not in the book.
+	 */
+	public short getWeightedRandomMove(Position position,SplittableRandom random) {
+		long key = PolyglotKey.getKey(position);
+		int first = findFirst(key);
+		long totalWeight = 0;
+		int end = first;
+		while (end < numEntries && getKey(end) == key) {
+			totalWeight += buffer.getShort(end * ENTRY_SIZE + 10) & 0xFFFF;
+			end++;
+		}
+		if (end == first) {
+			return Move.NO_MOVE;
+		}
+
+		// With all weights 0, every entry is equally likely.
+		long pick = random.nextLong(totalWeight > 0 ? totalWeight : end - first);
+		for (int i = first; i < end; i++) {
+			long weight = totalWeight > 0 ? buffer.getShort(i * ENTRY_SIZE + 10) & 0xFFFF : 1;
+			if (pick < weight) {
+				return toMove(position,buffer.getShort(i * ENTRY_SIZE + 8));
+			}
+			pick -= weight;
+		}
+		return Move.NO_MOVE;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long getKey(int entry) {
+		return buffer.getLong(entry * ENTRY_SIZE);
+	}
+
+	// Index of the first entry with the key, or of the first greater one. Keys compare as unsigned values.
+	private int findFirst(long key) {
+		int low = 0;
+		int high = numEntries;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(getKey(mid),key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Converts a Polyglot move (to file, to row, from file, from row and promotion piece, 3 bits each) to a chesspresso move.
+	 * Polyglot writes castling as the king capturing its own rook.
+	 */
+	private static short toMove(Position position,short polyglotMove) {
+		int toSqi = Chess.coorToSqi(polyglotMove & 7,(polyglotMove >>> 3) & 7);
+		int fromSqi = Chess.coorToSqi((polyglotMove >>> 6) & 7,(polyglotMove >>> 9) & 7);
+		int promoPiece;
+		switch ((polyglotMove >>> 12) & 7) {
+			case 1: promoPiece = Chess.KNIGHT; break;
+			case 2: promoPiece = Chess.BISHOP; break;
+			case 3: promoPiece = Chess.ROOK; break;
+			case 4: promoPiece = Chess.QUEEN; break;
+			default: promoPiece = Chess.NO_PIECE; break;
+		}
+		if (position.getPiece(fromSqi) == Chess.KING && Chess.sqiToCol(fromSqi) == 4 && Chess.sqiToRow(fromSqi) == Chess.sqiToRow(toSqi)) {
+			if (Chess.sqiToCol(toSqi) == 7) {
+				toSqi = Chess.coorToSqi(6,Chess.sqiToRow(fromSqi));
+			} else if (Chess.sqiToCol(toSqi) == 0) {
+				toSqi = Chess.coorToSqi(2,Chess.sqiToRow(fromSqi));
+			}
+		}
+		return position.getMove(fromSqi,toSqi,promoPiece);
+	}
+}
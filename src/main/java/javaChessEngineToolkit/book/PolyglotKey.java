@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.book;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes Polyglot book keys for chesspresso positions.
+ *
+ * The key uses the 781 Random64 values of the Polyglot book format. They are not part of this source. The table is
+ * taken from, in order: a table given to setRandom64(long[]) or loadRandom64(File), the file named by the system
+ * property "polyglot.random64", or the classpath resource "polyglot-random64.txt" next to this class.
+ * The file holds the 781 values as hexadecimal numbers in the published order, separated by whitespace or commas,
+ * so the array can be pasted from Polyglot's C source: only numbers written as 0x... or as 16 hex digits are read, so
+ * the declaration and U64(...) wrappers around them are skipped. The table is checked against all the reference keys
+ * published with the book format.
+ * Use isAvailable() to find out whether keys can be computed before relying on them.
+ */
+public class PolyglotKey {
+	public static final String RANDOM64_RESOURCE = "polyglot-random64.txt";
+	public static final String RANDOM64_PROPERTY = "polyglot.random64";
+	public static final long INITIAL_POSITION_KEY = 0x463b96181691fc9cL;
+
+	// The positions and keys given as test cases in the Polyglot book format description.
+	static final String[] REFERENCE_FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+		"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+		"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+		"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+		"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3",
+		"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4",
+		"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3",
+		"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4",
+	};
+	static final long[] REFERENCE_KEYS = {
+		0x463b96181691fc9cL,
+		0x823c9b50fd114196L,
+		0x0756b94461c50fb0L,
+		0x662fafb965db29d4L,
+		0x22a48b5a8e47ff78L,
+		0x652a607ca3f242c1L,
+		0x00fdd303c946bdd9L,
+		0x3c8123ea7b067637L,
+		0x5c3f9b829b279560L,
+	};
+
+	private static final int RANDOM64_SIZE = 781;
+	private static final int RANDOM_CASTLE = 768;
+	private static final int RANDOM_EN_PASSANT = 772;
+	private static final int RANDOM_TURN = 780;
+
+	private static volatile long[] random64;
+
+	/**
+	 * Loads the Random64 table from a file, replacing any table loaded before.
+	 */
+	public static void loadRandom64(File file) throws IOException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			random64 = readRandom64(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Sets the Random64 table, replacing any table loaded before.
+	 * @param random The 781 values in the published order. The array is copied.
+	 * @throws IllegalArgumentException If the table has the wrong size or does not produce the reference keys.
+	 */
+	public static void setRandom64(long[] random) {
+		if (random.length != RANDOM64_SIZE) {
+			throw new IllegalArgumentException("Expected " + RANDOM64_SIZE + " values in the Random64 table, found " + random.length);
+		}
+		long[] copy = random.clone();
+		String mismatch = findReferenceMismatch(copy);
+		if (mismatch != null) {
+			throw new IllegalArgumentException("The Random64 table does not produce the Polyglot key of " + mismatch);
+		}
+		random64 = copy;
+	}
+
+	/**
+	 * Checks whether a Random64 table is loaded or can be found, loading it if needed.
+	 * Problems reading a table that was found are printed to System.err.
+	 */
+	public static boolean isAvailable() {
+		try {
+			getRandom64();
+			return true;
+		} catch (IllegalStateException e) {
+			if (e.getCause() != null) {
+				e.printStackTrace(System.err);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException If no Random64 table is available. See isAvailable().
+	 */
+	public static long getKey(Position position) {
+		return getKey(position,getRandom64());
+	}
+
+	private static long getKey(Position position,long[] random) {
+		long key = 0L;
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			int stone = position.getStone(sqi);
+			if (stone == Chess.NO_STONE) {
+				continue;
+			}
+			key ^= random[64 * getPieceKind(stone) + 8 * Chess.sqiToRow(sqi) + Chess.sqiToCol(sqi)];
+		}
+
+		int castles = position.getCastles();
+		if ((castles & Position.WHITE_SHORT_CASTLE) != 0) {
+			key ^= random[RANDOM_CASTLE];
+		}
+		if ((castles & Position.WHITE_LONG_CASTLE) != 0) {
+			key ^= random[RANDOM_CASTLE + 1];
+		}
+		if ((castles & Position.BLACK_SHORT_CASTLE) != 0) {
+			key ^= random[RANDOM_CASTLE + 2];
+		}
+		if ((castles & Position.BLACK_LONG_CASTLE) != 0) {
+			key ^= random[RANDOM_CASTLE + 3];
+		}
+
+		// Polyglot only hashes the en passant file if a pawn of the side to move can actually capture.
+		int sqiEP = position.getSqiEP();
+		if (sqiEP != Chess.NO_SQUARE) {
+			int file = Chess.sqiToCol(sqiEP);
+			int toPlay = position.getToPlay();
+			int row = toPlay == Chess.WHITE ? 4 : 3;
+			int pawn = Chess.pieceToStone(Chess.PAWN,toPlay);
+			boolean canCapture = (file > 0 && position.getStone(Chess.coorToSqi(file - 1,row)) == pawn)
+					|| (file < 7 && position.getStone(Chess.coorToSqi(file + 1,row)) == pawn);
+			if (canCapture) {
+				key ^= random[RANDOM_EN_PASSANT + file];
+			}
+		}
+
+		if (position.getToPlay() == Chess.WHITE) {
+			key ^= random[RANDOM_TURN];
+		}
+		return key;
+	}
+
+	// Polyglot piece kinds: black pawn 0, white pawn 1, black knight 2, ..., white king 11.
+	private static int getPieceKind(int stone) {
+		int kind;
+		switch (Chess.stoneToPiece(stone)) {
+			case Chess.PAWN: kind = 0; break;
+			case Chess.KNIGHT: kind = 2; break;
+			case Chess.BISHOP: kind = 4; break;
+			case Chess.ROOK: kind = 6; break;
+			case Chess.QUEEN: kind = 8; break;
+			default: kind = 10; break;
+		}
+		return Chess.stoneToColor(stone) == Chess.WHITE ? kind + 1 : kind;
+	}
+
+	private static long[] getRandom64() {
+		long[] random = random64;
+		if (random == null) {
+			synchronized (PolyglotKey.class) {
+				if (random64 == null) {
+					random64 = findRandom64();
+				}
+				random = random64;
+			}
+		}
+		return random;
+	}
+
+	private static long[] findRandom64() {
+		String fileName = System.getProperty(RANDOM64_PROPERTY);
+		InputStream inputStream;
+		String source;
+		try {
+			if (fileName != null && !fileName.isEmpty()) {
+				inputStream = new FileInputStream(fileName);
+				source = fileName;
+			} else {
+				inputStream = PolyglotKey.class.getResourceAsStream(RANDOM64_RESOURCE);
+				source = RANDOM64_RESOURCE;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to open the Polyglot Random64 table " + fileName,e);
+		}
+		if (inputStream == null) {
+			throw new IllegalStateException("Polyglot Random64 table not found: call setRandom64(long[]) or loadRandom64(file), "
+					+ "set the system property " + RANDOM64_PROPERTY + " to a file, or add " + RANDOM64_RESOURCE
+					+ " to the classpath next to " + PolyglotKey.class.getName());
+		}
+		try {
+			return readRandom64(inputStream);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read the Polyglot Random64 table " + source,e);
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+
+	private static long[] readRandom64(InputStream inputStream) throws IOException {
+		long[] random = new long[RANDOM64_SIZE];
+		int count = 0;
+		Reader reader = new InputStreamReader(inputStream,StandardCharsets.US_ASCII);
+		StringBuilder token = new StringBuilder();
+		int c;
+		do {
+			c = reader.read();
+			if (c >= 0 && Character.isLetterOrDigit(c)) {
+				token.append((char) c);
+				continue;
+			}
+			if (token.length() > 0) {
+				String value = toHexDigits(token.toString().toLowerCase());
+				token.setLength(0);
+				if (value == null) {
+					// A C keyword, name, array size or macro.
+					continue;
+				}
+				if (count == RANDOM64_SIZE) {
+					throw new IOException("More than " + RANDOM64_SIZE + " values in the Random64 table");
+				}
+				try {
+					random[count++] = Long.parseUnsignedLong(value,16);
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid Random64 value: " + value,e);
+				}
+			}
+		} while (c >= 0);
+		if (count != RANDOM64_SIZE) {
+			throw new IOException("Expected " + RANDOM64_SIZE + " values in the Random64 table, found " + count);
+		}
+
+		String mismatch = findReferenceMismatch(random);
+		if (mismatch != null) {
+			throw new IOException("The Random64 table does not produce the Polyglot key of " + mismatch);
+		}
+		return random;
+	}
+
+	/**
+	 * @param token Lower case token.
+	 * @return The hex digits of a table value, written as 0x... with optional u/l suffixes or as 16 bare hex digits,
+	 * or null if the token is not a value.
+	 */
+	private static String toHexDigits(String token) {
+		String value = token;
+		boolean prefixed = value.startsWith("0x");
+		if (prefixed) {
+			value = value.substring(2);
+		}
+		while (value.endsWith("u") || value.endsWith("l")) {
+			value = value.substring(0,value.length() - 1);
+		}
+		if (value.isEmpty() || value.length() > 16 || (!prefixed && value.length() != 16)) {
+			return prefixed ? token : null;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (Character.digit(value.charAt(i),16) < 0) {
+				return prefixed ? token : null;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @return The FEN of the first reference position whose key the table does not produce, or null if it produces all.
+	 */
+	static String findReferenceMismatch(long[] random) {
+		for (int i = 0; i < REFERENCE_FENS.length; i++) {
+			if (getKey(new Position(REFERENCE_FENS[i]),random) != REFERENCE_KEYS[i]) {
+				return REFERENCE_FENS[i];
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,445 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.broadcast;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.events.GameEndedEvent;
+import javaChessEngineToolkit.events.GameListener;
+import javaChessEngineToolkit.events.GameStartedEvent;
+import javaChessEngineToolkit.events.MovePlayedEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Broadcasts the games being played, live, over HTTP on the loopback interface:
+ * Server-Sent Events at /events, the current state of every game at /games, and a page watching them at /.
+ * <p>
+ * Register it as a GameListener with the EngineMatchOptions of the games to broadcast. On the match thread it only swaps
+ * the game's GameSnapshot. A single broadcaster thread then, every interval, renders each game that changed once, and
+ * hands the JSON to the viewers, each of which keeps only the latest state per game. Several moves within an interval,
+ * or while a viewer is slow to read, are thus coalesced, and neither the number of viewers nor their speed reaches the games.
+ */
+public class BroadcastServer implements GameListener, Closeable {
+	private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+	private final Map<Long,AtomicReference<GameSnapshot>> games = new ConcurrentHashMap<Long,AtomicReference<GameSnapshot>>();
+	// Owned by the broadcaster thread.
+	private final Map<Long,RenderedGame> renderedGames = new HashMap<Long,RenderedGame>();
+	// Latest JSON of every game, for viewers that connect and for /games.
+	private final Map<Long,String> latestJson = new ConcurrentHashMap<Long,String>();
+	private final CopyOnWriteArrayList<Viewer> viewers = new CopyOnWriteArrayList<Viewer>();
+
+	private long intervalMs = 250;
+	private int maxViewers = 64;
+	private HttpServer httpServer;
+	private ExecutorService httpExecutorService;
+	private ScheduledExecutorService broadcasterService;
+	private volatile boolean closed;
+
+	@Override
+	public void onGameStarted(GameStartedEvent gameStartedEvent) {
+		games.put(gameStartedEvent.getGameId(),new AtomicReference<GameSnapshot>(new GameSnapshot(gameStartedEvent)));
+	}
+
+	@Override
+	public void onMovePlayed(MovePlayedEvent movePlayedEvent) {
+		AtomicReference<GameSnapshot> game = games.get(movePlayedEvent.getGameId());
+		if (game != null) {
+			// Only the game's match thread writes it.
+			game.set(game.get().withMove(movePlayedEvent));
+		}
+	}
+
+	@Override
+	public void onGameEnded(GameEndedEvent gameEndedEvent) {
+		AtomicReference<GameSnapshot> game = games.get(gameEndedEvent.getGameId());
+		if (game != null) {
+			game.set(game.get().withEnd(gameEndedEvent));
+		}
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	/**
+	 * Sets how often changes are broadcast. Defaults to 250 ms. Must be set before start.
+	 * @param intervalMs
+	 */
+	public void setIntervalMs(long intervalMs) {
+		this.intervalMs = intervalMs;
+	}
+
+	public int getMaxViewers() {
+		return maxViewers;
+	}
+
+	/**
+	 * Sets how many viewers can be connected to /events at once. Defaults to 64.
+	 * @param maxViewers
+	 */
+	public void setMaxViewers(int maxViewers) {
+		this.maxViewers = maxViewers;
+	}
+
+	/**
+	 * Starts the HTTP server and the broadcaster thread.
+	 * @param port Port, or 0 for any free one.
+	 * @return The port listened on.
+	 * @throws IOException
+	 */
+	public synchronized int start(int port) throws IOException {
+		if (httpServer != null) {
+			throw new IllegalStateException("Broadcast server already started");
+		}
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),port),0);
+		// Every viewer holds a thread for as long as it watches.
+		httpExecutorService = Executors.newCachedThreadPool(new DaemonThreadFactory("BroadcastServer-http"));
+		httpServer.setExecutor(httpExecutorService);
+		httpServer.createContext("/events",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				handleEvents(httpExchange);
+			}
+		});
+		httpServer.createContext("/games",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				StringBuilder stringBuilder = new StringBuilder("[");
+				for (String json : latestJson.values()) {
+					if (stringBuilder.length() > 1) {
+						stringBuilder.append(',');
+					}
+					stringBuilder.append(json);
+				}
+				respond(httpExchange,200,"application/json",stringBuilder.append(']').toString());
+			}
+		});
+		httpServer.createContext("/",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				if (!httpExchange.getRequestURI().getPath().equals("/")) {
+					respond(httpExchange,404,"text/plain; charset=utf-8","Not found");
+					return;
+				}
+				respond(httpExchange,200,"text/html; charset=utf-8",PAGE);
+			}
+		});
+		broadcasterService = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("BroadcastServer"));
+		broadcasterService.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					broadcast();
+				} catch (RuntimeException e) {
+					e.printStackTrace(System.err);
+				}
+			}
+		},intervalMs,intervalMs,TimeUnit.MILLISECONDS);
+		httpServer.start();
+		return httpServer.getAddress().getPort();
+	}
+
+	/**
+	 * @return Number of viewers connected to /events.
+	 */
+	public int getViewerCount() {
+		return viewers.size();
+	}
+
+	/**
+	 * Renders the games that changed since the last call, and hands them to the viewers.
+	 */
+	void broadcast() {
+		Iterator<Map.Entry<Long,AtomicReference<GameSnapshot>>> iterator = games.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Long,AtomicReference<GameSnapshot>> entry = iterator.next();
+			Long gameId = entry.getKey();
+			GameSnapshot gameSnapshot = entry.getValue().get();
+			RenderedGame renderedGame = renderedGames.get(gameId);
+			if (renderedGame == null) {
+				renderedGame = new RenderedGame(gameSnapshot.getGameStartedEvent().getFEN());
+				renderedGames.put(gameId,renderedGame);
+			} else if (renderedGame.version == gameSnapshot.getVersion()) {
+				continue;
+			}
+			String json = renderedGame.render(gameSnapshot);
+			boolean ended = gameSnapshot.getGameEndedEvent() != null;
+			if (ended) {
+				iterator.remove();
+				renderedGames.remove(gameId);
+				latestJson.remove(gameId);
+			} else {
+				latestJson.put(gameId,json);
+			}
+			for (Viewer viewer : viewers) {
+				viewer.offer(gameId,json);
+			}
+		}
+	}
+
+	private void handleEvents(HttpExchange httpExchange) throws IOException {
+		if (closed || viewers.size() >= maxViewers) {
+			respond(httpExchange,503,"text/plain; charset=utf-8","Too many viewers");
+			return;
+		}
+		httpExchange.getResponseHeaders().set("Content-Type","text/event-stream; charset=utf-8");
+		httpExchange.getResponseHeaders().set("Cache-Control","no-cache");
+		httpExchange.sendResponseHeaders(200,0);
+		OutputStream outputStream = httpExchange.getResponseBody();
+		Viewer viewer = new Viewer(Thread.currentThread());
+		viewers.add(viewer);
+		try {
+			// Added before reading the latest states: anything newer is then offered by the broadcaster, and not overwritten here.
+			for (Map.Entry<Long,String> entry : latestJson.entrySet()) {
+				viewer.pending.putIfAbsent(entry.getKey(),entry.getValue());
+			}
+			outputStream.write("retry: 2000\n\n".getBytes(StandardCharsets.UTF_8));
+			outputStream.flush();
+			long lastWrite = System.nanoTime();
+			while (!closed) {
+				boolean wrote = false;
+				for (Long gameId : viewer.pending.keySet()) {
+					String json = viewer.pending.remove(gameId);
+					if (json != null) {
+						outputStream.write(("event: game\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+						wrote = true;
+					}
+				}
+				if (!wrote && System.nanoTime() - lastWrite > KEEP_ALIVE_NANOS) {
+					// Also finds out when the viewer has gone.
+					outputStream.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+					wrote = true;
+				}
+				if (wrote) {
+					outputStream.flush();
+					lastWrite = System.nanoTime();
+				} else if (viewer.pending.isEmpty()) {
+					LockSupport.parkNanos(this,KEEP_ALIVE_NANOS);
+				}
+			}
+		} catch (IOException e) {
+			// The viewer disconnected.
+		} finally {
+			viewers.remove(viewer);
+			try {
+				outputStream.close();
+			} catch (IOException e) {
+				// Already gone.
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (broadcasterService != null) {
+			broadcasterService.shutdownNow();
+			broadcasterService = null;
+		}
+		for (Viewer viewer : viewers) {
+			LockSupport.unpark(viewer.thread);
+		}
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+		if (httpExecutorService != null) {
+			httpExecutorService.shutdownNow();
+			httpExecutorService = null;
+		}
+	}
+
+	private static void respond(HttpExchange httpExchange,int status,String contentType,String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		httpExchange.getResponseHeaders().set("Content-Type",contentType);
+		httpExchange.sendResponseHeaders(status,bytes.length);
+		OutputStream outputStream = httpExchange.getResponseBody();
+		try {
+			outputStream.write(bytes);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * A connected viewer: the latest state of each game it has not been sent yet, and the thread sending them.
+	 */
+	private static class Viewer {
+		private final Thread thread;
+		private final Map<Long,String> pending = new ConcurrentHashMap<Long,String>();
+
+		Viewer(Thread thread) {
+			this.thread = thread;
+		}
+
+		void offer(Long gameId,String json) {
+			pending.put(gameId,json);
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * The broadcaster's copy of a game's position, brought up to date with the moves of each new snapshot.
+	 */
+	private static class RenderedGame {
+		private final Position position;
+		private GameSnapshot.MoveNode lastApplied;
+		private int version = -1;
+
+		RenderedGame(String fen) {
+			this.position = new Position(fen);
+		}
+
+		String render(GameSnapshot gameSnapshot) {
+			ArrayDeque<GameSnapshot.MoveNode> newMoves = new ArrayDeque<GameSnapshot.MoveNode>();
+			for (GameSnapshot.MoveNode moveNode = gameSnapshot.getLastMove(); moveNode != lastApplied; moveNode = moveNode.getPrevious()) {
+				newMoves.push(moveNode);
+			}
+			for (GameSnapshot.MoveNode moveNode : newMoves) {
+				try {
+					position.doMove(moveNode.getMovePlayedEvent().getShortMove());
+				} catch (IllegalMoveException e) {
+					e.printStackTrace(System.err);
+				}
+			}
+			lastApplied = gameSnapshot.getLastMove();
+			version = gameSnapshot.getVersion();
+			return toJson(gameSnapshot,position.getFEN());
+		}
+	}
+
+	static String toJson(GameSnapshot gameSnapshot,String fen) {
+		GameStartedEvent gameStartedEvent = gameSnapshot.getGameStartedEvent();
+		StringBuilder stringBuilder = new StringBuilder(256);
+		stringBuilder.append("{\"gameId\":").append(gameStartedEvent.getGameId());
+		stringBuilder.append(",\"white\":");
+		appendQuoted(stringBuilder,gameStartedEvent.getWhite());
+		stringBuilder.append(",\"black\":");
+		appendQuoted(stringBuilder,gameStartedEvent.getBlack());
+		stringBuilder.append(",\"fen\":");
+		appendQuoted(stringBuilder,fen);
+		GameSnapshot.MoveNode lastMove = gameSnapshot.getLastMove();
+		if (lastMove != null) {
+			MovePlayedEvent movePlayedEvent = lastMove.getMovePlayedEvent();
+			stringBuilder.append(",\"lastMove\":");
+			appendQuoted(stringBuilder,movePlayedEvent.getMove());
+			stringBuilder.append(",\"thinkTimeMs\":").append(movePlayedEvent.getThinkTimeMs());
+			if (movePlayedEvent.getWhiteClockMs() >= 0) {
+				stringBuilder.append(",\"whiteClockMs\":").append(movePlayedEvent.getWhiteClockMs());
+				stringBuilder.append(",\"blackClockMs\":").append(movePlayedEvent.getBlackClockMs());
+			}
+			SearchInfo searchInfo = movePlayedEvent.getSearchInfo();
+			if (searchInfo != null && searchInfo.hasScore()) {
+				// From white's point of view, as viewers expect.
+				int score = movePlayedEvent.getColor() == Chess.WHITE ? searchInfo.getScore() : -searchInfo.getScore();
+				stringBuilder.append(searchInfo.isMateScore() ? ",\"mate\":" : ",\"scoreCp\":").append(score);
+				stringBuilder.append(",\"depth\":").append(searchInfo.getDepth());
+			}
+		}
+		GameEndedEvent gameEndedEvent = gameSnapshot.getGameEndedEvent();
+		if (gameEndedEvent != null) {
+			stringBuilder.append(",\"result\":");
+			appendQuoted(stringBuilder,gameEndedEvent.getResult());
+			stringBuilder.append(",\"reason\":");
+			appendQuoted(stringBuilder,gameEndedEvent.getReason());
+		}
+		return stringBuilder.append('}').toString();
+	}
+
+	private static void appendQuoted(StringBuilder stringBuilder,String value) {
+		if (value == null) {
+			stringBuilder.append("null");
+			return;
+		}
+		stringBuilder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				stringBuilder.append('\\').append(c);
+			} else if (c < 0x20) {
+				stringBuilder.append(' ');
+			} else {
+				stringBuilder.append(c);
+			}
+		}
+		stringBuilder.append('"');
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+
+		DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable,name);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private static final String PAGE = "<!DOCTYPE html>\n"
+			+ "<html><head><meta charset=\"utf-8\"><title>Live games</title>\n"
+			+ "<style>body{font-family:sans-serif}td,th{padding:2px 8px;text-align:left}td.fen{font-family:monospace}</style>\n"
+			+ "</head><body><h1>Live games</h1>\n"
+			+ "<table><thead><tr><th>Game</th><th>White</th><th>Black</th><th>Last move</th><th>Eval</th><th>Depth</th>"
+			+ "<th>White clock</th><th>Black clock</th><th>Result</th><th>FEN</th></tr></thead><tbody id=\"games\"></tbody></table>\n"
+			+ "<script>\n"
+			+ "function clock(ms){if(ms===undefined)return '';var s=Math.floor(ms/1000);return Math.floor(s/60)+':'+('0'+s%60).slice(-2);}\n"
+			+ "function cells(g){return [g.gameId,g.white,g.black,g.lastMove||'',g.mate!==undefined?'#'+g.mate:"
+			+ "(g.scoreCp!==undefined?(g.scoreCp/100).toFixed(2):''),g.depth||'',clock(g.whiteClockMs),clock(g.blackClockMs),g.result||'',g.fen];}\n"
+			+ "new EventSource('/events').addEventListener('game',function(e){\n"
+			+ "var g=JSON.parse(e.data),row=document.getElementById('game'+g.gameId);\n"
+			+ "if(!row){row=document.createElement('tr');row.id='game'+g.gameId;document.getElementById('games').appendChild(row);}\n"
+			+ "row.innerHTML='';cells(g).forEach(function(v,i){var td=document.createElement('td');td.textContent=v;if(i==9)td.className='fen';row.appendChild(td);});\n"
+			+ "});\n"
+			+ "</script></body></html>\n";
+}
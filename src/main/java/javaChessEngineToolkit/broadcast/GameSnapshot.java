@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.broadcast;
+
+import javaChessEngineToolkit.events.GameEndedEvent;
+import javaChessEngineToolkit.events.GameStartedEvent;
+import javaChessEngineToolkit.events.MovePlayedEvent;
+
+/**
+ * Immutable state of a live game. The match thread replaces it on every move, and readers take whichever one is current,
+ * so neither side ever locks or sees a half-updated game.
+ * Moves are kept as a chain back to the first one, so a new snapshot costs two small allocations whatever the game's length.
+ */
+public class GameSnapshot {
+	private final GameStartedEvent gameStartedEvent;
+	private final MoveNode lastMove;
+	private final GameEndedEvent gameEndedEvent;
+	private final int version;
+
+	public GameSnapshot(GameStartedEvent gameStartedEvent) {
+		this(gameStartedEvent,null,null,0);
+	}
+
+	private GameSnapshot(GameStartedEvent gameStartedEvent,MoveNode lastMove,GameEndedEvent gameEndedEvent,int version) {
+		this.gameStartedEvent = gameStartedEvent;
+		this.lastMove = lastMove;
+		this.gameEndedEvent = gameEndedEvent;
+		this.version = version;
+	}
+
+	public GameSnapshot withMove(MovePlayedEvent movePlayedEvent) {
+		return new GameSnapshot(gameStartedEvent,new MoveNode(movePlayedEvent,lastMove),gameEndedEvent,version + 1);
+	}
+
+	public GameSnapshot withEnd(GameEndedEvent gameEndedEvent) {
+		return new GameSnapshot(gameStartedEvent,lastMove,gameEndedEvent,version + 1);
+	}
+
+	public GameStartedEvent getGameStartedEvent() {
+		return gameStartedEvent;
+	}
+
+	/**
+	 * @return The last move played, or null before the first one.
+	 */
+	public MoveNode getLastMove() {
+		return lastMove;
+	}
+
+	/**
+	 * @return The end of the game, or null while it is in progress.
+	 */
+	public GameEndedEvent getGameEndedEvent() {
+		return gameEndedEvent;
+	}
+
+	/**
+	 * @return Number of updates since the game started.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public static class MoveNode {
+		private final MovePlayedEvent movePlayedEvent;
+		private final MoveNode previous;
+
+		MoveNode(MovePlayedEvent movePlayedEvent,MoveNode previous) {
+			this.movePlayedEvent = movePlayedEvent;
+			this.previous = previous;
+		}
+
+		public MovePlayedEvent getMovePlayedEvent() {
+			return movePlayedEvent;
+		}
+
+		/**
+		 * @return The move before, or null for the first move.
+		 */
+		public MoveNode getPrevious() {
+			return previous;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.endgame;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A bit-packed win/draw table of one small endgame, seen from the strong side, which always plays the white pieces
+ * and moves up the board. One bit per position tells whether the strong side wins; invalid positions read as draws.
+ * The 50 move rule is not taken into account.
+ * <p>
+ * Squares are numbered like chesspresso sqis (a1 = 0, b1 = 1, ..., h8 = 63). Endgames without pawns are stored with
+ * the strong king in the a1-d1-d4 triangle, endgames with a pawn with the pawn on files a to d.
+ */
+public final class Bitbase {
+	public static final int PAWN = 1;
+	public static final int KNIGHT = 2;
+	public static final int BISHOP = 3;
+	public static final int ROOK = 4;
+	public static final int QUEEN = 5;
+
+	public enum Type {
+		KPK(PAWN), KRK(ROOK), KQK(QUEEN), KBNK(BISHOP,KNIGHT);
+
+		private final int[] pieces;
+
+		Type(int... pieces) {
+			this.pieces = pieces;
+		}
+
+		/**
+		 * @return The strong side's pieces besides its king, in the order probe expects them.
+		 */
+		public int[] getPieces() {
+			return pieces.clone();
+		}
+
+		public int getNumPieces() {
+			return pieces.length;
+		}
+
+		boolean hasPawn() {
+			return pieces[0] == PAWN;
+		}
+
+		/**
+		 * @return Number of entries of the table.
+		 */
+		public int size() {
+			if (hasPawn()) {
+				return 64 * 64 * 24 * 2;
+			}
+			return 10 * 64 * 2 << (6 * pieces.length);
+		}
+	}
+
+	static final int FILE_MAGIC = 0x4A424231;
+
+	// Squares of the a1-d1-d4 triangle, and their index in it (-1 outside).
+	private static final int[] TRIANGLE_SQUARES = { 0, 1, 2, 3, 9, 10, 11, 18, 19, 27 };
+	private static final int[] TRIANGLE_INDEX = new int[64];
+
+	static {
+		for (int sqi = 0; sqi < 64; sqi++) {
+			TRIANGLE_INDEX[sqi] = -1;
+		}
+		for (int i = 0; i < TRIANGLE_SQUARES.length; i++) {
+			TRIANGLE_INDEX[TRIANGLE_SQUARES[i]] = i;
+		}
+	}
+
+	private final Type type;
+	private final long[] bits;
+
+	Bitbase(Type type,long[] bits) {
+		this.type = type;
+		this.bits = bits;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Probes the table.
+	 * @param strongKing Square of the strong king.
+	 * @param weakKing Square of the lone king.
+	 * @param piece1 Square of the strong side's first piece (see Type.getPieces).
+	 * @param piece2 Square of its second piece, ignored by endgames with one piece.
+	 * @param strongToMove Whether the strong side is to move.
+	 * @return Whether the strong side wins.
+	 */
+	public boolean isWin(int strongKing,int weakKing,int piece1,int piece2,boolean strongToMove) {
+		int index = index(type,strongKing,weakKing,piece1,piece2,strongToMove ? 0 : 1);
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * @return Size of the table, in bytes.
+	 */
+	public int getTableBytes() {
+		return bits.length * 8;
+	}
+
+	/**
+	 * Index of a position, after mirroring it into the stored part of the board.
+	 * @param sideToMove 0 if the strong side is to move, 1 otherwise.
+	 */
+	static int index(Type type,int strongKing,int weakKing,int piece1,int piece2,int sideToMove) {
+		if (type.hasPawn()) {
+			int flip = (piece1 & 7) > 3 ? 7 : 0;
+			int pawn = ((piece1 >>> 3) - 1) * 4 + ((piece1 & 7) ^ flip);
+			return ((((strongKing ^ flip) << 6 | (weakKing ^ flip)) * 24 + pawn) << 1) | sideToMove;
+		}
+		int flipFile = (strongKing & 7) > 3 ? 7 : 0;
+		int flipRank = (strongKing >>> 3) > 3 ? 0x38 : 0;
+		int king = strongKing ^ flipFile ^ flipRank;
+		boolean transpose = (king >>> 3) > (king & 7);
+		int index = TRIANGLE_INDEX[transpose ? transpose(king) : king];
+		index = index << 6 | transform(weakKing,flipFile,flipRank,transpose);
+		index = index << 6 | transform(piece1,flipFile,flipRank,transpose);
+		if (type.getNumPieces() > 1) {
+			index = index << 6 | transform(piece2,flipFile,flipRank,transpose);
+		}
+		return index << 1 | sideToMove;
+	}
+
+	private static int transform(int sqi,int flipFile,int flipRank,boolean transpose) {
+		sqi ^= flipFile ^ flipRank;
+		return transpose ? transpose(sqi) : sqi;
+	}
+
+	private static int transpose(int sqi) {
+		return (sqi & 7) << 3 | sqi >>> 3;
+	}
+
+	/**
+	 * Decodes an index of a stored position into strong king, weak king, pieces and side to move.
+	 * @param squares Receives the strong king, weak king and piece squares; its length must be 2 + the number of pieces.
+	 * @return Side to move, 0 if the strong side is to move.
+	 */
+	static int decode(Type type,int index,int[] squares) {
+		int sideToMove = index & 1;
+		int rest = index >>> 1;
+		if (type.hasPawn()) {
+			int pawn = rest % 24;
+			rest /= 24;
+			squares[2] = (pawn / 4 + 1) * 8 + pawn % 4;
+			squares[1] = rest & 63;
+			squares[0] = rest >>> 6;
+			return sideToMove;
+		}
+		for (int i = squares.length - 1; i > 1; i--) {
+			squares[i] = rest & 63;
+			rest >>>= 6;
+		}
+		squares[1] = rest & 63;
+		squares[0] = TRIANGLE_SQUARES[rest >>> 6];
+		return sideToMove;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(FILE_MAGIC);
+		out.writeInt(type.ordinal());
+		out.writeInt(bits.length);
+		for (long word : bits) {
+			out.writeLong(word);
+		}
+	}
+
+	static Bitbase read(Type type,DataInputStream in) throws IOException {
+		if (in.readInt() != FILE_MAGIC || in.readInt() != type.ordinal()) {
+			throw new IOException("Not a " + type + " bitbase");
+		}
+		int length = in.readInt();
+		if (length != (type.size() + 63) / 64) {
+			throw new IOException("Wrong size for a " + type + " bitbase: " + length);
+		}
+		long[] bits = new long[length];
+		for (int i = 0; i < length; i++) {
+			bits[i] = in.readLong();
+		}
+		return new Bitbase(type,bits);
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.endgame;
+
+/**
+ * Builds a Bitbase by retrograde analysis: positions are resolved pass after pass from the ones already known
+ * (mates, stalemates, captures and promotions) until a pass resolves nothing more, and whatever is left is a draw.
+ */
+class BitbaseGenerator {
+	private static final byte UNKNOWN = 0;
+	private static final byte WIN = 1;
+	private static final byte DRAW = 2;
+	private static final byte INVALID = 3;
+
+	private static final int[][] KING_DIRECTIONS = { { 1, -1 }, { 1, 0 }, { 1, 1 }, { 0, -1 }, { 0, 1 }, { -1, -1 }, { -1, 0 }, { -1, 1 } };
+	private static final int[][] KNIGHT_DIRECTIONS = { { 2, -1 }, { 2, 1 }, { 1, -2 }, { 1, 2 }, { -1, -2 }, { -1, 2 }, { -2, -1 }, { -2, 1 } };
+	private static final int[][] BISHOP_DIRECTIONS = { { 1, -1 }, { 1, 1 }, { -1, -1 }, { -1, 1 } };
+	private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { 0, -1 }, { 0, 1 }, { -1, 0 } };
+
+	private final Bitbase.Type type;
+	private final int[] pieces;
+	private final Bitbase queenPromotions;
+	private final Bitbase rookPromotions;
+	private final byte[] states;
+	private final int[] squares;
+
+	/**
+	 * @param queenPromotions KQK table, needed for KPK only.
+	 * @param rookPromotions KRK table, needed for KPK only.
+	 */
+	BitbaseGenerator(Bitbase.Type type,Bitbase queenPromotions,Bitbase rookPromotions) {
+		this.type = type;
+		this.pieces = type.getPieces();
+		this.queenPromotions = queenPromotions;
+		this.rookPromotions = rookPromotions;
+		this.states = new byte[type.size()];
+		this.squares = new int[2 + pieces.length];
+	}
+
+	Bitbase generate() {
+		for (int index = 0; index < states.length; index++) {
+			int sideToMove = Bitbase.decode(type,index,squares);
+			states[index] = isValid(sideToMove) ? UNKNOWN : INVALID;
+		}
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int index = 0; index < states.length; index++) {
+				if (states[index] == UNKNOWN) {
+					int sideToMove = Bitbase.decode(type,index,squares);
+					byte state = sideToMove == 0 ? evaluateStrongToMove() : evaluateWeakToMove();
+					if (state != UNKNOWN) {
+						states[index] = state;
+						changed = true;
+					}
+				}
+			}
+		}
+
+		long[] bits = new long[(states.length + 63) / 64];
+		for (int index = 0; index < states.length; index++) {
+			if (states[index] == WIN) {
+				bits[index >>> 6] |= 1L << index;
+			}
+		}
+		return new Bitbase(type,bits);
+	}
+
+	private boolean isValid(int sideToMove) {
+		for (int i = 0; i < squares.length; i++) {
+			for (int j = i + 1; j < squares.length; j++) {
+				if (squares[i] == squares[j]) {
+					return false;
+				}
+			}
+		}
+		if (distance(squares[0],squares[1]) <= 1) {
+			return false;
+		}
+		// With the strong side to move, the weak king must not be in check.
+		return sideToMove == 1 || !isAttackedByPieces(squares[1],-1,occupancy());
+	}
+
+	private byte evaluateStrongToMove() {
+		int strongKing = squares[0];
+		int weakKing = squares[1];
+		long occupied = occupancy();
+		boolean unknown = false;
+
+		for (int[] direction : KING_DIRECTIONS) {
+			int to = step(strongKing,direction);
+			if (to < 0 || (occupied & (1L << to)) != 0 || distance(to,weakKing) <= 1) {
+				continue;
+			}
+			byte state = lookup(to,weakKing,-1,0,1);
+			if (state == WIN) {
+				return WIN;
+			}
+			unknown |= state == UNKNOWN;
+		}
+
+		for (int p = 0; p < pieces.length; p++) {
+			int from = squares[2 + p];
+			if (pieces[p] == Bitbase.PAWN) {
+				int to = from + 8;
+				if ((occupied & (1L << to)) != 0) {
+					continue;
+				}
+				if (to >= 56) {
+					if (isPromotionWin(strongKing,weakKing,to)) {
+						return WIN;
+					}
+					continue;
+				}
+				byte state = lookup(strongKing,weakKing,p,to,1);
+				if (state == WIN) {
+					return WIN;
+				}
+				unknown |= state == UNKNOWN;
+				if (from < 16 && (occupied & (1L << (to + 8))) == 0) {
+					state = lookup(strongKing,weakKing,p,to + 8,1);
+					if (state == WIN) {
+						return WIN;
+					}
+					unknown |= state == UNKNOWN;
+				}
+				continue;
+			}
+
+			int[][] directions = getDirections(pieces[p]);
+			boolean slides = pieces[p] != Bitbase.KNIGHT;
+			for (int[] direction : directions) {
+				int to = step(from,direction);
+				while (to >= 0 && (occupied & (1L << to)) == 0) {
+					byte state = lookup(strongKing,weakKing,p,to,1);
+					if (state == WIN) {
+						return WIN;
+					}
+					unknown |= state == UNKNOWN;
+					to = slides ? step(to,direction) : -1;
+				}
+			}
+		}
+		// The lone king cannot give check, so having no move at all is stalemate.
+		return unknown ? UNKNOWN : DRAW;
+	}
+
+	private byte evaluateWeakToMove() {
+		int strongKing = squares[0];
+		int weakKing = squares[1];
+		// The weak king does not block the squares behind it.
+		long occupied = occupancy() & ~(1L << weakKing);
+		boolean unknown = false;
+		boolean canMove = false;
+
+		for (int[] direction : KING_DIRECTIONS) {
+			int to = step(weakKing,direction);
+			if (to < 0 || distance(to,strongKing) <= 1) {
+				continue;
+			}
+			int captured = -1;
+			for (int p = 0; p < pieces.length; p++) {
+				if (squares[2 + p] == to) {
+					captured = p;
+				}
+			}
+			if (isAttackedByPieces(to,captured,occupied)) {
+				continue;
+			}
+			if (captured >= 0) {
+				// What is left cannot mate.
+				return DRAW;
+			}
+			canMove = true;
+			byte state = lookup(strongKing,to,-1,0,0);
+			if (state == DRAW) {
+				return DRAW;
+			}
+			unknown |= state == UNKNOWN;
+		}
+		if (!canMove) {
+			return isAttackedByPieces(weakKing,-1,occupied) ? WIN : DRAW;
+		}
+		return unknown ? UNKNOWN : WIN;
+	}
+
+	/**
+	 * Whether promoting on the given square wins, to a queen or, avoiding stalemate, to a rook.
+	 */
+	private boolean isPromotionWin(int strongKing,int weakKing,int to) {
+		return queenPromotions.isWin(strongKing,weakKing,to,0,false) || rookPromotions.isWin(strongKing,weakKing,to,0,false);
+	}
+
+	/**
+	 * State of the current position after one move.
+	 * @param movedPiece Piece that moved, or -1 if none did.
+	 * @param to Square the piece moved to.
+	 */
+	private byte lookup(int strongKing,int weakKing,int movedPiece,int to,int sideToMove) {
+		int piece1 = movedPiece == 0 ? to : squares[2];
+		int piece2 = pieces.length < 2 ? 0 : movedPiece == 1 ? to : squares[3];
+		return states[Bitbase.index(type,strongKing,weakKing,piece1,piece2,sideToMove)];
+	}
+
+	private long occupancy() {
+		long occupied = 0;
+		for (int sqi : squares) {
+			occupied |= 1L << sqi;
+		}
+		return occupied;
+	}
+
+	/**
+	 * Whether one of the strong side's pieces, besides its king, attacks a square.
+	 * @param ignoredPiece Piece to leave out, e.g. because it is captured on the square, or -1.
+	 */
+	private boolean isAttackedByPieces(int sqi,int ignoredPiece,long occupied) {
+		for (int p = 0; p < pieces.length; p++) {
+			if (p != ignoredPiece && attacks(pieces[p],squares[2 + p],sqi,occupied)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean attacks(int piece,int from,int to,long occupied) {
+		int dRow = (to >>> 3) - (from >>> 3);
+		int dCol = (to & 7) - (from & 7);
+		switch (piece) {
+			case Bitbase.PAWN:
+				return dRow == 1 && Math.abs(dCol) == 1;
+			case Bitbase.KNIGHT:
+				return Math.abs(dRow * dCol) == 2;
+			case Bitbase.BISHOP:
+				return dRow != 0 && Math.abs(dRow) == Math.abs(dCol) && isPathClear(from,dRow,dCol,occupied);
+			case Bitbase.ROOK:
+				return (dRow == 0) != (dCol == 0) && isPathClear(from,dRow,dCol,occupied);
+			case Bitbase.QUEEN:
+				return ((dRow == 0) != (dCol == 0) || (dRow != 0 && Math.abs(dRow) == Math.abs(dCol))) && isPathClear(from,dRow,dCol,occupied);
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isPathClear(int from,int dRow,int dCol,long occupied) {
+		int steps = Math.max(Math.abs(dRow),Math.abs(dCol));
+		int delta = Integer.signum(dRow) * 8 + Integer.signum(dCol);
+		for (int i = 1, sqi = from + delta; i < steps; i++, sqi += delta) {
+			if ((occupied & (1L << sqi)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int[][] getDirections(int piece) {
+		switch (piece) {
+			case Bitbase.KNIGHT:
+				return KNIGHT_DIRECTIONS;
+			case Bitbase.BISHOP:
+				return BISHOP_DIRECTIONS;
+			case Bitbase.ROOK:
+				return ROOK_DIRECTIONS;
+			default:
+				return KING_DIRECTIONS;
+		}
+	}
+
+	private static int step(int sqi,int[] direction) {
+		int row = (sqi >>> 3) + direction[0];
+		int col = (sqi & 7) + direction[1];
+		return row < 0 || row > 7 || col < 0 || col > 7 ? -1 : row * 8 + col;
+	}
+
+	private static int distance(int sqi1,int sqi2) {
+		return Math.max(Math.abs((sqi1 >>> 3) - (sqi2 >>> 3)),Math.abs((sqi1 & 7) - (sqi2 & 7)));
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.endgame;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Win/draw bitbases of KPK, KRK, KQK and KBNK. Each table is loaded from the cache directory on first use, or generated
+ * and then saved there. Probing is thread-safe, takes constant time and does not lock once the table is loaded.
+ */
+public class Bitbases {
+	private final File cacheDir;
+	private final AtomicReferenceArray<Bitbase> bitbases = new AtomicReferenceArray<Bitbase>(Bitbase.Type.values().length);
+
+	/**
+	 * @param cacheDir Directory the tables are saved to and loaded from, or null to generate them every time.
+	 */
+	public Bitbases(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Gets a table, loading or generating it if this is its first use.
+	 * @param type
+	 */
+	public Bitbase get(Bitbase.Type type) {
+		Bitbase bitbase = bitbases.get(type.ordinal());
+		return bitbase != null ? bitbase : create(type);
+	}
+
+	// Only one thread loads or generates a table; the others wait for it.
+	private synchronized Bitbase create(Bitbase.Type type) {
+		Bitbase bitbase = bitbases.get(type.ordinal());
+		if (bitbase == null) {
+			bitbase = load(type);
+			if (bitbase == null) {
+				Bitbase queenPromotions = type == Bitbase.Type.KPK ? get(Bitbase.Type.KQK) : null;
+				Bitbase rookPromotions = type == Bitbase.Type.KPK ? get(Bitbase.Type.KRK) : null;
+				bitbase = new BitbaseGenerator(type,queenPromotions,rookPromotions).generate();
+				save(bitbase);
+			}
+			bitbases.set(type.ordinal(),bitbase);
+		}
+		return bitbase;
+	}
+
+	/**
+	 * Generates or loads all tables up front, so that the first probes do not have to wait.
+	 */
+	public void loadAll() {
+		for (Bitbase.Type type : Bitbase.Type.values()) {
+			get(type);
+		}
+	}
+
+	/**
+	 * Probes the bitbases.
+	 * @param position
+	 * @return The result with best play, or null if the position's material is not covered.
+	 */
+	public GameResult probe(Position position) {
+		int[] kings = { -1, -1 };
+		int[] pieceSquares = new int[2];
+		int[] pieceKinds = new int[2];
+		int numPieces = 0;
+		int strongColor = Chess.NOBODY;
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			int stone = position.getStone(sqi);
+			if (stone == Chess.NO_STONE) {
+				continue;
+			}
+			int color = Chess.stoneToColor(stone);
+			int piece = Chess.stoneToPiece(stone);
+			if (piece == Chess.KING) {
+				kings[color == Chess.WHITE ? 0 : 1] = sqi;
+				continue;
+			}
+			if (numPieces == pieceSquares.length || (strongColor != Chess.NOBODY && strongColor != color)) {
+				return null;
+			}
+			strongColor = color;
+			pieceSquares[numPieces] = sqi;
+			pieceKinds[numPieces] = toBitbasePiece(piece);
+			numPieces++;
+		}
+		if (numPieces == 0 || kings[0] < 0 || kings[1] < 0) {
+			return null;
+		}
+
+		Bitbase.Type type = getType(pieceKinds,numPieces);
+		if (type == null) {
+			return null;
+		}
+		if (numPieces == 2 && pieceKinds[0] != Bitbase.BISHOP) {
+			int sqi = pieceSquares[0];
+			pieceSquares[0] = pieceSquares[1];
+			pieceSquares[1] = sqi;
+		}
+
+		// Tables are stored with the strong side as white, so mirror the ranks if it is black.
+		boolean strongIsWhite = strongColor == Chess.WHITE;
+		int flip = strongIsWhite ? 0 : 0x38;
+		int strongKing = kings[strongIsWhite ? 0 : 1] ^ flip;
+		int weakKing = kings[strongIsWhite ? 1 : 0] ^ flip;
+		boolean strongToMove = position.getToPlay() == strongColor;
+		if (get(type).isWin(strongKing,weakKing,pieceSquares[0] ^ flip,pieceSquares[1] ^ flip,strongToMove)) {
+			return strongIsWhite ? GameResult.WHITE_WIN : GameResult.BLACK_WIN;
+		}
+		return GameResult.DRAW;
+	}
+
+	private static Bitbase.Type getType(int[] pieceKinds,int numPieces) {
+		if (numPieces == 1) {
+			switch (pieceKinds[0]) {
+				case Bitbase.PAWN:
+					return Bitbase.Type.KPK;
+				case Bitbase.ROOK:
+					return Bitbase.Type.KRK;
+				case Bitbase.QUEEN:
+					return Bitbase.Type.KQK;
+				default:
+					return null;
+			}
+		}
+		boolean bishopAndKnight = (pieceKinds[0] == Bitbase.BISHOP && pieceKinds[1] == Bitbase.KNIGHT)
+				|| (pieceKinds[0] == Bitbase.KNIGHT && pieceKinds[1] == Bitbase.BISHOP);
+		return bishopAndKnight ? Bitbase.Type.KBNK : null;
+	}
+
+	private static int toBitbasePiece(int piece) {
+		switch (piece) {
+			case Chess.PAWN:
+				return Bitbase.PAWN;
+			case Chess.KNIGHT:
+				return Bitbase.KNIGHT;
+			case Chess.BISHOP:
+				return Bitbase.BISHOP;
+			case Chess.ROOK:
+				return Bitbase.ROOK;
+			case Chess.QUEEN:
+				return Bitbase.QUEEN;
+			default:
+				return 0;
+		}
+	}
+
+	private File getCacheFile(Bitbase.Type type) {
+		return new File(cacheDir,type.name().toLowerCase() + ".bitbase");
+	}
+
+	private Bitbase load(Bitbase.Type type) {
+		if (cacheDir == null || !getCacheFile(type).isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getCacheFile(type))));
+			try {
+				return Bitbase.read(type,in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Regenerated and saved again by the caller.
+			e.printStackTrace(System.err);
+			return null;
+		}
+	}
+
+	private void save(Bitbase bitbase) {
+		if (cacheDir == null) {
+			return;
+		}
+		try {
+			cacheDir.mkdirs();
+			File file = getCacheFile(bitbase.getType());
+			File tempFile = new File(cacheDir,file.getName() + ".tmp");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				bitbase.write(out);
+			} finally {
+				out.close();
+			}
+			Files.move(tempFile.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.GameContext;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.Seedable;
+import javaChessEngineToolkit.book.PolyglotBook;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Plays moves from a Polyglot book, chosen at random by weight, until the game leaves the book,
+ * and from then on delegates to the wrapped engine.
+ */
+public class BookEngine extends Engine implements Seedable {
+	private final Engine engine;
+	private final PolyglotBook book;
+	private SplittableRandom random = new SplittableRandom();
+	private boolean outOfBook = false;
+	private boolean lastMoveFromBook = false;
+
+	/**
+	 * @param engine Engine to play once out of book.
+	 * @param book Opening book. Can be shared between engines.
+	 */
+	public BookEngine(Engine engine,PolyglotBook book) {
+		this.engine = engine;
+		this.book = book;
+	}
+
+	@Override
+	public String getName() {
+		return engine.getName();
+	}
+
+	@Override
+	public int getEstimatedElo() {
+		return engine.getEstimatedElo();
+	}
+
+	@Override
+	public Future<Move[]> requestMove(GameContext gameContext) {
+		if (!outOfBook) {
+			Position position = gameContext.getGame().getPosition();
+			short bookMove = book.getWeightedRandomMove(position,random);
+			if (chesspresso.move.Move.isValid(bookMove)) {
+				lastMoveFromBook = true;
+				Move move = new Move();
+				move.setShortValue(bookMove);
+				move.setNotation(ChesspressoUtils.getUciNotation(bookMove));
+				CompletableFuture<Move[]> future = new CompletableFuture<Move[]>();
+				future.complete(new Move[] { move });
+				return future;
+			}
+			// Once out of book, stay out, even if the game transposes back into it.
+			outOfBook = true;
+		}
+		lastMoveFromBook = false;
+		return engine.requestMove(gameContext);
+	}
+
+	@Override
+	public void startNewGame(GameContext gameContext) {
+		outOfBook = false;
+		engine.startNewGame(gameContext);
+	}
+
+	@Override
+	public void prepareMove(GameContext gameContext) throws ExecutionException {
+		engine.prepareMove(gameContext);
+	}
+
+	@Override
+	public SearchInfo getLastSearchInfo() {
+		return lastMoveFromBook ? null : engine.getLastSearchInfo();
+	}
+
+	@Override
+	public void setRandom(SplittableRandom random) {
+		this.random = random != null ? random : new SplittableRandom();
+		if (engine instanceof Seedable) {
+			((Seedable) engine).setRandom(random != null ? random.split() : null);
+		}
+	}
+
+	public boolean isOutOfBook() {
+		return outOfBook;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+}
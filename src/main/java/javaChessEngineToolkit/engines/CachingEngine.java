@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.GameContext;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.analysis.AnalysisCache;
+import javaChessEngineToolkit.analysis.CachedAnalysis;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Wraps an engine and answers repeated requests for the same position from an AnalysisCache.
+ * Only untimed requests are cached, as the result of a timed search depends on the clock.
+ */
+public class CachingEngine extends Engine {
+	private final Engine engine;
+	private final String engineIdentity;
+	private final SearchLimits searchLimits;
+	private final AnalysisCache analysisCache;
+	private final boolean acceptDeeperResults;
+	private volatile SearchInfo lastSearchInfo;
+
+	/**
+	 * @param engine Engine to wrap. If it is a UciEngine, its search limits are set to searchLimits.
+	 * @param engineIdentity Identifies the engine, its version and any options that change its results.
+	 * @param searchLimits Limits of the requests.
+	 * @param analysisCache Cache to use. May be shared between engines, as the identity is part of the key.
+	 * @param acceptDeeperResults If true, any cached result whose depth and node count meet searchLimits is served,
+	 *                            whatever limits it was searched with; limits of a move time alone are
+	 *                            never met. If false, only results of identical limits are served.
+	 */
+	public CachingEngine(Engine engine,String engineIdentity,SearchLimits searchLimits,AnalysisCache analysisCache,boolean acceptDeeperResults) {
+		this.engine = engine;
+		this.engineIdentity = engineIdentity;
+		this.searchLimits = searchLimits;
+		this.analysisCache = analysisCache;
+		this.acceptDeeperResults = acceptDeeperResults;
+		if (engine instanceof UciEngine) {
+			((UciEngine) engine).setSearchLimits(searchLimits);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return engine.getName();
+	}
+
+	@Override
+	public int getEstimatedElo() {
+		return engine.getEstimatedElo();
+	}
+
+	@Override
+	public Future<Move[]> requestMove(GameContext gameContext) {
+		if (gameContext.isTimed()) {
+			lastSearchInfo = null;
+			return engine.requestMove(gameContext);
+		}
+
+		final Position position = gameContext.getGame().getPosition();
+		final long key = AnalysisCache.key(position.getHashCode(),engineIdentity,acceptDeeperResults ? null : searchLimits);
+		CachedAnalysis cachedAnalysis = analysisCache.get(key);
+		if (cachedAnalysis != null && (!acceptDeeperResults || searchLimits.isSatisfiedBy(cachedAnalysis.getDepth(),cachedAnalysis.getNodes()))) {
+			short shortValue = ChesspressoUtils.getMoveFromUciNotation(position,cachedAnalysis.getBestMove());
+			if (chesspresso.move.Move.isValid(shortValue)) {
+				lastSearchInfo = new SearchInfo(cachedAnalysis.getDepth(),cachedAnalysis.getScore(),cachedAnalysis.isMateScore(),
+						cachedAnalysis.getNodes(),cachedAnalysis.getPv());
+				Move move = new Move();
+				move.setNotation(cachedAnalysis.getBestMove());
+				move.setShortValue(shortValue);
+				move.setScore(99.99);
+				CompletableFuture<Move[]> future = new CompletableFuture<Move[]>();
+				future.complete(new Move[] { move });
+				return future;
+			}
+		}
+
+		try {
+			Move[] moves = engine.requestMove(gameContext).get();
+			lastSearchInfo = engine.getLastSearchInfo();
+			if (moves != null && moves.length > 0 && moves[0] != null) {
+				String bestMove = ChesspressoUtils.getUciNotation(moves[0].getShortValue());
+				analysisCache.put(key,CachedAnalysis.of(bestMove,lastSearchInfo));
+			}
+			CompletableFuture<Move[]> future = new CompletableFuture<Move[]>();
+			future.complete(moves);
+			return future;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			CompletableFuture<Move[]> future = new CompletableFuture<Move[]>();
+			future.completeExceptionally(e);
+			return future;
+		} catch (ExecutionException e) {
+			CompletableFuture<Move[]> future = new CompletableFuture<Move[]>();
+			future.completeExceptionally(e.getCause());
+			return future;
+		}
+	}
+
+	@Override
+	public void startNewGame(GameContext gameContext) {
+		engine.startNewGame(gameContext);
+	}
+
+	@Override
+	public void prepareMove(GameContext gameContext) throws ExecutionException {
+		engine.prepareMove(gameContext);
+	}
+
+	@Override
+	public SearchInfo getLastSearchInfo() {
+		return lastSearchInfo;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import javaChessEngineToolkit.Engine;
+
+import java.io.Closeable;
+
+/**
+ * Resources a ResourceManager has set aside for some engines, e.g. the two of a game.
+ */
+public class EngineAllocation implements Closeable {
+	private final ResourceManager resourceManager;
+	private final int threads;
+	private final int hashMb;
+	private final String[] cpuLists;
+	private final int[] cpuIndexes;
+	private final long memoryMb;
+	private boolean closed;
+
+	EngineAllocation(ResourceManager resourceManager,int threads,int hashMb,String[] cpuLists,int[] cpuIndexes,long memoryMb) {
+		this.resourceManager = resourceManager;
+		this.threads = threads;
+		this.hashMb = hashMb;
+		this.cpuLists = cpuLists;
+		this.cpuIndexes = cpuIndexes;
+		this.memoryMb = memoryMb;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getHashMb() {
+		return hashMb;
+	}
+
+	public int getEngineCount() {
+		return cpuLists.length;
+	}
+
+	/**
+	 * @param engineIndex Index of the engine within the allocation.
+	 * @return The engine's CPUs, in taskset's list format.
+	 */
+	public String getCpuList(int engineIndex) {
+		return cpuLists[engineIndex];
+	}
+
+	/**
+	 * Sets an engine's Threads and Hash options and pins it to its CPUs. Engines that are not UciEngines are left alone.
+	 * Hash is only sent when it changes, since engines clear their hash table when it is set.
+	 * @param engineIndex Index of the engine within the allocation.
+	 * @param engine Engine.
+	 * @return Whether the engine was pinned to its CPUs. If not, the reason has been printed, and it runs on any CPU.
+	 */
+	public boolean apply(int engineIndex,Engine engine) {
+		if (!(engine instanceof UciEngine)) {
+			return false;
+		}
+		UciEngine uciEngine = (UciEngine) engine;
+		setOptionIfChanged(uciEngine,"Threads",String.valueOf(threads));
+		setOptionIfChanged(uciEngine,"Hash",String.valueOf(hashMb));
+		return uciEngine.setCpuAffinity(cpuLists[engineIndex]);
+	}
+
+	private static void setOptionIfChanged(UciEngine uciEngine,String id,String value) {
+		if (!value.equals(uciEngine.getOption(id))) {
+			uciEngine.setOption(id,value);
+		}
+	}
+
+	/**
+	 * Gives the resources back to the manager. The engines should not search anymore until they get another allocation.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			resourceManager.release(cpuIndexes,memoryMb);
+		}
+	}
+}
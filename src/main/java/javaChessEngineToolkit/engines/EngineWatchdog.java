@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches UCI engines for crashes and hangs. An engine that is waited on and either stays silent for longer than the
+ * stall timeout, or goes past its time for the move by more than the grace period, is killed. The request waiting
+ * for it then fails with an EngineFailureException, which EngineMatch records as a loss or an aborted game, and the
+ * engine starts a new process on its next request.
+ * <p>
+ * Watched engines also send 'isready' before every request and new game, and must answer within the heartbeat timeout.
+ */
+public class EngineWatchdog implements Closeable {
+	private final List<UciEngine> engines = new CopyOnWriteArrayList<UciEngine>();
+	private final AtomicLong killCount = new AtomicLong();
+	private long stallTimeoutMs = 30000;
+	private long heartbeatTimeoutMs = 10000;
+	private long graceMs = 5000;
+	private long checkIntervalMs = 250;
+	private ScheduledExecutorService scheduledExecutorService;
+
+	/**
+	 * Starts watching an engine.
+	 * @param engine
+	 */
+	public void watch(UciEngine engine) {
+		engine.setHeartbeatTimeout(heartbeatTimeoutMs);
+		engines.add(engine);
+	}
+
+	public void unwatch(UciEngine engine) {
+		engines.remove(engine);
+		engine.setHeartbeatTimeout(0);
+	}
+
+	/**
+	 * Starts the thread checking the watched engines.
+	 */
+	public synchronized void start() {
+		if (scheduledExecutorService != null) {
+			return;
+		}
+		scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,"EngineWatchdog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		},checkIntervalMs,checkIntervalMs,TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Checks every watched engine once, killing the ones that have stalled.
+	 */
+	public void check() {
+		long now = System.nanoTime();
+		for (UciEngine engine : engines) {
+			long deadlineNanos = engine.getDeadlineNanos();
+			if (deadlineNanos == 0 || !engine.isAlive()) {
+				// Idle, or already gone, in which case the waiting request fails by itself.
+				continue;
+			}
+			long silentMs = (now - engine.getLastOutputNanos()) / 1000000L;
+			String reason = null;
+			if (stallTimeoutMs > 0 && silentMs > stallTimeoutMs) {
+				reason = String.format("No output for %d ms.",silentMs);
+			} else if (deadlineNanos != Long.MAX_VALUE && now - deadlineNanos > graceMs * 1000000L) {
+				reason = String.format("No answer %d ms past its time.",(now - deadlineNanos) / 1000000L);
+			}
+			if (reason != null) {
+				System.err.println(String.format("Watchdog killing %s: %s",engine.getName(),reason));
+				killCount.incrementAndGet();
+				engine.kill(reason);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (scheduledExecutorService != null) {
+			scheduledExecutorService.shutdownNow();
+			scheduledExecutorService = null;
+		}
+	}
+
+	public long getKillCount() {
+		return killCount.get();
+	}
+
+	public long getStallTimeoutMs() {
+		return stallTimeoutMs;
+	}
+
+	/**
+	 * Longest an engine that is being waited on may stay silent, or 0 to only enforce time limits.
+	 * Engines that print no info lines while searching need a stall timeout longer than their longest search.
+	 * @param stallTimeoutMs
+	 */
+	public void setStallTimeoutMs(long stallTimeoutMs) {
+		this.stallTimeoutMs = stallTimeoutMs;
+	}
+
+	public long getHeartbeatTimeoutMs() {
+		return heartbeatTimeoutMs;
+	}
+
+	/**
+	 * Time watched engines get to answer 'isready'. Applies to engines watched after it is set.
+	 * @param heartbeatTimeoutMs
+	 */
+	public void setHeartbeatTimeoutMs(long heartbeatTimeoutMs) {
+		this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+	}
+
+	public long getGraceMs() {
+		return graceMs;
+	}
+
+	/**
+	 * Time an engine may go past its clock or move time before it is killed.
+	 * @param graceMs
+	 */
+	public void setGraceMs(long graceMs) {
+		this.graceMs = graceMs;
+	}
+
+	public long getCheckIntervalMs() {
+		return checkIntervalMs;
+	}
+
+	/**
+	 * How often the engines are checked. Takes effect on start.
+	 * @param checkIntervalMs
+	 */
+	public void setCheckIntervalMs(long checkIntervalMs) {
+		this.checkIntervalMs = checkIntervalMs;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Runs the engine as a local process, talking to it over its standard input and output.
+ */
+public class ProcessUciTransport implements UciTransport {
+	private final String uciEnginePath;
+
+	/**
+	 * @param uciEnginePath Path of the engine binary.
+	 */
+	public ProcessUciTransport(String uciEnginePath) {
+		this.uciEnginePath = uciEnginePath;
+	}
+
+	public String getUciEnginePath() {
+		return uciEnginePath;
+	}
+
+	@Override
+	public UciConnection open() throws IOException {
+		// An engine writing to a full, unread error pipe would block, so its errors go to ours.
+		final Process process = new ProcessBuilder().command(uciEnginePath).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		return new UciConnection() {
+			@Override
+			public InputStream getInputStream() {
+				return process.getInputStream();
+			}
+
+			@Override
+			public OutputStream getOutputStream() {
+				return process.getOutputStream();
+			}
+
+			@Override
+			public boolean isAlive() {
+				return process.isAlive();
+			}
+
+			@Override
+			public void destroy() {
+				process.destroy();
+			}
+
+			@Override
+			public void destroyForcibly() {
+				process.destroyForcibly();
+			}
+
+			@Override
+			public void waitFor() throws InterruptedException {
+				process.waitFor();
+			}
+
+			@Override
+			public long getPid() {
+				return process.pid();
+			}
+		};
+	}
+
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return uciEnginePath;
+	}
+}
@@ -23,20 +23,21 @@
  */
 package javaChessEngineToolkit.engines;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javaChessEngineToolkit.Engine;
 import javaChessEngineToolkit.GameContext;
 import javaChessEngineToolkit.Move;
-import chesspresso.move.IllegalMoveException;
+import javaChessEngineToolkit.MoveList;
 import chesspresso.position.Position;
 import javaChessEngineToolkit.ScoringAlgorithm;
+import javaChessEngineToolkit.Seedable;
 
-public class RandomMoveGenerator extends Engine implements ScoringAlgorithm {
+public class RandomMoveGenerator extends Engine implements ScoringAlgorithm, Seedable {
+	private SplittableRandom random;
 
 	@Override
 	public Future<Move[]> requestMove(final GameContext gameContext) {
@@ -44,37 +45,39 @@ public class RandomMoveGenerator extends Engine implements ScoringAlgorithm {
 	}
 
 	@Override
-	public Future<Move[]> Score(Position position) {
-		short[] moves = position.getAllMoves();
+	public void requestMove(final GameContext gameContext,final MoveList moveList) {
+		score(gameContext.getGame().getPosition(),moveList);
+	}
 
-		Move[] arr = new Move[moves.length];
-		try {
-			final Random random = new Random();
-			for (int i = 0; i < moves.length; i++) {
-				Position _position = new Position(position);
-				_position.doMove(moves[i]);
+	@Override
+	public void setRandom(SplittableRandom random) {
+		this.random = random;
+	}
 
-				Move move = new Move();
-				move.setShortValue(moves[i]);
-				move.setNotation(_position.getLastMove().getSAN());
-				// Generate a random score strength for this move
-				BigDecimal bd = BigDecimal.valueOf(random.nextDouble() * 10);
-				move.setScore(bd.setScale(3, BigDecimal.ROUND_HALF_UP).doubleValue());
-				arr[i] = move;
+	private int nextRandomScore() {
+		return random != null ? random.nextInt(10000) : ThreadLocalRandom.current().nextInt(10000);
+	}
 
-				if (_position.canUndoMove()) {
-					_position.undoMove();
-				}
-			}
-		} catch (IllegalMoveException e) {
-			e.printStackTrace(System.err);
-		}
-		Arrays.sort(arr);
+	@Override
+	public Future<Move[]> Score(Position position) {
+		MoveList moveList = new MoveList();
+		score(position,moveList);
 
 		CompletableFuture<Move[]> completableFuture = new CompletableFuture<Move[]>();
-		completableFuture.complete(arr);
+		completableFuture.complete(moveList.toMoves(position));
 		return completableFuture;
 	}
+
+	@Override
+	public void score(Position position,MoveList moveList) {
+		moveList.clear();
+		short[] moves = position.getAllMoves();
+		for (int i = 0; i < moves.length; i++) {
+			// Generate a random score strength for this move
+			moveList.add(moves[i],nextRandomScore());
+		}
+		moveList.sort();
+	}
 	
 	@Override
 	public String getName() {
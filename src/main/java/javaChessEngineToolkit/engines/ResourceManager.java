@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares the host's cores and memory among the engines of games played at the same time, so that they do not oversubscribe
+ * them and make each other's results noisy.
+ * Every engine gets a Threads value, a Hash value, and CPUs of its own that no other engine gets until its allocation is closed.
+ * A game that does not fit waits in acquire until others release their allocations, or is refused by tryAcquire.
+ */
+public class ResourceManager {
+	private final int[] cpus;
+	private final boolean[] cpusInUse;
+	private final long memoryMb;
+	private long memoryInUseMb;
+	private int threadsPerEngine = 1;
+	private int hashMbPerEngine = 64;
+	private int engineOverheadMb = 32;
+
+	/**
+	 * @param cpus Ids of the CPUs engines may run on.
+	 * @param memoryMb Memory engines may use, in MB.
+	 */
+	public ResourceManager(int[] cpus,long memoryMb) {
+		if (cpus.length == 0) {
+			throw new IllegalArgumentException("No CPUs to run engines on");
+		}
+		this.cpus = cpus.clone();
+		this.cpusInUse = new boolean[cpus.length];
+		this.memoryMb = memoryMb;
+	}
+
+	/**
+	 * Creates a manager for this host, over the CPUs this JVM may run on, leaving the first of them to the JVM running the
+	 * matches, and half of the physical memory to everything else.
+	 * @return ResourceManager
+	 */
+	public static ResourceManager forHost() {
+		int[] allowedCpus = getAllowedCpus();
+		int[] cpus = new int[Math.max(1,allowedCpus.length - 1)];
+		for (int i=0;i<cpus.length;i++) {
+			cpus[i] = allowedCpus.length > 1 ? allowedCpus[i + 1] : allowedCpus[0];
+		}
+		return new ResourceManager(cpus,getPhysicalMemoryMb() / 2);
+	}
+
+	/**
+	 * @return Ids of the CPUs this process may run on: its affinity on Linux, which a container or taskset may have narrowed
+	 * to any set of CPUs, or 0 to availableProcessors() - 1 elsewhere.
+	 */
+	private static int[] getAllowedCpus() {
+		File status = new File("/proc/self/status");
+		if (status.isFile()) {
+			try {
+				BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(status),StandardCharsets.UTF_8));
+				try {
+					String line;
+					while ((line = bufferedReader.readLine()) != null) {
+						if (line.startsWith("Cpus_allowed_list:")) {
+							int[] cpus = parseCpuList(line.substring("Cpus_allowed_list:".length()));
+							if (cpus.length > 0) {
+								return cpus;
+							}
+						}
+					}
+				} finally {
+					bufferedReader.close();
+				}
+			} catch (IOException | NumberFormatException e) {
+				System.err.println("Could not read the CPU affinity, assuming every CPU: " + e.getMessage());
+			}
+		}
+		int[] cpus = new int[Runtime.getRuntime().availableProcessors()];
+		for (int i=0;i<cpus.length;i++) {
+			cpus[i] = i;
+		}
+		return cpus;
+	}
+
+	/**
+	 * @param cpuList CPU list in taskset's format, e.g. "0-3,8,10-11".
+	 * @return The CPU ids, in the order listed.
+	 * @throws NumberFormatException If the list is malformed.
+	 */
+	static int[] parseCpuList(String cpuList) {
+		List<Integer> cpus = new ArrayList<Integer>();
+		for (String range : cpuList.trim().split(",")) {
+			if (range.isEmpty()) {
+				continue;
+			}
+			int dash = range.indexOf('-');
+			int first = Integer.parseInt(dash < 0 ? range : range.substring(0,dash));
+			int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1));
+			for (int cpu=first;cpu<=last;cpu++) {
+				cpus.add(cpu);
+			}
+		}
+		int[] result = new int[cpus.size()];
+		for (int i=0;i<result.length;i++) {
+			result[i] = cpus.get(i);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("deprecation")
+	private static long getPhysicalMemoryMb() {
+		OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+		if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) operatingSystemMXBean).getTotalPhysicalMemorySize() / (1024 * 1024);
+		}
+		// Unknown: assume as much as the JVM may use.
+		return Runtime.getRuntime().maxMemory() / (1024 * 1024);
+	}
+
+	public int getThreadsPerEngine() {
+		return threadsPerEngine;
+	}
+
+	/**
+	 * Sets the Threads option of every engine, and the number of CPUs it is pinned to. Defaults to 1.
+	 * @param threadsPerEngine
+	 */
+	public synchronized void setThreadsPerEngine(int threadsPerEngine) {
+		this.threadsPerEngine = threadsPerEngine;
+	}
+
+	public int getHashMbPerEngine() {
+		return hashMbPerEngine;
+	}
+
+	/**
+	 * Sets the Hash option of every engine, in MB. Defaults to 64.
+	 * @param hashMbPerEngine
+	 */
+	public synchronized void setHashMbPerEngine(int hashMbPerEngine) {
+		this.hashMbPerEngine = hashMbPerEngine;
+	}
+
+	public int getEngineOverheadMb() {
+		return engineOverheadMb;
+	}
+
+	/**
+	 * Sets the memory an engine is assumed to use besides its hash: code, stacks, tables. Defaults to 32 MB.
+	 * @param engineOverheadMb
+	 */
+	public synchronized void setEngineOverheadMb(int engineOverheadMb) {
+		this.engineOverheadMb = engineOverheadMb;
+	}
+
+	/**
+	 * @param enginesPerGame Engines each game needs, usually 2.
+	 * @return How many such games fit at once. 0 if not even one does, in which case acquire would refuse it.
+	 */
+	public synchronized int getMaxConcurrentGames(int enginesPerGame) {
+		int byCpus = cpus.length / (threadsPerEngine * enginesPerGame);
+		long byMemory = memoryMb / (getMemoryPerEngineMb() * enginesPerGame);
+		return (int) Math.min(byCpus,byMemory);
+	}
+
+	/**
+	 * Allocates resources for some engines, waiting for other allocations to be closed if they are in use.
+	 * @param engineCount Number of engines, e.g. 2 for a game.
+	 * @return EngineAllocation, to be closed once the engines are done.
+	 * @throws InterruptedException
+	 * @throws IllegalArgumentException If the engines would not fit even with nothing else running.
+	 */
+	public synchronized EngineAllocation acquire(int engineCount) throws InterruptedException {
+		checkFits(engineCount);
+		EngineAllocation engineAllocation;
+		while ((engineAllocation = tryAcquire(engineCount)) == null) {
+			wait();
+		}
+		return engineAllocation;
+	}
+
+	/**
+	 * Allocates resources for some engines if they are free.
+	 * @param engineCount Number of engines, e.g. 2 for a game.
+	 * @return EngineAllocation, to be closed once the engines are done, or null if the engines do not fit now.
+	 */
+	public synchronized EngineAllocation tryAcquire(int engineCount) {
+		checkFits(engineCount);
+		long memoryNeededMb = getMemoryPerEngineMb() * engineCount;
+		if (memoryInUseMb + memoryNeededMb > memoryMb) {
+			return null;
+		}
+		int[] indexes = new int[engineCount * threadsPerEngine];
+		int found = 0;
+		for (int i=0;i<cpus.length && found < indexes.length;i++) {
+			if (!cpusInUse[i]) {
+				indexes[found++] = i;
+			}
+		}
+		if (found < indexes.length) {
+			return null;
+		}
+		String[] cpuLists = new String[engineCount];
+		for (int engine=0;engine<engineCount;engine++) {
+			StringBuilder stringBuilder = new StringBuilder();
+			for (int thread=0;thread<threadsPerEngine;thread++) {
+				int index = indexes[engine * threadsPerEngine + thread];
+				cpusInUse[index] = true;
+				if (thread > 0) {
+					stringBuilder.append(',');
+				}
+				stringBuilder.append(cpus[index]);
+			}
+			cpuLists[engine] = stringBuilder.toString();
+		}
+		memoryInUseMb += memoryNeededMb;
+		return new EngineAllocation(this,threadsPerEngine,hashMbPerEngine,cpuLists,indexes,memoryNeededMb);
+	}
+
+	synchronized void release(int[] cpuIndexes,long memoryAllocatedMb) {
+		for (int index : cpuIndexes) {
+			cpusInUse[index] = false;
+		}
+		memoryInUseMb -= memoryAllocatedMb;
+		notifyAll();
+	}
+
+	private long getMemoryPerEngineMb() {
+		return (long) hashMbPerEngine + engineOverheadMb;
+	}
+
+	private void checkFits(int engineCount) {
+		if (engineCount * threadsPerEngine > cpus.length || getMemoryPerEngineMb() * engineCount > memoryMb) {
+			throw new IllegalArgumentException(String.format("%d engines with %d threads and %d MB hash each do not fit in %d CPUs and %d MB",
+					engineCount,threadsPerEngine,hashMbPerEngine,cpus.length,memoryMb));
+		}
+	}
+}
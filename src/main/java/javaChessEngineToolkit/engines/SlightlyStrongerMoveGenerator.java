@@ -23,17 +23,21 @@
  */
 package javaChessEngineToolkit.engines;
 
+import chesspresso.Chess;
 import chesspresso.move.IllegalMoveException;
 import chesspresso.position.Position;
 import javaChessEngineToolkit.*;
+import javaChessEngineToolkit.endgame.Bitbases;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SlightlyStrongerMoveGenerator extends Engine implements ScoringAlgorithm, Seedable {
+	private SplittableRandom random;
+	private Bitbases bitbases;
 
-public class SlightlyStrongerMoveGenerator extends Engine implements ScoringAlgorithm {
 	@Override
 	public String getName() {
 		return "SlightlyStrongerMoveGenerator";
@@ -49,49 +53,80 @@ public class SlightlyStrongerMoveGenerator extends Engine implements ScoringAlgo
 		return Score(gameContext.getGame().getPosition());
 	}
 
+	@Override
+	public void requestMove(final GameContext gameContext,final MoveList moveList) {
+		score(gameContext.getGame().getPosition(),moveList);
+	}
+
+	@Override
+	public void setRandom(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/**
+	 * Sets the bitbases used as perfect evaluation of the endgames they cover, or null to not use any.
+	 * @param bitbases
+	 */
+	public void setBitbases(Bitbases bitbases) {
+		this.bitbases = bitbases;
+	}
+
+	private int nextRandomScore() {
+		return random != null ? random.nextInt(10000) : ThreadLocalRandom.current().nextInt(10000);
+	}
+
 	@Override
 	public Future<Move[]> Score(Position position) {
-		short[] moves = position.getAllMoves();
+		MoveList moveList = new MoveList();
+		score(position,moveList);
 
-		Move[] arr = new Move[moves.length];
+		CompletableFuture<Move[]> completableFuture = new CompletableFuture<Move[]>();
+		completableFuture.complete(moveList.toMoves(position));
+		return completableFuture;
+	}
+
+	@Override
+	public void score(Position position,MoveList moveList) {
+		moveList.clear();
+		short[] moves = position.getAllMoves();
 		try {
-			final Random random = new Random();
+			// One copy per call; each move is undone again after it has been looked at.
+			Position _position = new Position(position);
 			for (int i = 0; i < moves.length; i++) {
-				Position _position = new Position(position);
 				_position.doMove(moves[i]);
 
-				Move move = new Move();
-				move.setShortValue(moves[i]);
-				move.setNotation(_position.getLastMove().getSAN());
+				int score;
+				GameResult bitbaseResult = bitbases != null ? bitbases.probe(_position) : null;
 				if (_position.isMate()) {
 					// This move scores highly, so the engine should make this move.
-					move.setScore(99.99);
+					score = 99990;
 				} else if (_position.isStaleMate()) {
 					// This move makes it stalemate, avoid this if we can.
-					move.setScore(0.01);
-				} else if (ChesspressoUtils.hasInsufficientMatingMaterial(position)) {
+					score = 10;
+				} else if (ChesspressoUtils.hasInsufficientMatingMaterial(_position)) {
 					// This move results in insufficient mating material, avoid this if we can.
-					move.setScore(0.01);
+					score = 10;
+				} else if (bitbaseResult != null) {
+					if (bitbaseResult == GameResult.DRAW) {
+						score = 10;
+					} else if ((bitbaseResult == GameResult.WHITE_WIN) == (position.getToPlay() == Chess.WHITE)) {
+						// Keeps the win; the random part picks between the winning moves.
+						score = 80000 + nextRandomScore();
+					} else {
+						score = 0;
+					}
 				} else {
 					// Set the score here.
-					BigDecimal bd = BigDecimal.valueOf(random.nextDouble() * 10);
-					move.setScore(bd.setScale(3, BigDecimal.ROUND_HALF_UP).doubleValue());
+					score = nextRandomScore();
 				}
+				moveList.add(moves[i],score);
 
-				arr[i] = move;
-
-				if (_position.canUndoMove()) {
-					_position.undoMove();
-				}
+				_position.undoMove();
 			}
 		} catch (IllegalMoveException e) {
 			e.printStackTrace(System.err);
 		}
-		Arrays.sort(arr);
-
-		CompletableFuture<Move[]> completableFuture = new CompletableFuture<Move[]>();
-		completableFuture.complete(arr);
-		return completableFuture;
+		moveList.sort();
 	}
 
 	@Override
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reaches an engine over TCP, through a UciRelay running on the engine's host. Every connection gets an engine process
+ * of its own, which the relay ends when the connection closes.
+ * <p>
+ * Nagle's algorithm is off, so every flushed command is sent at once; UciEngine writes a search's 'position' and 'go'
+ * with a single flush, so they travel together.
+ */
+public class TcpUciTransport implements UciTransport {
+	private final String host;
+	private final int port;
+	private int connectTimeoutMs = 5000;
+
+	/**
+	 * @param host Host of the UciRelay.
+	 * @param port Port of the UciRelay.
+	 */
+	public TcpUciTransport(String host,int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getConnectTimeoutMs() {
+		return connectTimeoutMs;
+	}
+
+	/**
+	 * Sets how long connecting may take. Defaults to 5000 ms.
+	 * @param connectTimeoutMs
+	 */
+	public void setConnectTimeoutMs(int connectTimeoutMs) {
+		this.connectTimeoutMs = connectTimeoutMs;
+	}
+
+	@Override
+	public UciConnection open() throws IOException {
+		final Socket socket = new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.connect(new InetSocketAddress(host,port),connectTimeoutMs);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return new SocketConnection(socket);
+	}
+
+	@Override
+	public boolean isRemote() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + port;
+	}
+
+	private static class SocketConnection implements UciConnection {
+		private final Socket socket;
+		private final InputStream inputStream;
+		private final OutputStream outputStream;
+		private volatile boolean ended;
+
+		SocketConnection(Socket socket) throws IOException {
+			this.socket = socket;
+			// The relay closes the connection when the engine exits.
+			this.inputStream = new FilterInputStream(socket.getInputStream()) {
+				@Override
+				public int read() throws IOException {
+					int read = super.read();
+					if (read < 0) {
+						ended = true;
+					}
+					return read;
+				}
+
+				@Override
+				public int read(byte[] buffer,int offset,int length) throws IOException {
+					int read = super.read(buffer,offset,length);
+					if (read < 0) {
+						ended = true;
+					}
+					return read;
+				}
+			};
+			this.outputStream = new BufferedOutputStream(socket.getOutputStream(),8192);
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return inputStream;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return outputStream;
+		}
+
+		@Override
+		public boolean isAlive() {
+			return !ended && !socket.isClosed();
+		}
+
+		@Override
+		public void destroy() {
+			try {
+				outputStream.write("quit\n".getBytes(StandardCharsets.US_ASCII));
+				outputStream.flush();
+			} catch (IOException e) {
+				// Already gone.
+			}
+			destroyForcibly();
+		}
+
+		@Override
+		public void destroyForcibly() {
+			ended = true;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed.
+			}
+		}
+
+		@Override
+		public void waitFor() {
+			// The relay ends the process; there is nothing to wait for here.
+		}
+
+		@Override
+		public long getPid() {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A connection to one running instance of a UCI engine, opened by a UciTransport.
+ */
+public interface UciConnection {
+	/**
+	 * @return The engine's output.
+	 */
+	InputStream getInputStream();
+
+	/**
+	 * @return The engine's input. Buffered: written commands reach the engine when it is flushed.
+	 */
+	OutputStream getOutputStream();
+
+	boolean isAlive();
+
+	/**
+	 * Asks the engine to end. May write to the output stream, so callers serialize it with their own writes.
+	 */
+	void destroy();
+
+	/**
+	 * Ends the engine now. Reads waiting for its output return.
+	 */
+	void destroyForcibly();
+
+	/**
+	 * Waits for the engine to have ended, after destroy or destroyForcibly.
+	 * @throws InterruptedException
+	 */
+	void waitFor() throws InterruptedException;
+
+	/**
+	 * @return The engine's process id, or -1 if it is not a process on this host.
+	 */
+	long getPid();
+}
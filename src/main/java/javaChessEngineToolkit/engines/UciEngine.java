@@ -25,29 +25,88 @@ package javaChessEngineToolkit.engines;
 
 import chesspresso.Chess;
 import chesspresso.game.Game;
+import chesspresso.pgn.PGN;
 import chesspresso.position.Position;
 import javaChessEngineToolkit.ChesspressoUtils;
 import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.EngineFailureException;
 import javaChessEngineToolkit.GameContext;
 import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.SearchInfo;
+import javaChessEngineToolkit.SearchLimits;
+import javaChessEngineToolkit.jfr.GamePhase;
+import javaChessEngineToolkit.jfr.UciSearchEvent;
+import javaChessEngineToolkit.jfr.UciWriteEvent;
+import javaChessEngineToolkit.metrics.Histogram;
+import javaChessEngineToolkit.metrics.MetricsRegistry;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class UciEngine extends Engine {
+	// Marks the end of the output in an output queue. Compared by identity.
+	private static final String END_OF_OUTPUT = new String("");
+
 	protected static final Pattern bestMoveRegex = Pattern.compile("^bestmove (\\w{4,5})( ponder (.*))?$");
 
 	protected String name;
 	protected String uciEnginePath;
-	protected Process process;
+	protected UciTransport uciTransport;
+	protected UciConnection connection;
 	protected BufferedReader bufferedReader;
+	// Lines read by the output reader thread, if there is one, ending with END_OF_OUTPUT. One queue per connection.
+	protected volatile BlockingQueue<String> outputQueue;
+	protected volatile boolean outputReaderThread;
+	private final ReentrantLock restartLock = new ReentrantLock();
 
 	protected int estimatedElo;
+	protected SearchLimits searchLimits;
+	protected volatile SearchInfo lastSearchInfo;
+	protected SearchInfo[] lastSearchInfos = new SearchInfo[1];
+	protected volatile Consumer<SearchInfo> searchInfoListener;
+
+	// Options are replayed when the engine is restarted.
+	protected final Map<String,String> options = new LinkedHashMap<String,String>();
+	protected long heartbeatTimeoutMs;
+	protected volatile long lastOutputNanos;
+	// While waiting for output: the time by which the engine should have answered, or Long.MAX_VALUE. 0 while idle.
+	protected volatile long deadlineNanos;
+	protected volatile String failureReason;
+	// CPUs the process is pinned to, in taskset's list format, or null.
+	protected volatile String cpuAffinity;
+	// Round trip to a remote engine, credited back to its clock.
+	protected volatile long latencyCompensationMs;
+
+	protected Histogram serializationHistogram;
+	protected Histogram thinkTimeHistogram;
+	protected Histogram overheadHistogram;
+	protected Histogram npsHistogram;
+	protected Histogram depthHistogram;
+	// Bytes written to and read from the engine, for the JFR events. Newlines included.
+	protected final AtomicLong bytesSent = new AtomicLong();
+	protected final AtomicLong bytesReceived = new AtomicLong();
+	// Held by every write, so that a 'stop' sent from another thread never lands between a search's 'position' and 'go'.
+	// A lock rather than a monitor, so that a virtual thread blocked on a write does not pin its carrier.
+	private final ReentrantLock writeLock = new ReentrantLock();
+	// Set by prepareMove, so that the request it precedes does not send a heartbeat again.
+	private volatile boolean heartbeatSent;
 	
 	@Override
 	public String getName() {
@@ -64,33 +123,308 @@ public class UciEngine extends Engine {
 	}
 	
 	public UciEngine(String name,String uciEnginePath,int estimatedElo) throws IOException {
+		this(name,new ProcessUciTransport(uciEnginePath),estimatedElo);
+		this.uciEnginePath = uciEnginePath;
+	}
+
+	/**
+	 * Creates an engine reached through a transport, e.g. a TcpUciTransport for an engine on another host.
+	 * The latency compensation of a remote engine is measured when it starts, and every time it is restarted.
+	 * @param name Name.
+	 * @param uciTransport Transport.
+	 * @param estimatedElo Estimated Elo.
+	 * @throws IOException
+	 */
+	public UciEngine(String name,UciTransport uciTransport,int estimatedElo) throws IOException {
 		this();
 		this.name = name;
-		this.uciEnginePath = uciEnginePath;
+		this.uciTransport = uciTransport;
 		this.estimatedElo = estimatedElo;
-		final ProcessBuilder processBuilder = new ProcessBuilder().command(this.uciEnginePath);
-		process = processBuilder.start();
-		bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()),10000);
+		MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+		serializationHistogram = metricsRegistry.histogram("jcet_engine_position_serialization_us","engine",name);
+		thinkTimeHistogram = metricsRegistry.histogram("jcet_engine_think_ms","engine",name);
+		overheadHistogram = metricsRegistry.histogram("jcet_engine_uci_overhead_us","engine",name);
+		npsHistogram = metricsRegistry.histogram("jcet_engine_nps","engine",name);
+		depthHistogram = metricsRegistry.histogram("jcet_engine_depth","engine",name);
+		startProcess();
+	}
+
+	private void startProcess() throws IOException {
+		connection = uciTransport.open();
+		bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream()),10000);
+		failureReason = null;
+		outputQueue = outputReaderThread ? startOutputReader(bufferedReader) : null;
+		applyCpuAffinity();
 		sendUci();
 		sendDebug(true);
+		if (uciTransport.isRemote()) {
+			measureLatency(5);
+		}
+	}
+
+	/**
+	 * Measures the round trip to the engine with 'isready', and sets the latency compensation to the fastest of them.
+	 * The fastest is nearly all transit, and never credits the engine with time it spent thinking.
+	 * @param samples Number of round trips.
+	 * @return The latency compensation, in milliseconds, or -1 if the engine did not answer.
+	 */
+	public long measureLatency(int samples) {
+		long fastestNanos = Long.MAX_VALUE;
+		for (int i = 0; i < samples; i++) {
+			long started = System.nanoTime();
+			if (!isReady(heartbeatTimeoutMs)) {
+				return -1;
+			}
+			fastestNanos = Math.min(fastestNanos,System.nanoTime() - started);
+		}
+		latencyCompensationMs = samples > 0 ? fastestNanos / 1000000 : 0;
+		return latencyCompensationMs;
+	}
+
+	@Override
+	public long getLatencyCompensationMs() {
+		return latencyCompensationMs;
+	}
+
+	/**
+	 * Sets the time credited back to the engine's clock for every move, for the time its commands and answers spend in transit.
+	 * Measured, for a remote engine, when it starts and every time it is restarted; 0 for a local one.
+	 * @param latencyCompensationMs
+	 */
+	public void setLatencyCompensationMs(long latencyCompensationMs) {
+		this.latencyCompensationMs = latencyCompensationMs;
+	}
+
+	public UciTransport getUciTransport() {
+		return uciTransport;
+	}
+
+	/**
+	 * Pins the engine process, and every thread it has or starts, to some CPUs. Kept across restarts.
+	 * Only supported on Linux, where it runs taskset, and for engines run as local processes; otherwise the engine runs unpinned.
+	 * @param cpuAffinity CPU list such as "2,3" or "4-7", or null to leave the affinity of future processes alone.
+	 * @return Whether the running process was pinned. If it was not, the reason is printed.
+	 */
+	public boolean setCpuAffinity(String cpuAffinity) {
+		this.cpuAffinity = cpuAffinity;
+		return applyCpuAffinity();
+	}
+
+	public String getCpuAffinity() {
+		return cpuAffinity;
+	}
+
+	private boolean applyCpuAffinity() {
+		String cpus = cpuAffinity;
+		long pid = connection.getPid();
+		if (cpus == null) {
+			return false;
+		}
+		if (pid < 0 || !System.getProperty("os.name","").startsWith("Linux")) {
+			System.err.println(String.format("Could not pin %s to CPUs %s: only local engines on Linux can be pinned",name,cpus));
+			return false;
+		}
+		try {
+			// -a: all the threads the engine has started already; later ones inherit the affinity.
+			Process taskset = new ProcessBuilder("taskset","-a","-p","-c",cpus,String.valueOf(pid))
+					.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+			if (taskset.waitFor() == 0) {
+				return true;
+			}
+			System.err.println(String.format("Could not pin %s to CPUs %s: taskset exited with %d",name,cpus,taskset.exitValue()));
+		} catch (IOException e) {
+			System.err.println(String.format("Could not pin %s to CPUs %s: %s",name,cpus,e.getMessage()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * Kills the engine process and starts a new one, setting the same options again.
+	 * @throws IOException
+	 */
+	public void restart() throws IOException {
+		// A lock rather than a monitor, so that a virtual thread waiting for the process to exit does not pin its carrier.
+		restartLock.lock();
+		try {
+			kill("Restarting.");
+			try {
+				connection.waitFor();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			bufferedReader.close();
+			startProcess();
+			List<Map.Entry<String,String>> optionsToReplay;
+			synchronized (options) {
+				optionsToReplay = new ArrayList<Map.Entry<String,String>>(options.entrySet());
+			}
+			for (Map.Entry<String,String> option : optionsToReplay) {
+				writeOption(option.getKey(),option.getValue());
+			}
+			sendIsReady();
+		} finally {
+			restartLock.unlock();
+		}
+	}
+
+	/**
+	 * Restarts the engine if its process is no longer running, so that a crash only costs the request it happened in.
+	 * @throws IOException
+	 */
+	protected void ensureAlive() throws IOException {
+		if (!isAlive()) {
+			System.err.println(String.format("Restarting %s: %s",name,failureReason != null ? failureReason : "process exited."));
+			restart();
+		}
+	}
+
+	public boolean isAlive() {
+		return connection.isAlive();
+	}
+
+	/**
+	 * Forcibly kills the engine process. A request waiting for the engine fails with an EngineFailureException carrying the reason.
+	 * @param reason
+	 */
+	public void kill(String reason) {
+		if (failureReason == null) {
+			failureReason = reason;
+		}
+		connection.destroyForcibly();
+	}
+
+	/**
+	 * Sends 'isready' and waits for 'readyok'.
+	 * The timeout is enforced by an EngineWatchdog, which kills the engine when it runs out; without one, this waits as long as it takes.
+	 * @param timeoutMs
+	 * @return Whether the engine answered.
+	 */
+	public boolean isReady(long timeoutMs) {
+		try {
+			sendIsReady();
+			beginWait(timeoutMs);
+			while (!readLine().equals("readyok")) {
+				// Skip output left over from earlier commands.
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			endWait();
+		}
+	}
+
+	/**
+	 * Sets how long the engine may take to answer the 'isready' sent before every request, or 0 to not send one.
+	 * @param heartbeatTimeoutMs
+	 */
+	public void setHeartbeatTimeout(long heartbeatTimeoutMs) {
+		this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+	}
+
+	long getLastOutputNanos() {
+		return lastOutputNanos;
+	}
+
+	long getDeadlineNanos() {
+		return deadlineNanos;
+	}
+
+	protected void beginWait(long timeoutMs) {
+		lastOutputNanos = System.nanoTime();
+		deadlineNanos = timeoutMs > 0 ? lastOutputNanos + timeoutMs * 1000000L : Long.MAX_VALUE;
+	}
+
+	protected void endWait() {
+		deadlineNanos = 0;
+	}
+
+	/**
+	 * Reads a line of output.
+	 * @throws EngineFailureException If the engine process has ended, e.g. because it crashed or was killed.
+	 */
+	protected String readLine() throws IOException {
+		String line;
+		BlockingQueue<String> queue = outputQueue;
+		if (queue != null) {
+			try {
+				line = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for " + name);
+			}
+			if (line == END_OF_OUTPUT) {
+				// Left for any later read.
+				queue.offer(END_OF_OUTPUT);
+				line = null;
+			}
+		} else {
+			try {
+				line = bufferedReader.readLine();
+			} catch (IOException e) {
+				line = null;
+			}
+		}
+		if (line == null) {
+			throw new EngineFailureException(name,failureReason != null ? failureReason : "Engine process exited.");
+		}
+		lastOutputNanos = System.nanoTime();
+		bytesReceived.addAndGet(line.length() + 1);
+		return line;
+	}
+
+	/**
+	 * Sets whether the engine's output is read by a platform thread of its own and handed over through a queue.
+	 * A virtual thread waiting for the engine then parks, instead of pinning its carrier thread in a blocking pipe read,
+	 * at the cost of a thread per engine and a hand-off per line. Kept across restarts. Only change it while the engine is idle;
+	 * turning it off takes effect when the engine is restarted, since the thread reads until the process ends.
+	 * @param outputReaderThread
+	 */
+	public void setOutputReaderThread(boolean outputReaderThread) {
+		if (outputReaderThread && outputQueue == null) {
+			outputQueue = startOutputReader(bufferedReader);
+		}
+		this.outputReaderThread = outputReaderThread;
+	}
+
+	public boolean isOutputReaderThread() {
+		return outputReaderThread;
+	}
+
+	private BlockingQueue<String> startOutputReader(final BufferedReader reader) {
+		final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						queue.add(line);
+					}
+				} catch (IOException e) {
+					// Closed, or the process is gone.
+				}
+				queue.add(END_OF_OUTPUT);
+			}
+		},"UciEngine output " + name);
+		thread.setDaemon(true);
+		thread.start();
+		return queue;
+	}
+
+	private void heartbeat() throws IOException {
+		if (heartbeatTimeoutMs > 0 && !isReady(heartbeatTimeoutMs)) {
+			throw new EngineFailureException(name,failureReason != null ? failureReason : "No reply to isready.");
+		}
 	}
 
 	private Move handleBestMoveLine(final Position position,String bestMoveLine) {
 		Matcher matcher = bestMoveRegex.matcher(bestMoveLine);
 		if (matcher.matches()) {
 			String bestMove = matcher.group(1);
-			String fromSqStr = bestMove.substring(0, 2);
-			String toSqStr = bestMove.substring(2, 4);
-			String promoPieceStr = null;
-			if (bestMove.length() == 5) {
-				promoPieceStr = bestMove.substring(4, 5);
-			}
-
-			int fromSqi = Chess.strToSqi(fromSqStr);
-			int toSqi = Chess.strToSqi(toSqStr);
-			int promoPiece = promoPieceStr == null ? Chess.NO_PIECE : Chess.charToPiece(promoPieceStr.toUpperCase().charAt(0));
-
-			short shortValue = position.getMove(fromSqi, toSqi, promoPiece);
+			short shortValue = ChesspressoUtils.getMoveFromUciNotation(position, bestMove);
 
 			Move move = new Move();
 			move.setNotation(bestMove);
@@ -105,66 +439,332 @@ public class UciEngine extends Engine {
 	public Future<Move[]> requestMove(final GameContext gameContext) {
 		final CompletableFuture<Move[]> moveFuture = new CompletableFuture<Move[]>();
 		final Position position = gameContext.getGame().getPosition();
+		UciSearchEvent event = new UciSearchEvent();
+		event.begin();
+		long bytesSentBefore = bytesSent.get();
+		long bytesReceivedBefore = bytesReceived.get();
 		try {
+			ensureAlive();
+			if (!heartbeatSent) {
+				heartbeat();
+			}
+			heartbeatSent = false;
+			long started = System.nanoTime();
 			final Game gameCopy = new Game(gameContext.getGame().getModel());
 			gameCopy.gotoStart();
 			final chesspresso.move.Move[] mainLineMoves = gameCopy.getMainLine();
 			String[] moves = new String[mainLineMoves.length];
 			for(int i=0;i<mainLineMoves.length;i++) {
-				final chesspresso.move.Move move = mainLineMoves[i];
-				moves[i] = Chess.sqiToStr(move.getFromSqi()) + Chess.sqiToStr(move.getToSqi()) + (move.isPromotion() ? String.valueOf(Chess.pieceToChar(move.getPromo())).toLowerCase() : "");
-			}
-			sendPosition("startpos",moves);
-			//sendPosition(position.getFEN(),null);
-
-			if (gameContext.isTimed()) {
-				// winc %d binc %d
-				sendGo(String.format("wtime %d btime %d",gameContext.getChessClock().getClockForColor(Chess.WHITE),gameContext.getChessClock().getClockForColor(Chess.BLACK)));
-			} else {
-				sendGo("");
-			}
-
-			String line = null;
-			while (null != (line = bufferedReader.readLine())) {
-				if (line.startsWith("bestmove ")) {
-					Move move = handleBestMoveLine(position,line);
-					moveFuture.complete(new Move[] { move });
-					break;
-				} else if (line.startsWith("info ")) {
-					// Optionally handle 'info' line
-				} else if (line.startsWith("option ")) {
-					// Optionally handle 'option' line
-				} else if (line.equals("uciok")) {
-					// Optionally handle 'uciok' line
-				} else if (line.startsWith("id ")) {
-					// Optionally handle 'id' line
+				moves[i] = ChesspressoUtils.getUciNotation(mainLineMoves[i].getShortMoveDesc());
+			}
+			// Games started from an opening position carry it in the FEN tag.
+			final String fen = gameContext.getGame().getTag(PGN.TAG_FEN);
+			long goSent;
+			long moveTimeMs;
+			writeLock.lock();
+			try {
+				queuePosition(fen == null ? "startpos" : fen,moves);
+				goSent = System.nanoTime();
+
+				clearSearchInfo();
+				if (gameContext.isTimed()) {
+					// winc %d binc %d
+					sendGo(String.format("wtime %d btime %d",gameContext.getChessClock().getClockForColor(Chess.WHITE),gameContext.getChessClock().getClockForColor(Chess.BLACK)));
+					moveTimeMs = gameContext.getChessClock().getClockForColor(position.getToPlay());
+				} else {
+					sendGo(searchLimits == null ? "" : searchLimits.toGoArguments());
+					moveTimeMs = getMoveTimeMs();
 				}
+			} finally {
+				writeLock.unlock();
 			}
+
+			beginWait(moveTimeMs);
+			readBestMove(position,moveFuture);
+			recordMetrics(started,goSent);
 		} catch (Exception e) {
 			e.printStackTrace(System.err);
+			moveFuture.completeExceptionally(e);
+		} finally {
+			endWait();
+			if (event.shouldCommit()) {
+				commitSearchEvent(event,position,bytesSentBefore,bytesReceivedBefore,moveFuture);
+			}
 		}
 
 		return moveFuture;
 	}
 
+	/**
+	 * Searches a position outside of a game, using the search limits.
+	 * @param position Position to search.
+	 * @return Move future, as for requestMove.
+	 */
+	public Future<Move[]> analyzePosition(final Position position) {
+		return analyzePosition(position.getFEN(),null,position);
+	}
+
+	/**
+	 * Searches the position reached by playing moves from a start position, using the search limits.
+	 * Searching consecutive plies of one game this way lets the engine reuse its hash between them.
+	 * @param fen Start position FEN, or "startpos".
+	 * @param moves Moves from the start position, in UCI notation. May be null.
+	 * @param position The position reached, used to decode the best move.
+	 * @return Move future, as for requestMove.
+	 */
+	public Future<Move[]> analyzePosition(final String fen,final String[] moves,final Position position) {
+		final CompletableFuture<Move[]> moveFuture = new CompletableFuture<Move[]>();
+		UciSearchEvent event = new UciSearchEvent();
+		event.begin();
+		long bytesSentBefore = bytesSent.get();
+		long bytesReceivedBefore = bytesReceived.get();
+		try {
+			ensureAlive();
+			heartbeat();
+			long started = System.nanoTime();
+			long goSent;
+			writeLock.lock();
+			try {
+				queuePosition(fen,moves);
+				goSent = System.nanoTime();
+				clearSearchInfo();
+				sendGo(searchLimits == null ? "" : searchLimits.toGoArguments());
+			} finally {
+				writeLock.unlock();
+			}
+			beginWait(getMoveTimeMs());
+			readBestMove(position,moveFuture);
+			recordMetrics(started,goSent);
+		} catch (Exception e) {
+			e.printStackTrace(System.err);
+			moveFuture.completeExceptionally(e);
+		} finally {
+			endWait();
+			if (event.shouldCommit()) {
+				commitSearchEvent(event,position,bytesSentBefore,bytesReceivedBefore,moveFuture);
+			}
+		}
+		return moveFuture;
+	}
+
+	/**
+	 * Records the metrics of a search that has just returned its best move.
+	 * @param started When building the position command started.
+	 * @param goSent When the position had been sent, right before 'go'.
+	 */
+	private void recordMetrics(long started,long goSent) {
+		long thinkNanos = System.nanoTime() - goSent;
+		serializationHistogram.record((goSent - started) / 1000);
+		thinkTimeHistogram.record(thinkNanos / 1000000);
+		SearchInfo searchInfo = lastSearchInfo;
+		if (searchInfo != null) {
+			if (searchInfo.getTimeMs() > 0) {
+				// Time the engine did not account for: pipes, parsing, and its own overhead after its last info line.
+				overheadHistogram.record(thinkNanos / 1000 - searchInfo.getTimeMs() * 1000);
+			}
+			long nps = searchInfo.getNps();
+			if (nps == 0 && searchInfo.getTimeMs() > 0) {
+				nps = searchInfo.getNodes() * 1000 / searchInfo.getTimeMs();
+			}
+			if (nps > 0) {
+				npsHistogram.record(nps);
+			}
+			depthHistogram.record(searchInfo.getDepth());
+		}
+	}
+
+	private void commitSearchEvent(UciSearchEvent event,Position position,long bytesSentBefore,long bytesReceivedBefore,CompletableFuture<Move[]> moveFuture) {
+		event.engine = name;
+		event.ply = position.getPlyNumber();
+		event.gamePhase = GamePhase.of(position);
+		event.bytesSent = bytesSent.get() - bytesSentBefore;
+		event.bytesReceived = bytesReceived.get() - bytesReceivedBefore;
+		SearchInfo searchInfo = lastSearchInfo;
+		if (searchInfo != null) {
+			event.depth = searchInfo.getDepth();
+			event.nodes = searchInfo.getNodes();
+			event.engineTime = searchInfo.getTimeMs();
+		}
+		try {
+			Move[] moves = moveFuture.getNow(null);
+			event.outcome = moves != null && moves.length > 0 && moves[0] != null ? moves[0].getNotation() : "no move";
+		} catch (Exception e) {
+			event.outcome = e.getCause() != null ? e.getCause().getClass().getSimpleName() : e.getClass().getSimpleName();
+		}
+		event.commit();
+	}
+
+	private long getMoveTimeMs() {
+		return searchLimits != null && searchLimits.getMoveTimeMs() > 0 ? searchLimits.getMoveTimeMs() : 0;
+	}
+
+	protected void readBestMove(final Position position,final CompletableFuture<Move[]> moveFuture) throws IOException {
+		while (true) {
+			String line = readLine();
+			if (line.startsWith("bestmove ")) {
+				Move move = handleBestMoveLine(position,line);
+				moveFuture.complete(new Move[] { move });
+				break;
+			} else if (line.startsWith("info ")) {
+				SearchInfo searchInfo = SearchInfo.parse(line);
+				if (searchInfo != null) {
+					handleSearchInfo(searchInfo);
+				}
+			} else if (line.startsWith("option ")) {
+				// Optionally handle 'option' line
+			} else if (line.equals("uciok")) {
+				// Optionally handle 'uciok' line
+			} else if (line.startsWith("id ")) {
+				// Optionally handle 'id' line
+			}
+		}
+	}
+
+	/**
+	 * Restarts the engine if it died, and sends the heartbeat of the next request, so that neither is charged to its clock.
+	 */
+	@Override
+	public void prepareMove(GameContext gameContext) throws ExecutionException {
+		try {
+			ensureAlive();
+			heartbeat();
+			heartbeatSent = true;
+		} catch (IOException e) {
+			throw new ExecutionException(e);
+		}
+	}
+
 	@Override
 	public void startNewGame(GameContext gameContext) {
-		sendUciNewGame();
+		try {
+			ensureAlive();
+			sendUciNewGame();
+			if (heartbeatTimeoutMs > 0 && !isReady(heartbeatTimeoutMs)) {
+				restart();
+			}
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+	@Override
+	public SearchInfo getLastSearchInfo() {
+		return lastSearchInfo;
+	}
+
+	/**
+	 * Gets the last search info of every line of the most recent request, ordered by multipv index.
+	 * Only the first line is reported unless the engine's MultiPV option has been set.
+	 * @return SearchInfo array, best line first. Empty if the engine reported none.
+	 */
+	public synchronized SearchInfo[] getLastSearchInfos() {
+		int count = 0;
+		while (count < lastSearchInfos.length && lastSearchInfos[count] != null) {
+			count++;
+		}
+		SearchInfo[] searchInfos = new SearchInfo[count];
+		System.arraycopy(lastSearchInfos,0,searchInfos,0,count);
+		return searchInfos;
+	}
+
+	protected void handleSearchInfo(SearchInfo searchInfo) {
+		int index = searchInfo.getMultiPv() - 1;
+		if (index < 0) {
+			return;
+		}
+		synchronized (this) {
+			if (index >= lastSearchInfos.length) {
+				SearchInfo[] grown = new SearchInfo[index + 1];
+				System.arraycopy(lastSearchInfos,0,grown,0,lastSearchInfos.length);
+				lastSearchInfos = grown;
+			}
+			// A bound or a line without score or PV does not replace an exact line of the same search.
+			SearchInfo previous = lastSearchInfos[index];
+			if (previous == null || searchInfo.isExact() || !previous.isExact()) {
+				lastSearchInfos[index] = searchInfo;
+				if (index == 0) {
+					lastSearchInfo = searchInfo;
+				}
+			}
+		}
+		// Called outside the monitor, since a listener may block.
+		Consumer<SearchInfo> listener = searchInfoListener;
+		if (listener != null) {
+			listener.accept(searchInfo);
+		}
+	}
+
+	/**
+	 * Sets a listener that is called, on the thread reading the engine's output, for every search info line as it arrives.
+	 * @param searchInfoListener Listener, or null to remove it.
+	 */
+	public void setSearchInfoListener(Consumer<SearchInfo> searchInfoListener) {
+		this.searchInfoListener = searchInfoListener;
+	}
+
+	protected synchronized void clearSearchInfo() {
+		lastSearchInfo = null;
+		Arrays.fill(lastSearchInfos,null);
+	}
+
+	public SearchLimits getSearchLimits() {
+		return searchLimits;
+	}
+
+	/**
+	 * Sets the limits used when the game is not timed. With no limits, the engine is sent a bare 'go'.
+	 * @param searchLimits SearchLimits, or null.
+	 */
+	public void setSearchLimits(SearchLimits searchLimits) {
+		this.searchLimits = searchLimits;
 	}
 
 	protected void write(final String line) {
+		write(line,true);
+	}
+
+	/**
+	 * Writes a command.
+	 * @param line Command.
+	 * @param flush Whether to send it, and anything written before it, now.
+	 */
+	protected void write(final String line,boolean flush) {
+		UciWriteEvent event = new UciWriteEvent();
+		event.begin();
 		try {
-			process.getOutputStream().write((line + "\n").getBytes());
-			process.getOutputStream().flush();
+			writeLock.lock();
+			try {
+				connection.getOutputStream().write((line + "\n").getBytes());
+				if (flush) {
+					connection.getOutputStream().flush();
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			bytesSent.addAndGet(line.length() + 1);
 		} catch (Exception e) {
 			e.printStackTrace(System.err);
 		}
+		if (event.shouldCommit()) {
+			int space = line.indexOf(' ');
+			event.engine = name;
+			event.command = space < 0 ? line : line.substring(0,space);
+			event.bytes = line.length() + 1;
+			event.commit();
+		}
 	}
 
 	public void stop() {
 		try {
+			// Ended first, so that an output reader thread returns from its read, and does not hold up close.
+			// A remote connection writes 'quit' when it is ended.
+			writeLock.lock();
+			try {
+				connection.destroy();
+			} finally {
+				writeLock.unlock();
+			}
 			bufferedReader.close();
-			process.destroy();
 		} catch (Exception e) {
 			e.printStackTrace(System.err);
 		}
@@ -183,6 +783,23 @@ public class UciEngine extends Engine {
 	}
 
 	public void setOption(String id,String value) {
+		synchronized (options) {
+			options.put(id,value);
+		}
+		writeOption(id,value);
+	}
+
+	/**
+	 * @param id Option name.
+	 * @return The value last set with setOption, or null.
+	 */
+	public String getOption(String id) {
+		synchronized (options) {
+			return options.get(id);
+		}
+	}
+
+	private void writeOption(String id,String value) {
 		if (value == null) {
 			write(String.format("setoption name %s", id));
 		} else {
@@ -195,6 +812,18 @@ public class UciEngine extends Engine {
 	}
 
 	public void sendPosition(String fen,String[] moves) {
+		write(getPositionCommand(fen,moves));
+	}
+
+	/**
+	 * Writes a 'position' command without flushing it. The 'go' that follows flushes both, so that over a network they
+	 * travel together, instead of the search waiting for a round trip of its own.
+	 */
+	private void queuePosition(String fen,String[] moves) {
+		write(getPositionCommand(fen,moves),false);
+	}
+
+	private static String getPositionCommand(String fen,String[] moves) {
 		StringBuilder stringBuilder = new StringBuilder();
 		if (fen.equals("startpos")) {
 			stringBuilder.append("position startpos");
@@ -209,7 +838,15 @@ public class UciEngine extends Engine {
 				stringBuilder.append(" ");
 			}
 		}
-		write(stringBuilder.toString().trim());
+		return stringBuilder.toString().trim();
+	}
+
+	/**
+	 * Asks the engine to end its current search, which then answers with its best move so far.
+	 * Can be called from any thread; an idle engine ignores it.
+	 */
+	public void sendStop() {
+		write("stop");
 	}
 
 	public void sendGo(String args) {
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.engines;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes a local engine binary on a TCP port, for TcpUciTransport. Every connection starts an engine process of its own,
+ * and the bytes are copied both ways as they arrive, each chunk flushed at once. The process is ended when the connection
+ * closes, and the connection is closed when the process exits.
+ * <p>
+ * There is no authentication: anyone who can connect can run the engine. Listen on the loopback interface, or on a
+ * trusted network only.
+ */
+public class UciRelay implements Closeable {
+	private final ProcessUciTransport processUciTransport;
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger nextSessionId = new AtomicInteger();
+	private int maxConnections = 16;
+	private ServerSocket serverSocket;
+	private volatile boolean closed;
+
+	/**
+	 * @param uciEnginePath Path of the engine binary.
+	 */
+	public UciRelay(String uciEnginePath) {
+		this.processUciTransport = new ProcessUciTransport(uciEnginePath);
+	}
+
+	/**
+	 * Usage: UciRelay port enginePath [bindAddress]
+	 * Listens on the loopback interface unless a bind address, such as 0.0.0.0, is given.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: UciRelay port enginePath [bindAddress]");
+			System.exit(1);
+		}
+		InetAddress bindAddress = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+		UciRelay uciRelay = new UciRelay(args[1]);
+		int port = uciRelay.start(bindAddress,Integer.parseInt(args[0]));
+		System.out.println(String.format("Relaying %s on %s:%d",args[1],bindAddress.getHostAddress(),port));
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Sets how many connections, and so engine processes, there can be at once. Further connections are closed at once.
+	 * Defaults to 16.
+	 * @param maxConnections
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Starts accepting connections.
+	 * @param bindAddress Address to listen on.
+	 * @param port Port, or 0 for any free one.
+	 * @return The port listened on.
+	 * @throws IOException
+	 */
+	public synchronized int start(InetAddress bindAddress,int port) throws IOException {
+		if (serverSocket != null) {
+			throw new IllegalStateException("UCI relay already started");
+		}
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(bindAddress,port));
+		final ServerSocket acceptingSocket = serverSocket;
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept(acceptingSocket);
+			}
+		},"UciRelay-accept");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return Number of connections, each with its engine process.
+	 */
+	public int getConnectionCount() {
+		return sessions.size();
+	}
+
+	private void accept(ServerSocket acceptingSocket) {
+		while (!closed) {
+			Socket socket;
+			try {
+				socket = acceptingSocket.accept();
+			} catch (IOException e) {
+				if (!closed) {
+					e.printStackTrace(System.err);
+				}
+				return;
+			}
+			try {
+				if (sessions.size() >= maxConnections) {
+					System.err.println(String.format("Refused %s: %d connections already",socket.getRemoteSocketAddress(),sessions.size()));
+					socket.close();
+					continue;
+				}
+				socket.setTcpNoDelay(true);
+				Session session = new Session(nextSessionId.incrementAndGet(),socket,processUciTransport.open());
+				sessions.add(session);
+				session.start();
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+				try {
+					socket.close();
+				} catch (IOException closeException) {
+					// Already closed.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections, and closes every connection, ending its engine.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				// Already closed.
+			}
+			serverSocket = null;
+		}
+		for (Session session : sessions) {
+			session.end();
+		}
+	}
+
+	/**
+	 * A connection and its engine process.
+	 */
+	private class Session {
+		private final int id;
+		private final Socket socket;
+		private final UciConnection connection;
+		private final AtomicInteger openPumps = new AtomicInteger(2);
+
+		Session(int id,Socket socket,UciConnection connection) {
+			this.id = id;
+			this.socket = socket;
+			this.connection = connection;
+		}
+
+		void start() throws IOException {
+			startPump("UciRelay-" + id + "-in",socket.getInputStream(),connection.getOutputStream());
+			startPump("UciRelay-" + id + "-out",connection.getInputStream(),socket.getOutputStream());
+		}
+
+		private void startPump(String name,final InputStream inputStream,final OutputStream outputStream) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					byte[] buffer = new byte[8192];
+					try {
+						int read;
+						while ((read = inputStream.read(buffer)) > 0) {
+							outputStream.write(buffer,0,read);
+							outputStream.flush();
+						}
+					} catch (SocketException e) {
+						// The connection was closed.
+					} catch (IOException e) {
+						// The engine is gone.
+					}
+					// Either side ending ends the other, which ends the other pump.
+					end();
+					if (openPumps.decrementAndGet() == 0) {
+						sessions.remove(Session.this);
+					}
+				}
+			},name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		void end() {
+			connection.destroyForcibly();
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed.
+			}
+		}
+	}
+}
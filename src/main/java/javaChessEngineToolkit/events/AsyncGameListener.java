@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers game events to a listener on its own thread, through a RingBuffer, so that the listener never runs on a match thread.
+ * Publishing an event costs a compare-and-set, plus an unpark if the consumer thread sleeps.
+ * One instance can be shared by matches running on several threads; its listener then sees their events interleaved, in order per game.
+ */
+public class AsyncGameListener implements GameListener, Closeable {
+	private static final long MIN_PARK_NANOS = 1000;
+	// The longest an event waits if a wake-up is missed, and the longest a blocked producer sleeps between retries.
+	private static final long MAX_PARK_NANOS = 1000000;
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	private final GameListener gameListener;
+	private final RingBuffer<GameEvent> ringBuffer;
+	private final OverflowPolicy overflowPolicy;
+	private final Thread thread;
+	private final AtomicLong published = new AtomicLong();
+	private final LongAdder dropped = new LongAdder();
+	private volatile long delivered;
+	private volatile boolean waiting;
+	private volatile boolean closed;
+
+	/**
+	 * Creates the listener and starts its consumer thread.
+	 * @param gameListener Listener events are delivered to.
+	 * @param capacity Number of events that can be pending.
+	 * @param overflowPolicy What to do when that many are pending.
+	 */
+	public AsyncGameListener(GameListener gameListener,int capacity,OverflowPolicy overflowPolicy) {
+		this.gameListener = gameListener;
+		this.ringBuffer = new RingBuffer<GameEvent>(capacity);
+		this.overflowPolicy = overflowPolicy;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		},"game-listener-" + threadNumber.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void onGameStarted(GameStartedEvent gameStartedEvent) {
+		publish(gameStartedEvent);
+	}
+
+	@Override
+	public void onMovePlayed(MovePlayedEvent movePlayedEvent) {
+		publish(movePlayedEvent);
+	}
+
+	@Override
+	public void onGameEnded(GameEndedEvent gameEndedEvent) {
+		publish(gameEndedEvent);
+	}
+
+	private void publish(GameEvent gameEvent) {
+		if (closed) {
+			dropped.increment();
+			return;
+		}
+		if (!ringBuffer.offer(gameEvent)) {
+			if (overflowPolicy == OverflowPolicy.DROP) {
+				dropped.increment();
+				return;
+			}
+			long parkNanos = MIN_PARK_NANOS;
+			do {
+				if (closed) {
+					dropped.increment();
+					return;
+				}
+				LockSupport.unpark(thread);
+				LockSupport.parkNanos(parkNanos);
+				parkNanos = Math.min(parkNanos * 2,MAX_PARK_NANOS);
+			} while (!ringBuffer.offer(gameEvent));
+		}
+		published.incrementAndGet();
+		if (waiting) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private void consume() {
+		while (true) {
+			GameEvent gameEvent = ringBuffer.poll();
+			if (gameEvent != null) {
+				try {
+					gameEvent.dispatch(gameListener);
+				} catch (RuntimeException e) {
+					e.printStackTrace(System.err);
+				}
+				delivered++;
+				continue;
+			}
+			if (closed) {
+				return;
+			}
+			waiting = true;
+			if (ringBuffer.isEmpty() && !closed) {
+				LockSupport.parkNanos(this,MAX_PARK_NANOS);
+			}
+			waiting = false;
+		}
+	}
+
+	/**
+	 * Waits until the events published so far have been delivered, e.g. before printing something that should follow them.
+	 * @throws InterruptedException
+	 */
+	public void flush() throws InterruptedException {
+		long target = published.get();
+		while (delivered < target && thread.isAlive()) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(MIN_PARK_NANOS * 100);
+		}
+	}
+
+	/**
+	 * @return Number of events dropped because the buffer was full, or because they were published after close().
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return Number of events waiting to be delivered.
+	 */
+	public long getPendingCount() {
+		return Math.max(0,published.get() - delivered);
+	}
+
+	/**
+	 * Delivers the pending events and stops the consumer thread. Events published afterwards are dropped.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
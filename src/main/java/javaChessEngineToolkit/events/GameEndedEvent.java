@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+public class GameEndedEvent extends GameEvent {
+	private final String result;
+	private final String reason;
+	private final int plies;
+
+	/**
+	 * @param gameId Game id.
+	 * @param result PGN result: "1-0", "0-1", "1/2-1/2", or "*" if the game was aborted.
+	 * @param reason Reason, e.g. "Black checkmated.".
+	 * @param plies Ply number of the final position.
+	 */
+	public GameEndedEvent(long gameId,String result,String reason,int plies) {
+		super(gameId);
+		this.result = result;
+		this.reason = reason;
+		this.plies = plies;
+	}
+
+	public String getResult() {
+		return result;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public int getPlies() {
+		return plies;
+	}
+
+	@Override
+	public void dispatch(GameListener gameListener) {
+		gameListener.onGameEnded(this);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+public class GameStartedEvent extends GameEvent {
+	private final String white;
+	private final String black;
+	private final String fen;
+
+	public GameStartedEvent(long gameId,String white,String black,String fen) {
+		super(gameId);
+		this.white = white;
+		this.black = black;
+		this.fen = fen;
+	}
+
+	public String getWhite() {
+		return white;
+	}
+
+	public String getBlack() {
+		return black;
+	}
+
+	/**
+	 * @return FEN of the position the engines start from, after any opening moves.
+	 */
+	public String getFEN() {
+		return fen;
+	}
+
+	@Override
+	public void dispatch(GameListener gameListener) {
+		gameListener.onGameStarted(this);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+import javaChessEngineToolkit.SearchInfo;
+
+/**
+ * A move played by an engine. It carries the move rather than the resulting FEN, so that nothing is formatted on the match thread;
+ * listeners that need positions can replay the moves from GameStartedEvent.getFEN().
+ */
+public class MovePlayedEvent extends GameEvent {
+	private final int ply;
+	private final int color;
+	private final String move;
+	private final short shortMove;
+	private final long thinkTimeMs;
+	private final SearchInfo searchInfo;
+	private final long whiteClockMs;
+	private final long blackClockMs;
+
+	/**
+	 * @param gameId Game id.
+	 * @param ply Ply number of the position the move was played in.
+	 * @param color Color that played the move.
+	 * @param move Move in UCI notation.
+	 * @param shortMove Move as a Chesspresso short move.
+	 * @param thinkTimeMs Time the engine took.
+	 * @param searchInfo Last search info the engine reported, or null.
+	 * @param whiteClockMs White's clock after the move, or -1 if the game is not timed.
+	 * @param blackClockMs Black's clock after the move, or -1 if the game is not timed.
+	 */
+	public MovePlayedEvent(long gameId,int ply,int color,String move,short shortMove,long thinkTimeMs,SearchInfo searchInfo,long whiteClockMs,long blackClockMs) {
+		super(gameId);
+		this.ply = ply;
+		this.color = color;
+		this.move = move;
+		this.shortMove = shortMove;
+		this.thinkTimeMs = thinkTimeMs;
+		this.searchInfo = searchInfo;
+		this.whiteClockMs = whiteClockMs;
+		this.blackClockMs = blackClockMs;
+	}
+
+	public int getPly() {
+		return ply;
+	}
+
+	public int getColor() {
+		return color;
+	}
+
+	public String getMove() {
+		return move;
+	}
+
+	public short getShortMove() {
+		return shortMove;
+	}
+
+	public long getThinkTimeMs() {
+		return thinkTimeMs;
+	}
+
+	/**
+	 * @return Last search info the engine reported for the move, or null. Its score is from the point of view of the side that moved.
+	 */
+	public SearchInfo getSearchInfo() {
+		return searchInfo;
+	}
+
+	public long getWhiteClockMs() {
+		return whiteClockMs;
+	}
+
+	public long getBlackClockMs() {
+		return blackClockMs;
+	}
+
+	@Override
+	public void dispatch(GameListener gameListener) {
+		gameListener.onMovePlayed(this);
+	}
+}
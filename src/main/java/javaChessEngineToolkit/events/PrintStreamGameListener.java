@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prints the FEN of every position reached, replaying the moves of each game on a position of its own.
+ * Meant to be wrapped in an AsyncGameListener, so that neither the FENs nor the printing cost the match thread anything.
+ */
+public class PrintStreamGameListener implements GameListener {
+	private final PrintStream printStream;
+	private final Map<Long,Position> positions = new HashMap<Long,Position>();
+
+	public PrintStreamGameListener(PrintStream printStream) {
+		this.printStream = printStream;
+	}
+
+	@Override
+	public synchronized void onGameStarted(GameStartedEvent gameStartedEvent) {
+		positions.put(gameStartedEvent.getGameId(),new Position(gameStartedEvent.getFEN()));
+	}
+
+	@Override
+	public synchronized void onMovePlayed(MovePlayedEvent movePlayedEvent) {
+		Position position = positions.get(movePlayedEvent.getGameId());
+		if (position == null) {
+			return;
+		}
+		try {
+			position.doMove(movePlayedEvent.getShortMove());
+			printStream.println(position.getFEN());
+		} catch (IllegalMoveException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+	@Override
+	public synchronized void onGameEnded(GameEndedEvent gameEndedEvent) {
+		positions.remove(gameEndedEvent.getGameId());
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.jfr;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+
+/**
+ * Coarse game phase of a position, used to slice events. Only worth computing when an event is going to be committed.
+ */
+public final class GamePhase {
+	public static final String OPENING = "opening";
+	public static final String MIDDLEGAME = "middlegame";
+	public static final String ENDGAME = "endgame";
+
+	// Material of both sides, in pawns, at which the endgame starts; the initial position has 78.
+	private static final int ENDGAME_MATERIAL = 30;
+	private static final int OPENING_PLIES = 20;
+
+	private GamePhase() {
+
+	}
+
+	public static String of(Position position) {
+		if (position.getPlyNumber() < OPENING_PLIES) {
+			return OPENING;
+		}
+		int material = ChesspressoUtils.getWhiteBoardStrength(position) + ChesspressoUtils.getBlackBoardStrength(position);
+		return material <= ENDGAME_MATERIAL ? ENDGAME : MIDDLEGAME;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Spans one UCI round-trip of UciEngine.requestMove or analyzePosition, from sending the position to reading 'bestmove'.
+ */
+@Name("javaChessEngineToolkit.UciSearch")
+@Label("UCI Search")
+@Category({ "Chess", "UCI" })
+@StackTrace(false)
+public class UciSearchEvent extends jdk.jfr.Event {
+	@Label("Engine")
+	public String engine;
+
+	@Label("Ply")
+	public int ply;
+
+	@Label("Game Phase")
+	public String gamePhase;
+
+	@Label("Bytes Sent")
+	@DataAmount(DataAmount.BYTES)
+	public long bytesSent;
+
+	@Label("Bytes Received")
+	@DataAmount(DataAmount.BYTES)
+	public long bytesReceived;
+
+	@Label("Depth")
+	public int depth;
+
+	@Label("Nodes")
+	public long nodes;
+
+	@Label("Engine Time")
+	@Description("Search time the engine reported")
+	@Timespan(Timespan.MILLISECONDS)
+	public long engineTime;
+
+	@Label("Outcome")
+	@Description("The best move, or the exception the search failed with")
+	public String outcome;
+}
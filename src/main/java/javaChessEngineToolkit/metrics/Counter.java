@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free counter of events, which also reports its rate per hour since the first event.
+ */
+public class Counter {
+	private final String name;
+	private final String[] labels;
+	private final LongAdder count = new LongAdder();
+	private final AtomicLong firstMs = new AtomicLong();
+
+	/**
+	 * @param name Metric name.
+	 * @param labels Label names and values, alternating.
+	 */
+	public Counter(String name,String... labels) {
+		this.name = name;
+		this.labels = labels.clone();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Label names and values, alternating.
+	 */
+	public String[] getLabels() {
+		return labels.clone();
+	}
+
+	public void increment() {
+		if (firstMs.get() == 0) {
+			firstMs.compareAndSet(0,System.currentTimeMillis());
+		}
+		count.increment();
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return Events per hour since the first one, 0 before it.
+	 */
+	public double getRatePerHour() {
+		long first = firstMs.get();
+		if (first == 0) {
+			return 0;
+		}
+		// At least a minute, so that the first event does not read as a huge rate.
+		long elapsedMs = Math.max(60000,System.currentTimeMillis() - first);
+		return getCount() * 3600000.0 / elapsedMs;
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values, e.g. latencies. Values below 16 get a bucket each; above that,
+ * every power of two is split into 16 buckets, so percentiles are accurate to within 1/16 of the value.
+ * Recording is a few atomic increments and never allocates.
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final String[] labels;
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * @param name Metric name.
+	 * @param labels Label names and values, alternating.
+	 */
+	public Histogram(String name,String... labels) {
+		this.name = name;
+		this.labels = labels.clone();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Label names and values, alternating.
+	 */
+	public String[] getLabels() {
+		return labels.clone();
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(getBucket(value));
+		count.increment();
+		sum.add(value);
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current,value)) {
+			// Retry.
+		}
+		while (value > (current = max.get()) && !max.compareAndSet(current,value)) {
+			// Retry.
+		}
+	}
+
+	/**
+	 * @return A copy of the current counts. Values recorded while it is taken may be partly included.
+	 */
+	public Snapshot snapshot() {
+		long[] bucketCounts = new long[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			bucketCounts[i] = counts.get(i);
+		}
+		return new Snapshot(bucketCounts,count.sum(),sum.sum(),min.get(),max.get());
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return The highest value that falls into a bucket.
+	 */
+	static long getBucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lowerBound = (1L << exponent) | ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS));
+		return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	public static class Snapshot {
+		private final long[] bucketCounts;
+		private final long count;
+		private final long sum;
+		private final long min;
+		private final long max;
+
+		Snapshot(long[] bucketCounts,long count,long sum,long min,long max) {
+			this.bucketCounts = bucketCounts;
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMin() {
+			return count > 0 ? min : 0;
+		}
+
+		public long getMax() {
+			return count > 0 ? max : 0;
+		}
+
+		public double getMean() {
+			return count > 0 ? (double) sum / count : 0;
+		}
+
+		/**
+		 * @param quantile Between 0 and 1, e.g. 0.99.
+		 * @return Upper bound of the bucket the quantile falls into, capped at the maximum. 0 if nothing was recorded.
+		 */
+		public long getValueAtQuantile(double quantile) {
+			long total = 0;
+			for (long bucketCount : bucketCounts) {
+				total += bucketCount;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = Math.max(1,(long) Math.ceil(quantile * total));
+			long seen = 0;
+			for (int i = 0; i < bucketCounts.length; i++) {
+				seen += bucketCounts[i];
+				if (seen >= rank) {
+					return Math.min(getBucketUpperBound(i),getMax());
+				}
+			}
+			return getMax();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a MetricsRegistry: periodically to files, replaced atomically so readers never see half a snapshot,
+ * and/or on request over HTTP on the loopback interface, at /metrics (Prometheus text) and /metrics.json.
+ */
+public class MetricsExporter implements Closeable {
+	private final MetricsRegistry metricsRegistry;
+	private ScheduledExecutorService scheduledExecutorService;
+	private HttpServer httpServer;
+
+	public MetricsExporter(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	/**
+	 * Starts writing snapshots to files.
+	 * @param prometheusFile File for the Prometheus text format, e.g. for node_exporter's textfile collector, or null.
+	 * @param jsonFile File for JSON, or null.
+	 * @param periodMs Time between snapshots.
+	 */
+	public synchronized void startFileExport(final File prometheusFile,final File jsonFile,long periodMs) {
+		if (scheduledExecutorService != null) {
+			throw new IllegalStateException("File export already started");
+		}
+		scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,"MetricsExporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeFiles(prometheusFile,jsonFile);
+				} catch (IOException e) {
+					e.printStackTrace(System.err);
+				}
+			}
+		},periodMs,periodMs,TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Writes a snapshot to files now.
+	 * @param prometheusFile File for the Prometheus text format, or null.
+	 * @param jsonFile File for JSON, or null.
+	 * @throws IOException
+	 */
+	public void writeFiles(File prometheusFile,File jsonFile) throws IOException {
+		if (prometheusFile != null) {
+			write(prometheusFile,metricsRegistry.toPrometheusText());
+		}
+		if (jsonFile != null) {
+			write(jsonFile,metricsRegistry.toJson());
+		}
+	}
+
+	/**
+	 * Starts serving the metrics over HTTP on the loopback interface.
+	 * @param port Port, or 0 for any free one.
+	 * @return The port listened on.
+	 * @throws IOException
+	 */
+	public synchronized int startHttpServer(int port) throws IOException {
+		if (httpServer != null) {
+			throw new IllegalStateException("HTTP server already started");
+		}
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),port),0);
+		httpServer.createContext("/metrics",new HttpHandler() {
+			@Override
+			public void handle(HttpExchange httpExchange) throws IOException {
+				boolean json = httpExchange.getRequestURI().getPath().equals("/metrics.json");
+				String body = json ? metricsRegistry.toJson() : metricsRegistry.toPrometheusText();
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				httpExchange.getResponseHeaders().set("Content-Type",json ? "application/json" : "text/plain; version=0.0.4; charset=utf-8");
+				httpExchange.sendResponseHeaders(200,bytes.length);
+				OutputStream outputStream = httpExchange.getResponseBody();
+				try {
+					outputStream.write(bytes);
+				} finally {
+					outputStream.close();
+				}
+			}
+		});
+		httpServer.start();
+		return httpServer.getAddress().getPort();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (scheduledExecutorService != null) {
+			scheduledExecutorService.shutdownNow();
+			scheduledExecutorService = null;
+		}
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+	}
+
+	private static void write(File file,String content) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		Files.write(tempFile.toPath(),content.getBytes(StandardCharsets.UTF_8));
+		Files.move(tempFile.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+	}
+}
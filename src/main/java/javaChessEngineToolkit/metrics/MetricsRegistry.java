@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds named histograms and counters, each with a set of labels, and renders them as Prometheus text or JSON.
+ * Looking a metric up builds its key, so hot paths should look it up once and keep it.
+ */
+public class MetricsRegistry {
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	private final ConcurrentMap<String,Histogram> histograms = new ConcurrentHashMap<String,Histogram>();
+	private final ConcurrentMap<String,Counter> counters = new ConcurrentHashMap<String,Counter>();
+
+	/**
+	 * @return The registry UciEngine and EngineMatch record into.
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets or creates a histogram.
+	 * @param name Metric name.
+	 * @param labels Label names and values, alternating.
+	 */
+	public Histogram histogram(String name,String... labels) {
+		String key = name + "{" + formatLabels(labels) + "}";
+		Histogram histogram = histograms.get(key);
+		if (histogram == null) {
+			histogram = new Histogram(name,labels);
+			Histogram existing = histograms.putIfAbsent(key,histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Gets or creates a counter.
+	 * @param name Metric name.
+	 * @param labels Label names and values, alternating.
+	 */
+	public Counter counter(String name,String... labels) {
+		String key = name + "{" + formatLabels(labels) + "}";
+		Counter counter = counters.get(key);
+		if (counter == null) {
+			counter = new Counter(name,labels);
+			Counter existing = counters.putIfAbsent(key,counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Renders every metric in the Prometheus text format: histograms as summaries with quantiles, sum, count and max,
+	 * counters as a total and a per-hour rate.
+	 */
+	public String toPrometheusText() {
+		StringBuilder stringBuilder = new StringBuilder();
+		String lastName = null;
+		for (Histogram histogram : getHistograms()) {
+			if (!histogram.getName().equals(lastName)) {
+				lastName = histogram.getName();
+				stringBuilder.append("# TYPE ").append(lastName).append(" summary\n");
+			}
+			Histogram.Snapshot snapshot = histogram.snapshot();
+			String labels = formatLabels(histogram.getLabels());
+			for (double quantile : QUANTILES) {
+				appendSample(stringBuilder,histogram.getName(),(labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + quantile + "\"",snapshot.getValueAtQuantile(quantile));
+			}
+			appendSample(stringBuilder,histogram.getName() + "_sum",labels,snapshot.getSum());
+			appendSample(stringBuilder,histogram.getName() + "_count",labels,snapshot.getCount());
+			appendSample(stringBuilder,histogram.getName() + "_max",labels,snapshot.getMax());
+		}
+		List<Counter> counters = getCounters();
+		lastName = null;
+		for (Counter counter : counters) {
+			if (!counter.getName().equals(lastName)) {
+				lastName = counter.getName();
+				stringBuilder.append("# TYPE ").append(lastName).append("_total counter\n");
+			}
+			appendSample(stringBuilder,counter.getName() + "_total",formatLabels(counter.getLabels()),counter.getCount());
+		}
+		// The rates are separate gauge families, which have to follow the counters rather than interleave with them.
+		lastName = null;
+		for (Counter counter : counters) {
+			if (!counter.getName().equals(lastName)) {
+				lastName = counter.getName();
+				stringBuilder.append("# TYPE ").append(lastName).append("_per_hour gauge\n");
+			}
+			appendSample(stringBuilder,counter.getName() + "_per_hour",formatLabels(counter.getLabels()),String.format(Locale.ROOT,"%.3f",counter.getRatePerHour()));
+		}
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Renders every metric as a JSON object with "histograms" and "counters" arrays.
+	 */
+	public String toJson() {
+		StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"histograms\":[");
+		boolean first = true;
+		for (Histogram histogram : getHistograms()) {
+			Histogram.Snapshot snapshot = histogram.snapshot();
+			stringBuilder.append(first ? "\n" : ",\n");
+			first = false;
+			stringBuilder.append("{\"name\":\"").append(histogram.getName()).append("\",\"labels\":").append(labelsToJson(histogram.getLabels()));
+			stringBuilder.append(",\"count\":").append(snapshot.getCount());
+			stringBuilder.append(",\"sum\":").append(snapshot.getSum());
+			stringBuilder.append(",\"min\":").append(snapshot.getMin());
+			stringBuilder.append(",\"max\":").append(snapshot.getMax());
+			stringBuilder.append(",\"mean\":").append(String.format(Locale.ROOT,"%.3f",snapshot.getMean()));
+			for (double quantile : QUANTILES) {
+				stringBuilder.append(",\"p").append(Math.round(quantile * 100)).append("\":").append(snapshot.getValueAtQuantile(quantile));
+			}
+			stringBuilder.append("}");
+		}
+		stringBuilder.append("\n],\"counters\":[");
+		first = true;
+		for (Counter counter : getCounters()) {
+			stringBuilder.append(first ? "\n" : ",\n");
+			first = false;
+			stringBuilder.append("{\"name\":\"").append(counter.getName()).append("\",\"labels\":").append(labelsToJson(counter.getLabels()));
+			stringBuilder.append(",\"count\":").append(counter.getCount());
+			stringBuilder.append(",\"perHour\":").append(String.format(Locale.ROOT,"%.3f",counter.getRatePerHour()));
+			stringBuilder.append("}");
+		}
+		stringBuilder.append("\n]}\n");
+		return stringBuilder.toString();
+	}
+
+	private List<Histogram> getHistograms() {
+		List<Histogram> list = new ArrayList<Histogram>(histograms.values());
+		Collections.sort(list,new Comparator<Histogram>() {
+			@Override
+			public int compare(Histogram histogram1,Histogram histogram2) {
+				int compare = histogram1.getName().compareTo(histogram2.getName());
+				return compare != 0 ? compare : formatLabels(histogram1.getLabels()).compareTo(formatLabels(histogram2.getLabels()));
+			}
+		});
+		return list;
+	}
+
+	private List<Counter> getCounters() {
+		List<Counter> list = new ArrayList<Counter>(counters.values());
+		Collections.sort(list,new Comparator<Counter>() {
+			@Override
+			public int compare(Counter counter1,Counter counter2) {
+				int compare = counter1.getName().compareTo(counter2.getName());
+				return compare != 0 ? compare : formatLabels(counter1.getLabels()).compareTo(formatLabels(counter2.getLabels()));
+			}
+		});
+		return list;
+	}
+
+	private static void appendSample(StringBuilder stringBuilder,String name,String labels,Object value) {
+		stringBuilder.append(name);
+		if (!labels.isEmpty()) {
+			stringBuilder.append('{').append(labels).append('}');
+		}
+		stringBuilder.append(' ').append(value).append('\n');
+	}
+
+	private static String formatLabels(String[] labels) {
+		StringBuilder stringBuilder = new StringBuilder();
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (stringBuilder.length() > 0) {
+				stringBuilder.append(',');
+			}
+			stringBuilder.append(labels[i]).append('=');
+			appendQuoted(stringBuilder,labels[i + 1]);
+		}
+		return stringBuilder.toString();
+	}
+
+	private static String labelsToJson(String[] labels) {
+		StringBuilder stringBuilder = new StringBuilder("{");
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (i > 0) {
+				stringBuilder.append(',');
+			}
+			appendQuoted(stringBuilder,labels[i]);
+			stringBuilder.append(':');
+			appendQuoted(stringBuilder,labels[i + 1]);
+		}
+		return stringBuilder.append('}').toString();
+	}
+
+	/**
+	 * Appends a value in double quotes, escaped the way both Prometheus label values and JSON strings accept.
+	 */
+	private static void appendQuoted(StringBuilder stringBuilder,String value) {
+		stringBuilder.append('"');
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\\' || c == '"') {
+					stringBuilder.append('\\').append(c);
+				} else if (c == '\n') {
+					stringBuilder.append("\\n");
+				} else if (c < 0x20) {
+					stringBuilder.append(' ');
+				} else {
+					stringBuilder.append(c);
+				}
+			}
+		}
+		stringBuilder.append('"');
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.selfplay;
+
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.EngineMatchOptions;
+import javaChessEngineToolkit.GameContext;
+import javaChessEngineToolkit.Move;
+import javaChessEngineToolkit.engines.RandomMoveGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Measures games per second, peak heap and peak platform threads of ConcurrentMatchRunner's platform thread pool and
+ * virtual threads, so that the modes can be compared on a given host. Needs Java 21 for the virtual thread run.
+ * The engines play random moves, after waiting thinkMs for each, to stand in for engines that think elsewhere.
+ * Usage: ConcurrentMatchBenchmark [games] [think ms] [max concurrent games] [platform threads]
+ */
+public class ConcurrentMatchBenchmark {
+	public static void main(String[] args) throws ExecutionException, InterruptedException {
+		final int games = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final long thinkMs = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		final int maxConcurrentGames = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		final int threads = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+		Supplier<Engine> engineSupplier = new Supplier<Engine>() {
+			@Override
+			public Engine get() {
+				return new ThinkingEngine(new RandomMoveGenerator(),thinkMs);
+			}
+		};
+		for (ConcurrentMatchRunner.ExecutionMode executionMode : ConcurrentMatchRunner.ExecutionMode.values()) {
+			ConcurrentMatchRunner concurrentMatchRunner = new ConcurrentMatchRunner(engineSupplier,engineSupplier,new EngineMatchOptions());
+			concurrentMatchRunner.setExecutionMode(executionMode);
+			concurrentMatchRunner.setThreads(threads);
+			concurrentMatchRunner.setMaxConcurrentGames(maxConcurrentGames);
+			run(concurrentMatchRunner,games);
+		}
+	}
+
+	private static void run(ConcurrentMatchRunner concurrentMatchRunner,int games) throws ExecutionException, InterruptedException {
+		final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		System.gc();
+		final long heapBefore = memoryMXBean.getHeapMemoryUsage().getUsed();
+		threadMXBean.resetPeakThreadCount();
+		final long[] peakHeap = new long[1];
+		Thread sampler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!Thread.currentThread().isInterrupted()) {
+					peakHeap[0] = Math.max(peakHeap[0],memoryMXBean.getHeapMemoryUsage().getUsed());
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		},"heap sampler");
+		sampler.setDaemon(true);
+		sampler.start();
+
+		long started = System.nanoTime();
+		long played = concurrentMatchRunner.run(games,null);
+		long elapsedNs = System.nanoTime() - started;
+		sampler.interrupt();
+		sampler.join();
+
+		System.out.println(concurrentMatchRunner.getExecutionMode() + ":");
+		System.out.println(String.format("  Games: %d in %.2f s, %.0f per second",played,elapsedNs / 1e9,played / (elapsedNs / 1e9)));
+		System.out.println(String.format("  Peak heap: %d MB above the %d MB before",
+				Math.max(0,peakHeap[0] - heapBefore) / (1024 * 1024),heapBefore / (1024 * 1024)));
+		System.out.println(String.format("  Peak platform threads: %d",threadMXBean.getPeakThreadCount()));
+	}
+
+	/**
+	 * Waits before each move, as an engine searching in another process or on another thread would.
+	 */
+	private static class ThinkingEngine extends Engine {
+		private final Engine engine;
+		private final long thinkMs;
+
+		ThinkingEngine(Engine engine,long thinkMs) {
+			this.engine = engine;
+			this.thinkMs = thinkMs;
+		}
+
+		@Override
+		public String getName() {
+			return engine.getName();
+		}
+
+		@Override
+		public int getEstimatedElo() {
+			return engine.getEstimatedElo();
+		}
+
+		@Override
+		public Future<Move[]> requestMove(GameContext gameContext) {
+			if (thinkMs > 0) {
+				try {
+					Thread.sleep(thinkMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return engine.requestMove(gameContext);
+		}
+
+		@Override
+		public void startNewGame(GameContext gameContext) {
+			engine.startNewGame(gameContext);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.selfplay;
+
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.EngineMatch;
+import javaChessEngineToolkit.EngineMatchOptions;
+import javaChessEngineToolkit.EngineMatchResult;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Plays many EngineMatch games at once, each with engines of its own, either on a fixed pool of platform threads or
+ * with a virtual thread per game.
+ * <p>
+ * With virtual threads, the number of games in progress is bounded by maxConcurrentGames rather than by a thread count.
+ * Games that wait, for engines that think elsewhere or for a UciEngine's output (see UciEngine.setOutputReaderThread),
+ * then park instead of holding a platform thread. Whether that is faster for a given set of engines is for
+ * ConcurrentMatchBenchmark to measure. Virtual threads need Java 21; on older runtimes VIRTUAL_THREADS falls back to
+ * the platform pool.
+ */
+public class ConcurrentMatchRunner {
+	public enum ExecutionMode {
+		PLATFORM_THREADS,
+		VIRTUAL_THREADS
+	}
+
+	private final Supplier<? extends Engine> whiteEngineSupplier;
+	private final Supplier<? extends Engine> blackEngineSupplier;
+	private final EngineMatchOptions engineMatchOptions;
+	private ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int maxConcurrentGames = 10000;
+
+	/**
+	 * @param whiteEngineSupplier Supplies a new white engine for every game. A UciEngine is stopped after its game.
+	 * @param blackEngineSupplier Supplies a new black engine for every game. A UciEngine is stopped after its game.
+	 * @param engineMatchOptions Options of every game. Copied for each, so its listeners see every game.
+	 */
+	public ConcurrentMatchRunner(Supplier<? extends Engine> whiteEngineSupplier,Supplier<? extends Engine> blackEngineSupplier,
+								 EngineMatchOptions engineMatchOptions) {
+		this.whiteEngineSupplier = whiteEngineSupplier;
+		this.blackEngineSupplier = blackEngineSupplier;
+		this.engineMatchOptions = engineMatchOptions;
+	}
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	public void setExecutionMode(ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the size of the pool in PLATFORM_THREADS mode, which is also the number of games played at once. Defaults to the number of cores.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getMaxConcurrentGames() {
+		return maxConcurrentGames;
+	}
+
+	/**
+	 * Sets how many games may be in progress at once in VIRTUAL_THREADS mode. Defaults to 10000.
+	 * @param maxConcurrentGames
+	 */
+	public void setMaxConcurrentGames(int maxConcurrentGames) {
+		this.maxConcurrentGames = maxConcurrentGames;
+	}
+
+	/**
+	 * Plays games. This is a blocking call.
+	 * @param numGames Number of games.
+	 * @param resultConsumer Called with the result of every game, on the game's thread, or null.
+	 * @return Number of games played.
+	 * @throws ExecutionException If a game failed.
+	 * @throws InterruptedException
+	 */
+	public long run(int numGames,final Consumer<EngineMatchResult> resultConsumer) throws ExecutionException, InterruptedException {
+		ExecutorService executorService = null;
+		if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+			executorService = newVirtualThreadPerTaskExecutor();
+			if (executorService == null) {
+				System.err.println("Virtual threads need Java 21 or later; using " + threads + " platform threads.");
+			}
+		}
+		// Without virtual threads, the pool bounds the games in progress.
+		final Semaphore semaphore = executorService != null ? new Semaphore(Math.max(1,maxConcurrentGames)) : null;
+		if (executorService == null) {
+			executorService = Executors.newFixedThreadPool(Math.max(1,threads));
+		}
+
+		final AtomicLong played = new AtomicLong();
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(numGames);
+			for (int i = 0; i < numGames; i++) {
+				if (semaphore != null) {
+					semaphore.acquire();
+				}
+				futures.add(executorService.submit(new Runnable() {
+					@Override
+					public void run() {
+						Engine whiteEngine = null;
+						Engine blackEngine = null;
+						try {
+							whiteEngine = whiteEngineSupplier.get();
+							blackEngine = blackEngineSupplier.get();
+							EngineMatch engineMatch = new EngineMatch(whiteEngine,blackEngine,new EngineMatchOptions(engineMatchOptions));
+							EngineMatchResult engineMatchResult = engineMatch.play();
+							played.incrementAndGet();
+							if (resultConsumer != null) {
+								resultConsumer.accept(engineMatchResult);
+							}
+						} catch (Exception e) {
+							throw new RuntimeException("Game failed",e);
+						} finally {
+							stop(whiteEngine);
+							stop(blackEngine);
+							if (semaphore != null) {
+								semaphore.release();
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+		return played.get();
+	}
+
+	private static void stop(Engine engine) {
+		if (engine instanceof UciEngine) {
+			((UciEngine) engine).stop();
+		}
+	}
+
+	/**
+	 * @return Executors.newVirtualThreadPerTaskExecutor(), or null before Java 21. Looked up reflectively, so that this
+	 * compiles and runs on older runtimes.
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
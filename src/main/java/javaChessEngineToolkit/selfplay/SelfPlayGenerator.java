@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.selfplay;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.GameResult;
+import javaChessEngineToolkit.MoveList;
+import javaChessEngineToolkit.ScoringAlgorithm;
+import javaChessEngineToolkit.Seedable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays games between in-process engines without a Game, a clock or any PGN, streaming every position to a SelfPlaySink.
+ * Each worker thread gets its own engine instances from the suppliers and plays one game at a time.
+ */
+public class SelfPlayGenerator {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final Supplier<? extends ScoringAlgorithm> whiteEngineSupplier;
+	private final Supplier<? extends ScoringAlgorithm> blackEngineSupplier;
+	private final SelfPlayOptions selfPlayOptions;
+	private final SelfPlaySink sink;
+
+	private final AtomicLong nextGame = new AtomicLong();
+	private final AtomicLong positionCount = new AtomicLong();
+
+	public SelfPlayGenerator(Supplier<? extends ScoringAlgorithm> engineSupplier,SelfPlayOptions selfPlayOptions,SelfPlaySink sink) {
+		this(engineSupplier,engineSupplier,selfPlayOptions,sink);
+	}
+
+	public SelfPlayGenerator(Supplier<? extends ScoringAlgorithm> whiteEngineSupplier,Supplier<? extends ScoringAlgorithm> blackEngineSupplier,
+							 SelfPlayOptions selfPlayOptions,SelfPlaySink sink) {
+		this.whiteEngineSupplier = whiteEngineSupplier;
+		this.blackEngineSupplier = blackEngineSupplier;
+		this.selfPlayOptions = selfPlayOptions;
+		this.sink = sink;
+	}
+
+	/**
+	 * Plays all games. This is a blocking call.
+	 * @return Number of positions sent to the sink.
+	 * @throws ExecutionException If a worker failed.
+	 * @throws InterruptedException
+	 */
+	public long run() throws ExecutionException, InterruptedException {
+		nextGame.set(0);
+		positionCount.set(0);
+
+		final int threads = Math.max(1,selfPlayOptions.getThreads());
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executorService.submit(new Runnable() {
+					@Override
+					public void run() {
+						runWorker();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+		return positionCount.get();
+	}
+
+	private void runWorker() {
+		final ScoringAlgorithm whiteEngine = whiteEngineSupplier.get();
+		final ScoringAlgorithm blackEngine = blackEngineSupplier.get();
+		final MoveList moveList = new MoveList();
+
+		long gameIndex;
+		while ((gameIndex = nextGame.getAndIncrement()) < selfPlayOptions.getNumGames()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			try {
+				playGame(gameIndex,whiteEngine,blackEngine,moveList);
+			} catch (Exception e) {
+				throw new RuntimeException("Self-play game " + gameIndex + " failed", e);
+			}
+		}
+	}
+
+	private void playGame(long gameIndex,ScoringAlgorithm whiteEngine,ScoringAlgorithm blackEngine,MoveList moveList)
+			throws IllegalMoveException, ExecutionException, InterruptedException {
+		// Derive the game's stream from its index rather than from the worker, so results don't depend on scheduling.
+		final SplittableRandom random = new SplittableRandom(mix64(selfPlayOptions.getSeed() + gameIndex * GOLDEN_GAMMA));
+		if (whiteEngine instanceof Seedable) {
+			((Seedable) whiteEngine).setRandom(random.split());
+		}
+		if (blackEngine instanceof Seedable) {
+			((Seedable) blackEngine).setRandom(random.split());
+		}
+
+		sink.onGameStart(gameIndex);
+
+		final Position position = Position.createInitialPosition();
+		GameResult gameResult = null;
+		String gameReason = null;
+		int plies = 0;
+
+		while (true) {
+			if (position.isMate()) {
+				gameResult = position.getToPlay() == Chess.WHITE ? GameResult.BLACK_WIN : GameResult.WHITE_WIN;
+				gameReason = position.getToPlay() == Chess.WHITE ? "White checkmated." : "Black checkmated.";
+				break;
+			}
+			if (position.isStaleMate()) {
+				gameResult = GameResult.DRAW;
+				gameReason = "Game drawn due to stalemate.";
+				break;
+			}
+			if (ChesspressoUtils.isDraw(position)) {
+				gameResult = GameResult.DRAW;
+				gameReason = "Game drawn.";
+				break;
+			}
+			if (plies >= selfPlayOptions.getMaxPlies()) {
+				gameResult = GameResult.DRAW;
+				gameReason = "Game adjudicated drawn after " + plies + " plies.";
+				break;
+			}
+
+			short move;
+			if (plies < selfPlayOptions.getRandomOpeningPlies()) {
+				short[] moves = position.getAllMoves();
+				move = moves[random.nextInt(moves.length)];
+			} else {
+				ScoringAlgorithm engine = position.getToPlay() == Chess.WHITE ? whiteEngine : blackEngine;
+				engine.score(position,moveList);
+				if (moveList.isEmpty()) {
+					break;
+				}
+				move = moveList.getMove(0);
+				sink.onPosition(gameIndex,position,move,moveList.getScore(0));
+				positionCount.incrementAndGet();
+			}
+
+			position.doMove(move);
+			plies++;
+		}
+
+		sink.onGameEnd(gameIndex,gameResult,gameReason,plies);
+	}
+
+	// Stafford variant 13 of the MurmurHash3 finalizer, as used by SplittableRandom itself.
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.selfplay;
+
+public class SelfPlayOptions {
+	private long numGames = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = System.nanoTime();
+	private int randomOpeningPlies = 0;
+	private int maxPlies = 400;
+
+	public long getNumGames() {
+		return numGames;
+	}
+
+	public void setNumGames(long numGames) {
+		this.numGames = numGames;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Number of game loops to run concurrently. Defaults to the number of available processors.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Seed for the run. Each game derives its own random stream from the seed and its index,
+	 * so a run can be reproduced regardless of the number of threads.
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getRandomOpeningPlies() {
+		return randomOpeningPlies;
+	}
+
+	/**
+	 * Number of uniformly random half-moves to play at the start of each game. These positions are not sent to the sink.
+	 * @param randomOpeningPlies
+	 */
+	public void setRandomOpeningPlies(int randomOpeningPlies) {
+		this.randomOpeningPlies = randomOpeningPlies;
+	}
+
+	public int getMaxPlies() {
+		return maxPlies;
+	}
+
+	/**
+	 * Games still running after this many half-moves are adjudicated as a draw.
+	 * @param maxPlies
+	 */
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = maxPlies;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.selfplay;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+
+/**
+ * Receives the output of a SelfPlayGenerator. Methods are called from the worker threads, one game per thread at a time,
+ * so implementations must be thread-safe but will see the events of a single game in order.
+ */
+public interface SelfPlaySink {
+	void onGameStart(long gameIndex);
+
+	/**
+	 * Called for every position after the random opening, before the chosen move is played.
+	 * The position is reused by the worker, so anything needed later must be copied before returning.
+	 * @param gameIndex Index of the game.
+	 * @param position Position to move in.
+	 * @param move The move chosen by the engine.
+	 * @param score Score of the move, from the point of view of the side to move (see MoveList).
+	 */
+	void onPosition(long gameIndex, Position position, short move, int score);
+
+	/**
+	 * @param gameIndex Index of the game.
+	 * @param gameResult Result of the game.
+	 * @param reason Reason the game ended.
+	 * @param plies Number of half-moves played, including the random opening.
+	 */
+	void onGameEnd(long gameIndex, GameResult gameResult, String reason, int plies);
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+
+/**
+ * The outcome of a played Pairing, as kept in the tournament journal.
+ */
+public class CompletedGame {
+	private final Pairing pairing;
+	private final GameResult gameResult;
+	private final String reason;
+	private final int plies;
+	private final long durationMs;
+	private final String pgn;
+
+	/**
+	 * @param gameResult Result, or null if the game was aborted.
+	 * @param durationMs Wall clock time the game took.
+	 * @param pgn The game in PGN, or null.
+	 */
+	public CompletedGame(Pairing pairing,GameResult gameResult,String reason,int plies,long durationMs,String pgn) {
+		this.pairing = pairing;
+		this.gameResult = gameResult;
+		this.reason = reason;
+		this.plies = plies;
+		this.durationMs = durationMs;
+		this.pgn = pgn;
+	}
+
+	public Pairing getPairing() {
+		return pairing;
+	}
+
+	public GameResult getGameResult() {
+		return gameResult;
+	}
+
+	public boolean isAborted() {
+		return gameResult == null;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public int getPlies() {
+		return plies;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public String getPgn() {
+		return pgn;
+	}
+
+	/**
+	 * @return Points of a player in this game: 1, 0.5 or 0. An aborted game, or a player not in it, gets 0.
+	 */
+	public double getPoints(String player) {
+		if (gameResult == null) {
+			return 0;
+		}
+		if (gameResult == GameResult.DRAW) {
+			return player.equals(pairing.getWhite()) || player.equals(pairing.getBlack()) ? 0.5 : 0;
+		}
+		String winner = gameResult == GameResult.WHITE_WIN ? pairing.getWhite() : pairing.getBlack();
+		return player.equals(winner) ? 1 : 0;
+	}
+
+	/**
+	 * @return PGN result string, "*" if aborted.
+	 */
+	public String getResultString() {
+		if (gameResult == GameResult.WHITE_WIN) {
+			return "1-0";
+		} else if (gameResult == GameResult.DRAW) {
+			return "1/2-1/2";
+		} else if (gameResult == GameResult.BLACK_WIN) {
+			return "0-1";
+		}
+		return "*";
+	}
+
+	static GameResult parseResultString(String result) {
+		if (result.equals("1-0")) {
+			return GameResult.WHITE_WIN;
+		} else if (result.equals("1/2-1/2")) {
+			return GameResult.DRAW;
+		} else if (result.equals("0-1")) {
+			return GameResult.BLACK_WIN;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates how long a pairing's game will take from the games played so far: the mean duration of the pair's earlier
+ * games, else the mean of both players' games, else the mean of all games. Players without games yet can be given
+ * a prior, e.g. longer for stronger engines, so that the first games are ordered sensibly too.
+ */
+public class DurationEstimator {
+	private final Map<String,long[]> playerDurations = new HashMap<String,long[]>();
+	private final Map<String,long[]> pairDurations = new HashMap<String,long[]>();
+	private final Map<String,Double> priorDurations = new HashMap<String,Double>();
+	private long totalMs;
+	private long games;
+
+	/**
+	 * Sets the duration assumed for a player's games until one of them has been timed.
+	 * @param player
+	 * @param durationMs
+	 */
+	public synchronized void setPriorMs(String player,double durationMs) {
+		priorDurations.put(player,durationMs);
+	}
+
+	public synchronized void add(CompletedGame completedGame) {
+		long durationMs = completedGame.getDurationMs();
+		if (durationMs <= 0) {
+			return;
+		}
+		Pairing pairing = completedGame.getPairing();
+		add(playerDurations,pairing.getWhite(),durationMs);
+		add(playerDurations,pairing.getBlack(),durationMs);
+		add(pairDurations,getPairKey(pairing),durationMs);
+		totalMs += durationMs;
+		games++;
+	}
+
+	/**
+	 * @return Estimated duration in milliseconds, 0 before any game has been timed.
+	 */
+	public synchronized double estimateMs(Pairing pairing) {
+		double pair = mean(pairDurations.get(getPairKey(pairing)));
+		if (pair >= 0) {
+			return pair;
+		}
+		double overall = games > 0 ? (double) totalMs / games : 0;
+		return (estimateMs(pairing.getWhite(),overall) + estimateMs(pairing.getBlack(),overall)) / 2;
+	}
+
+	private double estimateMs(String player,double overall) {
+		double mean = mean(playerDurations.get(player));
+		if (mean >= 0) {
+			return mean;
+		}
+		Double prior = priorDurations.get(player);
+		return prior != null ? prior : overall;
+	}
+
+	private static String getPairKey(Pairing pairing) {
+		// Either color order is the same pair.
+		return pairing.getWhite().compareTo(pairing.getBlack()) < 0 ? pairing.getWhite() + "\t" + pairing.getBlack() : pairing.getBlack() + "\t" + pairing.getWhite();
+	}
+
+	private static void add(Map<String,long[]> durations,String key,long durationMs) {
+		long[] sumAndCount = durations.get(key);
+		if (sumAndCount == null) {
+			sumAndCount = new long[2];
+			durations.put(key,sumAndCount);
+		}
+		sumAndCount[0] += durationMs;
+		sumAndCount[1]++;
+	}
+
+	private static double mean(long[] sumAndCount) {
+		return sumAndCount != null ? (double) sumAndCount[0] / sumAndCount[1] : -1;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import chesspresso.game.Game;
+import chesspresso.pgn.PGN;
+import javaChessEngineToolkit.ChesspressoUtils;
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.EngineMatch;
+import javaChessEngineToolkit.EngineMatchOptions;
+import javaChessEngineToolkit.EngineMatchResult;
+import javaChessEngineToolkit.engines.EngineAllocation;
+import javaChessEngineToolkit.engines.ResourceManager;
+import javaChessEngineToolkit.engines.UciEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Plays pairings one after another on one thread, with engines of its own that it keeps between games.
+ * Used by the threads of a Tournament and of a TournamentWorker.
+ */
+class GamePlayer implements Closeable {
+	private final Map<String,Supplier<? extends Engine>> players;
+	private final TournamentOptions tournamentOptions;
+	private final Map<String,Engine> engines = new HashMap<String,Engine>();
+
+	GamePlayer(Map<String,Supplier<? extends Engine>> players,TournamentOptions tournamentOptions) {
+		this.players = players;
+		this.tournamentOptions = tournamentOptions;
+	}
+
+	CompletedGame play(Pairing pairing) throws Exception {
+		EngineMatchOptions engineMatchOptions = new EngineMatchOptions(tournamentOptions.getEngineMatchOptions());
+		if (pairing.getOpeningIndex() >= 0) {
+			engineMatchOptions.setOpeningIndex(pairing.getOpeningIndex());
+		} else {
+			engineMatchOptions.setOpeningSuite(null);
+		}
+
+		ResourceManager resourceManager = tournamentOptions.getResourceManager();
+		EngineAllocation engineAllocation = null;
+		if (resourceManager != null) {
+			stopOtherEngines(pairing);
+			engineAllocation = resourceManager.acquire(2);
+		}
+		long started = System.currentTimeMillis();
+		EngineMatchResult engineMatchResult;
+		try {
+			Engine whiteEngine = getEngine(pairing.getWhite());
+			Engine blackEngine = getEngine(pairing.getBlack());
+			if (engineAllocation != null) {
+				engineAllocation.apply(0,whiteEngine);
+				engineAllocation.apply(1,blackEngine);
+			}
+			EngineMatch engineMatch = new EngineMatch(whiteEngine,blackEngine,engineMatchOptions);
+			engineMatchResult = engineMatch.play();
+		} finally {
+			if (engineAllocation != null) {
+				engineAllocation.close();
+			}
+		}
+
+		Game game = engineMatchResult.getGame();
+		game.setTag(PGN.TAG_EVENT,tournamentOptions.getEvent());
+		game.setTag(PGN.TAG_ROUND,String.valueOf(pairing.getRound()));
+		ByteArrayOutputStream pgn = new ByteArrayOutputStream();
+		ChesspressoUtils.writePgn(game,pgn);
+		return new CompletedGame(pairing,engineMatchResult.getGameResult(),engineMatchResult.getReason(),game.getNumOfPlies(),
+				System.currentTimeMillis() - started,new String(pgn.toByteArray(),StandardCharsets.UTF_8));
+	}
+
+	private void stopOtherEngines(Pairing pairing) {
+		Iterator<Map.Entry<String,Engine>> iterator = engines.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String,Engine> entry = iterator.next();
+			if (!entry.getKey().equals(pairing.getWhite()) && !entry.getKey().equals(pairing.getBlack())) {
+				stop(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+
+	private Engine getEngine(String player) {
+		Engine engine = engines.get(player);
+		if (engine == null) {
+			Supplier<? extends Engine> supplier = players.get(player);
+			if (supplier == null) {
+				throw new IllegalArgumentException("Unknown player " + player);
+			}
+			engine = supplier.get();
+			engines.put(player,engine);
+		}
+		return engine;
+	}
+
+	/**
+	 * Stops the engines.
+	 */
+	@Override
+	public void close() {
+		for (Engine engine : engines.values()) {
+			stop(engine);
+		}
+		engines.clear();
+	}
+
+	private static void stop(Engine engine) {
+		if (engine instanceof UciEngine) {
+			((UciEngine) engine).stop();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One player plays every opponent, alternating colors; the opponents do not play each other.
+ */
+public class GauntletScheduler implements TournamentScheduler {
+	private final String challenger;
+	private final List<String> opponents;
+	private final int gamesPerOpponent;
+	private final int numOpenings;
+
+	/**
+	 * @param challenger
+	 * @param opponents
+	 * @param gamesPerOpponent Games against each opponent. An even number gives both colors equally often.
+	 * @param numOpenings Size of the opening suite, or 0 to start from the initial position.
+	 *                    Every opening is played twice against each opponent, once with each color.
+	 */
+	public GauntletScheduler(String challenger,List<String> opponents,int gamesPerOpponent,int numOpenings) {
+		this.challenger = challenger;
+		this.opponents = new ArrayList<String>(opponents);
+		this.gamesPerOpponent = gamesPerOpponent;
+		this.numOpenings = numOpenings;
+	}
+
+	@Override
+	public List<Pairing> nextPairings(TournamentState tournamentState,int firstGameNumber) {
+		List<Pairing> pairings = new ArrayList<Pairing>();
+		if (!tournamentState.getSchedule().isEmpty()) {
+			return pairings;
+		}
+		int gameNumber = firstGameNumber;
+		for (int game = 0; game < gamesPerOpponent; game++) {
+			int openingIndex = numOpenings > 0 ? (game / 2) % numOpenings : -1;
+			for (String opponent : opponents) {
+				boolean challengerWhite = game % 2 == 0;
+				pairings.add(new Pairing(gameNumber++,game + 1,challengerWhite ? challenger : opponent,challengerWhite ? opponent : challenger,openingIndex));
+			}
+		}
+		return Collections.unmodifiableList(pairings);
+	}
+}
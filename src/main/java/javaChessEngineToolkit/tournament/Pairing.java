@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+/**
+ * One scheduled game of a tournament.
+ */
+public class Pairing {
+	private final int gameNumber;
+	private final int round;
+	private final String white;
+	private final String black;
+	private final int openingIndex;
+
+	/**
+	 * @param gameNumber Number of the game, unique within the tournament.
+	 * @param round Round of the game, from 1.
+	 * @param white Name of the player with the white pieces.
+	 * @param black Name of the player with the black pieces.
+	 * @param openingIndex Index of the opening in the match options' opening suite, or -1 to start from the initial position.
+	 */
+	public Pairing(int gameNumber,int round,String white,String black,int openingIndex) {
+		this.gameNumber = gameNumber;
+		this.round = round;
+		this.white = white;
+		this.black = black;
+		this.openingIndex = openingIndex;
+	}
+
+	public int getGameNumber() {
+		return gameNumber;
+	}
+
+	public int getRound() {
+		return round;
+	}
+
+	public String getWhite() {
+		return white;
+	}
+
+	public String getBlack() {
+		return black;
+	}
+
+	public int getOpeningIndex() {
+		return openingIndex;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("#%d %s - %s",gameNumber,white,black);
+	}
+}
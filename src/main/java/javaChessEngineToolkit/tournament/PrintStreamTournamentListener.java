@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the progress of a Tournament, one line per event.
+ */
+public class PrintStreamTournamentListener implements TournamentListener {
+	private final PrintStream printStream;
+
+	public PrintStreamTournamentListener(PrintStream printStream) {
+		this.printStream = printStream;
+	}
+
+	@Override
+	public void onCoordinatorStarted(int port) {
+		printStream.println("Coordinating workers on port " + port);
+	}
+
+	@Override
+	public void onWorkerConnected(String name) {
+		printStream.println("Worker connected: " + name);
+	}
+
+	@Override
+	public void onTournamentResumed(int played,int scheduled) {
+		printStream.println(String.format("Resuming tournament: %d of %d games played.",played,scheduled));
+	}
+
+	@Override
+	public void onGameRecorded(CompletedGame completedGame) {
+		printStream.println(String.format("%s: %s %s",completedGame.getPairing(),completedGame.getResultString(),completedGame.getReason()));
+	}
+
+	@Override
+	public void onGameAborted(CompletedGame completedGame) {
+		printStream.println(String.format("Game %s aborted: %s",completedGame.getPairing(),completedGame.getReason()));
+	}
+
+	@Override
+	public void onGamePlayed(CompletedGame completedGame) {
+		onGameRecorded(completedGame);
+	}
+
+	@Override
+	public void onSprtDecided(Sprt sprt,Standings.Record record) {
+		printStream.println("SPRT decided: " + sprt.toString(record));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every player meets every other player once per cycle, in rounds made with the circle method.
+ * Colors go to whoever has had white less often; every second cycle repeats the one before it with colors reversed,
+ * so that over an even number of cycles every pair plays each color equally often.
+ */
+public class RoundRobinScheduler implements TournamentScheduler {
+	private final List<String> players;
+	private final int cycles;
+	private final int numOpenings;
+
+	/**
+	 * @param players
+	 * @param cycles Number of times every pair meets.
+	 * @param numOpenings Size of the opening suite, or 0 to start from the initial position.
+	 *                    Both games of a cycle pair use the same opening, which changes every two cycles.
+	 */
+	public RoundRobinScheduler(List<String> players,int cycles,int numOpenings) {
+		this.players = new ArrayList<String>(players);
+		this.cycles = cycles;
+		this.numOpenings = numOpenings;
+	}
+
+	@Override
+	public List<Pairing> nextPairings(TournamentState tournamentState,int firstGameNumber) {
+		List<Pairing> pairings = new ArrayList<Pairing>();
+		if (!tournamentState.getSchedule().isEmpty()) {
+			return pairings;
+		}
+
+		List<String> circle = new ArrayList<String>(players);
+		if (circle.size() % 2 == 1) {
+			// The player paired with null sits the round out.
+			circle.add(null);
+		}
+		int n = circle.size();
+		int roundsPerCycle = n - 1;
+		Map<String,Integer> whites = new HashMap<String,Integer>();
+		List<String[]> cycle = new ArrayList<String[]>();
+		List<Integer> cycleRounds = new ArrayList<Integer>();
+		for (int round = 0; round < roundsPerCycle; round++) {
+			for (int i = 0; i < n / 2; i++) {
+				String player1 = circle.get(i);
+				String player2 = circle.get(n - 1 - i);
+				if (player1 == null || player2 == null) {
+					continue;
+				}
+				int whites1 = count(whites,player1);
+				int whites2 = count(whites,player2);
+				boolean player1White = whites1 != whites2 ? whites1 < whites2 : (round + i) % 2 == 0;
+				String white = player1White ? player1 : player2;
+				whites.put(white,count(whites,white) + 1);
+				cycle.add(new String[] { white, player1White ? player2 : player1 });
+				cycleRounds.add(round);
+			}
+			// Keep the first player in place and rotate the others.
+			circle.add(1,circle.remove(n - 1));
+		}
+
+		int gameNumber = firstGameNumber;
+		for (int c = 0; c < cycles; c++) {
+			boolean reversed = c % 2 == 1;
+			int openingIndex = numOpenings > 0 ? (c / 2) % numOpenings : -1;
+			for (int i = 0; i < cycle.size(); i++) {
+				String[] pair = cycle.get(i);
+				int round = c * roundsPerCycle + cycleRounds.get(i) + 1;
+				pairings.add(new Pairing(gameNumber++,round,pair[reversed ? 1 : 0],pair[reversed ? 0 : 1],openingIndex));
+			}
+		}
+		return Collections.unmodifiableList(pairings);
+	}
+
+	private static int count(Map<String,Integer> counts,String player) {
+		Integer count = counts.get(player);
+		return count != null ? count : 0;
+	}
+}
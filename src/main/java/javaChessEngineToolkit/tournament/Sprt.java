@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+/**
+ * Sequential probability ratio test of a player's Elo difference to its opponents, stopping a run as soon as the games
+ * played show, with the given error rates, that it is elo0 (H0) or elo1 (H1).
+ * Uses the normal approximation of the generalized SPRT on the game scores.
+ */
+public class Sprt {
+	public enum Status {
+		CONTINUE, ACCEPT_H0, ACCEPT_H1
+	}
+
+	private final double elo0;
+	private final double elo1;
+	private final double lowerBound;
+	private final double upperBound;
+
+	/**
+	 * @param elo0 Elo difference of H0.
+	 * @param elo1 Elo difference of H1, greater than elo0.
+	 * @param alpha Probability of accepting H1 when H0 is true.
+	 * @param beta Probability of accepting H0 when H1 is true.
+	 */
+	public Sprt(double elo0,double elo1,double alpha,double beta) {
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.lowerBound = Math.log(beta / (1 - alpha));
+		this.upperBound = Math.log((1 - beta) / alpha);
+	}
+
+	/**
+	 * Log-likelihood ratio of H1 over H0.
+	 * @param record Record of the tested player.
+	 * @return LLR, 0 while every game has had the same result.
+	 */
+	public double getLlr(Standings.Record record) {
+		double variance = record.getScoreVariance();
+		if (variance == 0) {
+			return 0;
+		}
+		double score0 = Standings.toScore(elo0);
+		double score1 = Standings.toScore(elo1);
+		return record.getGames() * (score1 - score0) * (2 * record.getScore() - score0 - score1) / (2 * variance);
+	}
+
+	public Status getStatus(Standings.Record record) {
+		double llr = getLlr(record);
+		if (llr >= upperBound) {
+			return Status.ACCEPT_H1;
+		} else if (llr <= lowerBound) {
+			return Status.ACCEPT_H0;
+		}
+		return Status.CONTINUE;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	public String toString(Standings.Record record) {
+		return String.format("LLR %.2f (%.2f, %.2f) [%.1f, %.1f] %s",getLlr(record),lowerBound,upperBound,elo0,elo1,getStatus(record));
+	}
+}
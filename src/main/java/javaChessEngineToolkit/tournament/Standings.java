@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Win/draw/loss records of the players of a tournament, overall and per opponent, with Elo estimates derived from them.
+ * Aborted games are not counted.
+ */
+public class Standings {
+	public static class Record {
+		private int wins;
+		private int draws;
+		private int losses;
+
+		public int getWins() {
+			return wins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public int getLosses() {
+			return losses;
+		}
+
+		public int getGames() {
+			return wins + draws + losses;
+		}
+
+		public double getPoints() {
+			return wins + draws * 0.5;
+		}
+
+		/**
+		 * @return Points per game, 0 with no games.
+		 */
+		public double getScore() {
+			return getGames() == 0 ? 0 : getPoints() / getGames();
+		}
+
+		/**
+		 * @return Variance of the score of a single game.
+		 */
+		public double getScoreVariance() {
+			int games = getGames();
+			if (games == 0) {
+				return 0;
+			}
+			double score = getScore();
+			return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / games;
+		}
+
+		/**
+		 * @return Elo difference to the opponents the score corresponds to.
+		 */
+		public double getElo() {
+			return toElo(getScore());
+		}
+
+		/**
+		 * @return Half the width of the 95% confidence interval of getElo.
+		 */
+		public double getEloError() {
+			int games = getGames();
+			if (games == 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			double deviation = Math.sqrt(getScoreVariance() / games);
+			return (toElo(getScore() + 1.96 * deviation) - toElo(getScore() - 1.96 * deviation)) / 2;
+		}
+
+		void add(double points) {
+			if (points == 1) {
+				wins++;
+			} else if (points == 0) {
+				losses++;
+			} else {
+				draws++;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("+%d =%d -%d",wins,draws,losses);
+		}
+	}
+
+	private final Map<String,Record> records = new HashMap<String,Record>();
+	private final Map<String,Map<String,Record>> headToHead = new HashMap<String,Map<String,Record>>();
+
+	/**
+	 * Counts a game.
+	 * @param completedGame
+	 */
+	public synchronized void add(CompletedGame completedGame) {
+		GameResult gameResult = completedGame.getGameResult();
+		if (gameResult == null) {
+			return;
+		}
+		String white = completedGame.getPairing().getWhite();
+		String black = completedGame.getPairing().getBlack();
+		double whitePoints = gameResult == GameResult.WHITE_WIN ? 1 : gameResult == GameResult.DRAW ? 0.5 : 0;
+		getRecord(records,white).add(whitePoints);
+		getRecord(records,black).add(1 - whitePoints);
+		getRecord(getOpponents(white),black).add(whitePoints);
+		getRecord(getOpponents(black),white).add(1 - whitePoints);
+	}
+
+	/**
+	 * @return Record of a player against everyone. Empty if the player has no games yet.
+	 */
+	public synchronized Record getRecord(String player) {
+		return copy(records.get(player));
+	}
+
+	/**
+	 * @return Record of a player against one opponent.
+	 */
+	public synchronized Record getRecord(String player,String opponent) {
+		Map<String,Record> opponents = headToHead.get(player);
+		return copy(opponents != null ? opponents.get(opponent) : null);
+	}
+
+	/**
+	 * @return Players, most points first.
+	 */
+	public synchronized List<String> getPlayers() {
+		List<String> players = new ArrayList<String>(records.keySet());
+		Collections.sort(players,new Comparator<String>() {
+			@Override
+			public int compare(String player1,String player2) {
+				int compare = Double.compare(records.get(player2).getPoints(),records.get(player1).getPoints());
+				return compare != 0 ? compare : player1.compareTo(player2);
+			}
+		});
+		return players;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder stringBuilder = new StringBuilder();
+		int rank = 1;
+		for (String player : getPlayers()) {
+			Record record = getRecord(player);
+			stringBuilder.append(String.format("%3d. %-30s %6.1f/%-5d %-16s %+7.1f +/- %.1f%n",
+					rank++,player,record.getPoints(),record.getGames(),record,record.getElo(),record.getEloError()));
+		}
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Converts an expected score to an Elo difference. Scores of 0 and 1 are clamped.
+	 */
+	public static double toElo(double score) {
+		score = Math.min(Math.max(score,1e-6),1 - 1e-6);
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * Converts an Elo difference to an expected score.
+	 */
+	public static double toScore(double elo) {
+		return 1 / (1 + Math.pow(10,-elo / 400));
+	}
+
+	private Map<String,Record> getOpponents(String player) {
+		Map<String,Record> opponents = headToHead.get(player);
+		if (opponents == null) {
+			opponents = new HashMap<String,Record>();
+			headToHead.put(player,opponents);
+		}
+		return opponents;
+	}
+
+	private static Record getRecord(Map<String,Record> records,String player) {
+		Record record = records.get(player);
+		if (record == null) {
+			record = new Record();
+			records.put(player,record);
+		}
+		return record;
+	}
+
+	private static Record copy(Record record) {
+		Record copy = new Record();
+		if (record != null) {
+			copy.wins = record.wins;
+			copy.draws = record.draws;
+			copy.losses = record.losses;
+		}
+		return copy;
+	}
+}
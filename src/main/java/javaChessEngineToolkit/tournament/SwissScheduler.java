@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Swiss system: every round pairs players with equal or close scores who have not met yet, for a fixed number of rounds.
+ * Colors go to whoever has had white less often, then to whoever had black last. With an odd number of players the
+ * lowest ranked player who has not had one yet gets a bye, which scores nothing.
+ */
+public class SwissScheduler implements TournamentScheduler {
+	private static final int MAX_PAIRING_STEPS = 100000;
+
+	private final List<String> players;
+	private final int rounds;
+	private final int numOpenings;
+
+	/**
+	 * @param players Players in seeding order, which breaks ties in score.
+	 * @param rounds
+	 * @param numOpenings Size of the opening suite, or 0 to start from the initial position. Each round uses the next opening.
+	 */
+	public SwissScheduler(List<String> players,int rounds,int numOpenings) {
+		this.players = new ArrayList<String>(players);
+		this.rounds = rounds;
+		this.numOpenings = numOpenings;
+	}
+
+	@Override
+	public List<Pairing> nextPairings(TournamentState tournamentState,int firstGameNumber) {
+		List<Pairing> schedule = tournamentState.getSchedule();
+		int round = 1;
+		final Map<String,Integer> games = new HashMap<String,Integer>();
+		Map<String,Integer> whites = new HashMap<String,Integer>();
+		Map<String,Boolean> lastWhite = new HashMap<String,Boolean>();
+		Set<String> met = new HashSet<String>();
+		for (Pairing pairing : schedule) {
+			round = Math.max(round,pairing.getRound() + 1);
+			games.put(pairing.getWhite(),count(games,pairing.getWhite()) + 1);
+			games.put(pairing.getBlack(),count(games,pairing.getBlack()) + 1);
+			whites.put(pairing.getWhite(),count(whites,pairing.getWhite()) + 1);
+			lastWhite.put(pairing.getWhite(),true);
+			lastWhite.put(pairing.getBlack(),false);
+			met.add(pairing.getWhite() + "\t" + pairing.getBlack());
+			met.add(pairing.getBlack() + "\t" + pairing.getWhite());
+		}
+		List<Pairing> pairings = new ArrayList<Pairing>();
+		if (round > rounds) {
+			return pairings;
+		}
+
+		final Standings standings = tournamentState.getStandings();
+		List<String> ranked = new ArrayList<String>(players);
+		// Stable, so equal scores keep the seeding order.
+		Collections.sort(ranked,new Comparator<String>() {
+			@Override
+			public int compare(String player1,String player2) {
+				return Double.compare(standings.getRecord(player2).getPoints(),standings.getRecord(player1).getPoints());
+			}
+		});
+
+		if (ranked.size() % 2 == 1) {
+			// Players who had a bye have played fewer games.
+			int maxGames = 0;
+			for (String player : ranked) {
+				maxGames = Math.max(maxGames,count(games,player));
+			}
+			for (int i = ranked.size() - 1; i >= 0; i--) {
+				if (count(games,ranked.get(i)) == maxGames) {
+					ranked.remove(i);
+					break;
+				}
+			}
+		}
+
+		List<String[]> pairs = new ArrayList<String[]>();
+		if (!pairWithoutRematches(ranked,met,pairs,new int[] { MAX_PAIRING_STEPS })) {
+			// No pairing avoids rematches, or it took too long to find: pair top down, allowing them.
+			pairs.clear();
+			while (ranked.size() > 1) {
+				String player1 = ranked.remove(0);
+				int opponent = 0;
+				while (opponent < ranked.size() - 1 && met.contains(player1 + "\t" + ranked.get(opponent))) {
+					opponent++;
+				}
+				pairs.add(new String[] { player1, ranked.remove(opponent) });
+			}
+		}
+
+		int gameNumber = firstGameNumber;
+		int openingIndex = numOpenings > 0 ? (round - 1) % numOpenings : -1;
+		for (String[] pair : pairs) {
+			String player1 = pair[0];
+			String player2 = pair[1];
+			int whites1 = count(whites,player1);
+			int whites2 = count(whites,player2);
+			boolean player1White;
+			if (whites1 != whites2) {
+				player1White = whites1 < whites2;
+			} else if (lastWhite.containsKey(player1) && lastWhite.containsKey(player2) && !lastWhite.get(player1).equals(lastWhite.get(player2))) {
+				player1White = !lastWhite.get(player1);
+			} else {
+				player1White = round % 2 == 1;
+			}
+			pairings.add(new Pairing(gameNumber++,round,player1White ? player1 : player2,player1White ? player2 : player1,openingIndex));
+		}
+		return pairings;
+	}
+
+	/**
+	 * Pairs the highest ranked player with the closest ranked one it has not met, backtracking when that leaves the
+	 * others unpairable.
+	 * @param ranked Unpaired players, best first. Left as it was if no pairing is found.
+	 * @param pairs Receives the pairs.
+	 * @param steps Remaining search budget.
+	 * @return Whether everyone could be paired.
+	 */
+	private static boolean pairWithoutRematches(List<String> ranked,Set<String> met,List<String[]> pairs,int[] steps) {
+		if (ranked.size() < 2) {
+			return true;
+		}
+		String player1 = ranked.remove(0);
+		for (int i = 0; i < ranked.size() && steps[0] > 0; i++) {
+			String player2 = ranked.get(i);
+			if (met.contains(player1 + "\t" + player2)) {
+				continue;
+			}
+			steps[0]--;
+			ranked.remove(i);
+			pairs.add(new String[] { player1, player2 });
+			if (pairWithoutRematches(ranked,met,pairs,steps)) {
+				return true;
+			}
+			pairs.remove(pairs.size() - 1);
+			ranked.add(i,player2);
+		}
+		ranked.add(0,player1);
+		return false;
+	}
+
+	private static int count(Map<String,Integer> counts,String player) {
+		Integer count = counts.get(player);
+		return count != null ? count : 0;
+	}
+}
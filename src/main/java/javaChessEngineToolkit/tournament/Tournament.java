@@ -0,0 +1,383 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.Engine;
+import javaChessEngineToolkit.endgame.Bitbases;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays the games of a TournamentScheduler between named players, optionally several at once, journaling every result
+ * so that an interrupted run resumes with the games it had not finished.
+ * <p>
+ * Pending games are started longest first, by the DurationEstimator's estimates, so that the last games of a batch
+ * are short ones and threads do not sit idle waiting for one long game.
+ * <p>
+ * Given a coordinator port, the tournament also hands its games out to TournamentWorkers, on other hosts or in other JVMs,
+ * which play them with engines of their own and send the results back to be journaled here. See TournamentCoordinator.
+ */
+public class Tournament {
+	private final Map<String,Supplier<? extends Engine>> players;
+	private final TournamentOptions tournamentOptions;
+	private final List<Pairing> pending = new ArrayList<Pairing>();
+	private final DurationEstimator durationEstimator = new DurationEstimator();
+	private volatile boolean stopped;
+	// Games out with the coordinator's workers. Guarded by pending.
+	private int remoteInFlight;
+	private volatile TournamentCoordinator coordinator;
+	private TournamentState tournamentState;
+	private TournamentJournal journal;
+
+	/**
+	 * @param players Engine supplier of every player, by name. Every thread gets its own engines from them.
+	 * @param tournamentOptions
+	 */
+	public Tournament(Map<String,Supplier<? extends Engine>> players,TournamentOptions tournamentOptions) {
+		this.players = players;
+		this.tournamentOptions = tournamentOptions;
+	}
+
+	/**
+	 * Plays a fixed schedule. This is a blocking call.
+	 * If the journal directory already holds a tournament, that tournament is resumed and the schedule is ignored.
+	 * @param schedule
+	 * @return The final state, with the results of every game played, in this run or before it.
+	 * @throws IOException If the journal cannot be read or written.
+	 * @throws ExecutionException If a game thread failed.
+	 * @throws InterruptedException
+	 */
+	public TournamentState run(final List<Pairing> schedule) throws IOException, ExecutionException, InterruptedException {
+		return run(new TournamentScheduler() {
+			@Override
+			public List<Pairing> nextPairings(TournamentState tournamentState,int firstGameNumber) {
+				return tournamentState.getSchedule().isEmpty() ? schedule : Collections.<Pairing>emptyList();
+			}
+		});
+	}
+
+	/**
+	 * Plays the pairings of a scheduler until it has none left. This is a blocking call.
+	 * If the journal directory already holds a tournament, it is resumed: its unplayed pairings are played first,
+	 * and the scheduler is then asked for more given its results.
+	 * @param tournamentScheduler
+	 * @return The final state, with the results of every game played, in this run or before it.
+	 * @throws IOException If the journal cannot be read or written.
+	 * @throws ExecutionException If a game thread failed.
+	 * @throws InterruptedException
+	 */
+	public TournamentState run(TournamentScheduler tournamentScheduler) throws IOException, ExecutionException, InterruptedException {
+		stopped = false;
+		journal = tournamentOptions.getJournalDir() != null ? new TournamentJournal(tournamentOptions.getJournalDir()) : null;
+		tournamentState = journal != null ? journal.load() : new TournamentState();
+		try {
+			// Loaded once here, rather than by the first game of every thread.
+			Bitbases bitbases = tournamentOptions.getEngineMatchOptions().getBitbases();
+			if (bitbases != null) {
+				bitbases.loadAll();
+			}
+			if (tournamentOptions.getCoordinatorPort() >= 0) {
+				coordinator = new TournamentCoordinator(this,tournamentOptions.getCoordinatorBindAddress(),tournamentOptions.getCoordinatorPort(),
+						tournamentOptions.getWorkerTimeoutMs());
+				coordinator.start();
+				for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+					tournamentListener.onCoordinatorStarted(coordinator.getPort());
+				}
+			}
+			if (!tournamentState.getSchedule().isEmpty()) {
+				for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+					tournamentListener.onTournamentResumed(tournamentState.getResults().size(),tournamentState.getSchedule().size());
+				}
+			}
+			for (CompletedGame completedGame : tournamentState.getResults()) {
+				durationEstimator.add(completedGame);
+			}
+
+			checkSprt();
+			while (!stopped) {
+				List<Pairing> unplayed = tournamentState.getUnplayedPairings();
+				if (unplayed.isEmpty()) {
+					List<Pairing> pairings = tournamentScheduler.nextPairings(tournamentState,tournamentState.getNextGameNumber());
+					if (pairings.isEmpty()) {
+						break;
+					}
+					for (Pairing pairing : pairings) {
+						tournamentState.addPairing(pairing);
+					}
+					if (journal != null) {
+						journal.appendPairings(pairings);
+					}
+					unplayed = pairings;
+				}
+
+				synchronized (pending) {
+					pending.clear();
+					pending.addAll(unplayed);
+				}
+				playPending();
+				if (!tournamentState.getUnplayedPairings().isEmpty()) {
+					// Stopped, or games failed; those are played when the tournament is resumed.
+					break;
+				}
+			}
+
+			if (journal != null) {
+				journal.snapshot(tournamentState);
+			}
+		} finally {
+			if (coordinator != null) {
+				coordinator.close();
+				coordinator = null;
+			}
+			if (journal != null) {
+				journal.close();
+			}
+		}
+		return tournamentState;
+	}
+
+	/**
+	 * Stops starting new games. Games already running, here or on workers, are finished and recorded.
+	 */
+	public void stop() {
+		stopped = true;
+		synchronized (pending) {
+			pending.notifyAll();
+		}
+	}
+
+	/**
+	 * @return The port the coordinator listens on while the tournament runs, or -1.
+	 */
+	public int getCoordinatorPort() {
+		TournamentCoordinator coordinator = this.coordinator;
+		return coordinator != null ? coordinator.getPort() : -1;
+	}
+
+	/**
+	 * @return The estimator ordering the games, e.g. to give it priors before running.
+	 */
+	public DurationEstimator getDurationEstimator() {
+		return durationEstimator;
+	}
+
+	/**
+	 * @return The state of the running tournament, or of the last one run.
+	 */
+	public TournamentState getTournamentState() {
+		return tournamentState;
+	}
+
+	private void playPending() throws ExecutionException, InterruptedException {
+		// A coordinator may leave every game to its workers.
+		int threads = coordinator != null ? tournamentOptions.getThreads() : Math.max(1,tournamentOptions.getThreads());
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1,threads));
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						playGames();
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+			synchronized (pending) {
+				while (remoteInFlight > 0 || (coordinator != null && !stopped && !pending.isEmpty())) {
+					pending.wait();
+				}
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private void playGames() throws IOException, InterruptedException {
+		GamePlayer gamePlayer = new GamePlayer(players,tournamentOptions);
+		try {
+			Pairing pairing;
+			while ((pairing = takePairing()) != null) {
+				CompletedGame completedGame;
+				try {
+					completedGame = gamePlayer.play(pairing);
+				} catch (Exception e) {
+					// Not recorded, so the game is played again when the tournament is resumed.
+					System.err.println("Game " + pairing + " failed:");
+					e.printStackTrace(System.err);
+					if (e instanceof InterruptedException) {
+						return;
+					}
+					continue;
+				}
+				record(completedGame);
+			}
+		} finally {
+			gamePlayer.close();
+		}
+	}
+
+	/**
+	 * Takes the next pairing for a local thread. While workers have games out, waits for one of them to be given back.
+	 * @return Pairing, or null once every game is played or out, or the tournament is stopped.
+	 */
+	private Pairing takePairing() throws InterruptedException {
+		synchronized (pending) {
+			while (!stopped) {
+				Pairing pairing = nextPairing();
+				if (pairing != null || remoteInFlight == 0) {
+					return pairing;
+				}
+				pending.wait();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Takes the pending pairing with the longest estimated game, the first scheduled of equally long ones.
+	 * @return Pairing, or null if none is left.
+	 */
+	private Pairing nextPairing() {
+		synchronized (pending) {
+			int longest = -1;
+			double longestMs = -1;
+			for (int i = 0; i < pending.size(); i++) {
+				double estimatedMs = durationEstimator.estimateMs(pending.get(i));
+				if (estimatedMs > longestMs) {
+					longest = i;
+					longestMs = estimatedMs;
+				}
+			}
+			return longest >= 0 ? pending.remove(longest) : null;
+		}
+	}
+
+	/**
+	 * Takes the next pairing for a worker of the coordinator.
+	 * @return Pairing, or null if there is none to play right now.
+	 */
+	Pairing assignRemote() {
+		synchronized (pending) {
+			if (stopped) {
+				return null;
+			}
+			Pairing pairing = nextPairing();
+			if (pairing != null) {
+				remoteInFlight++;
+			}
+			return pairing;
+		}
+	}
+
+	/**
+	 * Settles a pairing given to a worker by assignRemote.
+	 * @param pairing Pairing.
+	 * @param completedGame The game, or null if it was not played.
+	 * @param retry Whether a game that was not played should be given to someone else, e.g. because its worker died,
+	 * or be left for the tournament to be resumed, as a game that failed locally is.
+	 * @throws IOException If the result cannot be journaled.
+	 */
+	void finishRemote(Pairing pairing,CompletedGame completedGame,boolean retry) throws IOException {
+		try {
+			if (completedGame != null) {
+				record(completedGame);
+			}
+		} finally {
+			synchronized (pending) {
+				remoteInFlight--;
+				if (completedGame == null && retry && !tournamentState.isPlayed(pairing.getGameNumber())) {
+					pending.add(pairing);
+				}
+				pending.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Reports a worker that connected to the coordinator.
+	 * @param name Name and address of the worker.
+	 */
+	void workerConnected(String name) {
+		for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+			tournamentListener.onWorkerConnected(name);
+		}
+	}
+
+	synchronized void record(CompletedGame completedGame) throws IOException {
+		if (tournamentState.isPlayed(completedGame.getPairing().getGameNumber())) {
+			// A game that was given to another worker after all, and played by both.
+			return;
+		}
+		if (completedGame.isAborted()) {
+			// Not recorded, so the game is played again when the tournament is resumed, as a game that failed is.
+			for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+				tournamentListener.onGameAborted(completedGame);
+			}
+			return;
+		}
+		// Journaled first: a game only counts as played once its result is on disk.
+		if (journal != null) {
+			journal.appendResult(completedGame);
+		}
+		tournamentState.addResult(completedGame);
+		durationEstimator.add(completedGame);
+		for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+			tournamentListener.onGameRecorded(completedGame);
+		}
+		if (journal != null && journal.getRecordsSinceSnapshot() >= tournamentOptions.getSnapshotInterval()) {
+			journal.snapshot(tournamentState);
+		}
+		checkSprt();
+	}
+
+	private void checkSprt() {
+		Sprt sprt = tournamentOptions.getSprt();
+		if (sprt == null) {
+			return;
+		}
+		Standings.Record record = tournamentState.getStandings().getRecord(tournamentOptions.getSprtPlayer());
+		if (sprt.getStatus(record) != Sprt.Status.CONTINUE) {
+			if (!stopped) {
+				for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+					tournamentListener.onSprtDecided(sprt,record);
+				}
+			}
+			stop();
+		}
+	}
+}
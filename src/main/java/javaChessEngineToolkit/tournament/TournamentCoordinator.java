@@ -0,0 +1,362 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hands the games of a running Tournament out to TournamentWorkers over TCP, and takes their results back.
+ * <p>
+ * The protocol is line based, in UTF-8, with tab separated fields. A worker sends:
+ * <ul>
+ * <li>"HELLO", name, threads: once, first.</li>
+ * <li>"REQUEST", count: asks for up to count games. Answered with "P" records then "END", or with "WAIT", milliseconds,
+ * if there is nothing to play yet, or with "DONE" once the tournament is over.</li>
+ * <li>"START", game number: it has started playing a game.</li>
+ * <li>"R" records: results, in TournamentJournal's format, PGN included.</li>
+ * <li>"FAIL", game number: a game could not be played. As a failed local game, it is left for the tournament to be resumed.</li>
+ * <li>"HEARTBEAT": every few seconds, whatever else it sends.</li>
+ * </ul>
+ * The coordinator may also send "CANCEL", game number, when it gives a game the worker has not started to an idle worker.
+ * <p>
+ * A worker that stays silent for longer than the worker timeout, or whose connection drops, is taken for dead, and the
+ * games it had are given to others. A game played twice this way is only recorded once.
+ * Results are only taken for games the connection was given: the ones it holds, and the ones cancelled on it, which it
+ * may have started before the cancel arrived. Anything else is ignored.
+ */
+class TournamentCoordinator implements Closeable {
+	private static final long WAIT_MS = 1000;
+
+	private final Tournament tournament;
+	private final InetAddress bindAddress;
+	private final int port;
+	private final long workerTimeoutMs;
+	private final List<WorkerConnection> workerConnections = new CopyOnWriteArrayList<WorkerConnection>();
+	private ServerSocket serverSocket;
+	private volatile boolean closed;
+
+	TournamentCoordinator(Tournament tournament,InetAddress bindAddress,int port,long workerTimeoutMs) {
+		this.tournament = tournament;
+		this.bindAddress = bindAddress;
+		this.port = port;
+		this.workerTimeoutMs = workerTimeoutMs;
+	}
+
+	void start() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(bindAddress,port));
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		},"TournamentCoordinator");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				final Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout((int) workerTimeoutMs);
+				final WorkerConnection workerConnection = new WorkerConnection(socket);
+				workerConnections.add(workerConnection);
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						workerConnection.run();
+					}
+				},"TournamentCoordinator " + socket.getRemoteSocketAddress());
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				if (!closed) {
+					e.printStackTrace(System.err);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes a game a worker has not started yet, from the worker with the most of them, for an idle worker.
+	 * The caller sends the victim its CANCEL once it has released the coordinator's monitor, so that a stalled socket
+	 * does not hold up the other workers.
+	 * @return The game taken and its victim, or null if every worker has started all of its games.
+	 */
+	private synchronized StolenGame steal(WorkerConnection thief) {
+		WorkerConnection victim = null;
+		int unstarted = 0;
+		for (WorkerConnection workerConnection : workerConnections) {
+			int count = workerConnection.getUnstartedCount();
+			if (workerConnection != thief && count > unstarted) {
+				victim = workerConnection;
+				unstarted = count;
+			}
+		}
+		if (victim == null) {
+			return null;
+		}
+		Pairing pairing = victim.takeLastUnstarted();
+		if (pairing == null) {
+			return null;
+		}
+		victim.cancelled.put(pairing.getGameNumber(),pairing);
+		return new StolenGame(victim,pairing);
+	}
+
+	private static class StolenGame {
+		final WorkerConnection victim;
+		final Pairing pairing;
+
+		StolenGame(WorkerConnection victim,Pairing pairing) {
+			this.victim = victim;
+			this.pairing = pairing;
+		}
+	}
+
+	/**
+	 * Stops taking workers, tells the connected ones that the tournament is over, and disconnects them.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+		for (WorkerConnection workerConnection : workerConnections) {
+			try {
+				workerConnection.send("DONE\n");
+			} catch (IOException e) {
+				// Gone already.
+			}
+			workerConnection.close();
+		}
+	}
+
+	private class WorkerConnection {
+		private final Socket socket;
+		private final Writer writer;
+		// Games given to the worker and not settled yet, in the order given. Guarded by the coordinator.
+		private final Map<Integer,Pairing> assigned = new LinkedHashMap<Integer,Pairing>();
+		private final Set<Integer> started = new HashSet<Integer>();
+		// Games taken from the worker for another one, which it may still send a result for. Guarded by the coordinator.
+		private final Map<Integer,Pairing> cancelled = new LinkedHashMap<Integer,Pairing>();
+		private String name;
+
+		WorkerConnection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),StandardCharsets.UTF_8));
+			this.name = String.valueOf(socket.getRemoteSocketAddress());
+		}
+
+		void run() {
+			try {
+				BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream(),StandardCharsets.UTF_8));
+				String line;
+				while ((line = bufferedReader.readLine()) != null) {
+					String[] fields = line.split("\t",-1);
+					if (fields[0].equals("HELLO") && fields.length >= 3) {
+						name = fields[1] + " (" + socket.getRemoteSocketAddress() + ", " + fields[2] + " threads)";
+						tournament.workerConnected(name);
+					} else if (fields[0].equals("HEARTBEAT")) {
+						// Reading it is enough to keep the connection from timing out.
+					} else if (fields[0].equals("REQUEST") && fields.length == 2) {
+						handleRequest(Integer.parseInt(fields[1]));
+					} else if (fields[0].equals("START") && fields.length == 2) {
+						int gameNumber = Integer.parseInt(fields[1]);
+						synchronized (TournamentCoordinator.this) {
+							// Unless it has just been given to another worker.
+							if (assigned.containsKey(gameNumber)) {
+								started.add(gameNumber);
+							}
+						}
+					} else if (fields[0].equals("R") && fields.length == 7) {
+						handleResult(fields);
+					} else if (fields[0].equals("FAIL") && fields.length == 2) {
+						Pairing pairing = settle(Integer.parseInt(fields[1]));
+						if (pairing != null) {
+							System.err.println("Game " + pairing + " failed on worker " + name);
+							tournament.finishRemote(pairing,null,false);
+						}
+					} else {
+						throw new IOException("Unknown message: " + line);
+					}
+				}
+			} catch (SocketException e) {
+				// Closed by either side.
+			} catch (IOException | RuntimeException e) {
+				if (!closed) {
+					System.err.println("Worker " + name + " lost: " + e);
+				}
+			} finally {
+				workerConnections.remove(this);
+				close();
+				giveBack();
+			}
+		}
+
+		private void handleRequest(int count) throws IOException {
+			StringBuilder reply = new StringBuilder();
+			StolenGame stolenGame = null;
+			synchronized (TournamentCoordinator.this) {
+				for (int i = 0; i < count; i++) {
+					Pairing pairing = tournament.assignRemote();
+					if (pairing == null) {
+						break;
+					}
+					assigned.put(pairing.getGameNumber(),pairing);
+					reply.append(TournamentJournal.format(pairing));
+				}
+				if (reply.length() == 0 && !closed) {
+					stolenGame = steal(this);
+					if (stolenGame != null) {
+						assigned.put(stolenGame.pairing.getGameNumber(),stolenGame.pairing);
+						reply.append(TournamentJournal.format(stolenGame.pairing));
+					}
+				}
+			}
+			if (stolenGame != null) {
+				try {
+					stolenGame.victim.send("CANCEL\t" + stolenGame.pairing.getGameNumber() + "\n");
+				} catch (IOException e) {
+					// The victim's own connection finds out it is gone.
+				}
+			}
+			if (reply.length() > 0) {
+				send(reply.append("END\n").toString());
+			} else {
+				send(closed ? "DONE\n" : "WAIT\t" + WAIT_MS + "\n");
+			}
+		}
+
+		private void handleResult(String[] fields) throws IOException {
+			int gameNumber = Integer.parseInt(fields[1]);
+			Pairing pairing = settle(gameNumber);
+			if (pairing != null) {
+				tournament.finishRemote(pairing,TournamentJournal.parseResult(fields,pairing),false);
+				return;
+			}
+			// A game that was given to another worker after this one had started it. Whichever result comes first counts.
+			Pairing cancelledPairing;
+			synchronized (TournamentCoordinator.this) {
+				cancelledPairing = cancelled.remove(gameNumber);
+			}
+			if (cancelledPairing != null) {
+				tournament.record(TournamentJournal.parseResult(fields,cancelledPairing));
+			} else {
+				System.err.println("Ignoring a result for game " + gameNumber + " from worker " + name + ", which was not given it");
+			}
+		}
+
+		/**
+		 * @return The pairing of a game the worker had, which it no longer has, or null if it did not have it.
+		 */
+		private Pairing settle(int gameNumber) {
+			synchronized (TournamentCoordinator.this) {
+				started.remove(gameNumber);
+				return assigned.remove(gameNumber);
+			}
+		}
+
+		/**
+		 * Gives the games of a dead worker to others.
+		 */
+		private void giveBack() {
+			List<Pairing> lost;
+			synchronized (TournamentCoordinator.this) {
+				lost = new ArrayList<Pairing>(assigned.values());
+				assigned.clear();
+				started.clear();
+				cancelled.clear();
+			}
+			if (!lost.isEmpty()) {
+				System.err.println(String.format("Worker %s left %d games; giving them to others",name,lost.size()));
+			}
+			for (Pairing pairing : lost) {
+				try {
+					tournament.finishRemote(pairing,null,true);
+				} catch (IOException e) {
+					e.printStackTrace(System.err);
+				}
+			}
+		}
+
+		int getUnstartedCount() {
+			return assigned.size() - started.size();
+		}
+
+		Pairing takeLastUnstarted() {
+			Pairing last = null;
+			for (Pairing pairing : assigned.values()) {
+				if (!started.contains(pairing.getGameNumber())) {
+					last = pairing;
+				}
+			}
+			if (last != null) {
+				assigned.remove(last.getGameNumber());
+			}
+			return last;
+		}
+
+		synchronized void send(String lines) throws IOException {
+			writer.write(lines);
+			writer.flush();
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to do.
+			}
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Persists a tournament's state in a directory, so that a run can be resumed after a crash.
+ * <p>
+ * Every scheduled pairing and every finished game is appended to journal.tsv and forced to disk before the game counts
+ * as played. Every so often the whole state is written to snapshot.tsv, in the same format, and the journal is emptied.
+ * Loading reads the snapshot and replays the journal after it; a record torn by a crash is cut off. Replaying a record
+ * that is already in the snapshot does no harm, so a crash between writing a snapshot and emptying the journal is safe.
+ * <p>
+ * Records are tab separated lines: "P", game number, round, white, black, opening index for a pairing, and
+ * "R", game number, result, plies, duration in ms, reason, PGN for a result, with tabs, newlines and backslashes escaped.
+ * A TournamentCoordinator and its workers exchange pairings and results as the same records.
+ */
+public class TournamentJournal implements Closeable {
+	private static final String JOURNAL_FILE = "journal.tsv";
+	private static final String SNAPSHOT_FILE = "snapshot.tsv";
+
+	private final File dir;
+	private FileOutputStream outputStream;
+	private Writer writer;
+	private int recordsSinceSnapshot;
+
+	public TournamentJournal(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Loads the state saved in the directory, which is empty for a new tournament, and opens the journal for appending.
+	 * @return TournamentState
+	 * @throws IOException
+	 */
+	public synchronized TournamentState load() throws IOException {
+		dir.mkdirs();
+		TournamentState tournamentState = new TournamentState();
+		File snapshotFile = new File(dir,SNAPSHOT_FILE);
+		if (snapshotFile.isFile()) {
+			replay(tournamentState,Files.readAllBytes(snapshotFile.toPath()));
+		}
+		File journalFile = new File(dir,JOURNAL_FILE);
+		if (journalFile.isFile()) {
+			int length = replay(tournamentState,Files.readAllBytes(journalFile.toPath()));
+			RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile,"rw");
+			try {
+				if (randomAccessFile.length() > length) {
+					System.err.println(String.format("Cutting off %d bytes of a torn journal record.",randomAccessFile.length() - length));
+					randomAccessFile.setLength(length);
+				}
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+		open();
+		return tournamentState;
+	}
+
+	/**
+	 * Appends pairings, e.g. a whole schedule or round, forcing them to disk once.
+	 * @param pairings
+	 * @throws IOException
+	 */
+	public synchronized void appendPairings(Iterable<Pairing> pairings) throws IOException {
+		for (Pairing pairing : pairings) {
+			writer.write(format(pairing));
+			recordsSinceSnapshot++;
+		}
+		sync();
+	}
+
+	/**
+	 * Appends the result of a game and forces it to disk.
+	 * @param completedGame
+	 * @throws IOException
+	 */
+	public synchronized void appendResult(CompletedGame completedGame) throws IOException {
+		writer.write(format(completedGame));
+		recordsSinceSnapshot++;
+		sync();
+	}
+
+	/**
+	 * @return Records appended since the last snapshot, or since loading.
+	 */
+	public synchronized int getRecordsSinceSnapshot() {
+		return recordsSinceSnapshot;
+	}
+
+	/**
+	 * Writes the whole state to the snapshot file and empties the journal.
+	 * Pairings and results must not be added to the state while this runs.
+	 * @param tournamentState
+	 * @throws IOException
+	 */
+	public synchronized void snapshot(TournamentState tournamentState) throws IOException {
+		File tempFile = new File(dir,SNAPSHOT_FILE + ".tmp");
+		FileOutputStream snapshotOutputStream = new FileOutputStream(tempFile);
+		try {
+			Writer snapshotWriter = new BufferedWriter(new OutputStreamWriter(snapshotOutputStream,StandardCharsets.UTF_8));
+			for (Pairing pairing : tournamentState.getSchedule()) {
+				snapshotWriter.write(format(pairing));
+			}
+			for (CompletedGame completedGame : tournamentState.getResults()) {
+				snapshotWriter.write(format(completedGame));
+			}
+			snapshotWriter.flush();
+			snapshotOutputStream.getChannel().force(true);
+		} finally {
+			snapshotOutputStream.close();
+		}
+		Files.move(tempFile.toPath(),new File(dir,SNAPSHOT_FILE).toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+
+		writer.close();
+		outputStream = new FileOutputStream(new File(dir,JOURNAL_FILE),false);
+		writer = new BufferedWriter(new OutputStreamWriter(outputStream,StandardCharsets.UTF_8));
+		outputStream.getChannel().force(true);
+		recordsSinceSnapshot = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	private void open() throws IOException {
+		close();
+		outputStream = new FileOutputStream(new File(dir,JOURNAL_FILE),true);
+		writer = new BufferedWriter(new OutputStreamWriter(outputStream,StandardCharsets.UTF_8));
+		recordsSinceSnapshot = 0;
+	}
+
+	private void sync() throws IOException {
+		writer.flush();
+		outputStream.getChannel().force(false);
+	}
+
+	/**
+	 * Applies the complete records of a file to the state.
+	 * @return Length in bytes of the complete records.
+	 */
+	private static int replay(TournamentState tournamentState,byte[] bytes) throws IOException {
+		int start = 0;
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] != '\n') {
+				continue;
+			}
+			String line = new String(bytes,start,i - start,StandardCharsets.UTF_8);
+			start = i + 1;
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split("\t",-1);
+			try {
+				if (fields[0].equals("P") && fields.length == 6) {
+					tournamentState.addPairing(parsePairing(fields));
+				} else if (fields[0].equals("R") && fields.length == 7) {
+					tournamentState.addResult(parseResult(fields,findPairing(tournamentState,Integer.parseInt(fields[1]))));
+				} else {
+					throw new IOException("Unknown journal record: " + line);
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Bad journal record: " + line,e);
+			}
+		}
+		return start;
+	}
+
+	private static Pairing findPairing(TournamentState tournamentState,int gameNumber) throws IOException {
+		Pairing pairing = tournamentState.getPairing(gameNumber);
+		if (pairing == null) {
+			throw new IOException("Result of unscheduled game " + gameNumber);
+		}
+		return pairing;
+	}
+
+	/**
+	 * Parses the fields of a "P" record.
+	 * @throws NumberFormatException
+	 */
+	static Pairing parsePairing(String[] fields) {
+		return new Pairing(Integer.parseInt(fields[1]),Integer.parseInt(fields[2]),unescape(fields[3]),unescape(fields[4]),Integer.parseInt(fields[5]));
+	}
+
+	/**
+	 * Parses the fields of an "R" record.
+	 * @param pairing The pairing of the game, whose number is in fields[1].
+	 * @throws NumberFormatException
+	 */
+	static CompletedGame parseResult(String[] fields,Pairing pairing) {
+		String pgn = fields[6].isEmpty() ? null : unescape(fields[6]);
+		return new CompletedGame(pairing,CompletedGame.parseResultString(fields[2]),unescape(fields[5]),Integer.parseInt(fields[3]),Long.parseLong(fields[4]),pgn);
+	}
+
+	static String format(Pairing pairing) {
+		return "P\t" + pairing.getGameNumber() + "\t" + pairing.getRound() + "\t" + escape(pairing.getWhite()) + "\t" + escape(pairing.getBlack()) + "\t" + pairing.getOpeningIndex() + "\n";
+	}
+
+	static String format(CompletedGame completedGame) {
+		return "R\t" + completedGame.getPairing().getGameNumber() + "\t" + completedGame.getResultString() + "\t" + completedGame.getPlies()
+				+ "\t" + completedGame.getDurationMs() + "\t" + escape(completedGame.getReason()) + "\t" + escape(completedGame.getPgn()) + "\n";
+	}
+
+	static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		StringBuilder stringBuilder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\') {
+				stringBuilder.append("\\\\");
+			} else if (c == '\t') {
+				stringBuilder.append("\\t");
+			} else if (c == '\n') {
+				stringBuilder.append("\\n");
+			} else if (c == '\r') {
+				stringBuilder.append("\\r");
+			} else {
+				stringBuilder.append(c);
+			}
+		}
+		return stringBuilder.toString();
+	}
+
+	static String unescape(String value) {
+		StringBuilder stringBuilder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				stringBuilder.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				stringBuilder.append(c);
+			}
+		}
+		return stringBuilder.toString();
+	}
+}
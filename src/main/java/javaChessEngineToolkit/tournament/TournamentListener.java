@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+/**
+ * Receives the progress of a Tournament.
+ * Listeners are called on the tournament's threads, some while it holds its lock, so they should return quickly.
+ */
+public interface TournamentListener {
+	default void onCoordinatorStarted(int port) {
+
+	}
+
+	/**
+	 * @param name Name and address the worker introduced itself with.
+	 */
+	default void onWorkerConnected(String name) {
+
+	}
+
+	/**
+	 * @param played Number of games already played.
+	 * @param scheduled Number of games scheduled so far.
+	 */
+	default void onTournamentResumed(int played,int scheduled) {
+
+	}
+
+	default void onGameRecorded(CompletedGame completedGame) {
+
+	}
+
+	/**
+	 * A game that ended without a result, e.g. on an engine failure. It is not recorded, and is played again when the
+	 * tournament is resumed.
+	 */
+	default void onGameAborted(CompletedGame completedGame) {
+
+	}
+
+	/**
+	 * A game played by a TournamentWorker, just sent to its coordinator to be recorded there.
+	 */
+	default void onGamePlayed(CompletedGame completedGame) {
+
+	}
+
+	default void onSprtDecided(Sprt sprt,Standings.Record record) {
+
+	}
+}
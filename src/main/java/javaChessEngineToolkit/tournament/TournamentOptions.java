@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.EngineMatchOptions;
+import javaChessEngineToolkit.engines.ResourceManager;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TournamentOptions {
+	private EngineMatchOptions engineMatchOptions = new EngineMatchOptions();
+	private String event = "Tournament";
+	private int threads = 1;
+	private File journalDir;
+	private int snapshotInterval = 200;
+	private Sprt sprt;
+	private String sprtPlayer;
+	private ResourceManager resourceManager;
+	private int coordinatorPort = -1;
+	private InetAddress coordinatorBindAddress = InetAddress.getLoopbackAddress();
+	private long workerTimeoutMs = 15000;
+	private List<TournamentListener> tournamentListeners = new ArrayList<TournamentListener>();
+
+	public EngineMatchOptions getEngineMatchOptions() {
+		return engineMatchOptions;
+	}
+
+	/**
+	 * Options every game is played with. The opening index is set per game from its pairing.
+	 * @param engineMatchOptions
+	 */
+	public void setEngineMatchOptions(EngineMatchOptions engineMatchOptions) {
+		this.engineMatchOptions = engineMatchOptions;
+	}
+
+	public String getEvent() {
+		return event;
+	}
+
+	/**
+	 * Event name, written to the PGN Event tag of every game.
+	 * @param event
+	 */
+	public void setEvent(String event) {
+		this.event = event;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Number of games to play at once. Each thread has its own instance of every engine.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public File getJournalDir() {
+		return journalDir;
+	}
+
+	/**
+	 * Directory the tournament is journaled in (see TournamentJournal). A run given a directory that already holds a
+	 * journal resumes it. If null, nothing is saved.
+	 * @param journalDir
+	 */
+	public void setJournalDir(File journalDir) {
+		this.journalDir = journalDir;
+	}
+
+	public int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	/**
+	 * Number of journal records after which a snapshot is written and the journal emptied.
+	 * @param snapshotInterval
+	 */
+	public void setSnapshotInterval(int snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public Sprt getSprt() {
+		return sprt;
+	}
+
+	public String getSprtPlayer() {
+		return sprtPlayer;
+	}
+
+	/**
+	 * Stops the tournament once an SPRT of a player's results is decided.
+	 * @param sprt Test, or null to play every game.
+	 * @param sprtPlayer Name of the tested player.
+	 */
+	public void setSprt(Sprt sprt,String sprtPlayer) {
+		this.sprt = sprt;
+		this.sprtPlayer = sprtPlayer;
+	}
+
+	public ResourceManager getResourceManager() {
+		return resourceManager;
+	}
+
+	/**
+	 * Shares cores and memory among the games played at once: before each game, its engines are given Threads and Hash options
+	 * and pinned to CPUs of their own, and a game that does not fit waits for one that does to finish.
+	 * Engines of players not in a thread's current game are then stopped, so that they do not hold memory outside the budget.
+	 * @param resourceManager ResourceManager, or null to leave engines as their suppliers set them up.
+	 */
+	public void setResourceManager(ResourceManager resourceManager) {
+		this.resourceManager = resourceManager;
+	}
+
+	public int getCoordinatorPort() {
+		return coordinatorPort;
+	}
+
+	/**
+	 * Makes the tournament a coordinator, listening for TournamentWorkers on a port while it runs. Its own threads still play
+	 * games; set threads to 0 to leave every game to the workers.
+	 * The protocol is not authenticated, so the port should only be reachable from trusted hosts.
+	 * @param coordinatorPort Port, 0 for any free one (see Tournament.getCoordinatorPort), or -1 to play every game locally.
+	 */
+	public void setCoordinatorPort(int coordinatorPort) {
+		this.coordinatorPort = coordinatorPort;
+	}
+
+	public InetAddress getCoordinatorBindAddress() {
+		return coordinatorBindAddress;
+	}
+
+	/**
+	 * Sets the address the coordinator listens on. Defaults to the loopback address, so only workers on this host can
+	 * connect; give the address of a trusted network interface for workers on other hosts.
+	 * @param coordinatorBindAddress
+	 */
+	public void setCoordinatorBindAddress(InetAddress coordinatorBindAddress) {
+		this.coordinatorBindAddress = coordinatorBindAddress;
+	}
+
+	public long getWorkerTimeoutMs() {
+		return workerTimeoutMs;
+	}
+
+	/**
+	 * Sets how long a worker may stay silent, heartbeats included, before it is taken for dead and its games are given to others.
+	 * @param workerTimeoutMs
+	 */
+	public void setWorkerTimeoutMs(long workerTimeoutMs) {
+		this.workerTimeoutMs = workerTimeoutMs;
+	}
+
+	public List<TournamentListener> getTournamentListeners() {
+		return tournamentListeners;
+	}
+
+	/**
+	 * Adds a listener to the progress of the tournament, e.g. a PrintStreamTournamentListener. Nothing is printed without one.
+	 * @param tournamentListener
+	 */
+	public void addTournamentListener(TournamentListener tournamentListener) {
+		tournamentListeners.add(tournamentListener);
+	}
+
+	public void removeTournamentListener(TournamentListener tournamentListener) {
+		tournamentListeners.remove(tournamentListener);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Schedule and results of a tournament, with the standings derived from the results.
+ * Adding a pairing or a result again replaces it without counting it twice, so journal records can be replayed safely.
+ */
+public class TournamentState {
+	private final TreeMap<Integer,Pairing> schedule = new TreeMap<Integer,Pairing>();
+	private final TreeMap<Integer,CompletedGame> results = new TreeMap<Integer,CompletedGame>();
+	private Standings standings = new Standings();
+
+	public synchronized void addPairing(Pairing pairing) {
+		schedule.put(pairing.getGameNumber(),pairing);
+	}
+
+	public synchronized void addResult(CompletedGame completedGame) {
+		if (results.put(completedGame.getPairing().getGameNumber(),completedGame) == null) {
+			standings.add(completedGame);
+		} else {
+			// Replaced, so the standings have to be counted again.
+			standings = new Standings();
+			for (CompletedGame result : results.values()) {
+				standings.add(result);
+			}
+		}
+	}
+
+	public synchronized List<Pairing> getSchedule() {
+		return new ArrayList<Pairing>(schedule.values());
+	}
+
+	/**
+	 * @return The pairing of a game number, or null if it is not scheduled.
+	 */
+	public synchronized Pairing getPairing(int gameNumber) {
+		return schedule.get(gameNumber);
+	}
+
+	public synchronized List<CompletedGame> getResults() {
+		return new ArrayList<CompletedGame>(results.values());
+	}
+
+	public synchronized boolean isPlayed(int gameNumber) {
+		return results.containsKey(gameNumber);
+	}
+
+	/**
+	 * @return Scheduled pairings without a result, in game number order.
+	 */
+	public synchronized List<Pairing> getUnplayedPairings() {
+		List<Pairing> unplayed = new ArrayList<Pairing>();
+		for (Pairing pairing : schedule.values()) {
+			if (!results.containsKey(pairing.getGameNumber())) {
+				unplayed.add(pairing);
+			}
+		}
+		return unplayed;
+	}
+
+	/**
+	 * @return Number one higher than the highest scheduled game number.
+	 */
+	public synchronized int getNextGameNumber() {
+		return schedule.isEmpty() ? 1 : schedule.lastKey() + 1;
+	}
+
+	public synchronized Standings getStandings() {
+		return standings;
+	}
+
+	/**
+	 * Writes the PGN of every finished game that has one, in game number order.
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writePgn(Writer writer) throws IOException {
+		for (CompletedGame completedGame : getResults()) {
+			if (completedGame.getPgn() != null) {
+				writer.write(completedGame.getPgn());
+				writer.write("\n");
+			}
+		}
+		writer.flush();
+	}
+}
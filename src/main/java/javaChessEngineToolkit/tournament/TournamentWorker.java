@@ -0,0 +1,300 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.Engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Plays games for a Tournament running as a coordinator elsewhere (see TournamentOptions.setCoordinatorPort and
+ * TournamentCoordinator for the protocol).
+ * The worker pulls batches of games, a few more than it has threads so that none waits for the network between games,
+ * plays them with its own engines, and sends back each result as soon as it has it.
+ */
+public class TournamentWorker {
+	private static final long POLL_MS = 200;
+
+	private final Map<String,Supplier<? extends Engine>> players;
+	private final TournamentOptions tournamentOptions;
+	private String name;
+	private long heartbeatIntervalMs = 5000;
+	private int prefetch = 1;
+
+	private final LinkedBlockingDeque<Pairing> queue = new LinkedBlockingDeque<Pairing>();
+	private final AtomicInteger playing = new AtomicInteger();
+	private final AtomicInteger gamesPlayed = new AtomicInteger();
+	private Writer writer;
+	private volatile boolean done;
+	// Guarded by this.
+	private boolean requested;
+	private long requestNotBeforeMs;
+
+	/**
+	 * @param players Engine supplier of every player, by name, as for a Tournament. Names must match the coordinator's.
+	 * @param tournamentOptions Options of the games: threads, EngineMatchOptions, event name, ResourceManager, and the
+	 * TournamentListeners told of every game played.
+	 * The coordinator's own options decide the rest.
+	 */
+	public TournamentWorker(Map<String,Supplier<? extends Engine>> players,TournamentOptions tournamentOptions) {
+		this.players = players;
+		this.tournamentOptions = tournamentOptions;
+		try {
+			this.name = InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			this.name = "worker";
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name the coordinator knows the worker by. Defaults to the host name.
+	 * @param name
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getHeartbeatIntervalMs() {
+		return heartbeatIntervalMs;
+	}
+
+	/**
+	 * Sets how often the worker tells the coordinator it is alive. Must be well under the coordinator's worker timeout. Defaults to 5 s.
+	 * @param heartbeatIntervalMs
+	 */
+	public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+		this.heartbeatIntervalMs = heartbeatIntervalMs;
+	}
+
+	public int getPrefetch() {
+		return prefetch;
+	}
+
+	/**
+	 * Sets how many games the worker holds beyond one per thread. Games it holds but has not started may be taken back
+	 * for an idle worker. Defaults to 1.
+	 * @param prefetch
+	 */
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * Connects to the coordinator and plays games until it says the tournament is over. This is a blocking call.
+	 * @param host Coordinator host.
+	 * @param port Coordinator port.
+	 * @return Number of games played and reported.
+	 * @throws IOException If the connection cannot be made, or is lost; games not reported then are played by other workers.
+	 * @throws InterruptedException
+	 */
+	public int run(String host,int port) throws IOException, InterruptedException {
+		final int threads = Math.max(1,tournamentOptions.getThreads());
+		queue.clear();
+		gamesPlayed.set(0);
+		done = false;
+		requested = false;
+		requestNotBeforeMs = 0;
+		Socket socket = new Socket(host,port);
+		socket.setTcpNoDelay(true);
+		ScheduledExecutorService heartbeatService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,"TournamentWorker heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		IOException connectionLost = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),StandardCharsets.UTF_8));
+			send("HELLO\t" + TournamentJournal.escape(name) + "\t" + threads + "\n");
+			heartbeatService.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						send("HEARTBEAT\n");
+					} catch (IOException e) {
+						// The reader finds out too.
+					}
+				}
+			},heartbeatIntervalMs,heartbeatIntervalMs,TimeUnit.MILLISECONDS);
+
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						playGames(threads);
+						return null;
+					}
+				}));
+			}
+
+			try {
+				read(new BufferedReader(new InputStreamReader(socket.getInputStream(),StandardCharsets.UTF_8)));
+			} catch (IOException e) {
+				connectionLost = e;
+			}
+			if (connectionLost != null || !done) {
+				// Whatever is left here goes to other workers.
+				queue.clear();
+				done = true;
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace(System.err);
+				}
+			}
+		} finally {
+			done = true;
+			heartbeatService.shutdownNow();
+			executorService.shutdownNow();
+			socket.close();
+		}
+		if (connectionLost != null) {
+			throw connectionLost;
+		}
+		return gamesPlayed.get();
+	}
+
+	private void read(BufferedReader bufferedReader) throws IOException {
+		String line;
+		while ((line = bufferedReader.readLine()) != null) {
+			String[] fields = line.split("\t",-1);
+			if (fields[0].equals("P") && fields.length == 6) {
+				queue.add(TournamentJournal.parsePairing(fields));
+			} else if (fields[0].equals("END")) {
+				synchronized (this) {
+					requested = false;
+				}
+			} else if (fields[0].equals("WAIT") && fields.length == 2) {
+				synchronized (this) {
+					requested = false;
+					requestNotBeforeMs = System.currentTimeMillis() + Long.parseLong(fields[1]);
+				}
+			} else if (fields[0].equals("CANCEL") && fields.length == 2) {
+				int gameNumber = Integer.parseInt(fields[1]);
+				Iterator<Pairing> iterator = queue.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().getGameNumber() == gameNumber) {
+						iterator.remove();
+					}
+				}
+			} else if (fields[0].equals("DONE")) {
+				done = true;
+				return;
+			} else {
+				throw new IOException("Unknown message: " + line);
+			}
+		}
+		throw new IOException("Coordinator closed the connection");
+	}
+
+	private void playGames(int threads) throws IOException, InterruptedException {
+		GamePlayer gamePlayer = new GamePlayer(players,tournamentOptions);
+		try {
+			while (!done) {
+				requestGames(threads);
+				Pairing pairing = queue.poll(POLL_MS,TimeUnit.MILLISECONDS);
+				if (pairing == null) {
+					continue;
+				}
+				playing.incrementAndGet();
+				try {
+					send("START\t" + pairing.getGameNumber() + "\n");
+					CompletedGame completedGame;
+					try {
+						completedGame = gamePlayer.play(pairing);
+					} catch (Exception e) {
+						System.err.println("Game " + pairing + " failed:");
+						e.printStackTrace(System.err);
+						send("FAIL\t" + pairing.getGameNumber() + "\n");
+						if (e instanceof InterruptedException) {
+							throw (InterruptedException) e;
+						}
+						continue;
+					}
+					send(TournamentJournal.format(completedGame));
+					gamesPlayed.incrementAndGet();
+					for (TournamentListener tournamentListener : tournamentOptions.getTournamentListeners()) {
+						tournamentListener.onGamePlayed(completedGame);
+					}
+				} finally {
+					playing.decrementAndGet();
+				}
+			}
+		} finally {
+			gamePlayer.close();
+		}
+	}
+
+	/**
+	 * Asks for more games if the worker is running short, and is not waiting for an answer already.
+	 */
+	private synchronized void requestGames(int threads) throws IOException {
+		int wanted = threads + prefetch - queue.size() - playing.get();
+		if (requested || done || wanted <= 0 || System.currentTimeMillis() < requestNotBeforeMs) {
+			return;
+		}
+		requested = true;
+		send("REQUEST\t" + wanted + "\n");
+	}
+
+	private void send(String lines) throws IOException {
+		synchronized (writer) {
+			writer.write(lines);
+			writer.flush();
+		}
+	}
+}
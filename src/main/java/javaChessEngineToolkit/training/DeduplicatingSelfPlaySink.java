@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+import javaChessEngineToolkit.selfplay.SelfPlaySink;
+
+/**
+ * Forwards each position to the wrapped sink only the first time its hash is seen, across all games.
+ * Game start and end events are always forwarded.
+ */
+public class DeduplicatingSelfPlaySink implements SelfPlaySink {
+	private final SelfPlaySink sink;
+	private final PositionHashSet positionHashSet;
+
+	public DeduplicatingSelfPlaySink(SelfPlaySink sink,PositionHashSet positionHashSet) {
+		this.sink = sink;
+		this.positionHashSet = positionHashSet;
+	}
+
+	@Override
+	public void onGameStart(long gameIndex) {
+		sink.onGameStart(gameIndex);
+	}
+
+	@Override
+	public void onPosition(long gameIndex,Position position,short move,int score) {
+		if (positionHashSet.add(position.getHashCode())) {
+			sink.onPosition(gameIndex,position,move,score);
+		}
+	}
+
+	@Override
+	public void onGameEnd(long gameIndex,GameResult gameResult,String reason,int plies) {
+		sink.onGameEnd(gameIndex,gameResult,reason,plies);
+	}
+
+	public PositionHashSet getPositionHashSet() {
+		return positionHashSet;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+import javaChessEngineToolkit.FenCodec;
+import javaChessEngineToolkit.GameResult;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width 32 byte encoding of a labeled position.
+ *
+ * <pre>
+ *  0-7   occupancy bitboard, bit n set if square n (a1 = 0) holds a stone
+ *  8-23  one nibble per occupied square, in square order, low nibble first: piece (1-6) | 8 if black
+ *  24    bit 0 black to play, bits 1-4 castles (Position castle flags)
+ *  25    en passant square, or 0xFF
+ *  26-27 score, clamped to a signed 16 bit value
+ *  28    GameResult ordinal, or 0xFF if unknown
+ *  29    half-move clock, clamped to 255
+ *  30-31 ply number, clamped to 65535
+ * </pre>
+ *
+ * All multi-byte values are big-endian, as written by ByteBuffer.
+ */
+public class PackedPosition {
+	public static final int RECORD_SIZE = 32;
+
+	public static final int OFFSET_OCCUPANCY = 0;
+	public static final int OFFSET_PIECES = 8;
+	public static final int OFFSET_FLAGS = 24;
+	public static final int OFFSET_EP = 25;
+	public static final int OFFSET_SCORE = 26;
+	public static final int OFFSET_RESULT = 28;
+	public static final int OFFSET_HALF_MOVE_CLOCK = 29;
+	public static final int OFFSET_PLY = 30;
+
+	private static final int MAX_STONES = 32;
+	private static final byte NONE = (byte) 0xFF;
+
+	/**
+	 * Encodes a position at the buffer's current position and advances it by RECORD_SIZE.
+	 * @param position Position to encode.
+	 * @param score Score of the position.
+	 * @param gameResult Result of the game, or null if not known yet.
+	 * @param dst Buffer to write to.
+	 */
+	public static void write(Position position,int score,GameResult gameResult,ByteBuffer dst) {
+		int offset = dst.position();
+		write(position,score,gameResult,dst,offset);
+		dst.position(offset + RECORD_SIZE);
+	}
+
+	/**
+	 * Encodes a position at an absolute offset, leaving the buffer's position unchanged.
+	 */
+	public static void write(Position position,int score,GameResult gameResult,ByteBuffer dst,int offset) {
+		write(position,null,score,gameResult,dst,offset);
+	}
+
+	/**
+	 * Encodes the position last parsed by a FenCodec at the buffer's current position and advances it by RECORD_SIZE.
+	 * Unlike going through a Position, nothing is allocated.
+	 */
+	public static void write(FenCodec fenCodec,int score,GameResult gameResult,ByteBuffer dst) {
+		int offset = dst.position();
+		write(null,fenCodec,score,gameResult,dst,offset);
+		dst.position(offset + RECORD_SIZE);
+	}
+
+	/**
+	 * Encodes either a Position or the position last parsed by a FenCodec.
+	 */
+	private static void write(Position position,FenCodec fenCodec,int score,GameResult gameResult,ByteBuffer dst,int offset) {
+		long occupancy = 0L;
+		long pieces0 = 0L;
+		long pieces1 = 0L;
+		int count = 0;
+		for (int sqi = 0; sqi < Chess.NUM_OF_SQUARES; sqi++) {
+			int stone = position != null ? position.getStone(sqi) : fenCodec.getStone(sqi);
+			if (stone == Chess.NO_STONE) {
+				continue;
+			}
+			if (count == MAX_STONES) {
+				throw new IllegalArgumentException("More than " + MAX_STONES + " stones on the board" + (position != null ? ": " + position.getFEN() : ""));
+			}
+			occupancy |= 1L << sqi;
+			long nibble = stoneToNibble(stone);
+			if (count < 16) {
+				pieces0 |= nibble << (count * 4);
+			} else {
+				pieces1 |= nibble << ((count - 16) * 4);
+			}
+			count++;
+		}
+		int toPlay = position != null ? position.getToPlay() : fenCodec.getToPlay();
+		int castles = position != null ? position.getCastles() : fenCodec.getCastles();
+		int sqiEP = position != null ? position.getSqiEP() : fenCodec.getSqiEP();
+		int halfMoveClock = position != null ? position.getHalfMoveClock() : fenCodec.getHalfMoveClock();
+		int plyNumber = position != null ? position.getPlyNumber() : fenCodec.getPlyNumber();
+
+		dst.putLong(offset + OFFSET_OCCUPANCY,occupancy);
+		// Stored as little-endian nibbles, so the first stone is the low nibble of byte 8.
+		dst.putLong(offset + OFFSET_PIECES,Long.reverseBytes(pieces0));
+		dst.putLong(offset + OFFSET_PIECES + 8,Long.reverseBytes(pieces1));
+		dst.put(offset + OFFSET_FLAGS,(byte) ((toPlay == Chess.BLACK ? 1 : 0) | (castles << 1)));
+		dst.put(offset + OFFSET_EP,sqiEP == Chess.NO_SQUARE ? NONE : (byte) sqiEP);
+		dst.putShort(offset + OFFSET_SCORE,(short) Math.max(Short.MIN_VALUE,Math.min(Short.MAX_VALUE,score)));
+		dst.put(offset + OFFSET_RESULT,gameResult == null ? NONE : (byte) gameResult.ordinal());
+		dst.put(offset + OFFSET_HALF_MOVE_CLOCK,(byte) Math.min(255,halfMoveClock));
+		dst.putShort(offset + OFFSET_PLY,(short) Math.min(65535,plyNumber));
+	}
+
+	/**
+	 * Overwrites the result of an already encoded record. Used once the game has finished.
+	 */
+	public static void setResult(ByteBuffer buffer,int offset,GameResult gameResult) {
+		buffer.put(offset + OFFSET_RESULT,gameResult == null ? NONE : (byte) gameResult.ordinal());
+	}
+
+	public static Position toPosition(ByteBuffer src,int offset) {
+		Position position = new Position();
+		long occupancy = src.getLong(offset + OFFSET_OCCUPANCY);
+		long pieces0 = Long.reverseBytes(src.getLong(offset + OFFSET_PIECES));
+		long pieces1 = Long.reverseBytes(src.getLong(offset + OFFSET_PIECES + 8));
+		int count = 0;
+		while (occupancy != 0L) {
+			int sqi = Long.numberOfTrailingZeros(occupancy);
+			occupancy &= occupancy - 1;
+			int nibble = (int) ((count < 16 ? pieces0 >>> (count * 4) : pieces1 >>> ((count - 16) * 4)) & 0xF);
+			position.setStone(sqi,nibbleToStone(nibble));
+			count++;
+		}
+
+		int flags = src.get(offset + OFFSET_FLAGS) & 0xFF;
+		position.setToPlay((flags & 1) == 1 ? Chess.BLACK : Chess.WHITE);
+		position.setCastles((flags >>> 1) & 0xF);
+		int ep = src.get(offset + OFFSET_EP) & 0xFF;
+		position.setSqiEP(ep == 0xFF ? Chess.NO_SQUARE : ep);
+		position.setHalfMoveClock(getHalfMoveClock(src,offset));
+		position.setPlyNumber(getPlyNumber(src,offset));
+		return position;
+	}
+
+	public static int getScore(ByteBuffer src,int offset) {
+		return src.getShort(offset + OFFSET_SCORE);
+	}
+
+	public static GameResult getGameResult(ByteBuffer src,int offset) {
+		int result = src.get(offset + OFFSET_RESULT) & 0xFF;
+		return result == 0xFF ? null : GameResult.values()[result];
+	}
+
+	public static int getHalfMoveClock(ByteBuffer src,int offset) {
+		return src.get(offset + OFFSET_HALF_MOVE_CLOCK) & 0xFF;
+	}
+
+	public static int getPlyNumber(ByteBuffer src,int offset) {
+		return src.getShort(offset + OFFSET_PLY) & 0xFFFF;
+	}
+
+	private static long stoneToNibble(int stone) {
+		return Chess.stoneToPiece(stone) | (Chess.stoneToColor(stone) == Chess.BLACK ? 8 : 0);
+	}
+
+	private static int nibbleToStone(int nibble) {
+		return Chess.pieceToStone(nibble & 7,(nibble & 8) != 0 ? Chess.BLACK : Chess.WHITE);
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.FenCodec;
+import javaChessEngineToolkit.GameResult;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts PackedPosition records to and from FEN and EPD.
+ * In EPD, the score is written as the 'ce' operation and the result as 'c9' ("1-0", "1/2-1/2" or "0-1").
+ */
+public class PackedPositionConverter {
+	public static String toFEN(ByteBuffer src,int offset) {
+		return PackedPosition.toPosition(src,offset).getFEN();
+	}
+
+	public static void fromFEN(String fen,int score,GameResult gameResult,ByteBuffer dst) {
+		PackedPosition.write(new Position(fen),score,gameResult,dst);
+	}
+
+	public static String toEPD(ByteBuffer src,int offset) {
+		Position position = PackedPosition.toPosition(src,offset);
+		StringBuilder stringBuilder = new StringBuilder(96);
+		FenCodec.appendEPD(position,stringBuilder);
+		stringBuilder.append(" ce ").append(PackedPosition.getScore(src,offset)).append(";");
+		GameResult gameResult = PackedPosition.getGameResult(src,offset);
+		if (gameResult != null) {
+			stringBuilder.append(" c9 \"").append(toResultString(gameResult)).append("\";");
+		}
+		stringBuilder.append(" hmvc ").append(position.getHalfMoveClock()).append(";");
+		stringBuilder.append(" fmvn ").append(position.getPlyNumber() / 2 + 1).append(";");
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Encodes an EPD line. Missing 'ce', 'c9', 'hmvc' and 'fmvn' operations default to 0, unknown, 0 and 1.
+	 * @param epd EPD line.
+	 * @param dst Buffer to write the record to.
+	 */
+	public static void fromEPD(String epd,ByteBuffer dst) {
+		fromEPD(new FenCodec(),epd,dst);
+	}
+
+	/**
+	 * Encodes an EPD line as fromEPD(String,ByteBuffer) does, parsing it with a reused FenCodec, so that nothing is allocated.
+	 * @param fenCodec Codec to parse with.
+	 * @param epd EPD line.
+	 * @param dst Buffer to write the record to.
+	 */
+	public static void fromEPD(FenCodec fenCodec,CharSequence epd,ByteBuffer dst) {
+		fenCodec.parse(epd);
+		int score = 0;
+		GameResult gameResult = null;
+		int operation = fenCodec.findOperation("ce");
+		if (operation >= 0 && fenCodec.getOperandCount(operation) > 0) {
+			score = (int) fenCodec.getOperandAsLong(operation,0);
+		}
+		operation = fenCodec.findOperation("c9");
+		if (operation >= 0 && fenCodec.getOperandCount(operation) > 0) {
+			if (fenCodec.operandEquals(operation,0,"1-0")) {
+				gameResult = GameResult.WHITE_WIN;
+			} else if (fenCodec.operandEquals(operation,0,"1/2-1/2")) {
+				gameResult = GameResult.DRAW;
+			} else if (fenCodec.operandEquals(operation,0,"0-1")) {
+				gameResult = GameResult.BLACK_WIN;
+			}
+		}
+		PackedPosition.write(fenCodec,score,gameResult,dst);
+	}
+
+	/**
+	 * Converts an EPD file into packed records. Blank lines and lines starting with '#' are skipped.
+	 * @return Number of records written.
+	 */
+	public static long convertEPD(File epdFile,ShardedPackedWriter writer) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(PackedPosition.RECORD_SIZE * 4096);
+		FenCodec fenCodec = new FenCodec();
+		long count = 0;
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(epdFile),StandardCharsets.UTF_8),1 << 16);
+		try {
+			String line;
+			while ((line = bufferedReader.readLine()) != null) {
+				if (line.trim().isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				if (!buffer.hasRemaining()) {
+					buffer.flip();
+					writer.write(buffer);
+					buffer.clear();
+				}
+				fromEPD(fenCodec,line,buffer);
+				count++;
+			}
+			buffer.flip();
+			writer.write(buffer);
+		} finally {
+			bufferedReader.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Writes every record of the reader as an EPD line.
+	 */
+	public static void convertToEPD(PackedPositionReader reader,Writer writer) throws IOException {
+		byte[] record = new byte[PackedPosition.RECORD_SIZE];
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		for (long i = 0; i < reader.size(); i++) {
+			reader.readRecord(i,record,0);
+			writer.write(toEPD(buffer,0));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	public static String toResultString(GameResult gameResult) {
+		if (gameResult == GameResult.WHITE_WIN) {
+			return "1-0";
+		} else if (gameResult == GameResult.DRAW) {
+			return "1/2-1/2";
+		} else if (gameResult == GameResult.BLACK_WIN) {
+			return "0-1";
+		}
+		return "*";
+	}
+
+	public static GameResult fromResultString(String result) {
+		if (result.equals("1-0")) {
+			return GameResult.WHITE_WIN;
+		} else if (result.equals("1/2-1/2")) {
+			return GameResult.DRAW;
+		} else if (result.equals("0-1")) {
+			return GameResult.BLACK_WIN;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * Memory-maps one or more PackedPosition files and gives random access to their records as a single sequence.
+ */
+public class PackedPositionReader implements Closeable {
+	// A single mapping is limited to 2 GB; keep segments aligned to whole records.
+	private static final long SEGMENT_RECORDS = (Integer.MAX_VALUE / PackedPosition.RECORD_SIZE) & ~1023L;
+
+	private final List<FileChannel> channels = new ArrayList<FileChannel>();
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	private final long[] segmentStarts;
+	private long size;
+
+	public PackedPositionReader(File... files) throws IOException {
+		List<Long> starts = new ArrayList<Long>();
+		for (File file : files) {
+			FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ);
+			channels.add(channel);
+			long records = channel.size() / PackedPosition.RECORD_SIZE;
+			for (long start = 0; start < records; start += SEGMENT_RECORDS) {
+				long count = Math.min(SEGMENT_RECORDS,records - start);
+				segments.add(channel.map(FileChannel.MapMode.READ_ONLY,start * PackedPosition.RECORD_SIZE,count * PackedPosition.RECORD_SIZE));
+				starts.add(size + start);
+			}
+			size += records;
+		}
+		segmentStarts = new long[starts.size()];
+		for (int i = 0; i < segmentStarts.length; i++) {
+			segmentStarts[i] = starts.get(i);
+		}
+	}
+
+	/**
+	 * @return Total number of records.
+	 */
+	public long size() {
+		return size;
+	}
+
+	public Position getPosition(long index) {
+		int segment = segmentIndex(index);
+		return PackedPosition.toPosition(segments.get(segment),offsetOf(segment,index));
+	}
+
+	public int getScore(long index) {
+		int segment = segmentIndex(index);
+		return PackedPosition.getScore(segments.get(segment),offsetOf(segment,index));
+	}
+
+	public GameResult getGameResult(long index) {
+		int segment = segmentIndex(index);
+		return PackedPosition.getGameResult(segments.get(segment),offsetOf(segment,index));
+	}
+
+	public int getPlyNumber(long index) {
+		int segment = segmentIndex(index);
+		return PackedPosition.getPlyNumber(segments.get(segment),offsetOf(segment,index));
+	}
+
+	/**
+	 * Copies the raw record into dst, which must have room for PackedPosition.RECORD_SIZE bytes at dstOffset.
+	 */
+	public void readRecord(long index,byte[] dst,int dstOffset) {
+		int segment = segmentIndex(index);
+		MappedByteBuffer buffer = segments.get(segment);
+		int offset = offsetOf(segment,index);
+		for (int i = 0; i < PackedPosition.RECORD_SIZE; i++) {
+			dst[dstOffset + i] = buffer.get(offset + i);
+		}
+	}
+
+	/**
+	 * @return A uniformly random record index, for sampling with replacement.
+	 */
+	public long sampleIndex(SplittableRandom random) {
+		return random.nextLong(size);
+	}
+
+	/**
+	 * Visits every record index exactly once in a pseudo-random order determined by the seed.
+	 * The permutation is computed on the fly, so no index array is held in memory.
+	 */
+	public PrimitiveIterator.OfLong shuffledIndices(final long seed) {
+		final int bits = Math.max(2,64 - Long.numberOfLeadingZeros(Math.max(1,size - 1)) + 1) & ~1;
+		final int halfBits = bits / 2;
+		final long halfMask = (1L << halfBits) - 1;
+		final long[] keys = new long[4];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+
+		return new PrimitiveIterator.OfLong() {
+			private long counter = 0;
+			private long returned = 0;
+
+			@Override
+			public boolean hasNext() {
+				return returned < size;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				// Cycle-walk a Feistel permutation of the enclosing power of two until it lands inside the range.
+				long value;
+				do {
+					value = permute(counter++);
+				} while (value >= size);
+				returned++;
+				return value;
+			}
+
+			private long permute(long value) {
+				long left = (value >>> halfBits) & halfMask;
+				long right = value & halfMask;
+				for (long key : keys) {
+					long next = left ^ (mix(right ^ key) & halfMask);
+					left = right;
+					right = next;
+				}
+				return (left << halfBits) | right;
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		segments.clear();
+		for (FileChannel channel : channels) {
+			channel.close();
+		}
+	}
+
+	private int segmentIndex(long index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+		}
+		int low = 0;
+		int high = segmentStarts.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (segmentStarts[mid] <= index) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private int offsetOf(int segment,long index) {
+		return (int) (index - segmentStarts[segment]) * PackedPosition.RECORD_SIZE;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+import javaChessEngineToolkit.selfplay.SelfPlaySink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A SelfPlaySink that writes every position as a PackedPosition record, labeled with the game's result.
+ * Positions are encoded into a per-thread buffer while the game runs and handed to the writer when it ends.
+ */
+public class PackedSelfPlaySink implements SelfPlaySink {
+	private final ShardedPackedWriter writer;
+	private final ThreadLocal<ByteBuffer> gameBuffers = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(PackedPosition.RECORD_SIZE * 512);
+		}
+	};
+
+	public PackedSelfPlaySink(ShardedPackedWriter writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void onGameStart(long gameIndex) {
+		gameBuffers.get().clear();
+	}
+
+	@Override
+	public void onPosition(long gameIndex,Position position,short move,int score) {
+		ByteBuffer buffer = gameBuffers.get();
+		if (buffer.remaining() < PackedPosition.RECORD_SIZE) {
+			ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+			buffer.flip();
+			larger.put(buffer);
+			gameBuffers.set(larger);
+			buffer = larger;
+		}
+		PackedPosition.write(position,score,null,buffer);
+	}
+
+	@Override
+	public void onGameEnd(long gameIndex,GameResult gameResult,String reason,int plies) {
+		ByteBuffer buffer = gameBuffers.get();
+		for (int offset = 0; offset < buffer.position(); offset += PackedPosition.RECORD_SIZE) {
+			PackedPosition.setResult(buffer,offset,gameResult);
+		}
+		buffer.flip();
+		try {
+			writer.write(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+	}
+}
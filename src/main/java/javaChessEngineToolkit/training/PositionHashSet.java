@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A set of 64-bit position hashes (such as chesspresso's Position.getHashCode()) held off-heap in a direct buffer.
+ * Uses open addressing with linear probing, 8 bytes per slot, and doubles when more than 3/4 full.
+ * All methods are synchronized, so a single instance can be shared by producer threads.
+ */
+public class PositionHashSet {
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+	// A direct buffer is indexed by int, which limits a table to 1 GB of whole power-of-two slots.
+	public static final int MAX_CAPACITY = 1 << 27;
+
+	private static final long MAGIC = 0x4a43455448415348L; // "JCETHASH"
+	private static final int HEADER_SIZE = 24;
+	// Slot value for an empty slot. A key of 0 is tracked separately.
+	private static final long EMPTY = 0L;
+
+	private ByteBuffer table;
+	private int capacity;
+	private int mask;
+	private int size;
+	private boolean containsZero;
+
+	public PositionHashSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize Number of keys the set should hold without resizing.
+	 */
+	public PositionHashSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16,expectedSize + expectedSize / 3) - 1) << 1;
+		allocate(Math.min(MAX_CAPACITY,capacity));
+	}
+
+	/**
+	 * Adds a key.
+	 * @param key Position hash.
+	 * @return true if the key was not in the set yet.
+	 */
+	public synchronized boolean add(long key) {
+		if (key == EMPTY) {
+			if (containsZero) {
+				return false;
+			}
+			containsZero = true;
+			size++;
+			return true;
+		}
+		if (!insert(table,mask,key)) {
+			return false;
+		}
+		size++;
+		if (size > capacity - (capacity >>> 2)) {
+			resize(capacity << 1);
+		}
+		return true;
+	}
+
+	public synchronized boolean contains(long key) {
+		if (key == EMPTY) {
+			return containsZero;
+		}
+		int slot = slotFor(key,mask);
+		while (true) {
+			long value = table.getLong(slot << 3);
+			if (value == EMPTY) {
+				return false;
+			}
+			if (value == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return Off-heap bytes used by the table.
+	 */
+	public synchronized long getTableBytes() {
+		return (long) capacity << 3;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < capacity; i++) {
+			table.putLong(i << 3,EMPTY);
+		}
+		size = 0;
+		containsZero = false;
+	}
+
+	/**
+	 * Writes the set to a file, so it can be reloaded with load(file).
+	 */
+	public synchronized void save(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(MAGIC);
+			header.putInt(capacity);
+			header.putInt(size);
+			header.putLong(containsZero ? 1L : 0L);
+			header.flip();
+			writeFully(channel,header);
+			ByteBuffer data = table.duplicate();
+			data.clear();
+			writeFully(channel,data);
+		} finally {
+			channel.close();
+		}
+	}
+
+	public static PositionHashSet load(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel,header);
+			header.flip();
+			if (header.getLong() != MAGIC) {
+				throw new IOException("Not a position hash set: " + file);
+			}
+			int capacity = header.getInt();
+			int size = header.getInt();
+			boolean containsZero = header.getLong() != 0L;
+			if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY || channel.size() != HEADER_SIZE + ((long) capacity << 3)) {
+				throw new IOException("Corrupt position hash set: " + file);
+			}
+
+			PositionHashSet set = new PositionHashSet(0);
+			set.allocate(capacity);
+			readFully(channel,set.table);
+			set.table.clear();
+			set.size = size;
+			set.containsZero = containsZero;
+			return set;
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void allocate(int capacity) {
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.table = ByteBuffer.allocateDirect(capacity << 3);
+	}
+
+	private void resize(int newCapacity) {
+		if (newCapacity > MAX_CAPACITY) {
+			if (size >= capacity - 1) {
+				throw new IllegalStateException("Position hash set is full at " + size + " keys");
+			}
+			// Keep running above the usual load factor rather than failing outright.
+			return;
+		}
+		ByteBuffer oldTable = table;
+		int oldCapacity = capacity;
+		allocate(newCapacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			long key = oldTable.getLong(i << 3);
+			if (key != EMPTY) {
+				insert(table,mask,key);
+			}
+		}
+	}
+
+	private static boolean insert(ByteBuffer table,int mask,long key) {
+		int slot = slotFor(key,mask);
+		while (true) {
+			long value = table.getLong(slot << 3);
+			if (value == EMPTY) {
+				table.putLong(slot << 3,key);
+				return true;
+			}
+			if (value == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static int slotFor(long key,int mask) {
+		// Zobrist keys are already well mixed, but fold the high bits in for keys that are not.
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	private static void writeFully(FileChannel channel,ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static void readFully(FileChannel channel,ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+}
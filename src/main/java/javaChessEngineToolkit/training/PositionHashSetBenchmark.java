@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import java.util.SplittableRandom;
+
+/**
+ * Measures PositionHashSet insert throughput and memory use.
+ * Usage: PositionHashSetBenchmark [keys] [duplicate ratio, 0-1]
+ */
+public class PositionHashSetBenchmark {
+	public static void main(String[] args) {
+		final int keys = args.length > 0 ? Integer.parseInt(args[0]) : 50000000;
+		final double duplicateRatio = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+		// Start small, so resizing is part of the measurement, as it is when harvesting.
+		PositionHashSet positionHashSet = new PositionHashSet();
+		SplittableRandom random = new SplittableRandom(42);
+		long[] recent = new long[4096];
+
+		long started = System.nanoTime();
+		int added = 0;
+		for (int i = 0; i < keys; i++) {
+			long key;
+			if (i > 0 && random.nextDouble() < duplicateRatio) {
+				key = recent[random.nextInt(Math.min(i,recent.length))];
+			} else {
+				key = random.nextLong();
+				recent[i & (recent.length - 1)] = key;
+			}
+			if (positionHashSet.add(key)) {
+				added++;
+			}
+		}
+		long elapsedNs = System.nanoTime() - started;
+
+		System.out.println(String.format("Inserts: %d (%d unique) in %.2f s",keys,added,elapsedNs / 1e9));
+		System.out.println(String.format("Inserts per second: %.0f",keys / (elapsedNs / 1e9)));
+		System.out.println(String.format("Table: %d MB, %.1f bytes per key",
+				positionHashSet.getTableBytes() / (1024 * 1024),positionHashSet.getTableBytes() / (double) positionHashSet.size()));
+	}
+}
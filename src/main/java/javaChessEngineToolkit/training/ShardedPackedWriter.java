@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.training;
+
+import chesspresso.position.Position;
+import javaChessEngineToolkit.GameResult;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams PackedPosition records to a set of shard files from any number of producer threads.
+ * Each shard has its own buffer and lock, and producers are spread over the shards by thread, so they rarely contend.
+ * Records are only written to disk in whole buffers.
+ */
+public class ShardedPackedWriter implements Closeable {
+	public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	private final Shard[] shards;
+
+	/**
+	 * @param directory Directory to create the shards in.
+	 * @param prefix File name prefix. Shards are named prefix-00000.bin, prefix-00001.bin, ...
+	 * @param numShards Number of shard files.
+	 * @param bufferSize Buffer size per shard, in bytes. Rounded down to a whole number of records.
+	 * @throws IOException
+	 */
+	public ShardedPackedWriter(File directory,String prefix,int numShards,int bufferSize) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create directory " + directory);
+		}
+		int recordsPerBuffer = Math.max(1,bufferSize / PackedPosition.RECORD_SIZE);
+		this.shards = new Shard[numShards];
+		for (int i = 0; i < numShards; i++) {
+			File file = new File(directory,String.format("%s-%05d.bin",prefix,i));
+			FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.APPEND);
+			shards[i] = new Shard(channel,ByteBuffer.allocateDirect(recordsPerBuffer * PackedPosition.RECORD_SIZE));
+		}
+	}
+
+	public ShardedPackedWriter(File directory,String prefix,int numShards) throws IOException {
+		this(directory,prefix,numShards,DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Encodes and writes a single position.
+	 */
+	public void write(Position position,int score,GameResult gameResult) throws IOException {
+		Shard shard = currentShard();
+		synchronized (shard) {
+			if (shard.buffer.remaining() < PackedPosition.RECORD_SIZE) {
+				shard.flush();
+			}
+			PackedPosition.write(position,score,gameResult,shard.buffer);
+			shard.records++;
+		}
+	}
+
+	/**
+	 * Writes already encoded records, from the source's position to its limit, to a single shard.
+	 * Records are kept together, so all positions of a game end up in the same shard.
+	 * @param records Whole PackedPosition records.
+	 */
+	public void write(ByteBuffer records) throws IOException {
+		if (records.remaining() % PackedPosition.RECORD_SIZE != 0) {
+			throw new IllegalArgumentException("Not a whole number of records: " + records.remaining() + " bytes");
+		}
+		Shard shard = currentShard();
+		synchronized (shard) {
+			shard.records += records.remaining() / PackedPosition.RECORD_SIZE;
+			while (records.hasRemaining()) {
+				if (!shard.buffer.hasRemaining()) {
+					shard.flush();
+				}
+				int length = Math.min(records.remaining(),shard.buffer.remaining());
+				ByteBuffer slice = records.duplicate();
+				slice.limit(slice.position() + length);
+				shard.buffer.put(slice);
+				records.position(records.position() + length);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of records written so far, including buffered ones.
+	 */
+	public long getRecordCount() {
+		long count = 0;
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				count += shard.records;
+			}
+		}
+		return count;
+	}
+
+	public void flush() throws IOException {
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				shard.flush();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				try {
+					shard.flush();
+					shard.channel.close();
+				} catch (IOException e) {
+					exception = e;
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private Shard currentShard() {
+		return shards[(int) (Thread.currentThread().getId() % shards.length)];
+	}
+
+	private static class Shard {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long records;
+
+		private Shard(FileChannel channel,ByteBuffer buffer) {
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
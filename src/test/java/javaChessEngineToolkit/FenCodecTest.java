@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FenCodecTest {
+	private static final String[] FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2",
+		"rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b Kkq e3 0 3",
+		"r3k2r/8/8/8/8/8/8/R3K2R b Qk - 17 42",
+		"4k3/8/8/8/8/8/8/4K3 w - - 99 150",
+		"1Q2k3/8/8/8/8/8/8/4K2q b - - 0 61",
+	};
+
+	@Test
+	public void roundTripsThroughPosition() {
+		FenCodec fenCodec = new FenCodec();
+		Position position = new Position();
+		StringBuilder stringBuilder = new StringBuilder();
+		for (String fen : FENS) {
+			fenCodec.parse(fen);
+			fenCodec.toPosition(position);
+			stringBuilder.setLength(0);
+			FenCodec.appendFEN(position,stringBuilder);
+			assertEquals(fen,stringBuilder.toString());
+		}
+	}
+
+	@Test
+	public void roundTripsThroughBytes() {
+		FenCodec fenCodec = new FenCodec();
+		Position position = new Position();
+		for (String fen : FENS) {
+			byte[] line = ("x" + fen + "\n").getBytes(StandardCharsets.US_ASCII);
+			fenCodec.parse(ByteBuffer.wrap(line),1,fen.length());
+			fenCodec.toPosition(position);
+			ByteBuffer dst = ByteBuffer.allocate(128);
+			FenCodec.putFEN(position,dst);
+			assertEquals(fen,new String(dst.array(),0,dst.position(),StandardCharsets.US_ASCII));
+		}
+	}
+
+	@Test
+	public void parsesFields() {
+		FenCodec fenCodec = new FenCodec();
+		fenCodec.parse("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b Kkq e3 0 3");
+		assertEquals(Chess.WHITE_KING,fenCodec.getStone(Chess.E1));
+		assertEquals(Chess.BLACK_KING,fenCodec.getStone(Chess.E8));
+		assertEquals(Chess.WHITE_PAWN,fenCodec.getStone(Chess.E4));
+		assertEquals(Chess.NO_STONE,fenCodec.getStone(Chess.E2));
+		assertEquals(Chess.BLACK,fenCodec.getToPlay());
+		assertEquals(Position.WHITE_SHORT_CASTLE | Position.BLACK_CASTLE,fenCodec.getCastles());
+		assertEquals(Chess.E3,fenCodec.getSqiEP());
+		assertEquals(0,fenCodec.getHalfMoveClock());
+		assertEquals(5,fenCodec.getPlyNumber());
+		assertEquals(0,fenCodec.getOperationCount());
+	}
+
+	@Test
+	public void countersAreOptional() {
+		FenCodec fenCodec = new FenCodec();
+		fenCodec.parse("4k3/8/8/8/8/8/8/4K3 b - -");
+		assertEquals(0,fenCodec.getHalfMoveClock());
+		assertEquals(1,fenCodec.getPlyNumber());
+	}
+
+	@Test
+	public void parsesEpdOperations() {
+		FenCodec fenCodec = new FenCodec();
+		fenCodec.parse("  4k3/8/8/8/8/8/8/4K3 w - - bm Kd2 Ke2; id \"a; b\"; ce -35; hmvc 4; fmvn 10; noop;  ");
+		assertEquals(6,fenCodec.getOperationCount());
+		int bm = fenCodec.findOperation("bm");
+		assertEquals(2,fenCodec.getOperandCount(bm));
+		assertEquals("Ke2",fenCodec.getOperand(bm,1));
+		assertEquals("a; b",fenCodec.getOperand(fenCodec.findOperation("id"),0));
+		assertEquals(-35,fenCodec.getOperandAsLong(fenCodec.findOperation("ce"),0));
+		assertEquals(0,fenCodec.getOperandCount(fenCodec.findOperation("noop")));
+		assertEquals(-1,fenCodec.findOperation("pv"));
+		assertEquals(4,fenCodec.getHalfMoveClock());
+		assertEquals(18,fenCodec.getPlyNumber());
+	}
+
+	@Test
+	public void rejectsMalformedLines() {
+		assertRejected("");
+		assertRejected("4k3/8/8/8/8/8/8/4K3 x - -");
+		assertRejected("4k3/8/8/8/8/8/8/4K3 wb - -");
+		assertRejected("4k3/8/8/8/8/8/8/4K2 w - -");
+		assertRejected("4k3/8/8/8/8/8/4K3 w - -");
+		assertRejected("9/4k3/8/8/8/8/8/4K3 w - -");
+		assertRejected("4k3/8/8/8/8/8/8/4K3 w KX -");
+		assertRejected("4k3/8/8/8/8/8/8/4K3 w - e4");
+		assertRejected("4k3/8/8/8/8/8/8/4K3 w - - bm \"x");
+	}
+
+	@Test
+	public void rejectsTextAfterEnPassantSquare() {
+		assertRejected("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3x 0 3");
+		assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -5 0 1");
+	}
+
+	@Test
+	public void rejectsPositionsWithoutOneKingPerSide() {
+		assertRejected("8/8/8/8/8/8/8/4K3 w - - 0 1");
+		assertRejected("4k3/8/8/8/8/8/8/8 w - - 0 1");
+		assertRejected("3kk3/8/8/8/8/8/8/4K3 w - - 0 1");
+		assertRejected("4k3/8/8/8/8/8/8/3KK3 w - - 0 1");
+	}
+
+	private static void assertRejected(String line) {
+		try {
+			new FenCodec().parse(line);
+			fail("Accepted: " + line);
+		} catch (IllegalArgumentException e) {
+			// Expected.
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.book;
+
+import chesspresso.position.Position;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PolyglotKeyTest {
+	@Test
+	public void producesReferenceKeys() {
+		// The Random64 table is not part of the source; run with -Dpolyglot.random64=<file> to check it.
+		Assume.assumeTrue(PolyglotKey.isAvailable());
+		assertEquals(PolyglotKey.REFERENCE_FENS.length,PolyglotKey.REFERENCE_KEYS.length);
+		for (int i = 0; i < PolyglotKey.REFERENCE_FENS.length; i++) {
+			assertEquals(PolyglotKey.REFERENCE_FENS[i],PolyglotKey.REFERENCE_KEYS[i],PolyglotKey.getKey(new Position(PolyglotKey.REFERENCE_FENS[i])));
+		}
+	}
+
+	@Test
+	public void initialPositionKeyIsFirstReferenceKey() {
+		assertEquals(PolyglotKey.INITIAL_POSITION_KEY,PolyglotKey.REFERENCE_KEYS[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTableOfWrongSize() {
+		PolyglotKey.setRandom64(new long[780]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTableWithoutReferenceKeys() {
+		PolyglotKey.setRandom64(new long[781]);
+	}
+
+	@Test
+	public void readsCSourceButChecksReferenceKeys() throws IOException {
+		StringBuilder source = new StringBuilder("const uint64 Random64[781] = {\n");
+		for (int i = 0; i < 781; i++) {
+			source.append(i % 2 == 0 ? "   U64(0x9D39247E33776D41)," : " 9d39247e33776d41,").append('\n');
+		}
+		source.append("};\n");
+		assertRejected(source.toString(),"does not produce");
+	}
+
+	@Test
+	public void rejectsWrongNumberOfValues() throws IOException {
+		char[] digits = new char[16];
+		Arrays.fill(digits,'a');
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 780; i++) {
+			source.append("0x").append(digits).append(' ');
+		}
+		assertRejected(source.toString(),"found 780");
+		assertRejected(source + "0x1 0x2","More than 781");
+	}
+
+	@Test
+	public void rejectsInvalidValues() throws IOException {
+		assertRejected("0x12 0xzz","Invalid Random64 value");
+	}
+
+	private static void assertRejected(String table,String message) throws IOException {
+		File file = File.createTempFile("random64",".txt");
+		try {
+			Files.write(file.toPath(),table.getBytes(StandardCharsets.US_ASCII));
+			PolyglotKey.loadRandom64(file);
+			fail("Accepted table, expected: " + message);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(),e.getMessage().contains(message));
+		} finally {
+			file.delete();
+		}
+	}
+}
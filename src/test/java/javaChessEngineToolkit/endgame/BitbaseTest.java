@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.endgame;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BitbaseTest {
+	private static final Bitbases BITBASES = new Bitbases(null);
+
+	@Test
+	public void indexStaysWithinSize() {
+		Random random = new Random(1);
+		for (Bitbase.Type type : Bitbase.Type.values()) {
+			for (int i = 0; i < 100000; i++) {
+				int[] squares = randomSquares(random,type);
+				int index = Bitbase.index(type,squares[0],squares[1],squares[2],squares.length > 3 ? squares[3] : 0,i & 1);
+				assertTrue(type + " " + index,index >= 0 && index < type.size());
+			}
+		}
+	}
+
+	@Test
+	public void decodeInvertsIndex() {
+		for (Bitbase.Type type : new Bitbase.Type[] { Bitbase.Type.KPK, Bitbase.Type.KQK }) {
+			int[] squares = new int[2 + type.getNumPieces()];
+			for (int index = 0; index < type.size(); index++) {
+				int sideToMove = Bitbase.decode(type,index,squares);
+				assertEquals(index,Bitbase.index(type,squares[0],squares[1],squares[2],0,sideToMove));
+			}
+		}
+	}
+
+	@Test
+	public void mirroredPositionsShareAnIndex() {
+		Random random = new Random(2);
+		for (Bitbase.Type type : Bitbase.Type.values()) {
+			for (int i = 0; i < 10000; i++) {
+				int[] squares = randomSquares(random,type);
+				int index = index(type,squares,i & 1);
+				assertEquals(index,index(type,mirror(squares,7,false),i & 1));
+				if (type != Bitbase.Type.KPK) {
+					// Without pawns the board can also be flipped top to bottom and along the diagonal.
+					assertEquals(index,index(type,mirror(squares,0x38,false),i & 1));
+					int file = squares[0] & 7;
+					int rank = squares[0] >>> 3;
+					if (file != rank && file != 7 - rank) {
+						// With the strong king on a diagonal the position is stored both ways.
+						assertEquals(index,index(type,mirror(squares,0,true),i & 1));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void knowsKqkResults() {
+		Bitbase kqk = BITBASES.get(Bitbase.Type.KQK);
+		assertTrue(kqk.isWin(square("e1"),square("e8"),square("d1"),0,true));
+		assertTrue(kqk.isWin(square("e1"),square("e8"),square("d1"),0,false));
+		// The lone king takes the queen.
+		assertFalse(kqk.isWin(square("a1"),square("e8"),square("e7"),0,false));
+		// The lone king can't be in check with the strong side to move.
+		assertFalse(kqk.isWin(square("a1"),square("e8"),square("e7"),0,true));
+		// Stalemate.
+		assertFalse(kqk.isWin(square("c6"),square("a8"),square("b6"),0,false));
+	}
+
+	@Test
+	public void knowsKrkResults() {
+		Bitbase krk = BITBASES.get(Bitbase.Type.KRK);
+		assertTrue(krk.isWin(square("a1"),square("e5"),square("h2"),0,true));
+		assertFalse(krk.isWin(square("a1"),square("b2"),square("c3"),0,false));
+	}
+
+	@Test
+	public void knowsKpkResults() {
+		Bitbase kpk = BITBASES.get(Bitbase.Type.KPK);
+		// King on the sixth rank in front of its pawn.
+		assertTrue(kpk.isWin(square("d6"),square("d8"),square("d5"),0,true));
+		assertTrue(kpk.isWin(square("d6"),square("d8"),square("d5"),0,false));
+		assertTrue(kpk.isWin(square("e6"),square("e8"),square("e5"),0,false));
+		// The lone king takes the pawn.
+		assertFalse(kpk.isWin(square("a1"),square("e5"),square("e4"),0,false));
+		// Opposition in front of the pawn.
+		assertFalse(kpk.isWin(square("e4"),square("e6"),square("e3"),0,true));
+		// Rook pawn with the lone king in the corner.
+		assertFalse(kpk.isWin(square("h6"),square("h8"),square("h5"),0,true));
+	}
+
+	private static int[] randomSquares(Random random,Bitbase.Type type) {
+		int[] squares = new int[2 + type.getNumPieces()];
+		for (int i = 0; i < squares.length; i++) {
+			squares[i] = random.nextInt(64);
+		}
+		if (type == Bitbase.Type.KPK) {
+			squares[2] = 8 + random.nextInt(48);
+		}
+		return squares;
+	}
+
+	private static int index(Bitbase.Type type,int[] squares,int sideToMove) {
+		return Bitbase.index(type,squares[0],squares[1],squares[2],squares.length > 3 ? squares[3] : 0,sideToMove);
+	}
+
+	private static int[] mirror(int[] squares,int flip,boolean transpose) {
+		int[] mirrored = new int[squares.length];
+		for (int i = 0; i < squares.length; i++) {
+			int sqi = squares[i] ^ flip;
+			mirrored[i] = transpose ? (sqi & 7) << 3 | sqi >>> 3 : sqi;
+		}
+		return mirrored;
+	}
+
+	private static int square(String name) {
+		return (name.charAt(1) - '1') * 8 + name.charAt(0) - 'a';
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.events;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+	@Test
+	public void roundsCapacityUpToPowerOfTwo() {
+		assertEquals(1,new RingBuffer<Object>(1).getCapacity());
+		assertEquals(8,new RingBuffer<Object>(5).getCapacity());
+		assertEquals(8,new RingBuffer<Object>(8).getCapacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZeroCapacity() {
+		new RingBuffer<Object>(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTooLargeCapacity() {
+		new RingBuffer<Object>((1 << 30) + 1);
+	}
+
+	@Test
+	public void pollsInOfferOrderAcrossWraps() {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4);
+		assertTrue(ringBuffer.isEmpty());
+		assertNull(ringBuffer.poll());
+		int next = 0;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 3; i++) {
+				assertTrue(ringBuffer.offer(round * 3 + i));
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals(Integer.valueOf(next++),ringBuffer.poll());
+			}
+			assertTrue(ringBuffer.isEmpty());
+		}
+	}
+
+	@Test
+	public void rejectsOffersWhenFull() {
+		RingBuffer<String> ringBuffer = new RingBuffer<String>(2);
+		assertTrue(ringBuffer.offer("a"));
+		assertTrue(ringBuffer.offer("b"));
+		assertFalse(ringBuffer.offer("c"));
+		assertEquals("a",ringBuffer.poll());
+		assertTrue(ringBuffer.offer("c"));
+		assertEquals("b",ringBuffer.poll());
+		assertEquals("c",ringBuffer.poll());
+		assertNull(ringBuffer.poll());
+	}
+
+	@Test(timeout = 30000)
+	public void deliversEveryElementFromManyProducers() throws InterruptedException {
+		final int producers = 4;
+		final int perProducer = 100000;
+		final RingBuffer<int[]> ringBuffer = new RingBuffer<int[]>(64);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perProducer; i++) {
+						int[] element = {producer,i};
+						while (!ringBuffer.offer(element)) {
+							Thread.yield();
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		int[] nextExpected = new int[producers];
+		int received = 0;
+		while (received < producers * perProducer) {
+			int[] element = ringBuffer.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			// Elements of one producer keep their order.
+			assertEquals(nextExpected[element[0]]++,element[1]);
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(ringBuffer.isEmpty());
+	}
+}
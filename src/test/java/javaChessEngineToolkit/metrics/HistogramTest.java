@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+	@Test
+	public void smallValuesHaveTheirOwnBucket() {
+		for (int value = 0; value < 16; value++) {
+			assertEquals(value,Histogram.getBucket(value));
+			assertEquals(value,Histogram.getBucketUpperBound(value));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguousAndContainTheirValues() {
+		assertEquals(16,Histogram.getBucket(16));
+		long previousUpperBound = 15;
+		for (int bucket = 16; Histogram.getBucketUpperBound(bucket) > 0 && bucket < 60 * 16; bucket++) {
+			long upperBound = Histogram.getBucketUpperBound(bucket);
+			assertEquals(bucket,Histogram.getBucket(previousUpperBound + 1));
+			assertEquals(bucket,Histogram.getBucket(upperBound));
+			// Relative error stays below one sub-bucket.
+			assertTrue(upperBound - previousUpperBound <= (previousUpperBound + 1) / 16 + 1);
+			previousUpperBound = upperBound;
+		}
+		assertEquals(Long.MAX_VALUE,previousUpperBound);
+		assertEquals(60 * 16 - 1,Histogram.getBucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void emptySnapshotIsZero() {
+		Histogram.Snapshot snapshot = new Histogram("empty").snapshot();
+		assertEquals(0,snapshot.getCount());
+		assertEquals(0,snapshot.getMin());
+		assertEquals(0,snapshot.getMax());
+		assertEquals(0,snapshot.getMean(),0);
+		assertEquals(0,snapshot.getValueAtQuantile(0.5));
+	}
+
+	@Test
+	public void summarizesRecordedValues() {
+		Histogram histogram = new Histogram("latency","engine");
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000,snapshot.getCount());
+		assertEquals(500500,snapshot.getSum());
+		assertEquals(1,snapshot.getMin());
+		assertEquals(1000,snapshot.getMax());
+		assertEquals(500.5,snapshot.getMean(),1e-9);
+		assertEquals(1,snapshot.getValueAtQuantile(0));
+		assertEquals(1000,snapshot.getValueAtQuantile(1));
+		long median = snapshot.getValueAtQuantile(0.5);
+		assertTrue(median >= 500 && median <= 500 + 500 / 16);
+		long p99 = snapshot.getValueAtQuantile(0.99);
+		assertTrue(p99 >= 990 && p99 <= 1000);
+	}
+
+	@Test
+	public void recordsNegativeValuesAsZero() {
+		Histogram histogram = new Histogram("clock");
+		histogram.record(-5);
+		histogram.record(3);
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(2,snapshot.getCount());
+		assertEquals(3,snapshot.getSum());
+		assertEquals(0,snapshot.getMin());
+		assertEquals(0,snapshot.getValueAtQuantile(0.5));
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RoundRobinSchedulerTest {
+	@Test
+	public void everyPairMeetsOncePerCycle() {
+		List<String> players = Arrays.asList("a","b","c","d","e","f");
+		List<Pairing> pairings = new RoundRobinScheduler(players,1,0).nextPairings(new TournamentState(),1);
+		assertEquals(15,pairings.size());
+		Set<String> pairs = new HashSet<String>();
+		Map<Integer,Set<String>> playersPerRound = new HashMap<Integer,Set<String>>();
+		for (int i = 0; i < pairings.size(); i++) {
+			Pairing pairing = pairings.get(i);
+			assertEquals(i + 1,pairing.getGameNumber());
+			assertEquals(-1,pairing.getOpeningIndex());
+			assertTrue(pairs.add(key(pairing.getWhite(),pairing.getBlack())));
+			Set<String> roundPlayers = playersPerRound.get(pairing.getRound());
+			if (roundPlayers == null) {
+				roundPlayers = new HashSet<String>();
+				playersPerRound.put(pairing.getRound(),roundPlayers);
+			}
+			// Nobody plays twice in a round.
+			assertTrue(roundPlayers.add(pairing.getWhite()));
+			assertTrue(roundPlayers.add(pairing.getBlack()));
+		}
+		assertEquals(5,playersPerRound.size());
+	}
+
+	@Test
+	public void balancesColors() {
+		List<String> players = Arrays.asList("a","b","c","d","e","f");
+		Map<String,Integer> whites = new HashMap<String,Integer>();
+		for (Pairing pairing : new RoundRobinScheduler(players,1,0).nextPairings(new TournamentState(),1)) {
+			Integer count = whites.get(pairing.getWhite());
+			whites.put(pairing.getWhite(),count != null ? count + 1 : 1);
+		}
+		for (String player : players) {
+			Integer count = whites.get(player);
+			assertTrue(count != null && (count == 2 || count == 3));
+		}
+	}
+
+	@Test
+	public void secondCycleReversesColors() {
+		List<String> players = Arrays.asList("a","b","c","d");
+		List<Pairing> pairings = new RoundRobinScheduler(players,4,3).nextPairings(new TournamentState(),10);
+		assertEquals(24,pairings.size());
+		assertEquals(10,pairings.get(0).getGameNumber());
+		for (int i = 0; i < 6; i++) {
+			Pairing first = pairings.get(i);
+			Pairing second = pairings.get(i + 6);
+			assertEquals(first.getWhite(),second.getBlack());
+			assertEquals(first.getBlack(),second.getWhite());
+			assertEquals(first.getRound() + 3,second.getRound());
+			// Both games of a pair share an opening, the next two cycles use the next one.
+			assertEquals(0,first.getOpeningIndex());
+			assertEquals(0,second.getOpeningIndex());
+			assertEquals(1,pairings.get(i + 12).getOpeningIndex());
+			assertEquals(1,pairings.get(i + 18).getOpeningIndex());
+		}
+	}
+
+	@Test
+	public void oddPlayerSitsOutEachRoundOnce() {
+		List<String> players = Arrays.asList("a","b","c","d","e");
+		List<Pairing> pairings = new RoundRobinScheduler(players,1,0).nextPairings(new TournamentState(),1);
+		assertEquals(10,pairings.size());
+		Map<Integer,Integer> gamesPerRound = new HashMap<Integer,Integer>();
+		Set<String> pairs = new HashSet<String>();
+		for (Pairing pairing : pairings) {
+			assertTrue(pairs.add(key(pairing.getWhite(),pairing.getBlack())));
+			Integer count = gamesPerRound.get(pairing.getRound());
+			gamesPerRound.put(pairing.getRound(),count != null ? count + 1 : 1);
+		}
+		assertEquals(5,gamesPerRound.size());
+		for (int games : gamesPerRound.values()) {
+			assertEquals(2,games);
+		}
+	}
+
+	@Test
+	public void schedulesOnlyOnce() {
+		RoundRobinScheduler roundRobinScheduler = new RoundRobinScheduler(Arrays.asList("a","b"),2,0);
+		TournamentState tournamentState = new TournamentState();
+		for (Pairing pairing : roundRobinScheduler.nextPairings(tournamentState,1)) {
+			tournamentState.addPairing(pairing);
+		}
+		assertEquals(2,tournamentState.getSchedule().size());
+		assertEquals(0,roundRobinScheduler.nextPairings(tournamentState,3).size());
+	}
+
+	private static String key(String player1,String player2) {
+		return player1.compareTo(player2) < 0 ? player1 + "\t" + player2 : player2 + "\t" + player1;
+	}
+}
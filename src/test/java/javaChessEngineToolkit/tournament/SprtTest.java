@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SprtTest {
+	private final Sprt sprt = new Sprt(0,5,0.05,0.05);
+
+	@Test
+	public void boundsFollowFromErrorRates() {
+		assertEquals(-Math.log(19),sprt.getLowerBound(),1e-12);
+		assertEquals(Math.log(19),sprt.getUpperBound(),1e-12);
+		Sprt asymmetric = new Sprt(0,5,0.05,0.1);
+		assertEquals(Math.log(0.1 / 0.95),asymmetric.getLowerBound(),1e-12);
+		assertEquals(Math.log(0.9 / 0.05),asymmetric.getUpperBound(),1e-12);
+	}
+
+	@Test
+	public void continuesWithoutVariance() {
+		Standings.Record record = record(10,0,0);
+		assertEquals(0,sprt.getLlr(record),0);
+		assertEquals(Sprt.Status.CONTINUE,sprt.getStatus(record));
+		assertEquals(Sprt.Status.CONTINUE,sprt.getStatus(record(0,0,0)));
+	}
+
+	@Test
+	public void continuesOnFewGames() {
+		assertEquals(Sprt.Status.CONTINUE,sprt.getStatus(record(6,8,5)));
+	}
+
+	@Test
+	public void acceptsH1OnClearGain() {
+		Standings.Record record = record(600,1000,400);
+		assertTrue(sprt.getLlr(record) > sprt.getUpperBound());
+		assertEquals(Sprt.Status.ACCEPT_H1,sprt.getStatus(record));
+	}
+
+	@Test
+	public void acceptsH0OnClearLoss() {
+		Standings.Record record = record(400,1000,600);
+		assertTrue(sprt.getLlr(record) < sprt.getLowerBound());
+		assertEquals(Sprt.Status.ACCEPT_H0,sprt.getStatus(record));
+	}
+
+	@Test
+	public void llrIsZeroHalfwayBetweenHypotheses() {
+		// The LLR changes sign at the mean of the two expected scores, 0.5 for symmetric hypotheses.
+		Sprt wide = new Sprt(-200,200,0.05,0.05);
+		assertEquals(0,wide.getLlr(record(300,400,300)),1e-9);
+	}
+
+	private static Standings.Record record(int wins,int draws,int losses) {
+		Standings standings = new Standings();
+		int gameNumber = 1;
+		for (int i = 0; i < wins; i++) {
+			standings.add(StandingsTest.game(gameNumber++,"test","base",GameResult.WHITE_WIN));
+		}
+		for (int i = 0; i < draws; i++) {
+			standings.add(StandingsTest.game(gameNumber++,"test","base",GameResult.DRAW));
+		}
+		for (int i = 0; i < losses; i++) {
+			standings.add(StandingsTest.game(gameNumber++,"test","base",GameResult.BLACK_WIN));
+		}
+		return standings.getRecord("test");
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class StandingsTest {
+	@Test
+	public void countsGamesForBothPlayers() {
+		Standings standings = new Standings();
+		standings.add(game(1,"a","b",GameResult.WHITE_WIN));
+		standings.add(game(2,"b","a",GameResult.DRAW));
+		standings.add(game(3,"c","a",GameResult.WHITE_WIN));
+		standings.add(game(4,"b","c",GameResult.BLACK_WIN));
+
+		Standings.Record a = standings.getRecord("a");
+		assertEquals(1,a.getWins());
+		assertEquals(1,a.getDraws());
+		assertEquals(1,a.getLosses());
+		assertEquals(3,a.getGames());
+		assertEquals(1.5,a.getPoints(),0);
+		assertEquals(0.5,a.getScore(),0);
+
+		Standings.Record aAgainstB = standings.getRecord("a","b");
+		assertEquals(1,aAgainstB.getWins());
+		assertEquals(1,aAgainstB.getDraws());
+		assertEquals(0,aAgainstB.getLosses());
+		assertEquals(0,standings.getRecord("b","c").getWins());
+		assertEquals(1,standings.getRecord("c","b").getWins());
+
+		assertEquals(Arrays.asList("c","a","b"),standings.getPlayers());
+	}
+
+	@Test
+	public void ignoresAbortedGames() {
+		Standings standings = new Standings();
+		standings.add(game(1,"a","b",null));
+		assertEquals(0,standings.getRecord("a").getGames());
+		assertEquals(0,standings.getRecord("a","b").getGames());
+		assertEquals(0,standings.getPlayers().size());
+	}
+
+	@Test
+	public void emptyRecordIsZero() {
+		Standings.Record record = new Standings().getRecord("nobody");
+		assertEquals(0,record.getGames());
+		assertEquals(0,record.getScore(),0);
+		assertEquals(0,record.getScoreVariance(),0);
+		assertEquals(Double.POSITIVE_INFINITY,record.getEloError(),0);
+	}
+
+	@Test
+	public void scoreVarianceOfEvenRecord() {
+		Standings standings = new Standings();
+		standings.add(game(1,"a","b",GameResult.WHITE_WIN));
+		standings.add(game(2,"a","b",GameResult.BLACK_WIN));
+		// Scores 1 and 0 around a mean of 0.5.
+		assertEquals(0.25,standings.getRecord("a").getScoreVariance(),1e-12);
+		assertEquals(0,standings.getRecord("a").getElo(),1e-9);
+	}
+
+	@Test
+	public void eloAndScoreAreInverse() {
+		assertEquals(0.5,Standings.toScore(0),1e-12);
+		assertEquals(0.75,Standings.toScore(Standings.toElo(0.75)),1e-12);
+		assertEquals(-150,Standings.toElo(Standings.toScore(-150)),1e-9);
+		// 400 Elo is ten to one.
+		assertEquals(10.0 / 11,Standings.toScore(400),1e-12);
+		assertEquals(Standings.toElo(1e-6),Standings.toElo(0),0);
+		assertEquals(Standings.toElo(1 - 1e-6),Standings.toElo(1),0);
+	}
+
+	static CompletedGame game(int gameNumber,String white,String black,GameResult gameResult) {
+		return new CompletedGame(new Pairing(gameNumber,1,white,black,0),gameResult,"test",80,1000,null);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SwissSchedulerTest {
+	@Test
+	public void firstRoundPairsNeighboursInSeedingOrder() {
+		List<Pairing> pairings = new SwissScheduler(Arrays.asList("a","b","c","d"),3,2).nextPairings(new TournamentState(),1);
+		assertEquals(2,pairings.size());
+		assertPairing(pairings.get(0),1,1,"a","b");
+		assertPairing(pairings.get(1),2,1,"c","d");
+		assertEquals(0,pairings.get(0).getOpeningIndex());
+	}
+
+	@Test
+	public void pairsByScoreWithoutRematches() {
+		List<String> players = Arrays.asList("a","b","c","d","e","f","g","h");
+		SwissScheduler swissScheduler = new SwissScheduler(players,5,0);
+		TournamentState tournamentState = new TournamentState();
+		Set<String> met = new HashSet<String>();
+		for (int round = 1; round <= 5; round++) {
+			List<Pairing> pairings = swissScheduler.nextPairings(tournamentState,tournamentState.getNextGameNumber());
+			assertEquals(4,pairings.size());
+			Set<String> roundPlayers = new HashSet<String>();
+			for (Pairing pairing : pairings) {
+				assertEquals(round,pairing.getRound());
+				assertTrue(met.add(pairing.getWhite() + "\t" + pairing.getBlack()));
+				assertTrue(met.add(pairing.getBlack() + "\t" + pairing.getWhite()));
+				assertTrue(roundPlayers.add(pairing.getWhite()));
+				assertTrue(roundPlayers.add(pairing.getBlack()));
+			}
+			play(tournamentState,pairings);
+		}
+		// Seeding decides every game, so the top seed wins all of them.
+		assertEquals(5,tournamentState.getStandings().getRecord("a").getWins());
+		assertEquals(0,swissScheduler.nextPairings(tournamentState,tournamentState.getNextGameNumber()).size());
+	}
+
+	@Test
+	public void lowestRankedGetsByeOnce() {
+		List<String> players = Arrays.asList("a","b","c","d","e");
+		SwissScheduler swissScheduler = new SwissScheduler(players,5,0);
+		TournamentState tournamentState = new TournamentState();
+		Set<String> byes = new HashSet<String>();
+		for (int round = 1; round <= 5; round++) {
+			List<Pairing> pairings = swissScheduler.nextPairings(tournamentState,tournamentState.getNextGameNumber());
+			assertEquals(2,pairings.size());
+			Set<String> resting = new HashSet<String>(players);
+			for (Pairing pairing : pairings) {
+				resting.remove(pairing.getWhite());
+				resting.remove(pairing.getBlack());
+			}
+			assertEquals(1,resting.size());
+			assertTrue(byes.addAll(resting));
+			play(tournamentState,pairings);
+		}
+		assertEquals(5,byes.size());
+	}
+
+	@Test
+	public void alternatesColors() {
+		List<String> players = Arrays.asList("a","b","c","d","e","f");
+		SwissScheduler swissScheduler = new SwissScheduler(players,4,0);
+		TournamentState tournamentState = new TournamentState();
+		for (int round = 1; round <= 4; round++) {
+			play(tournamentState,swissScheduler.nextPairings(tournamentState,tournamentState.getNextGameNumber()));
+		}
+		Map<String,Integer> whites = new HashMap<String,Integer>();
+		for (Pairing pairing : tournamentState.getSchedule()) {
+			Integer count = whites.get(pairing.getWhite());
+			whites.put(pairing.getWhite(),count != null ? count + 1 : 1);
+		}
+		for (String player : players) {
+			Integer count = whites.get(player);
+			assertTrue(count != null && count >= 1 && count <= 3);
+		}
+	}
+
+	/**
+	 * Adds the pairings and lets the better seeded player of each win.
+	 */
+	private static void play(TournamentState tournamentState,List<Pairing> pairings) {
+		for (Pairing pairing : pairings) {
+			tournamentState.addPairing(pairing);
+			boolean whiteWins = pairing.getWhite().compareTo(pairing.getBlack()) < 0;
+			tournamentState.addResult(new CompletedGame(pairing,whiteWins ? GameResult.WHITE_WIN : GameResult.BLACK_WIN,"test",60,100,null));
+		}
+	}
+
+	private static void assertPairing(Pairing pairing,int gameNumber,int round,String player1,String player2) {
+		assertEquals(gameNumber,pairing.getGameNumber());
+		assertEquals(round,pairing.getRound());
+		assertEquals(new HashSet<String>(Arrays.asList(player1,player2)),new HashSet<String>(Arrays.asList(pairing.getWhite(),pairing.getBlack())));
+	}
+}
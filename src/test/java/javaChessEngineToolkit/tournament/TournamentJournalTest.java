@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 John Nahlen
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package javaChessEngineToolkit.tournament;
+
+import javaChessEngineToolkit.GameResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TournamentJournalTest {
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("journal").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void replaysPairingsAndResults() throws IOException {
+		TournamentJournal tournamentJournal = new TournamentJournal(dir);
+		assertEquals(0,tournamentJournal.load().getSchedule().size());
+		tournamentJournal.appendPairings(Arrays.asList(new Pairing(1,1,"a","b",0),new Pairing(2,1,"b","a",0)));
+		tournamentJournal.appendResult(new CompletedGame(new Pairing(1,1,"a","b",0),GameResult.WHITE_WIN,"checkmate",57,1234,"1. e4 *"));
+		assertEquals(3,tournamentJournal.getRecordsSinceSnapshot());
+		tournamentJournal.close();
+
+		TournamentState tournamentState = load();
+		assertEquals(2,tournamentState.getSchedule().size());
+		assertEquals(3,tournamentState.getNextGameNumber());
+		assertTrue(tournamentState.isPlayed(1));
+		assertFalse(tournamentState.isPlayed(2));
+		assertEquals(2,tournamentState.getUnplayedPairings().get(0).getGameNumber());
+		CompletedGame completedGame = tournamentState.getResults().get(0);
+		assertEquals(GameResult.WHITE_WIN,completedGame.getGameResult());
+		assertEquals("checkmate",completedGame.getReason());
+		assertEquals(57,completedGame.getPlies());
+		assertEquals(1234,completedGame.getDurationMs());
+		assertEquals("1. e4 *",completedGame.getPgn());
+		assertEquals(1,tournamentState.getStandings().getRecord("a").getWins());
+	}
+
+	@Test
+	public void cutsOffTornRecord() throws IOException {
+		TournamentJournal tournamentJournal = new TournamentJournal(dir);
+		tournamentJournal.load();
+		tournamentJournal.appendPairings(Arrays.asList(new Pairing(1,1,"a","b",0)));
+		tournamentJournal.close();
+		File journalFile = new File(dir,"journal.tsv");
+		long length = journalFile.length();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile,"rw");
+		try {
+			randomAccessFile.seek(length);
+			randomAccessFile.write("R\t1\t1-0\t4".getBytes("UTF-8"));
+		} finally {
+			randomAccessFile.close();
+		}
+
+		tournamentJournal = new TournamentJournal(dir);
+		TournamentState tournamentState = tournamentJournal.load();
+		assertEquals(length,journalFile.length());
+		assertEquals(1,tournamentState.getSchedule().size());
+		assertFalse(tournamentState.isPlayed(1));
+		// Appending continues after the last complete record.
+		tournamentJournal.appendResult(new CompletedGame(new Pairing(1,1,"a","b",0),GameResult.DRAW,"repetition",100,10,null));
+		tournamentJournal.close();
+		tournamentState = load();
+		assertEquals(GameResult.DRAW,tournamentState.getResults().get(0).getGameResult());
+		assertNull(tournamentState.getResults().get(0).getPgn());
+	}
+
+	@Test
+	public void snapshotEmptiesJournal() throws IOException {
+		TournamentJournal tournamentJournal = new TournamentJournal(dir);
+		TournamentState tournamentState = tournamentJournal.load();
+		Pairing pairing = new Pairing(1,1,"a","b",3);
+		tournamentState.addPairing(pairing);
+		tournamentJournal.appendPairings(Arrays.asList(pairing));
+		CompletedGame completedGame = new CompletedGame(pairing,GameResult.BLACK_WIN,"time forfeit",31,500,null);
+		tournamentState.addResult(completedGame);
+		tournamentJournal.appendResult(completedGame);
+		tournamentJournal.snapshot(tournamentState);
+		assertEquals(0,tournamentJournal.getRecordsSinceSnapshot());
+		assertEquals(0,new File(dir,"journal.tsv").length());
+		tournamentJournal.appendPairings(Arrays.asList(new Pairing(2,1,"b","a",3)));
+		tournamentJournal.close();
+
+		tournamentState = load();
+		assertEquals(2,tournamentState.getSchedule().size());
+		assertEquals(3,tournamentState.getPairing(1).getOpeningIndex());
+		assertEquals(1,tournamentState.getStandings().getRecord("b").getWins());
+	}
+
+	@Test
+	public void rejectsResultOfUnscheduledGame() throws IOException {
+		Files.write(new File(dir,"journal.tsv").toPath(),"R\t7\t1-0\t1\t1\t\t\n".getBytes("UTF-8"));
+		try {
+			load();
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void escapesFieldSeparators() {
+		String value = "a\tb\nc\r\\d\\t";
+		String escaped = TournamentJournal.escape(value);
+		assertEquals(-1,escaped.indexOf('\t'));
+		assertEquals(-1,escaped.indexOf('\n'));
+		assertEquals(-1,escaped.indexOf('\r'));
+		assertEquals(value,TournamentJournal.unescape(escaped));
+		assertEquals("",TournamentJournal.escape(null));
+	}
+
+	@Test
+	public void formatsAndParsesRecords() {
+		Pairing pairing = new Pairing(12,3,"Engine\t1","Engine 2",7);
+		String line = TournamentJournal.format(pairing);
+		assertTrue(line.endsWith("\n"));
+		Pairing parsed = TournamentJournal.parsePairing(line.substring(0,line.length() - 1).split("\t",-1));
+		assertEquals(12,parsed.getGameNumber());
+		assertEquals(3,parsed.getRound());
+		assertEquals("Engine\t1",parsed.getWhite());
+		assertEquals("Engine 2",parsed.getBlack());
+		assertEquals(7,parsed.getOpeningIndex());
+
+		line = TournamentJournal.format(new CompletedGame(pairing,null,"crash",0,0,"[Event \"x\"]\n\n*"));
+		CompletedGame completedGame = TournamentJournal.parseResult(line.substring(0,line.length() - 1).split("\t",-1),pairing);
+		assertTrue(completedGame.isAborted());
+		assertEquals("[Event \"x\"]\n\n*",completedGame.getPgn());
+	}
+
+	private TournamentState load() throws IOException {
+		TournamentJournal tournamentJournal = new TournamentJournal(dir);
+		try {
+			return tournamentJournal.load();
+		} finally {
+			tournamentJournal.close();
+		}
+	}
+}